@@ -14,21 +14,26 @@ import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Component;
 
-import java.util.concurrent.CompletableFuture;
 
 @Component
 @Order(org.riptide.pipeline.EnricherOrder.CLASSIFICATION)
 @RequiredArgsConstructor
 @ConditionalOnProperty(name = "riptide.enricher.classification.enabled", havingValue = "true", matchIfMissing = true)
-public class ClassificationEnricher extends Enricher.Single {
+public class ClassificationEnricher extends Enricher.Synchronous {
 
     @NonNull
     private final ClassificationEngine classificationEngine;
 
     @Override
-    protected CompletableFuture<Void> enrich(Source source, EnrichedFlow flow) {
+    protected Step prepare(final Source source) {
+        // The exporter is the same for the whole packet: parse its address once.
+        final var exporterAddress = IpAddr.of(source.getExporterAddr());
+        return flow -> this.classify(source, exporterAddress, flow);
+    }
+
+    private void classify(final Source source, final IpAddr exporterAddress, final EnrichedFlow flow) {
         final var request = ClassificationRequest.builder()
-                .withExporterAddress(IpAddr.of(source.getExporterAddr()))
+                .withExporterAddress(exporterAddress)
                 .withZone(source.getZone())
                 .withProtocol(Protocols.getProtocol(flow.getProtocol()))
                 .withSrcAddress(IpAddr.of(flow.getSrcAddr()))
@@ -41,7 +46,5 @@ public class ClassificationEnricher extends Enricher.Single {
         if (application != null) {
             flow.setApplication(application);
         }
-
-        return CompletableFuture.completedFuture(null);
     }
 }
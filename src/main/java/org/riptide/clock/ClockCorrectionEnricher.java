@@ -18,7 +18,6 @@ import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Component;
 
 import java.time.Duration;
-import java.util.concurrent.CompletableFuture;
 
 @Component
 @Order(org.riptide.pipeline.EnricherOrder.CLOCK_CORRECTION)
@@ -26,15 +25,21 @@ import java.util.concurrent.CompletableFuture;
 @Setter
 @RequiredArgsConstructor
 @ConditionalOnProperty(name = "riptide.enricher.clock-correction.enabled", havingValue = "true", matchIfMissing = true)
-public class ClockCorrectionEnricher extends Enricher.Single {
+public class ClockCorrectionEnricher extends Enricher.Synchronous {
 
     @NonNull
     private final ClockCorrectionConfiguration configuration;
 
     @Override
-    protected CompletableFuture<Void> enrich(final Source source, final EnrichedFlow flow) {
+    protected Step prepare(final Source source) {
+        // One read of the threshold per batch, not per flow.
+        final long skewThresholdMs = this.configuration.getSkewThresholdMs();
+        return flow -> correct(flow, skewThresholdMs);
+    }
+
+    private static void correct(final EnrichedFlow flow, final long skewThresholdMs) {
         if (flow.getFirstSwitched() == null || flow.getLastSwitched() == null) {
-            return CompletableFuture.completedFuture(null);
+            return;
         }
 
         if (flow.getFirstSwitched().isAfter(flow.getLastSwitched())) {
@@ -49,9 +54,9 @@ public class ClockCorrectionEnricher extends Enricher.Single {
             flow.setDeltaSwitched(flow.getTimestamp().minus(timeout));
         }
 
-        if (this.configuration.getSkewThresholdMs() != 0) {
+        if (skewThresholdMs != 0) {
             final var skew = Duration.between(flow.getReceivedAt(), flow.getTimestamp());
-            if (skew.abs().toMillis() >= this.configuration.getSkewThresholdMs()) {
+            if (skew.abs().toMillis() >= skewThresholdMs) {
                 // The applied correction is the negative skew
                 flow.setClockCorrection(skew.negated());
 
@@ -62,7 +67,5 @@ public class ClockCorrectionEnricher extends Enricher.Single {
                 flow.setLastSwitched(flow.getLastSwitched().minus(skew));
             }
         }
-
-        return CompletableFuture.completedFuture(null);
     }
 }
@@ -9,13 +9,94 @@ import lombok.Data;
 import org.riptide.secrets.SecretRef;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import java.nio.file.Path;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 
 @Data
 @ConfigurationProperties(prefix = "riptide.clickhouse")
 public final class ClickhouseConfig {
+        /**
+         * The ClickHouse HTTP endpoint. With {@link #shards} unset it is the only one: every insert,
+         * the schema management and the MCP query path go there. With shards set it is left to the
+         * query path — typically a node holding a {@code Distributed} table over the shards.
+         */
         private String endpoint = "http://localhost:8123";
 
+        /**
+         * Write to several ClickHouse servers instead of {@link #endpoint}: one entry per shard,
+         * each a comma-separated list of that shard's replica endpoints, e.g.
+         * {@code riptide.clickhouse.shards[0]=http://ch1a:8123,http://ch1b:8123}. Every flow is
+         * written to exactly one shard, chosen by {@link #sharding}; each shard gets a batching
+         * queue, flusher and spill of its own, so a slow or unreachable shard backs up only its own
+         * rows. Within a shard, the first healthy replica takes the insert and the rest are
+         * failover — the replicas of a {@code ReplicatedMergeTree} table copy rows among
+         * themselves, so writing each row to one of them is enough. Riptide does not create
+         * replicated tables: a shard of several replicas needs {@link #manageSchema} off and the
+         * tables provisioned replicated, which is checked on every replica at startup. Empty
+         * (default) keeps the single endpoint.
+         */
+        private List<List<String>> shards = new ArrayList<>();
+
+        /** How flows are spread over {@link #shards}; ignored with a single shard. */
+        private Sharding sharding = Sharding.TENANT;
+
+        /**
+         * How long a replica whose insert failed is passed over before it is tried again. The
+         * remaining replicas of its shard take its inserts meanwhile; if they are all down, every
+         * one is tried again regardless, so a shard never stops trying altogether.
+         */
+        private Duration failoverCooldown = Duration.ofSeconds(30);
+
+        public enum Sharding {
+                /**
+                 * By tenant: each tenant's flows live on one shard, so a tenant-scoped query touches
+                 * one shard. A dominant tenant skews the load.
+                 */
+                TENANT,
+                /**
+                 * By exporter address: spreads the load evenly across exporters, at the cost of
+                 * every tenant spanning every shard.
+                 */
+                EXPORTER
+        }
+
+        /**
+         * The write topology: one list of replica endpoints per shard — {@link #shards} when set,
+         * otherwise {@link #endpoint} as a single shard of one. Fails fast on a shard listing no
+         * endpoint, which would otherwise swallow its share of the flows, and on a shard of several
+         * replicas in manage mode: the plain {@code MergeTree} manage mode creates on each of them
+         * does not replicate, so the rows of a failover would stay on the replica that took them.
+         */
+        public List<List<String>> topology() {
+                if (this.shards == null || this.shards.isEmpty()) {
+                        return List.of(List.of(this.endpoint));
+                }
+                final List<List<String>> topology = new ArrayList<>();
+                for (int i = 0; i < this.shards.size(); i++) {
+                        final List<String> replicas = this.shards.get(i) == null ? List.of()
+                                : this.shards.get(i).stream().map(String::trim).filter(e -> !e.isEmpty()).toList();
+                        if (replicas.isEmpty()) {
+                                throw new IllegalArgumentException(
+                                        "riptide.clickhouse.shards[" + i + "] must list at least one endpoint");
+                        }
+                        if (replicas.size() > 1 && this.manageSchema) {
+                                throw new IllegalArgumentException(
+                                        "riptide.clickhouse.shards[" + i + "] lists " + replicas.size()
+                                                + " replicas, but riptide.clickhouse.manage-schema=true creates"
+                                                + " tables that do not replicate — provision ReplicatedMergeTree"
+                                                + " tables on the replicas and set manage-schema=false");
+                        }
+                        topology.add(replicas);
+                }
+                if (this.failoverCooldown == null || this.failoverCooldown.isNegative()) {
+                        throw new IllegalArgumentException(
+                                "riptide.clickhouse.failover-cooldown must not be negative (got " + this.failoverCooldown + ")");
+                }
+                return List.copyOf(topology);
+        }
+
         /**
          * ClickHouse credentials as {@link SecretRef}s: a bare literal binds through the plain
          * fallback (existing configs keep working), while a {@code scheme://…} reference is
@@ -93,6 +174,60 @@ public final class ClickhouseConfig {
 
         private BatchConfig batch = new BatchConfig();
 
+        private RollupConfig rollups = new RollupConfig();
+
+        /**
+         * Who computes the 1-minute rollups. By default the server does: every insert into
+         * {@code flows} fires the four materialized views, which re-aggregate the batch on the
+         * shared ClickHouse. In {@link Mode#COLLECTOR} mode the collector totals its flows per
+         * minute in memory instead and inserts the totals into the rollup tables itself, and the
+         * views are left out — the aggregation CPU moves to collectors, which scale out, and off
+         * the one server every collector writes to.
+         *
+         * <p>A minute's totals are held until {@link #grace} past its end, so late flows still
+         * land in them, then inserted; a flow arriving later still is inserted on its own, which
+         * the {@code SummingMergeTree} folds into the same row on merge. The rollup is therefore
+         * correct at any grace — a longer one only means fewer rows for the merges. Only flows
+         * whose insert succeeded are counted, as with the views.
+         */
+        @Data
+        public static final class RollupConfig {
+                private Mode mode = Mode.SERVER;
+
+                /** How long after a minute ends its totals wait for late flows. */
+                private Duration grace = Duration.ofSeconds(30);
+
+                /**
+                 * Bound on the totals held in memory, in rows across all rollups and minutes. Past
+                 * it, the oldest minutes are inserted early rather than waiting out the grace. A
+                 * row is a few hundred bytes; the conversation rollup is the one that grows with
+                 * traffic.
+                 */
+                private int maxRows = 200_000;
+
+                public enum Mode {
+                        /** Materialized views on {@code flows} feed the rollups (the default). */
+                        SERVER,
+                        /** The collector aggregates and inserts the rollups; no views. */
+                        COLLECTOR
+                }
+
+                public boolean isCollector() {
+                        return this.mode == Mode.COLLECTOR;
+                }
+
+                public void validate() {
+                        if (this.grace == null || this.grace.isNegative()) {
+                                throw new IllegalArgumentException(
+                                        "riptide.clickhouse.rollups.grace must not be negative (got " + this.grace + ")");
+                        }
+                        if (this.maxRows <= 0) {
+                                throw new IllegalArgumentException(
+                                        "riptide.clickhouse.rollups.max-rows must be > 0 (got " + this.maxRows + ")");
+                        }
+                }
+        }
+
         /**
          * Client-side insert batching: a bounded queue in front of the repository, drained by a
          * single background flusher into one insert per batch. Each insert forms a part and fires
@@ -142,15 +277,49 @@ public final class ClickhouseConfig {
                  */
                 private Duration shutdownGracePeriod = Duration.ofSeconds(5);
 
+                /**
+                 * How many batch inserts may be awaiting ClickHouse's acknowledgement at once.
+                 * With one, throughput is capped at one {@code maxRows} batch per insert
+                 * round-trip: at 10k rows and a 300 ms round-trip that is ~33k rows/s however
+                 * idle the server is, and the queue fills as soon as latency rises. Each further
+                 * insert overlaps another round-trip. The flusher takes a slot before it drains, so
+                 * rows stay queued (and subject to the drop policy) until an insert can take them,
+                 * and batches keep their full size. 1 keeps the single serial flusher; 2–4 suits a
+                 * server with headroom behind a slow link. Every in-flight batch holds up to
+                 * {@link #maxRows} rows outside the queue.
+                 */
+                private int maxInFlightInserts = 1;
+
+                /**
+                 * Sort every batch into the table's own order before the insert: grouped by
+                 * partition, then by the {@code ORDER BY} key (see {@code BatchShaper}). The
+                 * server splits each insert by partition and sorts each piece by the key before
+                 * writing a part; rows already in that order make both near-free, which is CPU
+                 * the server gets back for merges. Costs the collector an in-memory sort per
+                 * batch — a few milliseconds for 10k rows on an insert thread. Off hands the
+                 * rows over in arrival order, as before.
+                 */
+                private boolean presort = true;
+
+                private SpillConfig spill = new SpillConfig();
+
+                private AdaptiveConfig adaptive = new AdaptiveConfig();
+
+                private RetryConfig retry = new RetryConfig();
+
                 /**
                  * Fail fast on values that would misbehave at runtime; called when the batching
                  * repository is constructed. {@code maxRows <= 0} would busy-spin the flusher,
-                 * {@code queueCapacity <= 0} only surfaces as an opaque queue exception, and a
+                 * {@code queueCapacity <= 0} only surfaces as an opaque queue exception,
+                 * {@code maxInFlightInserts <= 0} would never flush at all, and a
                  * {@code shutdownGracePeriod} under twice {@code maxLatency} leaves the drain no
                  * usable time (the flusher notices the stop signal only between drain windows,
                  * so up to one full window is gone before it even starts draining).
                  */
                 public void validate() {
+                        this.spill.validate();
+                        this.adaptive.validate(this.maxRows);
+                        this.retry.validate();
                         if (this.maxRows <= 0) {
                                 throw new IllegalArgumentException(
                                         "riptide.clickhouse.batch.max-rows must be > 0 (got " + this.maxRows + ")");
@@ -159,6 +328,11 @@ public final class ClickhouseConfig {
                                 throw new IllegalArgumentException(
                                         "riptide.clickhouse.batch.queue-capacity must be > 0 (got " + this.queueCapacity + ")");
                         }
+                        if (this.maxInFlightInserts <= 0) {
+                                throw new IllegalArgumentException(
+                                        "riptide.clickhouse.batch.max-in-flight-inserts must be > 0 (got "
+                                                + this.maxInFlightInserts + ")");
+                        }
                         if (this.maxLatency == null || this.maxLatency.isZero() || this.maxLatency.isNegative()) {
                                 throw new IllegalArgumentException(
                                         "riptide.clickhouse.batch.max-latency must be positive (got " + this.maxLatency + ")");
@@ -177,5 +351,148 @@ public final class ClickhouseConfig {
                                                 + "so anything less leaves no time to drain the queue");
                         }
                 }
+        
+                /**
+                 * What a batch insert does when it fails, before the batch is spilled or counted
+                 * as failed. Every batch carries an {@code insert_deduplication_token} that stays
+                 * the same across its attempts, so retrying an insert that did land — the
+                 * acknowledgement lost in a network blip — is discarded by the server instead of
+                 * inserting the rows twice.
+                 *
+                 * <p>A transient failure (connection, timeout, or a server error the client marks
+                 * retryable: too many parts, memory limit, …) is retried up to
+                 * {@link #maxAttempts} times in all, with exponential backoff from
+                 * {@link #initialBackoff} to {@link #maxBackoff}. A failure caused by the rows
+                 * themselves — the server rejecting a value, a constraint, a parse — would fail
+                 * every retry, so the batch is split in halves instead, and the halves again,
+                 * until the rows the server rejects are isolated and only those are lost. At most
+                 * {@link #maxBisectInserts} extra inserts are spent on one batch: isolating one
+                 * bad row in 10k takes about 28, and a batch in which every row is bad (a
+                 * mis-tenanted collector against the CHECK barrier) must not turn into 20k
+                 * round-trips.
+                 */
+                @Data
+                public static final class RetryConfig {
+                        /** Attempts per batch for transient failures, the first included; 1 disables retries. */
+                        private int maxAttempts = 3;
+
+                        private Duration initialBackoff = Duration.ofMillis(100);
+
+                        private Duration maxBackoff = Duration.ofSeconds(2);
+
+                        /** Budget of extra inserts to isolate rejected rows in one batch; 0 disables bisection. */
+                        private int maxBisectInserts = 64;
+
+                        public void validate() {
+                                if (this.maxAttempts <= 0) {
+                                        throw new IllegalArgumentException(
+                                                "riptide.clickhouse.batch.retry.max-attempts must be > 0 (got "
+                                                        + this.maxAttempts + ")");
+                                }
+                                if (this.initialBackoff == null || this.initialBackoff.isNegative()
+                                                || this.maxBackoff == null || this.maxBackoff.compareTo(this.initialBackoff) < 0) {
+                                        throw new IllegalArgumentException(
+                                                "riptide.clickhouse.batch.retry needs 0 <= initial-backoff <= max-backoff (got "
+                                                        + this.initialBackoff + ", " + this.maxBackoff + ")");
+                                }
+                                if (this.maxBisectInserts < 0) {
+                                        throw new IllegalArgumentException(
+                                                "riptide.clickhouse.batch.retry.max-bisect-inserts must be >= 0 (got "
+                                                        + this.maxBisectInserts + ")");
+                                }
+                        }
+                }
+
+                /**
+                 * Adaptive batch sizing (see {@code AdaptiveBatchSize}): instead of flushing at a
+                 * fixed {@link #maxRows}, the flusher aims for a target between {@link #minRows}
+                 * and {@code maxRows} that each insert moves AIMD-style — halved when an insert
+                 * fails or takes longer than {@code maxLatency}, raised by {@code minRows} when
+                 * the queue holds a full target's worth of rows or inserts (each a new part)
+                 * arrive faster than {@link #maxInsertsPerSecond}. Traffic that varies 20x
+                 * between night and peak has no single right size; with this on, set
+                 * {@code maxRows} to the largest batch the heap and server should ever see.
+                 * The time trigger is unchanged, so below the target nothing differs.
+                 */
+                @Data
+                public static final class AdaptiveConfig {
+                        private boolean enabled = false;
+
+                        /** Floor of the target, and the step it grows by. */
+                        private int minRows = 1_000;
+
+                        /**
+                         * Insert rate above which batches grow: ClickHouse guidance is about one
+                         * insert per second, since every insert is a part for the merges to
+                         * fold back together.
+                         */
+                        private double maxInsertsPerSecond = 1.0;
+
+                        public void validate(final int maxRows) {
+                                if (!this.enabled) {
+                                        return;
+                                }
+                                if (this.minRows <= 0 || this.minRows > maxRows) {
+                                        throw new IllegalArgumentException(
+                                                "riptide.clickhouse.batch.adaptive.min-rows must be > 0 and at most max-rows ("
+                                                        + maxRows + ") (got " + this.minRows + ")");
+                                }
+                                if (!(this.maxInsertsPerSecond > 0)) {
+                                        throw new IllegalArgumentException(
+                                                "riptide.clickhouse.batch.adaptive.max-inserts-per-second must be > 0 (got "
+                                                        + this.maxInsertsPerSecond + ")");
+                                }
+                        }
+                }
+
+                /**
+                 * Optional on-disk spill (see {@code SpillQueue}): rows a full queue would drop and
+                 * batches whose insert failed are appended to memory-mapped segment files instead,
+                 * and replayed in order once inserts succeed again. Without it, a ClickHouse
+                 * maintenance window costs exactly its length in flows: the queue covers a couple
+                 * of slow inserts, not minutes of downtime. Off by default — it needs a directory
+                 * on a disk that can take the write rate of a full outage.
+                 */
+                @Data
+                public static final class SpillConfig {
+                        private boolean enabled = false;
+
+                        /** Where the segment files live; required when enabled. Created if missing. */
+                        private Path directory;
+
+                        /**
+                         * Cap on the spill directory, counted in allocated segments. At a few hundred
+                         * bytes per flow, 1 GiB holds a few million flows — minutes of a busy
+                         * collector. Past it, rows are dropped and counted as before.
+                         */
+                        private long maxBytes = 1L << 30;
+
+                        /**
+                         * Size of one segment file. A segment is deleted once fully replayed, so
+                         * smaller segments return disk sooner; larger ones roll (and fsync) less
+                         * often. A batch larger than this gets a segment of its own.
+                         */
+                        private int segmentBytes = 64 << 20;
+
+                        public void validate() {
+                                if (!this.enabled) {
+                                        return;
+                                }
+                                if (this.directory == null) {
+                                        throw new IllegalArgumentException(
+                                                "riptide.clickhouse.batch.spill.directory is required when the spill is enabled");
+                                }
+                                if (this.segmentBytes <= 0) {
+                                        throw new IllegalArgumentException(
+                                                "riptide.clickhouse.batch.spill.segment-bytes must be > 0 (got "
+                                                        + this.segmentBytes + ")");
+                                }
+                                if (this.maxBytes < this.segmentBytes) {
+                                        throw new IllegalArgumentException(
+                                                "riptide.clickhouse.batch.spill.max-bytes (" + this.maxBytes
+                                                        + ") must be at least segment-bytes (" + this.segmentBytes + ")");
+                                }
+                        }
+                }
         }
 }
@@ -46,6 +46,10 @@ public final class DaemonConfig {
     @Setter
     private IdentityConfig identity = new IdentityConfig();
 
+    @Getter
+    @Setter
+    private DispatchConfig dispatch = new DispatchConfig();
+
     @Getter
     private Map<String, ReceiverConfig> receivers = new HashMap<>();
 
@@ -166,6 +170,22 @@ public final class DaemonConfig {
         return value == null || value.isBlank();
     }
 
+    /** The worker pool shared by the receivers configured with {@code dispatch=shared}. */
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    public static final class DispatchConfig {
+        /**
+         * Workers in the shared pool; 0 means one per core. Resizable at runtime through the
+         * management API when {@code riptide.management.dispatch-resize-enabled} is set.
+         */
+        private int threads = 0;
+
+        public int resolveThreads() {
+            return this.threads > 0 ? this.threads : Runtime.getRuntime().availableProcessors();
+        }
+    }
+
     @Getter
     @Setter
     @NoArgsConstructor
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2026 Riptide Labs, <https://github.com/Riptide-Labs>
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package org.riptide.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "riptide.pipeline")
+@Data
+public class PipelineConfig {
+
+    /**
+     * Run the enrichers flow-major instead of enricher-major: every enricher's step on one flow,
+     * in {@link org.riptide.pipeline.EnricherOrder}, before the next flow — one pass over the
+     * packet instead of one per enricher, with a flow's fields still in cache from the step
+     * before. Asynchronous lookups (DNS) are started in their place and awaited once, after the
+     * pass, so no enricher may read a field an earlier one fills asynchronously; none does.
+     */
+    private boolean fusedEnrichment = false;
+
+    private ContinuationConfig continuation = new ContinuationConfig();
+
+    /**
+     * Continuation-based enrichment: a batch whose asynchronous enrichers still have work pending
+     * (a reverse-DNS cache miss) is parked and resumed once that work completes, instead of
+     * holding the parser worker that dispatched it. Off, the worker waits, as it always has — and
+     * a few slow PTR lookups stall the whole receiver into dispatch drops.
+     */
+    @Data
+    public static final class ContinuationConfig {
+        private boolean enabled = false;
+
+        /**
+         * Bound on the batches parked at once. Past it the worker waits for its batch as if
+         * continuations were off: back-pressure rather than unbounded memory held by lookups. It
+         * waits no longer than {@link #timeout}, though.
+         */
+        private int maxInFlightBatches = 1024;
+
+        /**
+         * How long a batch waits for its pending work in all, parked or on a worker past
+         * {@link #maxInFlightBatches}. Then it carries on without
+         * it — the flows persist without the fields the lookups would have filled, like any
+         * other failed lookup — and the timeout is counted.
+         */
+        private Duration timeout = Duration.ofSeconds(10);
+
+        /** Threads resuming parked batches: the rest of their enrichment, and the persist. */
+        private int threads = 2;
+
+        public void validate() {
+            if (this.maxInFlightBatches <= 0) {
+                throw new IllegalArgumentException(
+                        "riptide.pipeline.continuation.max-in-flight-batches must be > 0 (got " + this.maxInFlightBatches + ")");
+            }
+            if (this.timeout == null || this.timeout.isNegative() || this.timeout.isZero()) {
+                throw new IllegalArgumentException(
+                        "riptide.pipeline.continuation.timeout must be > 0 (got " + this.timeout + ")");
+            }
+            if (this.threads <= 0) {
+                throw new IllegalArgumentException(
+                        "riptide.pipeline.continuation.threads must be > 0 (got " + this.threads + ")");
+            }
+        }
+    }
+}
@@ -51,6 +51,58 @@ public abstract sealed class ReceiverConfig {
     ///  Listening host
     String host;
 
+    /**
+     * UDP sockets opened on {@link #port} with {@code SO_REUSEPORT}, each read by its own event-loop
+     * thread. The default of 1 is the single NIO socket every receiver has always had; above 1 the
+     * kernel spreads exporters across the sockets, so decode scales with cores instead of being
+     * capped at one thread per port. Linux-only, since it needs Netty's native epoll transport, and
+     * refused for IPFIX over TCP, which has no datagram socket to fan out.
+     */
+    int receiveThreads = 1;
+
+    /**
+     * Datagrams read per {@code recvmmsg} call on each UDP socket. The default of 1 reads one
+     * datagram per syscall; above 1 a single wakeup drains up to this many, at the cost of a
+     * receive buffer this many datagrams long per read. Linux-only like {@link #receiveThreads}, and
+     * likewise refused for IPFIX over TCP.
+     */
+    int receiveBatchSize = 1;
+
+    /**
+     * Worker threads that decode this receiver's datagrams, so the event loop only reads the socket
+     * and routes each datagram to the worker owning its exporter's session. The default of 0 decodes
+     * on the event loop itself. Packets of one exporter always decode on one worker, in order, so
+     * templates and sequence tracking behave exactly as they do inline. A {@code multi} receiver
+     * gives each enabled protocol this many. Refused for IPFIX over TCP, which already decodes per
+     * connection on its worker loops.
+     */
+    int decodeThreads = 0;
+
+    /**
+     * What runs this receiver's dispatch tasks — enrichment and the hand-off to the persister.
+     * {@code platform}, the default, is a fixed pool of one thread per core. {@code virtual} starts
+     * a virtual thread per packet instead, so a dispatch blocked on a reverse-DNS miss frees its
+     * carrier rather than a whole pool thread. {@code shared} queues on the collector-wide pool
+     * ({@code riptide.dispatch.threads}) that every receiver choosing it shares, so the cores follow
+     * the load between receivers. Either way the dispatch queue's capacity still bounds the packets
+     * in hand, and a full one still drops for UDP and blocks for TCP.
+     */
+    Dispatch dispatch = Dispatch.PLATFORM;
+
+    /**
+     * With {@code dispatch=shared}, this receiver's share of the shared workers while other
+     * receivers also have packets waiting: a receiver of weight 2 is served twice as often as one of
+     * weight 1. An idle receiver's share goes to the busy ones. A {@code multi} receiver gives each
+     * enabled protocol this weight.
+     */
+    int dispatchWeight = 1;
+
+    public enum Dispatch {
+        PLATFORM,
+        VIRTUAL,
+        SHARED,
+    }
+
     public abstract <T> T accept(Cases<T> cases);
 
     @Data
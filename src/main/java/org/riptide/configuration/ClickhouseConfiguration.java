@@ -12,12 +12,23 @@ import org.riptide.mcp.config.McpProperties;
 import org.riptide.repository.FlowRepository;
 import org.riptide.repository.clickhouse.BatchingFlowRepository;
 import org.riptide.repository.clickhouse.ClickhouseRepository;
+import org.riptide.repository.clickhouse.FailoverFlowRepository;
+import org.riptide.repository.clickhouse.RollupAggregator;
+import org.riptide.repository.clickhouse.RollupSink;
+import org.riptide.repository.clickhouse.ShardedFlowRepository;
+import org.riptide.repository.clickhouse.ShardingPolicy;
 import org.riptide.secrets.SecretRef;
 import org.riptide.secrets.SecretResolvers;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 @Configuration
 public class ClickhouseConfiguration {
 
@@ -54,17 +65,56 @@ public class ClickhouseConfiguration {
                 .build();
     }
 
+    /**
+     * The write path. With a single endpoint: the batching decorator over one repository, or the
+     * raw per-record repository when batching is off. With {@code riptide.clickhouse.shards} set:
+     * one such chain per shard — batching over failover across the shard's replicas — behind a
+     * repository that routes each flow to its shard by the configured sharding, or by a
+     * {@link ShardingPolicy} bean when the context has one. With collector rollups, the
+     * {@link RollupAggregator} sits right above the repository writing the flows, under batching:
+     * it totals exactly the inserts that landed, and inserts the rollups where their flows went.
+     */
     @Bean
-    public FlowRepository clickhouseRepository(final ClickhouseRepository.FlowMapper flowMapper,
-                                               final ClickhouseConfig config,
+    public FlowRepository clickhouseRepository(final ClickhouseConfig config,
                                                final SecretResolvers secretResolvers,
-                                               final MetricRegistry metricRegistry) {
-        final var repository = new ClickhouseRepository(flowMapper, config, secretResolvers);
-        // The batching decorator is the default write path; disabling it falls back to the raw
-        // per-record repository (one insert per persist call).
-        if (config.getBatch().isEnabled()) {
-            return new BatchingFlowRepository(repository, config.getBatch(), metricRegistry);
+                                               final MetricRegistry metricRegistry,
+                                               @Autowired(required = false) final ShardingPolicy shardingPolicy) {
+        final List<List<String>> topology = config.topology();
+        if (config.getShards().isEmpty()) {
+            final var repository = withRollups(new ClickhouseRepository(config, secretResolvers),
+                    config, metricRegistry, null);
+            // The batching decorator is the default write path; disabling it falls back to the raw
+            // per-record repository (one insert per persist call).
+            if (config.getBatch().isEnabled()) {
+                return new BatchingFlowRepository(repository, config.getBatch(), metricRegistry);
+            }
+            return repository;
         }
-        return repository;
+
+        final List<FlowRepository> shards = new ArrayList<>();
+        for (int i = 0; i < topology.size(); i++) {
+            final String shard = "shard" + i;
+            final Map<String, FlowRepository> replicas = new LinkedHashMap<>();
+            for (final String endpoint : topology.get(i)) {
+                replicas.put(endpoint, new ClickhouseRepository(config, endpoint, secretResolvers));
+            }
+            final var failover = withRollups(
+                    new FailoverFlowRepository(shard, replicas, config.getFailoverCooldown(), metricRegistry),
+                    config, metricRegistry, shard);
+            shards.add(config.getBatch().isEnabled()
+                    ? new BatchingFlowRepository(failover, config.getBatch(), metricRegistry, shard)
+                    : failover);
+        }
+        return new ShardedFlowRepository(shards,
+                shardingPolicy != null ? shardingPolicy : ShardingPolicy.of(config.getSharding()));
+    }
+
+    private static <R extends FlowRepository & RollupSink> FlowRepository withRollups(final R repository,
+                                                                                      final ClickhouseConfig config,
+                                                                                      final MetricRegistry metricRegistry,
+                                                                                      final String shard) {
+        return config.getRollups().isCollector()
+                ? new RollupAggregator(repository, config.getRollups(), metricRegistry, shard)
+                : repository;
     }
 }
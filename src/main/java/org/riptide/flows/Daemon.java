@@ -17,6 +17,8 @@ import org.riptide.flows.listeners.TcpListener;
 import org.riptide.flows.listeners.UdpListener;
 import org.riptide.flows.listeners.multi.DispatchableUdpParser;
 import org.riptide.flows.listeners.multi.DispatchingUdpParser;
+import org.riptide.flows.parser.DispatchScheduler;
+import org.riptide.flows.parser.ParserBase;
 import org.riptide.flows.parser.ie.values.ValueConversionService;
 import org.riptide.flows.parser.data.Flow;
 import org.riptide.flows.parser.ipfix.IpfixTcpParser;
@@ -48,6 +50,7 @@ public class Daemon implements ApplicationRunner {
 
     private final List<Listener> listeners;
     private final Pipeline pipeline;
+    private final DispatchScheduler dispatchScheduler;
 
     // Set once the receivers have been started, so health checks can tell "still booting" (live but
     // not ready) apart from "a started receiver has died" (not live).
@@ -70,6 +73,9 @@ public class Daemon implements ApplicationRunner {
         final SessionAdmission sessionAdmission = new SessionAdmission(sessionAdmissionConfig, metricRegistry);
 
         this.pipeline = Objects.requireNonNull(pipeline);
+        // One pool for every receiver that asks for it. Its workers start with the first such
+        // receiver, so a collector where none does starts no thread for it.
+        this.dispatchScheduler = new DispatchScheduler(config.getDispatch().resolveThreads(), metricRegistry);
         // A packet's records are dispatched as one batch (see ParserBase#transmit), so a failure
         // here now costs the whole packet rather than a single flow. That makes swallowing it
         // quietly unacceptable and rethrowing it worse: the previous RuntimeException travelled up
@@ -83,22 +89,27 @@ public class Daemon implements ApplicationRunner {
         // thousand packets/s would otherwise emit a stack trace per packet, synchronously on the
         // worker, making logging the bottleneck and filling the disk.
         final RateLimiter errorWarnLimiter = RateLimiter.create(0.1);
+        final Pipeline.FailureHandler report = (source, flows, e) -> {
+            dispatchErrors.inc(flows);
+            if (log.isWarnEnabled() && errorWarnLimiter.tryAcquire()) {
+                // Deliberately not "enrichment failed": with batching disabled a FlowException
+                // also arrives from the persist path, and mislabelling it misdirects diagnosis.
+                log.warn("Dropping {} flows from {}: {}", flows, source.identity(),
+                        e.getMessage(), e);
+            }
+        };
         final BiConsumer<Source, List<Flow>> dispatcher = (source, flows) -> {
             try {
-                this.pipeline.process(source, flows);
+                // A batch parked on a DNS lookup fails, if at all, after this returns: the
+                // pipeline reports it through the same handler.
+                this.pipeline.process(source, flows, report);
             } catch (final FlowException | RuntimeException e) {
                 // RuntimeException too, not just FlowException: a shut-down SNMP pool throws
                 // RejectedExecutionException and any enricher can NPE. Those used to escape into
                 // the dispatch task and be logged as
                 // "Error preparing records for dispatch" with no counter and no exporter — the exact
                 // hole this block exists to close. A packet's worth of loss must not be silent.
-                dispatchErrors.inc(flows.size());
-                if (log.isWarnEnabled() && errorWarnLimiter.tryAcquire()) {
-                    // Deliberately not "enrichment failed": with batching disabled a FlowException
-                    // also arrives from the persist path, and mislabelling it misdirects diagnosis.
-                    log.warn("Dropping {} flows from {}: {}", flows.size(), source.identity(),
-                            e.getMessage(), e);
-                }
+                report.failed(source, flows.size(), e);
             }
         };
 
@@ -109,10 +120,14 @@ public class Daemon implements ApplicationRunner {
                         final var parser = new Netflow5UdpParser(e.getKey(), dispatcher, identity, metricRegistry)
                                 .withFlowSamplingIntervalFallback(config.getFlowSamplingIntervalFallback())
                                 .withTrustHeaderSamplingInterval(config.isTrustHeaderSamplingInterval());
+                        parser.setDecodeThreads(config.getDecodeThreads());
+                        dispatch(parser, e.getKey(), config);
 
                         return new UdpListener(e.getKey(), parser, metricRegistry)
                                 .withPort(config.getPort())
-                                .withHost(config.getHost());
+                                .withHost(config.getHost())
+                                .withReceiveThreads(config.getReceiveThreads())
+                                .withReceiveBatchSize(config.getReceiveBatchSize());
                     }
 
                     @Override
@@ -124,10 +139,14 @@ public class Daemon implements ApplicationRunner {
                                 .withSamplingTable(exporterSamplingTable);
                         parser.setOptionListener(optionListener);
                         parser.setSessionAdmission(sessionAdmission);
+                        parser.setDecodeThreads(config.getDecodeThreads());
+                        dispatch(parser, e.getKey(), config);
 
                         return new UdpListener(e.getKey(), parser, metricRegistry)
                                 .withPort(config.getPort())
-                                .withHost(config.getHost());
+                                .withHost(config.getHost())
+                                .withReceiveThreads(config.getReceiveThreads())
+                                .withReceiveBatchSize(config.getReceiveBatchSize());
                     }
 
                     @Override
@@ -140,11 +159,15 @@ public class Daemon implements ApplicationRunner {
                                         .withFlowSamplingIntervalFallback(config.getFlowSamplingIntervalFallback());
 
                                 parser.setOptionListener(optionListener);
-                        parser.setSessionAdmission(sessionAdmission);
+                                parser.setSessionAdmission(sessionAdmission);
+                                parser.setDecodeThreads(config.getDecodeThreads());
+                                dispatch(parser, e.getKey(), config);
 
                                 yield new UdpListener(e.getKey(), parser, metricRegistry)
                                         .withPort(config.getPort())
-                                        .withHost(config.getHost());
+                                        .withHost(config.getHost())
+                                        .withReceiveThreads(config.getReceiveThreads())
+                                        .withReceiveBatchSize(config.getReceiveBatchSize());
                             }
                             case TCP -> {
                                 final var parser = new IpfixTcpParser(e.getKey(), dispatcher, identity, metricRegistry, ipfixValueConversionService)
@@ -152,11 +175,24 @@ public class Daemon implements ApplicationRunner {
                                         .withFlowInactiveTimeoutFallback(config.getFlowInactiveTimeoutFallback())
                                         .withFlowSamplingIntervalFallback(config.getFlowSamplingIntervalFallback());
 
+                                if (config.getReceiveThreads() != 1 || config.getReceiveBatchSize() != 1
+                                        || config.getDecodeThreads() != 0) {
+                                    // SO_REUSEPORT fans datagrams out across sockets, recvmmsg
+                                    // batches them and decode workers take them off the event
+                                    // loop; a TCP stream has no datagrams, and its listener already
+                                    // spreads connections over its worker loops, so there is
+                                    // nothing here for any of these settings to mean.
+                                    throw new IllegalArgumentException("riptide.receivers." + e.getKey()
+                                            + ".receive-threads, receive-batch-size and decode-threads apply to"
+                                            + " UDP receivers only");
+                                }
+
                                 // No admission oracle here: IPFIX over TCP keeps per-connection
                                 // state in TcpSession, and a connection is already a bounded,
                                 // handshake-verified resource. The unbounded growth this guards
                                 // against is specific to connectionless UDP.
                                 parser.setOptionListener(optionListener);
+                                dispatch(parser, e.getKey(), config);
 
                                 yield new TcpListener(e.getKey(), parser, metricRegistry)
                                         .withPort(config.getPort())
@@ -168,10 +204,14 @@ public class Daemon implements ApplicationRunner {
                     @Override
                     public Listener match(final ReceiverConfig.SflowConfig config) {
                         final var parser = new SflowUdpParser(e.getKey(), dispatcher, identity, metricRegistry);
+                        parser.setDecodeThreads(config.getDecodeThreads());
+                        dispatch(parser, e.getKey(), config);
 
                         return new UdpListener(e.getKey(), parser, metricRegistry)
                                 .withPort(config.getPort())
-                                .withHost(config.getHost());
+                                .withHost(config.getHost())
+                                .withReceiveThreads(config.getReceiveThreads())
+                                .withReceiveBatchSize(config.getReceiveBatchSize());
                     }
 
                     @Override
@@ -179,13 +219,19 @@ public class Daemon implements ApplicationRunner {
                         final var parsers = new HashSet<DispatchableUdpParser>();
 
                         if (config.isNetflow5()) {
-                            parsers.add(new Netflow5UdpParser(e.getKey() + ":netflow5", dispatcher, identity, metricRegistry)
+                            final var netflow5 = new Netflow5UdpParser(e.getKey() + ":netflow5", dispatcher, identity, metricRegistry)
                                     .withFlowSamplingIntervalFallback(config.getFlowSamplingIntervalFallback())
-                                    .withTrustHeaderSamplingInterval(config.isTrustHeaderSamplingInterval()));
+                                    .withTrustHeaderSamplingInterval(config.isTrustHeaderSamplingInterval());
+                            netflow5.setDecodeThreads(config.getDecodeThreads());
+                            dispatch(netflow5, e.getKey(), config);
+                            parsers.add(netflow5);
                         }
 
                         if (config.isSflow()) {
-                            parsers.add(new SflowUdpParser(e.getKey() + ":sflow", dispatcher, identity, metricRegistry));
+                            final var sflow = new SflowUdpParser(e.getKey() + ":sflow", dispatcher, identity, metricRegistry);
+                            sflow.setDecodeThreads(config.getDecodeThreads());
+                            dispatch(sflow, e.getKey(), config);
+                            parsers.add(sflow);
                         }
 
                         if (config.isNetflow9()) {
@@ -196,6 +242,8 @@ public class Daemon implements ApplicationRunner {
                                     .withSamplingTable(exporterSamplingTable);
                             netflow9.setOptionListener(optionListener);
                             netflow9.setSessionAdmission(sessionAdmission);
+                            netflow9.setDecodeThreads(config.getDecodeThreads());
+                            dispatch(netflow9, e.getKey(), config);
                             parsers.add(netflow9);
                         }
 
@@ -206,6 +254,8 @@ public class Daemon implements ApplicationRunner {
                                     .withFlowSamplingIntervalFallback(config.getFlowSamplingIntervalFallback());
                             ipfix.setOptionListener(optionListener);
                             ipfix.setSessionAdmission(sessionAdmission);
+                            ipfix.setDecodeThreads(config.getDecodeThreads());
+                            dispatch(ipfix, e.getKey(), config);
                             parsers.add(ipfix);
                         }
 
@@ -213,7 +263,9 @@ public class Daemon implements ApplicationRunner {
 
                         return new UdpListener(e.getKey(), parser, metricRegistry)
                                 .withPort(config.getPort())
-                                .withHost(config.getHost());
+                                .withHost(config.getHost())
+                                .withReceiveThreads(config.getReceiveThreads())
+                                .withReceiveBatchSize(config.getReceiveBatchSize());
                     }
                 })).toList();
     }
@@ -315,6 +367,9 @@ public class Daemon implements ApplicationRunner {
                     log.warn("Failed to stop listener {}", listener.getName(), t);
                 }
             }
+            // After the parsers, which have each drained their lane of the shared pool or handed
+            // back what they could not; before the pipeline, which those dispatches feed.
+            this.dispatchScheduler.stop();
         } catch (final Throwable t) {
             primary = t;
         }
@@ -353,11 +408,34 @@ public class Daemon implements ApplicationRunner {
         }
     }
 
+    /**
+     * Apply a receiver's {@code dispatch} setting to one of its parsers — for a {@code multi}
+     * receiver, to each protocol's.
+     */
+    private void dispatch(final ParserBase parser, final String name, final ReceiverConfig config) {
+        switch (config.getDispatch()) {
+            case PLATFORM -> { }
+            case VIRTUAL -> parser.setVirtualDispatch(true);
+            case SHARED -> {
+                if (config.getDispatchWeight() < 1) {
+                    throw new IllegalArgumentException("riptide.receivers." + name
+                            + ".dispatch-weight must be >= 1 (got " + config.getDispatchWeight() + ")");
+                }
+                parser.setDispatchScheduler(this.dispatchScheduler, config.getDispatchWeight());
+            }
+        }
+    }
+
     /** The configured receivers, for health reporting. */
     public List<Listener> getListeners() {
         return this.listeners;
     }
 
+    /** The pool shared by the receivers configured with {@code dispatch=shared}, for the management API. */
+    public DispatchScheduler getDispatchScheduler() {
+        return this.dispatchScheduler;
+    }
+
     /** Whether the receivers have been started (i.e. {@link #run} has completed). */
     public boolean isStarted() {
         return this.started;
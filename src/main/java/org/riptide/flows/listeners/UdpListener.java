@@ -6,11 +6,11 @@
 package org.riptide.flows.listeners;
 
 import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
 import com.codahale.metrics.Meter;
 import com.codahale.metrics.MetricRegistry;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import io.netty.bootstrap.Bootstrap;
-import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
@@ -20,17 +20,22 @@ import io.netty.channel.EventLoopGroup;
 import io.netty.channel.FixedRecvByteBufAllocator;
 import io.netty.channel.MultiThreadIoEventLoopGroup;
 import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollChannelOption;
+import io.netty.channel.epoll.EpollDatagramChannel;
+import io.netty.channel.epoll.EpollIoHandler;
 import io.netty.channel.nio.NioIoHandler;
 import io.netty.channel.socket.DatagramChannel;
 import io.netty.channel.socket.DatagramPacket;
 import io.netty.channel.socket.nio.NioDatagramChannel;
-import io.netty.util.ReferenceCountUtil;
 import io.netty.util.internal.SocketUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.net.InetSocketAddress;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
 
@@ -41,14 +46,19 @@ public class UdpListener implements Listener {
     private final UdpParser parser;
 
     private final Meter packetsReceived;
+    /** Datagrams handed up per socket wakeup — the batch a single read loop (or recvmmsg) yielded. */
+    private final Histogram datagramsPerRead;
     private final MetricRegistry metrics;
 
     private EventLoopGroup bossGroup;
-    private ChannelFuture socketFuture;
+    /** One bind per socket; the first is the one every later {@code SO_REUSEPORT} bind joins. */
+    private List<ChannelFuture> socketFutures;
 
     private String host = null;
     private int port = 50000;
     private int maxPacketSize = 8096;
+    private int receiveThreads = 1;
+    private int receiveBatchSize = 1;
 
     public UdpListener(final String name,
                        final UdpParser parser,
@@ -57,26 +67,40 @@ public class UdpListener implements Listener {
         this.parser = Objects.requireNonNull(parser);
 
         this.packetsReceived = metrics.meter(MetricRegistry.name("listeners", name, "packetsReceived"));
+        this.datagramsPerRead = metrics.histogram(MetricRegistry.name("listeners", name, "datagramsPerRead"));
         this.metrics = metrics;
     }
 
     @Override
     public void start() {
-        // One thread, because this group drives this listener's one DatagramChannel and nothing
-        // else. Netty's default (0 = 2 * num cores) built 20 loops on a 10-core host of which 19
-        // could never be selected, each holding a selector.
+        // One thread per socket, because this group drives this listener's DatagramChannels and
+        // nothing else. Netty's default (0 = 2 * num cores) built 20 loops on a 10-core host of which
+        // 19 could never be selected, each holding a selector.
         //
-        // The rule that matters is the second half: this group serves the channel only. It used to
+        // The rule that matters is the second half: this group serves the channels only. It used to
         // double as the parser's ScheduledExecutorService, which is why it could not be sized —
         // UdpParserBase scheduled a 60s sweep on it, and scheduleAtFixedRate dispatches by
         // round-robin, so with one loop every sweep would have landed on the thread draining the
         // socket (#457). The parser owns its scheduler now, and since #459 there is no longer a
         // parameter to hand this group to. Do not give this group other work to make it earn its
         // keep; give the work its own thread.
+        final boolean reusePort = this.receiveThreads > 1;
+        final boolean batched = this.receiveBatchSize > 1;
+        final boolean epoll = reusePort || batched;
+        if (epoll && !Epoll.isAvailable()) {
+            // Refused rather than quietly falling back to one NIO socket: the operator asked for the
+            // receive path to scale, and a transport that silently ignores the setting is exactly
+            // the ceiling they configured their way out of.
+            throw new IllegalStateException((reusePort ? "receive-threads = " + this.receiveThreads
+                    : "receive-batch-size = " + this.receiveBatchSize)
+                    + " needs Netty's native epoll transport (Linux only), which is unavailable here",
+                    Epoll.unavailabilityCause());
+        }
+
         final var formatName = name.replace("%", "%%");
-        this.bossGroup = new MultiThreadIoEventLoopGroup(1, new ThreadFactoryBuilder()
-                .setNameFormat("udp-listener-nio-" + formatName + "-%d")
-                .build(), NioIoHandler.newFactory());
+        this.bossGroup = new MultiThreadIoEventLoopGroup(this.receiveThreads, new ThreadFactoryBuilder()
+                .setNameFormat((epoll ? "udp-listener-epoll-" : "udp-listener-nio-") + formatName + "-%d")
+                .build(), epoll ? EpollIoHandler.newFactory() : NioIoHandler.newFactory());
 
         this.parser.start();
 
@@ -84,15 +108,51 @@ public class UdpListener implements Listener {
                 ? SocketUtils.socketAddress(this.host, this.port)
                 : new InetSocketAddress(this.port);
 
-        this.socketFuture = new Bootstrap()
+        final Bootstrap bootstrap = new Bootstrap()
                 .group(this.bossGroup)
-                .channel(NioDatagramChannel.class)
                 .option(ChannelOption.SO_REUSEADDR, true)
                 .option(ChannelOption.SO_RCVBUF, Integer.MAX_VALUE)
-                .option(ChannelOption.RCVBUF_ALLOCATOR, new FixedRecvByteBufAllocator(this.maxPacketSize))
-                .handler(new DefaultChannelInitializer())
-                .bind(address)
-                .syncUninterruptibly();
+                .option(ChannelOption.RCVBUF_ALLOCATOR,
+                        new FixedRecvByteBufAllocator(this.maxPacketSize * this.receiveBatchSize))
+                .handler(new DefaultChannelInitializer());
+        if (epoll) {
+            bootstrap.channel(EpollDatagramChannel.class)
+                    .option(EpollChannelOption.SO_REUSEPORT, reusePort);
+        } else {
+            bootstrap.channel(NioDatagramChannel.class);
+        }
+        if (batched) {
+            // With a payload size set and a receive buffer several payloads long, the epoll channel
+            // reads with recvmmsg: one syscall fills up to receiveBatchSize datagram slots, each
+            // handed up as a slice of the one buffer. Without it every datagram is its own
+            // recvfrom, which at a few hundred thousand datagrams a second is most of what the
+            // listener thread does.
+            //
+            // UDP_GRO is deliberately left off. It only coalesces datagrams a sender built with GSO,
+            // which flow exporters do not, so it would add a per-read cmsg parse for nothing.
+            bootstrap.option(EpollChannelOption.MAX_DATAGRAM_PAYLOAD_SIZE, this.maxPacketSize);
+        }
+
+        // Every bind registers its channel on group.next(), which round-robins, so N binds on an
+        // N-loop group give each socket a loop of its own. The kernel then hashes each exporter's
+        // 4-tuple onto one socket, so a given exporter is always read by the same thread and its
+        // packets reach the parser in the order they arrived — templates before data, sequence
+        // numbers in sequence — while different exporters are decoded in parallel.
+        final List<ChannelFuture> futures = new ArrayList<>(this.receiveThreads);
+        futures.add(bootstrap.bind(address).syncUninterruptibly());
+        // Assigned before the remaining binds, so a failure among them still leaves stop() able to
+        // close the sockets that did bind.
+        this.socketFutures = futures;
+        if (reusePort) {
+            // The later sockets join the port the first one actually bound, not the configured one:
+            // with port = 0 each bind would otherwise be handed its own ephemeral port, leaving N
+            // unrelated sockets of which only the first is ever reported or sent to.
+            final int boundPort = ((InetSocketAddress) futures.getFirst().channel().localAddress()).getPort();
+            final InetSocketAddress shared = new InetSocketAddress(address.getAddress(), boundPort);
+            for (int i = 1; i < this.receiveThreads; i++) {
+                futures.add(bootstrap.bind(shared).syncUninterruptibly());
+            }
+        }
 
         registerSocketDrops();
     }
@@ -106,9 +166,14 @@ public class UdpListener implements Listener {
      *
      * <p>Remove-then-register, so a restarted listener rebinds the gauge to its live socket instead of
      * leaving the previous instance's closure in place.
+     *
+     * <p>One gauge per receiver however many sockets it opened: every {@code SO_REUSEPORT} socket
+     * shares the first one's address and port, and {@link UdpSocketDrops} sums across all rows that
+     * match them. A gauge per socket would have to tell the rows apart by inode, and the number an
+     * operator alerts on is the receiver's total anyway.
      */
     private void registerSocketDrops() {
-        final java.net.SocketAddress local = this.socketFuture.channel().localAddress();
+        final java.net.SocketAddress local = this.socketFutures.getFirst().channel().localAddress();
         if (!(local instanceof InetSocketAddress bound)) {
             return;
         }
@@ -117,7 +182,7 @@ public class UdpListener implements Listener {
         this.metrics.register(gauge, (Gauge<Long>) () -> UdpSocketDrops.forSocket(bound));
     }
 
-    // socketFuture and bossGroup are assigned in start(), which runs in a later lifecycle phase
+    // socketFutures and bossGroup are assigned in start(), which runs in a later lifecycle phase
     // than the constructor — a context refresh that fails in between leaves this listener owning
     // neither, so those steps are guarded. metrics and parser are set at construction and are never
     // null. Steps are attempted independently so a failure does not strand the resources after it;
@@ -133,14 +198,17 @@ public class UdpListener implements Listener {
         teardown.attempt(
                 () -> this.metrics.remove(MetricRegistry.name("listeners", this.name, "socketDrops")));
 
-        teardown.attemptIfPresent(this.socketFuture, () -> {
-            final var ch = this.socketFuture.channel();
+        teardown.attemptIfPresent(this.socketFutures, () -> {
             LOG.info("Closing channel...");
-            // Channel and parent are attempted separately: a parent that fails to close must not
-            // be skipped because the child did, and vice versa.
-            teardown.attempt(() -> ch.close().syncUninterruptibly());
-            if (ch.parent() != null) {
-                teardown.attempt(() -> ch.parent().close().syncUninterruptibly());
+            for (final var socketFuture : this.socketFutures) {
+                final var ch = socketFuture.channel();
+                // Channel and parent are attempted separately: a parent that fails to close must not
+                // be skipped because the child did, and vice versa. Likewise each socket of a
+                // SO_REUSEPORT group: one that fails to close must not keep the others bound.
+                teardown.attempt(() -> ch.close().syncUninterruptibly());
+                if (ch.parent() != null) {
+                    teardown.attempt(() -> ch.parent().close().syncUninterruptibly());
+                }
             }
         });
 
@@ -158,9 +226,12 @@ public class UdpListener implements Listener {
         teardown.done();
     }
 
+    // Every socket, not any: the kernel keeps hashing exporters onto a SO_REUSEPORT socket whose
+    // loop has died, so one dead member is a share of the receiver's traffic going unread.
     @Override
     public boolean isListening() {
-        return this.socketFuture != null && this.socketFuture.channel().isActive();
+        final var futures = this.socketFutures;
+        return futures != null && futures.stream().allMatch(f -> f.channel().isActive());
     }
 
     public UdpListener withHost(String host) {
@@ -178,6 +249,37 @@ public class UdpListener implements Listener {
         return this;
     }
 
+    /**
+     * Read up to this many datagrams per {@code recvmmsg} call instead of one per syscall. Anything
+     * above 1 requires the native epoll transport, so it is Linux-only and {@link #start()} refuses
+     * it elsewhere.
+     *
+     * <p>The datagrams of one call share a single {@code maxPacketSize * receiveBatchSize} buffer, and
+     * each is a slice of it, so the buffer is returned to the pool only once every datagram read
+     * into it has been parsed — within the same read, since each slice is released as soon as its
+     * parse returns.
+     */
+    public UdpListener withReceiveBatchSize(int receiveBatchSize) {
+        if (receiveBatchSize < 1) {
+            throw new IllegalArgumentException("Receive batch size must be >= 1");
+        }
+        this.receiveBatchSize = receiveBatchSize;
+        return this;
+    }
+
+    /**
+     * Open this many {@code SO_REUSEPORT} sockets on the port, each read by its own event-loop
+     * thread, instead of one. Anything above 1 requires the native epoll transport, so it is
+     * Linux-only and {@link #start()} refuses it elsewhere.
+     */
+    public UdpListener withReceiveThreads(int receiveThreads) {
+        if (receiveThreads < 1) {
+            throw new IllegalArgumentException("Receive threads must be >= 1");
+        }
+        this.receiveThreads = receiveThreads;
+        return this;
+    }
+
     @Override
     public String getName() {
         return name;
@@ -185,7 +287,9 @@ public class UdpListener implements Listener {
 
     @Override
     public String getDescription() {
-        return "UDP " + ListenerAddress.describe(this.socketFuture, this.host, this.port);
+        final var futures = this.socketFutures;
+        return "UDP " + ListenerAddress.describe(futures != null ? futures.getFirst() : null, this.host, this.port)
+                + (this.receiveThreads > 1 ? " (" + this.receiveThreads + " sockets)" : "");
     }
 
     private class DefaultChannelInitializer extends ChannelInitializer<DatagramChannel> {
@@ -211,12 +315,30 @@ public class UdpListener implements Listener {
         }
     }
 
+    // One instance per channel, all marking the listener's one meter, so packetsReceived is the
+    // receiver's total across its SO_REUSEPORT sockets rather than whichever socket counted last.
     private class AccountingHandler extends ChannelInboundHandlerAdapter {
+        /** Confined to the channel's loop, like every handler field; no synchronisation needed. */
+        private int readsThisWakeup;
+
         @Override
         public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
             packetsReceived.mark();
+            this.readsThisWakeup++;
             super.channelRead(ctx, msg);
         }
+
+        // Netty fires this once per read loop, after every datagram the wakeup yielded, so the
+        // histogram says how much each wakeup amortised — 1 means a syscall and a selector pass per
+        // datagram, which is what receive-batch-size exists to improve on.
+        @Override
+        public void channelReadComplete(ChannelHandlerContext ctx) throws Exception {
+            if (this.readsThisWakeup > 0) {
+                datagramsPerRead.update(this.readsThisWakeup);
+                this.readsThisWakeup = 0;
+            }
+            super.channelReadComplete(ctx);
+        }
     }
 
     // Invokes parse of the provided parsers and also adds some error handling.
@@ -229,29 +351,39 @@ public class UdpListener implements Listener {
             this.parser = parser;
         }
 
+        /**
+         * The datagram buffer is released by {@link SimpleChannelInboundHandler} the moment this
+         * method returns, not when the returned future completes. That is safe because a
+         * {@link UdpParser} is done with the buffer once {@code parse} returns: the packet is decoded
+         * and its records materialised synchronously on this thread, and every decoded value copies
+         * the bytes it keeps, so nothing queued for the workers references the datagram.
+         *
+         * <p>It used to be retained here and released in {@code whenComplete}, which pinned one
+         * receive buffer per queued packet — 4096 × 8096 bytes, ~33 MB of pooled direct memory per
+         * parser at a full dispatch queue, and with batched reads one whole batch buffer for as long
+         * as any of its datagrams sat in the queue. Releasing at return makes the queue depth cost
+         * heap for the flows only.
+         */
         @Override
-        // whenComplete exists to release the retained buffer exactly once and to log a bad
-        // packet; the stage it returns has no consumer, and Netty's read loop must not wait on it.
+        // whenComplete exists only to log a bad packet; the stage it returns has no consumer, and
+        // Netty's read loop must not wait on it.
         @SuppressWarnings("FutureReturnValueIgnored")
         protected void channelRead0(ChannelHandlerContext ctx, DatagramPacket msg) throws Exception {
             final InetSocketAddress sender = msg.sender();
-            final ByteBuf content = ReferenceCountUtil.retain(msg.content());
-            CompletableFuture<?> future;
+            final CompletableFuture<?> future;
             try {
-                future = parser.parse(Instant.now(), content, sender, msg.recipient());
+                future = parser.parse(Instant.now(), msg.content(), sender, msg.recipient());
             } catch (final Throwable e) {
                 // Parse errors surface synchronously (and pathological packets can raise Errors) —
-                // normalize into the future so the release below is the one and only path. Before
-                // this, the retained buffer leaked once per malformed packet (#273).
-                future = CompletableFuture.failedFuture(e);
+                // log them here rather than letting them reach the pipeline as exceptionCaught.
+                logInvalidPacket(sender, e);
+                return;
             }
             if (future == null) {
                 // A dispatching parser returns null for packets no sub-parser handles.
-                ReferenceCountUtil.release(content);
                 return;
             }
             future.whenComplete((_, ex) -> {
-                ReferenceCountUtil.release(content);
                 if (ex != null) {
                     logInvalidPacket(sender, ex);
                 }
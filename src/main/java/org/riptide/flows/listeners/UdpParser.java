@@ -13,6 +13,17 @@ import java.time.Instant;
 import java.util.concurrent.CompletableFuture;
 
 public interface UdpParser extends Parser {
+    /**
+     * Parse one datagram and hand its records on.
+     *
+     * <p>The buffer is only valid for the duration of this call: {@link UdpListener} releases it as
+     * soon as this returns, before the returned future completes. An implementation must therefore
+     * decode everything it keeps before returning and must not let a slice of the buffer escape into
+     * the records or the work it schedules.
+     *
+     * @return completes once the records have been dispatched, or {@code null} if the packet was
+     *         not handled
+     */
     CompletableFuture<?> parse(Instant receivedAt,
                                ByteBuf buffer,
                                InetSocketAddress remoteAddress,
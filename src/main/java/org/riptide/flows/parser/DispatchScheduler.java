@@ -0,0 +1,456 @@
+/*
+ * Copyright 2026 Riptide Labs, <https://github.com/Riptide-Labs>
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package org.riptide.flows.parser;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * One pool of dispatch workers for every parser that opts in, instead of a pool per parser.
+ *
+ * <p>A parser's private pool is sized to the cores, so a {@code multi} receiver with four
+ * sub-parsers and three more receivers starts seven pools on one host, and a busy receiver cannot
+ * use the threads an idle one is holding. Here each parser gets a {@link Lane}: its own bounded
+ * queue, with the capacity, drop-or-block choice and depth gauge its private pool's queue had. Any
+ * idle worker takes the next task from any lane, so the cores follow the load between receivers.
+ *
+ * <p>When several lanes have work, the next task comes from the lane furthest behind its share —
+ * stride scheduling: serving a lane advances its pass by {@link #STRIDE} over its weight, and the
+ * lowest pass goes next. Saturated lanes are therefore served in proportion to their weights, and a
+ * lane that was idle rejoins at the current pass rather than with credit for the time it had
+ * nothing to do, so it cannot starve the others on its return.
+ *
+ * <p>One lock guards every queue. A task is a whole packet's enrichment, so the lock is taken a few
+ * thousand times per second — the same rate {@link java.util.concurrent.ArrayBlockingQueue}'s single
+ * lock was taken at in the per-parser pools.
+ */
+@Slf4j
+public final class DispatchScheduler {
+
+    /** Upper bound for {@link #resize}: a typo in a management call must not start a million threads. */
+    public static final int MAX_THREADS = 1024;
+
+    private static final long STRIDE = 1L << 20;
+
+    private final MetricRegistry metricRegistry;
+    private final ThreadFactory threadFactory = new ThreadFactoryBuilder()
+            .setNameFormat("dispatch-%d")
+            .setDaemon(true)
+            .build();
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition workAvailable = this.lock.newCondition();
+
+    // Everything below is guarded by the lock.
+    private final List<Lane> lanes = new ArrayList<>();
+    private final List<Thread> workers = new ArrayList<>();
+    private int threads;
+    private int busy;
+    /** The pass of the lane served last: where a lane that was idle rejoins. */
+    private long virtualTime;
+    private boolean started;
+    private boolean stopped;
+
+    public DispatchScheduler(final int threads, final MetricRegistry metricRegistry) {
+        this.threads = checkThreads(threads);
+        this.metricRegistry = Objects.requireNonNull(metricRegistry);
+    }
+
+    /**
+     * A lane for the parser {@code name}, with room for {@code capacity} queued tasks and a
+     * share of the workers proportional to {@code weight}. The first lane starts the workers, so
+     * a collector where no receiver opts in never starts a thread.
+     */
+    public Lane lane(final String name, final int weight, final int capacity) {
+        if (weight < 1) {
+            throw new IllegalArgumentException("Dispatch weight for " + name + " must be >= 1 (got " + weight + ")");
+        }
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Dispatch capacity for " + name + " must be >= 1 (got " + capacity + ")");
+        }
+        this.lock.lock();
+        try {
+            if (this.stopped) {
+                throw new IllegalStateException("Dispatch scheduler is stopped");
+            }
+            if (!this.started) {
+                start();
+            }
+            final Lane lane = new Lane(name, weight, capacity);
+            this.lanes.add(lane);
+            return lane;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    public int getThreads() {
+        this.lock.lock();
+        try {
+            return this.threads;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Grow or shrink the pool while it runs. New workers start at once; surplus ones finish the
+     * task they hold and exit, so shrinking never interrupts a dispatch.
+     */
+    public void resize(final int threads) {
+        checkThreads(threads);
+        this.lock.lock();
+        try {
+            final int previous = this.threads;
+            this.threads = threads;
+            if (this.started && !this.stopped) {
+                spawn();
+                this.workAvailable.signalAll();
+            }
+            if (previous != threads) {
+                log.info("Dispatch workers resized from {} to {}", previous, threads);
+            }
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /** The lanes still open or still draining, in registration order, for the management API. */
+    public List<LaneState> lanes() {
+        this.lock.lock();
+        try {
+            return this.lanes.stream()
+                    .map(lane -> new LaneState(lane.name, lane.weight, lane.capacity, lane.queue.size(), lane.running))
+                    .toList();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    public record LaneState(String name, int weight, int capacity, int depth, int running) {
+    }
+
+    /**
+     * Stop the workers once they finish what they hold. Called after the parsers have stopped, so
+     * every lane has already drained or handed its queued tasks back; a lane still holding tasks
+     * here belongs to a parser that never stopped, and its tasks are reported rather than run.
+     */
+    public void stop() {
+        final List<Thread> joining;
+        this.lock.lock();
+        try {
+            if (this.stopped) {
+                return;
+            }
+            this.stopped = true;
+            if (!this.started) {
+                // No receiver used the pool: no worker to stop and no gauge to remove.
+                return;
+            }
+            for (final Lane lane : this.lanes) {
+                if (!lane.queue.isEmpty()) {
+                    log.warn("Dispatch lane {} still held {} packets at shutdown; discarding them",
+                            lane.name, lane.queue.size());
+                }
+            }
+            this.workAvailable.signalAll();
+            joining = List.copyOf(this.workers);
+        } finally {
+            this.lock.unlock();
+        }
+
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        for (final Thread worker : joining) {
+            try {
+                worker.join(Math.max(1L, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        this.metricRegistry.remove(MetricRegistry.name("dispatch", "threads"));
+        this.metricRegistry.remove(MetricRegistry.name("dispatch", "busyThreads"));
+    }
+
+    private static int checkThreads(final int threads) {
+        if (threads < 1 || threads > MAX_THREADS) {
+            throw new IllegalArgumentException("Dispatch threads must be 1.." + MAX_THREADS + " (got " + threads + ")");
+        }
+        return threads;
+    }
+
+    /** Under the lock. */
+    private void start() {
+        this.started = true;
+        final String threadsGauge = MetricRegistry.name("dispatch", "threads");
+        this.metricRegistry.remove(threadsGauge);
+        this.metricRegistry.register(threadsGauge, (Gauge<Integer>) this::getThreads);
+        final String busyGauge = MetricRegistry.name("dispatch", "busyThreads");
+        this.metricRegistry.remove(busyGauge);
+        this.metricRegistry.register(busyGauge, (Gauge<Integer>) () -> {
+            this.lock.lock();
+            try {
+                return this.busy;
+            } finally {
+                this.lock.unlock();
+            }
+        });
+        spawn();
+    }
+
+    /** Under the lock. */
+    private void spawn() {
+        while (this.workers.size() < this.threads) {
+            final Thread worker = this.threadFactory.newThread(this::work);
+            this.workers.add(worker);
+            worker.start();
+        }
+    }
+
+    private void work() {
+        this.lock.lock();
+        try {
+            while (!this.stopped && this.workers.size() <= this.threads) {
+                final Lane lane = next();
+                if (lane == null) {
+                    this.workAvailable.awaitUninterruptibly();
+                    continue;
+                }
+                final Runnable task = lane.queue.poll();
+                lane.notFull.signal();
+                this.virtualTime = lane.pass;
+                lane.pass += STRIDE / lane.weight;
+                lane.running++;
+                this.busy++;
+                this.lock.unlock();
+                try {
+                    task.run();
+                } catch (final Throwable t) {
+                    // DispatchTask completes its future with whatever it throws, so this is a task
+                    // from elsewhere. Throwable, not RuntimeException: a StackOverflowError or a
+                    // LinkageError out of one packet's enrichment used to end the worker, and the
+                    // pool quietly ran one short of the size /dispatch kept reporting. The worker
+                    // outlives the task, as a pool thread would not.
+                    log.warn("Dispatch task on lane {} failed", lane.name, t);
+                } finally {
+                    this.lock.lock();
+                    this.busy--;
+                    lane.running--;
+                    lane.terminateIfIdle();
+                }
+            }
+        } finally {
+            this.workers.remove(Thread.currentThread());
+            // Only a shrink or stop() ends the loop; anything else that got here (an Error out of
+            // the bookkeeping itself) must not leave the pool smaller than it is configured to be.
+            if (!this.stopped) {
+                spawn();
+            }
+            this.lock.unlock();
+        }
+    }
+
+    /** Under the lock: the lane with work whose pass is lowest, or null when none has work. */
+    private Lane next() {
+        Lane next = null;
+        for (final Lane lane : this.lanes) {
+            if (!lane.queue.isEmpty() && (next == null || lane.pass < next.pass)) {
+                next = lane;
+            }
+        }
+        return next;
+    }
+
+    /**
+     * One parser's share of the workers: a bounded queue the workers take from, behind the same
+     * {@link java.util.concurrent.ExecutorService} contract its private pool had, so shutdown,
+     * the bounded wait for in-flight dispatches and {@code shutdownNow()}'s hand-back of what
+     * never ran are unchanged for the parser.
+     */
+    public final class Lane extends AbstractExecutorService {
+        private final String name;
+        private final int weight;
+        private final int capacity;
+        private final ArrayDeque<Runnable> queue = new ArrayDeque<>();
+        private final Condition notFull = DispatchScheduler.this.lock.newCondition();
+        private final Condition terminated = DispatchScheduler.this.lock.newCondition();
+        private long pass;
+        private int running;
+        private boolean shutdown;
+
+        private Lane(final String name, final int weight, final int capacity) {
+            this.name = Objects.requireNonNull(name);
+            this.weight = weight;
+            this.capacity = capacity;
+        }
+
+        public String getName() {
+            return this.name;
+        }
+
+        public int getWeight() {
+            return this.weight;
+        }
+
+        /** Tasks queued and not yet taken by a worker. */
+        public int depth() {
+            DispatchScheduler.this.lock.lock();
+            try {
+                return this.queue.size();
+            } finally {
+                DispatchScheduler.this.lock.unlock();
+            }
+        }
+
+        /** Queue {@code task} if there is room now; the rejection is the full-queue signal. */
+        @Override
+        public void execute(final Runnable task) {
+            DispatchScheduler.this.lock.lock();
+            try {
+                if (!admit(task)) {
+                    throw new RejectedExecutionException("Dispatch lane " + this.name + " is full or shut down");
+                }
+            } finally {
+                DispatchScheduler.this.lock.unlock();
+            }
+        }
+
+        /** Queue {@code task}, waiting up to {@code timeout} for room. False if there was none, or shut down. */
+        public boolean offer(final Runnable task, final long timeout, final TimeUnit unit) throws InterruptedException {
+            long nanos = unit.toNanos(timeout);
+            DispatchScheduler.this.lock.lockInterruptibly();
+            try {
+                while (!this.shutdown && this.queue.size() >= this.capacity) {
+                    if (nanos <= 0L) {
+                        return false;
+                    }
+                    nanos = this.notFull.awaitNanos(nanos);
+                }
+                return admit(task);
+            } finally {
+                DispatchScheduler.this.lock.unlock();
+            }
+        }
+
+        /** Queue {@code task}, waiting as long as it takes for room. False only if shut down. */
+        public boolean put(final Runnable task) throws InterruptedException {
+            DispatchScheduler.this.lock.lockInterruptibly();
+            try {
+                while (!this.shutdown && this.queue.size() >= this.capacity) {
+                    this.notFull.await();
+                }
+                return admit(task);
+            } finally {
+                DispatchScheduler.this.lock.unlock();
+            }
+        }
+
+        /** Under the lock. */
+        private boolean admit(final Runnable task) {
+            Objects.requireNonNull(task);
+            if (this.shutdown || DispatchScheduler.this.stopped || this.queue.size() >= this.capacity) {
+                return false;
+            }
+            if (this.queue.isEmpty()) {
+                this.pass = Math.max(this.pass, DispatchScheduler.this.virtualTime);
+            }
+            this.queue.add(task);
+            DispatchScheduler.this.workAvailable.signal();
+            return true;
+        }
+
+        /** Accept nothing more; what is queued still runs. */
+        @Override
+        public void shutdown() {
+            DispatchScheduler.this.lock.lock();
+            try {
+                this.shutdown = true;
+                this.notFull.signalAll();
+                terminateIfIdle();
+            } finally {
+                DispatchScheduler.this.lock.unlock();
+            }
+        }
+
+        /**
+         * Accept nothing more and hand back what is queued. Unlike a pool's, this does not interrupt
+         * the dispatches running: the workers are shared, and an interrupt meant for this parser
+         * would land on whatever another lane's task does next.
+         */
+        @Override
+        public List<Runnable> shutdownNow() {
+            DispatchScheduler.this.lock.lock();
+            try {
+                this.shutdown = true;
+                this.notFull.signalAll();
+                final List<Runnable> unrun = new ArrayList<>(this.queue);
+                this.queue.clear();
+                terminateIfIdle();
+                return unrun;
+            } finally {
+                DispatchScheduler.this.lock.unlock();
+            }
+        }
+
+        @Override
+        public boolean isShutdown() {
+            DispatchScheduler.this.lock.lock();
+            try {
+                return this.shutdown;
+            } finally {
+                DispatchScheduler.this.lock.unlock();
+            }
+        }
+
+        @Override
+        public boolean isTerminated() {
+            DispatchScheduler.this.lock.lock();
+            try {
+                return this.shutdown && this.queue.isEmpty() && this.running == 0;
+            } finally {
+                DispatchScheduler.this.lock.unlock();
+            }
+        }
+
+        @Override
+        public boolean awaitTermination(final long timeout, final TimeUnit unit) throws InterruptedException {
+            long nanos = unit.toNanos(timeout);
+            DispatchScheduler.this.lock.lockInterruptibly();
+            try {
+                while (!(this.shutdown && this.queue.isEmpty() && this.running == 0)) {
+                    if (nanos <= 0L) {
+                        return false;
+                    }
+                    nanos = this.terminated.awaitNanos(nanos);
+                }
+                return true;
+            } finally {
+                DispatchScheduler.this.lock.unlock();
+            }
+        }
+
+        /** Under the lock: once shut down and drained, the lane leaves the scheduler. */
+        private void terminateIfIdle() {
+            if (this.shutdown && this.queue.isEmpty() && this.running == 0) {
+                DispatchScheduler.this.lanes.remove(this);
+                this.terminated.signalAll();
+            }
+        }
+    }
+}
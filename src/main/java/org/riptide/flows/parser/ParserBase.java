@@ -23,6 +23,9 @@ import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.function.BiConsumer;
 
@@ -69,6 +72,23 @@ public abstract class ParserBase implements Parser {
     /** volatile: written on the wiring thread, read by start() and by the event loops. */
     private volatile int threads = DEFAULT_NUM_THREADS;
 
+    /**
+     * Dispatch each packet on a virtual thread of its own instead of on the fixed pool. A
+     * dispatch that blocks — a reverse-DNS miss, any future lookup — then parks a virtual thread
+     * and frees its carrier, so blocking enrichment overlaps without {@code threads} being tuned
+     * to the enricher mix; CPU-bound work still runs on no more carriers than there are cores.
+     * The pool's bounded queue becomes an {@link #admission} semaphore of the same capacity, with
+     * the same drop-or-block choice on a full one. See {@link #setVirtualDispatch}.
+     */
+    private volatile boolean virtualDispatch = false;
+
+    /**
+     * The collector-wide pool to dispatch on instead of a pool of this parser's own, with this
+     * parser's share of it. Null for a private pool. See {@link #setDispatchScheduler}.
+     */
+    private volatile DispatchScheduler dispatchScheduler;
+    private volatile int dispatchWeight = 1;
+
     /**
      * Depth of the handoff queue between the listener and the workers, in packets.
      *
@@ -80,12 +100,12 @@ public abstract class ParserBase implements Parser {
      * was doing the real queueing. Replacing that with 32 slots threw away data the kernel would
      * have held.
      *
-     * <p>4096 packets is ~100k records at typical fan-out. <strong>Budget the memory as more than
-     * the flow objects:</strong> each queued entry also pins the packet's retained {@code ByteBuf}
-     * until its task runs, because {@link org.riptide.flows.listeners.UdpListener} releases the
-     * buffer when the future completes. At the 8096-byte {@code FixedRecvByteBufAllocator} size that
-     * is ~33 MB of pooled direct memory per parser on top of the heap cost, and a {@code multi}
-     * receiver starts one parser per sub-protocol — so divide this down when configuring several.
+     * <p>4096 packets is ~100k records at typical fan-out. The budget is heap for the flow objects
+     * only: a queued entry holds materialised {@link Flow}s, never the datagram, because
+     * {@link org.riptide.flows.listeners.UdpListener} releases the receive buffer as soon as
+     * {@code parse} returns. Until that change each entry also pinned its 8096-byte direct buffer —
+     * ~33 MB of pooled direct memory per parser at a full queue, per sub-protocol on a {@code multi}
+     * receiver — which is what made deepening this expensive.
      */
     private volatile int queueCapacity = 4096;
 
@@ -93,9 +113,10 @@ public abstract class ParserBase implements Parser {
      * How long a UDP listener waits for queue space before dropping, letting the kernel's socket
      * buffer absorb a burst instead of discarding data it would have held — while never blocking
      * indefinitely the way the old {@code SynchronousQueue.put()} did. TCP does not use this: see
-     * {@link #mayDropOnFullQueue()}.
+     * {@link #mayDropOnFullQueue()}. The handoff to {@link UdpParserBase}'s decode workers waits the
+     * same way, for the same reason.
      */
-    private static final long OFFER_TIMEOUT_MS = 20;
+    static final long OFFER_TIMEOUT_MS = 20;
 
     /** Records dropped at the handoff because the workers were behind — the seam's loss ledger. */
     private final Counter dispatchDrops;
@@ -108,8 +129,17 @@ public abstract class ParserBase implements Parser {
 
     private volatile int sequenceNumberPatience = 32;
 
-    /** Written by the shutdown thread, read by every event loop that submits work. */
-    private volatile ThreadPoolExecutor executor;
+    /**
+     * Written by the shutdown thread, read by every event loop that submits work. A
+     * {@link ThreadPoolExecutor} in platform mode, a virtual thread per task otherwise.
+     */
+    private volatile ExecutorService executor;
+
+    /**
+     * With virtual dispatch, one permit per packet the workers may hold — taken on admission,
+     * given back when its dispatch returns — in place of the pool's queue slots. Null otherwise.
+     */
+    private volatile Semaphore admission;
 
     public ParserBase(final Protocol protocol,
                       final String name,
@@ -146,22 +176,43 @@ public abstract class ParserBase implements Parser {
         // was an O(exporters) scan since fixed in #389. The justification here is narrower and holds
         // on its own: fewer boundary crossings per record, and loss that is counted in userspace
         // rather than happening invisibly in the kernel receive buffer.
-        final var pool = new ThreadPoolExecutor(
-                this.threads, this.threads,
-                60L, SECONDS,
-                new ArrayBlockingQueue<>(this.queueCapacity));
-        // Make the comment above true, and remove a real edge case: with zero live workers a task
-        // handed straight to the queue would sit there unrun, and its future would never complete.
-        pool.prestartAllCoreThreads();
-        this.executor = pool;
+        if (this.dispatchScheduler != null) {
+            // A lane of the shared pool: the same bounded queue in front of workers this parser
+            // does not own, so its threads follow the load instead of idling when it is quiet.
+            this.executor = this.dispatchScheduler.lane(this.name, this.dispatchWeight, this.queueCapacity);
+        } else if (this.virtualDispatch) {
+            // No pool to size and no queue to hold: a packet admitted is a packet running. The
+            // semaphore alone bounds what the workers hold, exactly as the queue's capacity did.
+            this.admission = new Semaphore(this.queueCapacity);
+            this.executor = Executors.newThreadPerTaskExecutor(
+                    Thread.ofVirtual().name("parser-" + this.name + "-dispatch-", 0).factory());
+        } else {
+            final var pool = new ThreadPoolExecutor(
+                    this.threads, this.threads,
+                    60L, SECONDS,
+                    new ArrayBlockingQueue<>(this.queueCapacity));
+            // Make the comment above true, and remove a real edge case: with zero live workers a task
+            // handed straight to the queue would sit there unrun, and its future would never complete.
+            pool.prestartAllCoreThreads();
+            this.executor = pool;
+        }
 
         // Depth alongside drops, matching BatchingFlowRepository's queueDepth gauge: a rising depth
-        // is the early warning, the drop counter is the damage report.
+        // is the early warning, the drop counter is the damage report. With virtual dispatch it is
+        // the permits taken — packets admitted and not yet dispatched, running or parked — which
+        // reaches the capacity exactly when drops (or blocking) start, as the queue's size did.
         final String depthGauge = MetricRegistry.name("parsers", this.name, "dispatchQueueDepth");
         this.metricRegistry.remove(depthGauge);
         this.depthGauge = (Gauge<Integer>) () -> {
             final var p = this.executor;
-            return p != null ? p.getQueue().size() : 0;
+            final var a = this.admission;
+            if (a != null) {
+                return this.queueCapacity - a.availablePermits();
+            }
+            if (p instanceof DispatchScheduler.Lane lane) {
+                return lane.depth();
+            }
+            return p instanceof ThreadPoolExecutor pool ? pool.getQueue().size() : 0;
         };
         this.metricRegistry.register(depthGauge, this.depthGauge);
     }
@@ -191,6 +242,7 @@ public abstract class ParserBase implements Parser {
             deregisterIfOwned(this.metricRegistry, MetricRegistry.name("parsers", this.name, "dispatchQueueDepth"),
                     this.depthGauge);
             this.executor = null;
+            this.admission = null;
         }
     }
 
@@ -228,6 +280,35 @@ public abstract class ParserBase implements Parser {
         return threads;
     }
 
+    public boolean isVirtualDispatch() {
+        return this.virtualDispatch;
+    }
+
+    /**
+     * Dispatch on virtual threads rather than on a pool of {@link #getThreads()} platform threads,
+     * which are then not used. {@link #getQueueCapacity()} keeps its meaning: the packets handed to
+     * the workers and not yet dispatched, past which UDP drops and TCP blocks.
+     */
+    public void setVirtualDispatch(final boolean virtualDispatch) {
+        requireNotStarted();
+        this.virtualDispatch = virtualDispatch;
+    }
+
+    /**
+     * Dispatch on {@code scheduler}'s workers, shared with every other parser using it, rather than
+     * on a pool of this parser's own; {@link #getThreads()} and {@link #isVirtualDispatch()} are then
+     * not used. {@code weight} is this parser's share when several have work queued. Its queue keeps
+     * {@link #getQueueCapacity()}, and a full one still drops for UDP and blocks for TCP.
+     */
+    public void setDispatchScheduler(final DispatchScheduler scheduler, final int weight) {
+        if (weight < 1) {
+            throw new IllegalArgumentException("Dispatch weight must be >= 1 (got " + weight + ")");
+        }
+        requireNotStarted();
+        this.dispatchScheduler = scheduler;
+        this.dispatchWeight = weight;
+    }
+
     public int getQueueCapacity() {
         return this.queueCapacity;
     }
@@ -250,7 +331,7 @@ public abstract class ParserBase implements Parser {
     }
 
     /**
-     * Both sizing knobs are read once, in {@link #start()}. Silently
+     * The sizing knobs and the dispatch mode are read once, in {@link #start()}. Silently
      * accepting a later change would leave the getter and the drop warning reporting a capacity the
      * queue does not have.
      */
@@ -285,10 +366,18 @@ public abstract class ParserBase implements Parser {
      * only happen on a transport where {@link #mayDropOnFullQueue()} allows it.
      */
     private boolean enqueue(final DispatchTask task) {
-        final var pool = this.executor;
-        if (pool == null || pool.isShutdown()) {
+        final var executor = this.executor;
+        if (executor == null || executor.isShutdown()) {
             return false;
         }
+        final var admission = this.admission;
+        if (admission != null) {
+            return admit(executor, admission, task);
+        }
+        if (executor instanceof DispatchScheduler.Lane lane) {
+            return queue(lane, task);
+        }
+        final var pool = (ThreadPoolExecutor) executor;
         try {
             pool.execute(task);
             return true;
@@ -301,7 +390,7 @@ public abstract class ParserBase implements Parser {
         // Queue full. Submit through the pool rather than poking getQueue() directly: the latter is
         // documented as monitoring-only, and it bypasses the executor's own shutdown and
         // worker-liveness rechecks — a task inserted that way can be drained by a concurrent
-        // shutdownNow() and leave its future pending, which leaks the packet's direct buffer.
+        // shutdownNow() and leave its future pending forever.
         try {
             if (mayDropOnFullQueue()) {
                 return pool.getQueue().offer(task, OFFER_TIMEOUT_MS, MILLISECONDS);
@@ -313,25 +402,76 @@ public abstract class ParserBase implements Parser {
             // Deliberately NOT reinstating the interrupt flag. This runs on a Netty event-loop
             // thread, and Netty does not use interruption for shutdown — a set flag makes every
             // subsequent selector.select() return immediately, so the loop busy-spins a core
-            // indefinitely. Failing the submission is enough: the caller completes the future, the
-            // buffer is released, and the drop is counted.
+            // indefinitely. Failing the submission is enough: the caller completes the future and
+            // the drop is counted.
             log.debug("Parser {} interrupted while enqueuing; dropping the packet", this.name);
             return false;
         }
     }
 
+    /**
+     * {@link #enqueue} for a lane of the shared pool: the same bounded wait, or the same indefinite
+     * one, for room in this parser's queue — never in another parser's.
+     */
+    private boolean queue(final DispatchScheduler.Lane lane, final DispatchTask task) {
+        try {
+            if (mayDropOnFullQueue()) {
+                return lane.offer(task, OFFER_TIMEOUT_MS, MILLISECONDS);
+            }
+            return lane.put(task);
+        } catch (final InterruptedException e) {
+            // Not reinstating the interrupt flag, for the reason given in enqueue(): this is a
+            // Netty event-loop thread.
+            log.debug("Parser {} interrupted while enqueuing; dropping the packet", this.name);
+            return false;
+        }
+    }
+
+    /**
+     * {@link #enqueue} for virtual dispatch: wait for a permit as the pool's submitter waits for
+     * queue space — bounded for a transport that may drop, indefinitely for one that may not —
+     * then start the task on a thread of its own, which gives the permit back when it is done.
+     */
+    private boolean admit(final ExecutorService executor, final Semaphore admission, final DispatchTask task) {
+        try {
+            if (mayDropOnFullQueue()) {
+                if (!admission.tryAcquire() && !admission.tryAcquire(OFFER_TIMEOUT_MS, MILLISECONDS)) {
+                    return false;
+                }
+            } else {
+                admission.acquire();
+            }
+        } catch (final InterruptedException e) {
+            // Not reinstating the interrupt flag, for the reason given in enqueue(): this is a
+            // Netty event-loop thread.
+            log.debug("Parser {} interrupted while waiting for admission; dropping the packet", this.name);
+            return false;
+        }
+        task.admission = admission;
+        try {
+            executor.execute(task);
+            return true;
+        } catch (final RejectedExecutionException e) {
+            // Shut down between the check in enqueue() and here.
+            admission.release();
+            return false;
+        }
+    }
+
     /**
      * A dispatch task that can be accounted for after the fact. {@code shutdownNow()} hands back
      * whatever never ran, and this carries enough state for {@link #abandon(List)} to count those
-     * records and — critically — complete their futures, so
-     * {@link org.riptide.flows.listeners.UdpListener} releases the retained buffers instead of
-     * leaking one per queued packet on every restart.
+     * records and — critically — complete their futures, so nothing chained on one is left pending
+     * across a restart.
      */
     private final class DispatchTask implements Runnable {
         private final Source source;
         private final List<Flow> flows;
         private final CompletableFuture<Void> future = new CompletableFuture<>();
 
+        /** The permit this task holds with virtual dispatch, released when it is done; else null. */
+        private Semaphore admission;
+
         private DispatchTask(final Source source, final List<Flow> flows) {
             this.source = source;
             this.flows = flows;
@@ -348,6 +488,10 @@ public abstract class ParserBase implements Parser {
                 this.future.complete(null);
             } catch (final Throwable t) {
                 this.future.completeExceptionally(t);
+            } finally {
+                if (this.admission != null) {
+                    this.admission.release();
+                }
             }
         }
     }
@@ -405,9 +549,10 @@ public abstract class ParserBase implements Parser {
         }
         this.recordsReceived.mark(flows.size());
 
-        // DispatchTask owns the future so that every exit path completes it: UdpListener releases
-        // the packet's retained ByteBuf when this future completes, so any path that returns
-        // something pending leaks a direct buffer (see #273). It also marks recordsDispatched only
+        // DispatchTask owns the future so that every exit path completes it: callers chain on it
+        // (both listeners report dispatch failures through it), so any path that returns something
+        // pending silently swallows that outcome. The flows are materialised above, so the
+        // datagram itself is no longer needed once this returns. It also marks recordsDispatched only
         // after the dispatcher returns normally — the Daemon dispatcher swallows FlowException, so
         // marking unconditionally would count dropped flows as delivered and leave the one gauge an
         // operator uses to confirm delivery reading healthy while nothing reached ClickHouse.
@@ -9,7 +9,9 @@ import com.codahale.metrics.Counter;
 import com.codahale.metrics.Gauge;
 import com.codahale.metrics.Meter;
 import com.codahale.metrics.MetricRegistry;
+import com.google.common.util.concurrent.RateLimiter;
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
 import org.riptide.flows.listeners.UdpParser;
 import org.riptide.flows.parser.data.Flow;
 import org.riptide.flows.parser.session.Session;
@@ -28,13 +30,19 @@ import java.time.Duration;
 import java.time.Instant;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.function.BiConsumer;
 
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
 public abstract class UdpParserBase extends ParserBase implements UdpParser {
 
     /**
@@ -50,9 +58,39 @@ public abstract class UdpParserBase extends ParserBase implements UdpParser {
 
     private static final Logger LOG = LoggerFactory.getLogger(UdpParserBase.class);
 
+    /**
+     * Datagrams each decode worker holds before the handoff waits and then drops. A queued entry is
+     * a heap copy of one datagram — typically ~1.4 KB, at most the listener's 8096-byte buffer — so
+     * this bounds a worker's backlog at a few MB while absorbing the same bursts the dispatch queue
+     * behind it is sized for.
+     */
+    private static final int DECODE_QUEUE_CAPACITY = 1024;
+
     private final Meter packetsReceived;
     private final Counter parserErrors;
 
+    /** Datagrams dropped at the decode handoff because the workers were behind. */
+    private final Counter decodeDrops;
+
+    /** One drop warning per 10s; the counter carries the tally. */
+    private final RateLimiter decodeDropWarnLimiter = RateLimiter.create(0.1);
+
+    private final String decodeQueueDepthGauge;
+    private Gauge<Integer> decodeDepthGauge;
+
+    /**
+     * Decode workers, or 0 to decode on the calling thread — the listener's event loop. See
+     * {@link #setDecodeThreads}.
+     */
+    private volatile int decodeThreads = 0;
+
+    /**
+     * One single-threaded executor per worker rather than one pool: a pool hands work to whichever
+     * thread is free, which is exactly what must not happen to two packets of the same exporter.
+     * Written by start()/stop(), read by every event loop that submits.
+     */
+    private volatile ThreadPoolExecutor[] decoders;
+
     private UdpSessionManager sessionManager;
 
     /** Held so {@link #stop()} can deregister them: a stopped parser reports nothing. */
@@ -84,6 +122,7 @@ public abstract class UdpParserBase extends ParserBase implements UdpParser {
 
         this.packetsReceived = metricRegistry.meter(MetricRegistry.name("parsers",  name, "packetsReceived"));
         this.parserErrors = metricRegistry.counter(MetricRegistry.name("parsers",  name, "parserErrors"));
+        this.decodeDrops = metricRegistry.counter(MetricRegistry.name("parsers",  name, "decodeDrops"));
 
         // names only; the gauges register in start(), like ParserBase's dispatchQueueDepth and
         // UdpListener's socketDrops. Registering here would leave a stopped-then-started parser
@@ -91,6 +130,7 @@ public abstract class UdpParserBase extends ParserBase implements UdpParser {
         // change installs, that absence means "not running".
         this.sessionCountGauge = MetricRegistry.name("parsers",  name, "sessionCount");
         this.templateCountGauge = MetricRegistry.name("parsers",  name, "templateCount");
+        this.decodeQueueDepthGauge = MetricRegistry.name("parsers",  name, "decodeQueueDepth");
     }
 
     protected abstract FlowPacket parse(Session session, ByteBuf buffer) throws Exception;
@@ -105,6 +145,15 @@ public abstract class UdpParserBase extends ParserBase implements UdpParser {
         this.packetsReceived.mark();
 
         final UdpSessionManager.SessionKey sessionKey = this.buildSessionKey(remoteAddress, localAddress);
+        if (this.decodeThreads == 0) {
+            return this.decode(receivedAt, buffer, sessionKey);
+        }
+        return this.handOff(receivedAt, buffer, sessionKey);
+    }
+
+    private CompletableFuture<?> decode(final Instant receivedAt,
+                                        final ByteBuf buffer,
+                                        final UdpSessionManager.SessionKey sessionKey) throws Exception {
         final TransactionalSession session = new TransactionalSession(this.sessionManager.getSession(sessionKey));
 
         final FlowPacket parsed;
@@ -129,6 +178,108 @@ public abstract class UdpParserBase extends ParserBase implements UdpParser {
         return this.transmit(receivedAt, parsed, session);
     }
 
+    /**
+     * Queue the datagram for the decode worker that owns its session, instead of decoding it here.
+     *
+     * <p>The worker is picked by hashing the {@link UdpSessionManager.SessionKey}, so every packet of
+     * one session lands on one thread, in arrival order. That is what keeps decoding correct:
+     * templates are learned before the data sets that use them, and sequence tracking sees packets
+     * in the order the exporter sent them. Different exporters decode in parallel.
+     *
+     * <p>The buffer is copied, because the listener releases it when this returns. The copy is sized
+     * to the datagram rather than to the listener's receive buffer, and lives on the heap: a backlog
+     * here costs what the exporters actually sent, not 8096 bytes of direct memory per packet.
+     */
+    private CompletableFuture<?> handOff(final Instant receivedAt,
+                                         final ByteBuf buffer,
+                                         final UdpSessionManager.SessionKey sessionKey) {
+        final var workers = this.decoders;
+        if (workers == null) {
+            // stopped, or never started: there is nobody to decode it
+            this.decodeDrops.inc();
+            return CompletableFuture.completedFuture(null);
+        }
+
+        final var task = new DecodeTask(receivedAt, Unpooled.copiedBuffer(buffer), sessionKey);
+        if (!this.enqueue(workers[worker(sessionKey, workers.length)], task)) {
+            task.buffer.release();
+            this.decodeDrops.inc();
+            if (LOG.isWarnEnabled() && this.decodeDropWarnLimiter.tryAcquire()) {
+                LOG.warn("Parser {} decode queue full ({} packets per worker) even after waiting {} ms — "
+                                + "dropped a packet; {} packets dropped so far. Decoding cannot keep up;"
+                                + " raise decode-threads.",
+                        getName(), DECODE_QUEUE_CAPACITY, ParserBase.OFFER_TIMEOUT_MS,
+                        this.decodeDrops.getCount());
+            }
+            return CompletableFuture.completedFuture(null);
+        }
+        return task.future;
+    }
+
+    /**
+     * The worker owning a session. The hash is spread first because the session keys hash
+     * {@code InetAddress}es, whose low bits are the last octet of the address: exporters numbered
+     * within one subnet would otherwise pile onto a few workers whenever the count is even.
+     */
+    static int worker(final UdpSessionManager.SessionKey sessionKey, final int workers) {
+        final int h = sessionKey.hashCode();
+        return Math.floorMod(h ^ (h >>> 16) ^ (h >>> 8), workers);
+    }
+
+    /** Same shape and policy as {@link ParserBase}'s dispatch handoff: try, then wait briefly, then drop. */
+    private boolean enqueue(final ThreadPoolExecutor worker, final DecodeTask task) {
+        try {
+            worker.execute(task);
+            return true;
+        } catch (final RejectedExecutionException e) {
+            if (worker.isShutdown()) {
+                return false;
+            }
+        }
+        try {
+            return worker.getQueue().offer(task, ParserBase.OFFER_TIMEOUT_MS, MILLISECONDS);
+        } catch (final InterruptedException e) {
+            // Deliberately NOT reinstating the interrupt flag: this runs on a Netty event loop,
+            // where a set flag makes every subsequent select() return at once. See ParserBase.
+            LOG.debug("Parser {} interrupted while handing off for decode; dropping the packet", getName());
+            return false;
+        }
+    }
+
+    /** A datagram waiting for its decode worker; completes once decode and dispatch have. */
+    private final class DecodeTask implements Runnable {
+        private final Instant receivedAt;
+        private final ByteBuf buffer;
+        private final UdpSessionManager.SessionKey sessionKey;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        private DecodeTask(final Instant receivedAt,
+                           final ByteBuf buffer,
+                           final UdpSessionManager.SessionKey sessionKey) {
+            this.receivedAt = receivedAt;
+            this.buffer = buffer;
+            this.sessionKey = sessionKey;
+        }
+
+        @Override
+        public void run() {
+            try {
+                decode(this.receivedAt, this.buffer, this.sessionKey).whenComplete((_, ex) -> {
+                    if (ex != null) {
+                        this.future.completeExceptionally(ex);
+                    } else {
+                        this.future.complete(null);
+                    }
+                });
+            } catch (final Throwable t) {
+                this.future.completeExceptionally(t);
+            } finally {
+                // decode() materialises the flows before returning, so nothing still reads this
+                this.buffer.release();
+            }
+        }
+    }
+
     /** Must be set before {@link #start}; the session manager is built there. */
     public void setOptionListener(final OptionListener optionListener) {
         this.optionListener = Objects.requireNonNull(optionListener);
@@ -207,10 +358,44 @@ public abstract class UdpParserBase extends ParserBase implements UdpParser {
                 HOUSEKEEPING_INTERVAL,
                 HOUSEKEEPING_INTERVAL,
                 TimeUnit.MILLISECONDS);
+
+        if (this.decodeThreads > 0) {
+            final var workers = new ThreadPoolExecutor[this.decodeThreads];
+            for (int i = 0; i < workers.length; i++) {
+                final String threadName = "udp-parser-decode-" + getName() + "-" + i;
+                // Daemon for the same reason as the housekeeper; stop() drains them first anyway.
+                workers[i] = new ThreadPoolExecutor(1, 1, 0L, MILLISECONDS,
+                        new ArrayBlockingQueue<>(DECODE_QUEUE_CAPACITY), runnable -> {
+                            final Thread thread = new Thread(runnable, threadName);
+                            thread.setDaemon(true);
+                            return thread;
+                        });
+                workers[i].prestartAllCoreThreads();
+            }
+            this.decoders = workers;
+
+            // remove-then-register, like the session gauges above
+            this.metricRegistry.remove(this.decodeQueueDepthGauge);
+            this.decodeDepthGauge = () -> {
+                final var current = this.decoders;
+                int depth = 0;
+                if (current != null) {
+                    for (final var worker : current) {
+                        depth += worker.getQueue().size();
+                    }
+                }
+                return depth;
+            };
+            this.metricRegistry.register(this.decodeQueueDepthGauge, this.decodeDepthGauge);
+        }
     }
 
     @Override
     public void stop() {
+        // Drained first: a decode worker's last act for each packet is a submit to the dispatch
+        // queue, which super.stop() below shuts down.
+        this.stopDecoders();
+
         if (this.housekeepingFuture != null) {
             this.housekeepingFuture.cancel(false);
             this.housekeepingFuture = null;
@@ -232,6 +417,54 @@ public abstract class UdpParserBase extends ParserBase implements UdpParser {
         super.stop();
     }
 
+    /**
+     * Lets queued datagrams decode for the same bounded grace period {@link ParserBase} gives its
+     * dispatch queue, then counts whatever is left as dropped and completes its futures.
+     */
+    private void stopDecoders() {
+        final var workers = this.decoders;
+        if (workers == null) {
+            return;
+        }
+        this.decoders = null;
+        for (final var worker : workers) {
+            worker.shutdown();
+        }
+        int discarded = 0;
+        try {
+            final long deadline = System.nanoTime() + SECONDS.toNanos(5);
+            for (final var worker : workers) {
+                final long remaining = deadline - System.nanoTime();
+                if (!worker.awaitTermination(Math.max(remaining, 0), TimeUnit.NANOSECONDS)) {
+                    discarded += abandon(worker.shutdownNow());
+                }
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            for (final var worker : workers) {
+                discarded += abandon(worker.shutdownNow());
+            }
+        }
+        if (discarded > 0) {
+            LOG.warn("Parser {} discarded {} packets that could not be decoded within the shutdown grace period",
+                    getName(), discarded);
+        }
+        ParserBase.deregisterIfOwned(this.metricRegistry, this.decodeQueueDepthGauge, this.decodeDepthGauge);
+    }
+
+    private int abandon(final List<Runnable> discarded) {
+        int packets = 0;
+        for (final Runnable r : discarded) {
+            if (r instanceof DecodeTask task) {
+                task.buffer.release();
+                task.future.complete(null);
+                packets++;
+            }
+        }
+        this.decodeDrops.inc(packets);
+        return packets;
+    }
+
     public Duration getTemplateTimeout() {
         return this.templateTimeout;
     }
@@ -240,6 +473,28 @@ public abstract class UdpParserBase extends ParserBase implements UdpParser {
         this.templateTimeout = templateTimeout;
     }
 
+    public int getDecodeThreads() {
+        return this.decodeThreads;
+    }
+
+    /**
+     * Decode on this many worker threads instead of the listener's event loop. The default of 0
+     * decodes inline, as it always has; above 0 the event loop only classifies each datagram by
+     * session and copies it to that session's worker, so one listener thread can feed several
+     * cores. Packets of one session always decode on the same worker, in order. Read once, in
+     * {@link #start()}.
+     */
+    public void setDecodeThreads(final int decodeThreads) {
+        if (decodeThreads < 0) {
+            throw new IllegalArgumentException("Decode threads must be >= 0");
+        }
+        if (this.housekeeper != null) {
+            throw new IllegalStateException(
+                    "Parser " + getName() + " is already started; decode threads are fixed at start()");
+        }
+        this.decodeThreads = decodeThreads;
+    }
+
     @Override
     public Object dumpInternalState() {
         return this.sessionManager.dumpInternalState();
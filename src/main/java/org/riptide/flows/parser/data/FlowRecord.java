@@ -0,0 +1,133 @@
+/*
+ * Copyright 2026 Riptide Labs, <https://github.com/Riptide-Labs>
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package org.riptide.flows.parser.data;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+import java.net.InetAddress;
+import java.time.Instant;
+
+/**
+ * A {@link Flow} resolved once, into plain fields.
+ *
+ * <p>The builders used to return anonymous {@code Flow}s whose getters walked their fallback
+ * ladders — {@code Optionals.first(...)} over the boxed raw fields, a stream and a varargs array
+ * each — on every call. The pipeline maps each flow field by field, the timeout calculation asks
+ * for first/last switched and both counters again, and every one of those calls walked its ladder
+ * from the top. The builders now walk each ladder exactly once and store the answer here, so a
+ * getter is a field read and the raw flow can be dropped as soon as the record is filled.
+ *
+ * <p>Counters, ports, interfaces and the rest are primitives, with {@code 0} standing for "not
+ * exported" exactly as the {@link Flow} contract always had it. The reference fields are the
+ * addresses, the instants and the enums, none of which has a primitive form worth the conversion.
+ *
+ * <p>Mutable so that a builder can fill it field by field without a second, intermediate object.
+ * After the builder returns it, only the pipeline writes to it: the {@code EnrichedFlow} wrapping
+ * it carries the same record through the enrichers, so a correction such as the clock skew is
+ * made here rather than on a copy.
+ */
+@Getter
+@Setter
+@EqualsAndHashCode
+@ToString
+public final class FlowRecord implements Flow {
+    private Instant receivedAt;
+    private Instant timestamp;
+
+    private FlowProtocol flowProtocol;
+    private int flowRecords;
+    private long flowSeqNum;
+
+    private Instant firstSwitched;
+    private Instant lastSwitched;
+    private Instant deltaSwitched;
+
+    private int inputSnmp;
+    private int outputSnmp;
+
+    private long srcAs;
+    private InetAddress srcAddr;
+    private int srcMaskLen;
+    private int srcPort;
+
+    private long dstAs;
+    private InetAddress dstAddr;
+    private int dstMaskLen;
+    private int dstPort;
+
+    private InetAddress nextHop;
+
+    private long bytes;
+    private long packets;
+
+    private Direction direction;
+
+    private int engineId;
+    private int engineType;
+
+    private int vlan;
+    private int ipProtocolVersion;
+    private int protocol;
+    private int tcpFlags;
+    private int tos;
+
+    private SamplingAlgorithm samplingAlgorithm;
+    private double samplingInterval;
+    private SamplingProvenance samplingProvenance;
+
+    /** A record holding what {@code flow} returns, for a {@link Flow} that is not one, or to copy one. */
+    public static FlowRecord copyOf(final Flow flow) {
+        final var record = new FlowRecord();
+        record.receivedAt = flow.getReceivedAt();
+        record.timestamp = flow.getTimestamp();
+        record.flowProtocol = flow.getFlowProtocol();
+        record.flowRecords = flow.getFlowRecords();
+        record.flowSeqNum = flow.getFlowSeqNum();
+        record.firstSwitched = flow.getFirstSwitched();
+        record.lastSwitched = flow.getLastSwitched();
+        record.deltaSwitched = flow.getDeltaSwitched();
+        record.inputSnmp = flow.getInputSnmp();
+        record.outputSnmp = flow.getOutputSnmp();
+        record.srcAs = flow.getSrcAs();
+        record.srcAddr = flow.getSrcAddr();
+        record.srcMaskLen = flow.getSrcMaskLen();
+        record.srcPort = flow.getSrcPort();
+        record.dstAs = flow.getDstAs();
+        record.dstAddr = flow.getDstAddr();
+        record.dstMaskLen = flow.getDstMaskLen();
+        record.dstPort = flow.getDstPort();
+        record.nextHop = flow.getNextHop();
+        record.bytes = flow.getBytes();
+        record.packets = flow.getPackets();
+        record.direction = flow.getDirection();
+        record.engineId = flow.getEngineId();
+        record.engineType = flow.getEngineType();
+        record.vlan = flow.getVlan();
+        record.ipProtocolVersion = flow.getIpProtocolVersion();
+        record.protocol = flow.getProtocol();
+        record.tcpFlags = flow.getTcpFlags();
+        record.tos = flow.getTos();
+        record.samplingAlgorithm = flow.getSamplingAlgorithm();
+        record.samplingInterval = flow.getSamplingInterval();
+        record.samplingProvenance = flow.getSamplingProvenance();
+        return record;
+    }
+
+    /** The interval and the rung that supplied it, which are only ever set together. */
+    public void setSamplingRate(final ResolvedRate rate) {
+        this.samplingInterval = rate.interval();
+        this.samplingProvenance = rate.from();
+    }
+
+    /** Unset means the builder had no timeout to apply, which {@link Flow} defines as first switched. */
+    @Override
+    public Instant getDeltaSwitched() {
+        return this.deltaSwitched != null ? this.deltaSwitched : this.firstSwitched;
+    }
+}
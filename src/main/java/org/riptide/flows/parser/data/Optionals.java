@@ -10,6 +10,18 @@ import java.util.Optional;
 import java.util.stream.Stream;
 
 public final class Optionals {
+
+    /**
+     * What an integer field of a raw flow holds until a record's element is written into it. The
+     * raw flows hold their numbers as primitives so that a decoded value is stored without boxing,
+     * which leaves no {@code null} to mean "not exported". -1 is free for that only in a field wider
+     * than its element: the unsigned32 interface indexes are held in a {@code long} for this reason.
+     * An unsigned64 counter fills its {@code long}, so all ones is a value it may carry; those are
+     * read with {@link #firstPresentOrZero}, which asks the raw flow's presence bits instead. A
+     * {@code double} field holds {@link Double#NaN}.
+     */
+    public static final int ABSENT = -1;
+
     private Optionals() {
     }
 
@@ -22,5 +34,85 @@ public final class Optionals {
         return Stream.of(values).filter(Objects::nonNull).findFirst();
     }
 
+    /**
+     * {@link #first} without the stream and the {@code Optional}: the first non-null value, or
+     * {@code null}. For the builders, which walk each ladder once per record on the parse path.
+     */
+    @SafeVarargs
+    public static <T> T firstOrNull(T... values) {
+        for (final T value : values) {
+            if (value != null) {
+                return value;
+            }
+        }
+        return null;
+    }
+
+    public static int orZero(final Integer value) {
+        return value != null ? value : 0;
+    }
+
+    public static long orZero(final Long value) {
+        return value != null ? value : 0L;
+    }
+
+    /** {@link #firstOrNull} over primitive raw-flow fields: the first that is not {@link #ABSENT}, or {@code ABSENT}. */
+    public static int firstPresent(final int... values) {
+        for (final int value : values) {
+            if (value != ABSENT) {
+                return value;
+            }
+        }
+        return ABSENT;
+    }
+
+    /** {@link #firstOrNull} over primitive raw-flow fields: the first that is not {@link #ABSENT}, or {@code ABSENT}. */
+    public static long firstPresent(final long... values) {
+        for (final long value : values) {
+            if (value != ABSENT) {
+                return value;
+            }
+        }
+        return ABSENT;
+    }
+
+    /** {@link #firstOrNull} over {@code double} raw-flow fields: the first that is not NaN, or NaN. */
+    public static double firstPresent(final double... values) {
+        for (final double value : values) {
+            if (!Double.isNaN(value)) {
+                return value;
+            }
+        }
+        return Double.NaN;
+    }
+
+    /**
+     * {@link #presentOrZero(long)} of {@link #firstPresent(long...)} for fields an element fills to
+     * the last bit: a value equal to {@link #ABSENT} counts as exported if its bit in {@code bits}
+     * is set in {@code present}, the raw flow's presence bits.
+     */
+    public static long firstPresentOrZero(final long present, final long[] bits, final long... values) {
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != ABSENT || (present & bits[i]) != 0) {
+                return values[i];
+            }
+        }
+        return 0L;
+    }
+
+    /** {@link #orZero(Integer)} for a primitive raw-flow field. */
+    public static int presentOrZero(final int value) {
+        return value != ABSENT ? value : 0;
+    }
+
+    /** {@link #orZero(Long)} for a primitive raw-flow field. */
+    public static long presentOrZero(final long value) {
+        return value != ABSENT ? value : 0L;
+    }
+
+    /** {@code value}, or {@code otherwise} if the {@code double} raw-flow field was not exported. */
+    public static double presentOr(final double value, final double otherwise) {
+        return !Double.isNaN(value) ? value : otherwise;
+    }
 
 }
@@ -21,4 +21,32 @@ public interface InformationElement {
     int getMinimumFieldLength();
 
     int getMaximumFieldLength();
+
+    /**
+     * How the element's value sits on the wire, for a decoder compiled from a template that reads
+     * fixed-length fields straight from the buffer instead of calling {@link #parse}. Anything not
+     * declared here is {@link Encoding#OTHER} and stays on the {@code parse} path.
+     */
+    default Encoding getEncoding() {
+        return Encoding.OTHER;
+    }
+
+    /** The unit the element's values carry, as {@link Value#getUnit()} reports it; {@code null} if none. */
+    default String getUnit() {
+        return null;
+    }
+
+    enum Encoding {
+        /** Big-endian unsigned integer over the whole field (reduced-size encoding allowed). */
+        UNSIGNED,
+        /** Big-endian two's complement integer over the whole field (reduced-size encoding allowed). */
+        SIGNED,
+        /** Four octets of seconds since the epoch. */
+        DATE_TIME_SECONDS,
+        /** Eight octets of milliseconds since the epoch. */
+        DATE_TIME_MILLISECONDS,
+        IPV4_ADDRESS,
+        IPV6_ADDRESS,
+        OTHER,
+    }
 }
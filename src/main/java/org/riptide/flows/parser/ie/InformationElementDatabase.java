@@ -6,6 +6,7 @@
 package org.riptide.flows.parser.ie;
 
 import com.google.common.collect.ImmutableMap;
+import io.netty.util.collection.LongObjectHashMap;
 import org.riptide.flows.parser.Protocol;
 import org.riptide.flows.parser.ie.values.NullValue;
 
@@ -78,9 +79,23 @@ public final class InformationElementDatabase {
             new org.riptide.flows.parser.ipfix.InformationElementProvider(),
             new org.riptide.flows.parser.netflow9.InformationElementProvider());
 
-    private final Map<Key, InformationElement> elements;
+    /** Enterprise number and identifier share a {@link #enterprise} key: 32 bits above 16. */
+    private static final int ENTERPRISE_SHIFT = 16;
+    private static final int PROTOCOL_SHIFT = 48;
 
-    private InformationElementDatabase(final Provider... providers) {
+    /**
+     * IANA elements, indexed by protocol ordinal and then identifier; {@code null} where nothing is
+     * registered. This and {@link #enterprise} replace a {@code Map<Key, InformationElement>}, which
+     * built and hashed a key of boxed numbers for every field of every template. An exporter
+     * re-announcing a few large templates every few seconds makes that lookup a steady cost; these
+     * answer without allocating.
+     */
+    private final InformationElement[][] iana;
+
+    /** Elements under a private enterprise number, by {@link #enterpriseKey}. Read-only once built. */
+    private final LongObjectHashMap<InformationElement> enterprise;
+
+    InformationElementDatabase(final Provider... providers) {
         final AdderImpl adder = new AdderImpl();
 
         // Add null element - this derives from the standard but is required by some exporters
@@ -92,15 +107,63 @@ public final class InformationElementDatabase {
             provider.load(adder);
         }
 
-        this.elements = adder.build();
+        // Built through the map still, which rejects a key registered twice.
+        final Map<Key, InformationElement> elements = adder.build();
+
+        final int[] size = new int[Protocol.values().length];
+        for (final Key key : elements.keySet()) {
+            if (key.enterpriseNumber == null) {
+                size[key.protocol.ordinal()] = Math.max(size[key.protocol.ordinal()], key.informationElementIdentifier + 1);
+            }
+        }
+        this.iana = new InformationElement[size.length][];
+        for (int i = 0; i < size.length; i++) {
+            this.iana[i] = new InformationElement[size[i]];
+        }
+        this.enterprise = new LongObjectHashMap<>();
+        elements.forEach((key, element) -> {
+            if (key.enterpriseNumber == null) {
+                this.iana[key.protocol.ordinal()][key.informationElementIdentifier] = element;
+            } else {
+                this.enterprise.put(enterpriseKey(key.protocol, key.enterpriseNumber, key.informationElementIdentifier), element);
+            }
+        });
     }
 
     public Optional<InformationElement> lookup(final Protocol protocol, final Long enterpriseNumber, final int informationElementIdentifier) {
-        return Optional.ofNullable(this.elements.get(new Key(protocol, enterpriseNumber, informationElementIdentifier)));
+        return Optional.ofNullable(enterpriseNumber == null
+                ? find(protocol, informationElementIdentifier)
+                : find(protocol, enterpriseNumber, informationElementIdentifier));
     }
 
     public Optional<InformationElement> lookup(final Protocol protocol, final int informationElementIdentifier) {
-        return lookup(protocol, null, informationElementIdentifier);
+        return Optional.ofNullable(find(protocol, informationElementIdentifier));
+    }
+
+    /** {@link #lookup(Protocol, int)} without the {@link Optional}: {@code null} if not registered. */
+    public InformationElement find(final Protocol protocol, final int informationElementIdentifier) {
+        final InformationElement[] elements = this.iana[protocol.ordinal()];
+        return informationElementIdentifier >= 0 && informationElementIdentifier < elements.length
+                ? elements[informationElementIdentifier]
+                : null;
+    }
+
+    /** {@link #lookup(Protocol, Long, int)} for an enterprise element: {@code null} if not registered. */
+    public InformationElement find(final Protocol protocol, final long enterpriseNumber, final int informationElementIdentifier) {
+        if (!fitsEnterpriseKey(enterpriseNumber, informationElementIdentifier)) {
+            return null;
+        }
+        return this.enterprise.get(enterpriseKey(protocol, enterpriseNumber, informationElementIdentifier));
+    }
+
+    private static boolean fitsEnterpriseKey(final long enterpriseNumber, final int informationElementIdentifier) {
+        return (enterpriseNumber & ~0xFFFFFFFFL) == 0 && (informationElementIdentifier & ~0xFFFF) == 0;
+    }
+
+    private static long enterpriseKey(final Protocol protocol, final long enterpriseNumber, final int informationElementIdentifier) {
+        return (long) protocol.ordinal() << PROTOCOL_SHIFT
+                | enterpriseNumber << ENTERPRISE_SHIFT
+                | informationElementIdentifier;
     }
 
     private static class AdderImpl implements Adder {
@@ -110,6 +173,13 @@ public final class InformationElementDatabase {
         public void add(final Key key, final InformationElement element) {
             Objects.requireNonNull(key);
             Objects.requireNonNull(element);
+            // Both go into the dense lookup, which only holds what the wire formats can carry.
+            if (key.enterpriseNumber == null
+                    ? (key.informationElementIdentifier & ~0xFFFF) != 0
+                    : !fitsEnterpriseKey(key.enterpriseNumber, key.informationElementIdentifier)) {
+                throw new IllegalArgumentException("Information element %s/%s/%d out of range".formatted(
+                        key.protocol, key.enterpriseNumber, key.informationElementIdentifier));
+            }
 
             builder.put(key, element);
         }
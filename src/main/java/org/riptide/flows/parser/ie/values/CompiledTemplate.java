@@ -0,0 +1,506 @@
+/*
+ * Copyright 2026 Riptide Labs, <https://github.com/Riptide-Labs>
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package org.riptide.flows.parser.ie.values;
+
+import com.google.common.primitives.UnsignedLong;
+import io.netty.buffer.ByteBuf;
+import lombok.extern.slf4j.Slf4j;
+import org.riptide.flows.parser.exceptions.InvalidPacketException;
+import org.riptide.flows.parser.exceptions.MissingTemplateException;
+import org.riptide.flows.parser.ie.InformationElement;
+import org.riptide.flows.parser.ie.Value;
+import org.riptide.flows.parser.ie.values.visitor.DoubleVisitor;
+import org.riptide.flows.parser.ie.values.visitor.DurationVisitor;
+import org.riptide.flows.parser.ie.values.visitor.InetAddressVisitor;
+import org.riptide.flows.parser.ie.values.visitor.InstantVisitor;
+import org.riptide.flows.parser.ie.values.visitor.IntegerVisitor;
+import org.riptide.flows.parser.ie.values.visitor.LongVisitor;
+import org.riptide.flows.parser.ie.values.visitor.UnsignedLongVisitor;
+import org.riptide.flows.parser.ie.values.visitor.ValueVisitor;
+import org.riptide.flows.parser.session.Field;
+import org.riptide.flows.parser.session.Session;
+import org.riptide.flows.parser.session.Template;
+
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.NetworkInterface;
+import java.net.UnknownHostException;
+import java.nio.BufferUnderflowException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.LongFunction;
+import java.util.stream.Collectors;
+
+/**
+ * A data {@link Template} compiled against one {@link ValueConversionService}: which raw-flow field
+ * each template field lands in, and how it gets there, decided once per template instead of once
+ * per value.
+ *
+ * <p>The generic path parses every field of every record into a {@link Value} — a slice, a boxed
+ * number and the {@code Value} itself — and then {@link ValueConversionService#apply applies} each
+ * one by name: a map lookup, a visitor dispatch and a reflective write. Nearly all of those fields
+ * are fixed-length counters, ports, addresses and timestamps, and a good share land nowhere at all.
+ * Compiled, each field becomes one of three steps:
+ * <ul>
+ *     <li>skipped — no raw-flow field carries the element, so its bytes are stepped over unread;</li>
+ *     <li>read directly — a fixed-length integer, timestamp or address is read at its offset with a
+ *     primitive read and converted exactly as the stock visitor for the target type would. An
+ *     integer bound for an {@code int}, {@code long} or {@code double} field stays a primitive from
+ *     the buffer to the field, stored through the target's {@link FieldWriter}; only a value whose
+ *     field holds an object — an instant, a duration, an address — is built as one;</li>
+ *     <li>generic — everything else (variable-length fields, lists, strings, fields whose element is
+ *     unknown, and targets served by a visitor other than the stock one) is parsed and applied as
+ *     before.</li>
+ * </ul>
+ *
+ * <p>Skipping is the one observable difference: a malformed value in a field no raw flow reads no
+ * longer fails its record. Options still see every field they could be scoped on — see
+ * {@link #lookupOptions}.
+ *
+ * <p>A template without variable-length fields — every NetFlow v9 template, and most IPFIX ones —
+ * gives every record of a set the same length, and each field the same offset within it. Such a set
+ * is bounds-checked once and decoded whole by {@link #decodeAll}.
+ */
+@Slf4j
+public final class CompiledTemplate {
+
+    /**
+     * The visitors whose conversions the direct reads reproduce. A deployment may register its own
+     * visitor for one of these types; fields converted by it stay generic so its conversion is the
+     * one that runs.
+     */
+    private static final Map<Class<?>, Class<?>> STOCK_VISITORS = Map.of(
+            Long.class, LongVisitor.class,
+            Integer.class, IntegerVisitor.class,
+            Double.class, DoubleVisitor.class,
+            UnsignedLong.class, UnsignedLongVisitor.class,
+            Instant.class, InstantVisitor.class,
+            Duration.class, DurationVisitor.class,
+            InetAddress.class, InetAddressVisitor.class);
+
+    private enum Kind {
+        SKIP,
+        /** A fixed-length integer into an {@code int} field. */
+        INT,
+        /** A fixed-length integer into a {@code long} field. */
+        LONG,
+        /** A fixed-length integer into a {@code double} field. */
+        DOUBLE,
+        /** A fixed-length value read by the step's {@link Reader} into a reference field. */
+        OBJECT,
+        GENERIC,
+    }
+
+    @FunctionalInterface
+    private interface Reader {
+        /** The converted value of the field at {@code index}, or {@code null} to leave the target unset. */
+        Object read(ByteBuf buffer, int index, int length);
+    }
+
+    /**
+     * {@code length} is -1 for a variable-length field, {@code offset} for any field after one.
+     * {@code signed} tells the integer kinds how to widen the field's bits.
+     */
+    private record Step(Kind kind,
+                        Field field,
+                        String name,
+                        int length,
+                        int offset,
+                        ValueConversionService.Binding binding,
+                        boolean signed,
+                        Reader reader) {
+    }
+
+    private final ValueConversionService conversionService;
+
+    private final FieldWriter writer;
+
+    public final Template template;
+
+    private final Step[] steps;
+
+    /** The element names the template carries; {@code null} if any of its fields is anonymous. */
+    private final Set<String> names;
+
+    /** The length of every record if no field is variable-length, -1 otherwise. */
+    private final int stride;
+
+    CompiledTemplate(final ValueConversionService conversionService, final Template template) {
+        this.conversionService = Objects.requireNonNull(conversionService);
+        this.writer = conversionService.writer();
+        this.template = Objects.requireNonNull(template);
+
+        final List<Step> compiled = new ArrayList<>(template.fields.size());
+        boolean anonymous = false;
+        int offset = 0;
+        for (final Field field : template.fields) {
+            final Step step = compile(field, offset);
+            anonymous |= step.name == null;
+            offset = step.length >= 0 && offset >= 0 ? offset + step.length : -1;
+            compiled.add(step);
+        }
+        this.steps = compiled.toArray(Step[]::new);
+        this.names = anonymous ? null : compiled.stream().map(Step::name).collect(Collectors.toUnmodifiableSet());
+        this.stride = offset > 0 ? offset : -1;
+    }
+
+    private Step compile(final Field field, final int offset) {
+        final InformationElement element = field.informationElement();
+        final int length = field.isVariableLength() ? -1 : field.length();
+        if (element == null) {
+            return new Step(Kind.GENERIC, field, null, length, offset, null, false, null);
+        }
+
+        final ValueConversionService.Binding binding = this.conversionService.binding(element.getName());
+        if (binding == null) {
+            return new Step(Kind.SKIP, field, element.getName(), length, offset, null, false, null);
+        }
+
+        final ValueVisitor<?> visitor = binding.visitor();
+        final Class<?> type = visitor.targetClass();
+        if (length >= 1 && visitor.getClass() == STOCK_VISITORS.get(type)) {
+            final Kind primitive = primitive(element, length, binding.type());
+            if (primitive != null) {
+                final boolean signed = element.getEncoding() == InformationElement.Encoding.SIGNED;
+                return new Step(primitive, field, element.getName(), length, offset, binding, signed, null);
+            }
+            final Reader reader = reader(element, length, type);
+            if (reader != null) {
+                return new Step(Kind.OBJECT, field, element.getName(), length, offset, binding, false, reader);
+            }
+        }
+        return new Step(Kind.GENERIC, field, element.getName(), length, offset, binding, false, null);
+    }
+
+    /**
+     * The kind storing an integer element into a primitive field of {@code fieldType} without a box
+     * on the way, as the stock {@link IntegerVisitor}, {@link LongVisitor} and {@link DoubleVisitor}
+     * would convert it; {@code null} for any other element or field.
+     */
+    private static Kind primitive(final InformationElement element, final int length, final Class<?> fieldType) {
+        final InformationElement.Encoding encoding = element.getEncoding();
+        if (encoding != InformationElement.Encoding.UNSIGNED && encoding != InformationElement.Encoding.SIGNED || length > 8) {
+            return null;
+        }
+        if (fieldType == int.class) {
+            return Kind.INT;
+        }
+        if (fieldType == long.class) {
+            return Kind.LONG;
+        }
+        if (fieldType == double.class) {
+            return Kind.DOUBLE;
+        }
+        return null;
+    }
+
+    /** Mirrors the element's {@code parse} followed by the stock visitor for {@code type}; {@code null} where it does not. */
+    private static Reader reader(final InformationElement element, final int length, final Class<?> type) {
+        return switch (element.getEncoding()) {
+            case UNSIGNED -> length <= 8 ? integer(false, element.getUnit(), length, type) : null;
+            case SIGNED -> length <= 8 ? integer(true, element.getUnit(), length, type) : null;
+            case DATE_TIME_SECONDS -> length == 4 && type == Instant.class
+                    ? (buffer, index, l) -> Instant.ofEpochSecond(buffer.getUnsignedInt(index))
+                    : null;
+            case DATE_TIME_MILLISECONDS -> length == 8 && type == Instant.class
+                    ? (buffer, index, l) -> Instant.ofEpochMilli(buffer.getLong(index))
+                    : null;
+            case IPV4_ADDRESS -> length == 4 && type == InetAddress.class ? CompiledTemplate::ipv4 : null;
+            case IPV6_ADDRESS -> length == 16 && type == InetAddress.class ? CompiledTemplate::ipv6 : null;
+            case OTHER -> null;
+        };
+    }
+
+    private static Reader integer(final boolean signed, final String unit, final int length, final Class<?> type) {
+        final LongFunction<Object> convert = integerConversion(signed, unit, length, type);
+        if (convert == null) {
+            return null;
+        }
+        final int shift = 64 - 8 * length;
+        return signed
+                ? (buffer, index, l) -> convert.apply(uint(buffer, index, length) << shift >> shift)
+                : (buffer, index, l) -> convert.apply(uint(buffer, index, length));
+    }
+
+    /** The visitors' conversions of an {@link UnsignedValue} or {@link SignedValue}, applied to its raw bits. */
+    private static LongFunction<Object> integerConversion(final boolean signed, final String unit, final int length, final Class<?> type) {
+        if (type == Long.class) {
+            return Long::valueOf;
+        }
+        if (type == Integer.class) {
+            return raw -> (int) raw;
+        }
+        if (type == Double.class) {
+            // a full-width unsigned value above Long.MAX_VALUE is positive, not the negative long its bits spell
+            return signed || length < 8 ? raw -> (double) raw : raw -> UnsignedLong.fromLongBits(raw).doubleValue();
+        }
+        if (type == UnsignedLong.class) {
+            return signed ? null : UnsignedLong::fromLongBits;
+        }
+        if (type == Instant.class) {
+            return switch (unit) {
+                case "seconds" -> Instant::ofEpochSecond;
+                case "milliseconds" -> Instant::ofEpochMilli;
+                case null, default -> null;
+            };
+        }
+        if (type == Duration.class) {
+            return switch (unit) {
+                case "seconds" -> Duration::ofSeconds;
+                case "milliseconds" -> Duration::ofMillis;
+                case "microseconds" -> raw -> Duration.ofNanos(raw * 1_000);
+                case "nanoseconds" -> Duration::ofNanos;
+                case null, default -> null;
+            };
+        }
+        return null;
+    }
+
+    /** The bits of the integer field of {@code step} at {@code index}, widened as its element's {@code parse} would. */
+    private static long bits(final Step step, final ByteBuf buffer, final int index) {
+        final long raw = uint(buffer, index, step.length);
+        if (!step.signed) {
+            return raw;
+        }
+        final int shift = 64 - 8 * step.length;
+        return raw << shift >> shift;
+    }
+
+    /** Big-endian, as {@code BufferUtils.uint} reads it, but at an absolute index. */
+    private static long uint(final ByteBuf buffer, final int index, final int length) {
+        return switch (length) {
+            case 1 -> buffer.getUnsignedByte(index);
+            case 2 -> buffer.getUnsignedShort(index);
+            case 4 -> buffer.getUnsignedInt(index);
+            case 8 -> buffer.getLong(index);
+            default -> {
+                long result = 0;
+                for (int i = 0; i < length; i++) {
+                    result = (result << 8) | buffer.getUnsignedByte(index + i);
+                }
+                yield result;
+            }
+        };
+    }
+
+    private static InetAddress ipv4(final ByteBuf buffer, final int index, final int length) {
+        final byte[] address = new byte[4];
+        buffer.getBytes(index, address);
+        try {
+            return InetAddress.getByAddress(address);
+        } catch (final UnknownHostException e) {
+            // unreachable: getByAddress only rejects lengths other than 4 and 16
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static InetAddress ipv6(final ByteBuf buffer, final int index, final int length) {
+        final byte[] address = new byte[16];
+        buffer.getBytes(index, address);
+        try {
+            // the overload IPv6AddressValue uses, which keeps an IPv4-mapped address an Inet6Address
+            return Inet6Address.getByAddress(null, address, (NetworkInterface) null);
+        } catch (final UnknownHostException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Decodes the record at the reader index into a new raw flow and advances past it. The options
+     * are applied first, so a field of the record overrides an option of the same name — the order
+     * the generic path applies them in.
+     */
+    public Object decode(final Session.Resolver resolver,
+                         final ByteBuf buffer,
+                         final List<Value<?>> options) throws InvalidPacketException, MissingTemplateException {
+        final Object flow = newFlow(options);
+
+        int index = buffer.readerIndex();
+        for (final Step step : this.steps) {
+            int length = step.length;
+            if (length < 0) {
+                length = buffer.getUnsignedByte(index++);
+                if (length == 0xFF) {
+                    length = buffer.getUnsignedShort(index);
+                    index += 2;
+                }
+            }
+            checkReadable(buffer, index, length);
+            field(step, flow, resolver, buffer, index, length);
+            index += length;
+        }
+        buffer.readerIndex(index);
+        return flow;
+    }
+
+    /** The length of every record of this template, or -1 if its records vary in length. */
+    public int stride() {
+        return this.stride;
+    }
+
+    /**
+     * Decodes every whole record from the reader index on — a set of a {@link #stride() fixed-stride}
+     * template — and advances past them, leaving any padding after the last. The set is bounds-checked
+     * once, up front, and each field is read at its fixed offset from its record's start: no reader
+     * index moves and no per-field length checks.
+     *
+     * @param scopes as for {@link #lookupOptions}, which runs per record
+     */
+    public List<Object> decodeAll(final Session.Resolver resolver,
+                                  final ByteBuf buffer,
+                                  final Set<String> scopes) throws InvalidPacketException, MissingTemplateException {
+        return decodeAll(resolver, buffer, scopes, null);
+    }
+
+    /**
+     * {@link #decodeAll(Session.Resolver, ByteBuf, Set)} for a set whose records all share
+     * {@code options}, as NetFlow v9 sets do.
+     */
+    public List<Object> decodeAll(final Session.Resolver resolver,
+                                  final ByteBuf buffer,
+                                  final List<Value<?>> options) throws InvalidPacketException, MissingTemplateException {
+        return decodeAll(resolver, buffer, null, Objects.requireNonNull(options));
+    }
+
+    private List<Object> decodeAll(final Session.Resolver resolver,
+                                   final ByteBuf buffer,
+                                   final Set<String> scopes,
+                                   final List<Value<?>> options) throws InvalidPacketException, MissingTemplateException {
+        if (this.stride < 0) {
+            throw new IllegalStateException("Template %d has variable-length fields".formatted(this.template.id));
+        }
+
+        final int count = buffer.readableBytes() / this.stride;
+        final List<Object> flows = new ArrayList<>(count);
+        int base = buffer.readerIndex();
+        for (int i = 0; i < count; i++, base += this.stride) {
+            final Object flow = newFlow(options != null ? options : lookupOptions(resolver, buffer, base, scopes));
+            for (final Step step : this.steps) {
+                field(step, flow, resolver, buffer, base + step.offset, step.length);
+            }
+            flows.add(flow);
+        }
+        buffer.readerIndex(base);
+        return flows;
+    }
+
+    private Object newFlow(final List<Value<?>> options) {
+        final Object flow = this.conversionService.newTarget();
+        for (final Value<?> option : options) {
+            this.conversionService.apply(option, flow);
+        }
+        return flow;
+    }
+
+    private void field(final Step step,
+                       final Object flow,
+                       final Session.Resolver resolver,
+                       final ByteBuf buffer,
+                       final int index,
+                       final int length) throws InvalidPacketException, MissingTemplateException {
+        switch (step.kind) {
+            case SKIP -> { }
+            case INT -> this.writer.writeInt(flow, step.binding.slot(), (int) bits(step, buffer, index));
+            case LONG -> this.writer.writeLong(flow, step.binding.slot(), bits(step, buffer, index));
+            case DOUBLE -> {
+                final long bits = bits(step, buffer, index);
+                this.writer.writeDouble(flow, step.binding.slot(), step.signed ? (double) bits : UnsignedValue.toDouble(bits));
+            }
+            case OBJECT -> write(step, flow, buffer, index, length);
+            case GENERIC -> {
+                // the one derived buffer left: the generic parse reads relative to a bounded buffer
+                final Value<?> value = step.field.parse(resolver, buffer.slice(index, length));
+                if (step.binding != null) {
+                    convert(step, flow, value);
+                } else {
+                    this.conversionService.apply(value, flow);
+                }
+            }
+        }
+    }
+
+    /**
+     * The options for the record at the reader index, without consuming it. Only fields named in
+     * {@code scopes} are parsed for the lookup, which sees exactly what it would have seen given every
+     * field: it matches on scope names alone. {@code scopes} is what
+     * {@link Session.Resolver#optionScopeNames()} returned for the set, read once rather than per
+     * record.
+     */
+    public List<Value<?>> lookupOptions(final Session.Resolver resolver,
+                                        final ByteBuf buffer,
+                                        final Set<String> scopes) throws InvalidPacketException, MissingTemplateException {
+        return lookupOptions(resolver, buffer, buffer.readerIndex(), scopes);
+    }
+
+    private List<Value<?>> lookupOptions(final Session.Resolver resolver,
+                                         final ByteBuf buffer,
+                                         final int start,
+                                         final Set<String> scopes) throws InvalidPacketException, MissingTemplateException {
+        if (scopes != null && (scopes.isEmpty() || this.names != null && Collections.disjoint(this.names, scopes))) {
+            return List.of();
+        }
+
+        final List<Value<?>> values = new ArrayList<>();
+        int index = start;
+        for (final Step step : this.steps) {
+            int length = step.length;
+            if (length < 0) {
+                length = buffer.getUnsignedByte(index++);
+                if (length == 0xFF) {
+                    length = buffer.getUnsignedShort(index);
+                    index += 2;
+                }
+            }
+            checkReadable(buffer, index, length);
+            if (scopes == null || step.name == null || scopes.contains(step.name)) {
+                values.add(step.field.parse(resolver, buffer.slice(index, length)));
+            }
+            index += length;
+        }
+        return resolver.lookupOptions(values);
+    }
+
+    /**
+     * Bounds-checked like {@code BufferUtils.slice}, and failing the same way: lengths are
+     * attacker-controlled, and an absolute read past the set would otherwise read the next one.
+     */
+    private static void checkReadable(final ByteBuf buffer, final int index, final int length) {
+        if (length > buffer.writerIndex() - index) {
+            throw new BufferUnderflowException();
+        }
+    }
+
+    private void write(final Step step, final Object flow, final ByteBuf buffer, final int index, final int length) {
+        try {
+            final Object value = step.reader.read(buffer, index, length);
+            if (value != null) {
+                this.writer.writeObject(flow, step.binding.slot(), value);
+            }
+        } catch (final Exception ex) {
+            // as ValueConversionService.apply: one unconvertible value must not drop the whole flow
+            log.debug("Could not convert value {} into {}: {}", step.name, this.conversionService.targetType, ex.getMessage(), ex);
+        }
+    }
+
+    /** {@link ValueConversionService#apply} with the binding the step resolved when it was compiled. */
+    private void convert(final Step step, final Object flow, final Value<?> value) {
+        try {
+            final Object converted = value.accept(step.binding.visitor());
+            if (converted != null) {
+                this.writer.writeObject(flow, step.binding.slot(), converted);
+            }
+        } catch (final Exception ex) {
+            // as ValueConversionService.apply: one unconvertible value must not drop the whole flow
+            log.debug("Could not convert value {} into {}: {}", step.name, this.conversionService.targetType, ex.getMessage(), ex);
+        }
+    }
+}
@@ -17,7 +17,7 @@ import java.time.Instant;
 import java.util.Objects;
 
 import static org.riptide.flows.utils.BufferUtils.uint32;
-import static org.riptide.flows.utils.BufferUtils.uint64;
+import static org.riptide.flows.utils.BufferUtils.ulong;
 
 public class DateTimeValue extends Value<Instant> {
 
@@ -69,6 +69,16 @@ public class DateTimeValue extends Value<Instant> {
             public int getMaximumFieldLength() {
                 return 4;
             }
+
+            @Override
+            public Encoding getEncoding() {
+                return Encoding.DATE_TIME_SECONDS;
+            }
+
+            @Override
+            public String getUnit() {
+                return unit;
+            }
         };
     }
 
@@ -76,7 +86,7 @@ public class DateTimeValue extends Value<Instant> {
         return new InformationElement() {
             @Override
             public Value<?> parse(final Session.Resolver resolver, final ByteBuf buffer) {
-                return new DateTimeValue(name, semantics, unit, Instant.ofEpochMilli(uint64(buffer).longValue()));
+                return new DateTimeValue(name, semantics, unit, Instant.ofEpochMilli(ulong(buffer, 8)));
             }
 
             @Override
@@ -93,6 +103,16 @@ public class DateTimeValue extends Value<Instant> {
             public int getMaximumFieldLength() {
                 return 8;
             }
+
+            @Override
+            public Encoding getEncoding() {
+                return Encoding.DATE_TIME_MILLISECONDS;
+            }
+
+            @Override
+            public String getUnit() {
+                return unit;
+            }
         };
     }
 
@@ -0,0 +1,32 @@
+/*
+ * Copyright 2026 Riptide Labs, <https://github.com/Riptide-Labs>
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package org.riptide.flows.parser.ie.values;
+
+/**
+ * Stores into the fields of one target type, each addressed by its slot: its position among the
+ * type's instance fields as {@link ValueConversionService} binds them. An implementation is spun per
+ * target type by {@link FieldWriters}, so every method is a switch over the slot down to a bare
+ * {@code putfield}: an {@code int} arrives as an {@code int} and is stored as one.
+ *
+ * <p>Public only because the generated class lives in its target's package, not this one.
+ */
+public interface FieldWriter {
+
+    /** Stores into an {@code int} field; a slot of any other type is rejected. */
+    void writeInt(Object target, int slot, int value);
+
+    /** Stores into a {@code long} field; a slot of any other type is rejected. */
+    void writeLong(Object target, int slot, long value);
+
+    /** Stores into a {@code double} field; a slot of any other type is rejected. */
+    void writeDouble(Object target, int slot, double value);
+
+    /**
+     * Stores into any field: cast to a reference field's type, or unboxed from its wrapper into a
+     * primitive one. The path for values a visitor has already boxed.
+     */
+    void writeObject(Object target, int slot, Object value);
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2026 Riptide Labs, <https://github.com/Riptide-Labs>
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package org.riptide.flows.parser.ie.values;
+
+import java.lang.classfile.ClassBuilder;
+import java.lang.classfile.ClassFile;
+import java.lang.classfile.CodeBuilder;
+import java.lang.classfile.Label;
+import java.lang.classfile.instruction.SwitchCase;
+import java.lang.constant.ClassDesc;
+import java.lang.constant.ConstantDescs;
+import java.lang.constant.MethodTypeDesc;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Spins the {@link FieldWriter} for a target type with {@code java.lang.classfile}: a hidden class,
+ * a nestmate of the target so that private fields are in reach too. Each method is a
+ * {@code tableswitch} on the slot whose cases are a {@code putfield} each, and whose default throws.
+ * A write is then one indexed jump and the store. The call into it is an interface call with one
+ * receiver class per target type, which the JIT inlines like any other. A store into a field the
+ * target tracks the {@link Presence} of sets the field's bit as well.
+ */
+final class FieldWriters {
+
+    private static final ClassDesc CD_FIELD_WRITER = ClassDesc.of(FieldWriter.class.getName());
+    private static final ClassDesc CD_ILLEGAL_ARGUMENT = ClassDesc.of(IllegalArgumentException.class.getName());
+
+    /** The locals of every write method: {@code this}, then its parameters. */
+    private static final int TARGET = 1;
+    private static final int SLOT = 2;
+    private static final int VALUE = 3;
+
+    private FieldWriters() {
+    }
+
+    /** A writer for {@code fields}, each at its index in the list; the target must declare them all. */
+    static FieldWriter spin(final Class<?> targetType, final List<Field> fields) {
+        final ClassDesc target = ClassDesc.of(targetType.getName());
+        final Map<String, Long> presence = Presence.bits(targetType);
+        final byte[] bytes = ClassFile.of().build(ClassDesc.of(targetType.getName() + "$FieldWriter"), clb -> {
+            clb.withFlags(ClassFile.ACC_FINAL | ClassFile.ACC_SYNTHETIC);
+            clb.withSuperclass(ConstantDescs.CD_Object);
+            clb.withInterfaceSymbols(CD_FIELD_WRITER);
+            clb.withMethodBody(ConstantDescs.INIT_NAME, ConstantDescs.MTD_void, ClassFile.ACC_PUBLIC, cob -> cob
+                    .aload(0)
+                    .invokespecial(ConstantDescs.CD_Object, ConstantDescs.INIT_NAME, ConstantDescs.MTD_void)
+                    .return_());
+            method(clb, "writeInt", int.class, target, fields, presence);
+            method(clb, "writeLong", long.class, target, fields, presence);
+            method(clb, "writeDouble", double.class, target, fields, presence);
+            method(clb, "writeObject", Object.class, target, fields, presence);
+        });
+
+        try {
+            final MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(targetType, MethodHandles.lookup())
+                    .defineHiddenClass(bytes, true, MethodHandles.Lookup.ClassOption.NESTMATE);
+            return (FieldWriter) lookup.findConstructor(lookup.lookupClass(), MethodType.methodType(void.class)).invoke();
+        } catch (final Throwable e) {
+            throw new IllegalStateException("Cannot generate a field writer for " + targetType, e);
+        }
+    }
+
+    /**
+     * One write method: {@code valueType} is the type of its value parameter, and a field is one of
+     * its cases if it can take that value — any field for {@code Object}, the fields of exactly that
+     * primitive type otherwise. {@code presence} holds the bit of each field the target tracks.
+     */
+    private static void method(final ClassBuilder clb,
+                               final String name,
+                               final Class<?> valueType,
+                               final ClassDesc target,
+                               final List<Field> fields,
+                               final Map<String, Long> presence) {
+        final MethodTypeDesc type = MethodTypeDesc.of(ConstantDescs.CD_void,
+                ConstantDescs.CD_Object, ConstantDescs.CD_int, desc(valueType));
+        clb.withMethodBody(name, type, ClassFile.ACC_PUBLIC, cob -> {
+            final Label reject = cob.newLabel();
+            final List<SwitchCase> cases = new ArrayList<>();
+            final List<Field> stored = new ArrayList<>();
+            for (int slot = 0; slot < fields.size(); slot++) {
+                final Field field = fields.get(slot);
+                if (valueType == Object.class || field.getType() == valueType) {
+                    cases.add(SwitchCase.of(slot, cob.newLabel()));
+                    stored.add(field);
+                }
+            }
+
+            if (!cases.isEmpty()) {
+                cob.iload(SLOT);
+                cob.tableswitch(0, fields.size() - 1, reject, cases);
+                for (int i = 0; i < cases.size(); i++) {
+                    final Field field = stored.get(i);
+                    cob.labelBinding(cases.get(i).target());
+                    cob.aload(TARGET);
+                    cob.checkcast(target);
+                    final Long bit = presence.get(field.getName());
+                    if (bit != null) {
+                        cob.dup();
+                        cob.dup();
+                        cob.getfield(target, Presence.FIELD, ConstantDescs.CD_long);
+                        cob.loadConstant(bit);
+                        cob.lor();
+                        cob.putfield(target, Presence.FIELD, ConstantDescs.CD_long);
+                    }
+                    load(cob, valueType, field.getType());
+                    cob.putfield(target, field.getName(), desc(field.getType()));
+                    cob.return_();
+                }
+            }
+
+            cob.labelBinding(reject);
+            cob.new_(CD_ILLEGAL_ARGUMENT);
+            cob.dup();
+            cob.invokespecial(CD_ILLEGAL_ARGUMENT, ConstantDescs.INIT_NAME, ConstantDescs.MTD_void);
+            cob.athrow();
+        });
+    }
+
+    /** Pushes the value parameter as a {@code fieldType}: as it is, cast, or unboxed from its wrapper. */
+    private static void load(final CodeBuilder cob, final Class<?> valueType, final Class<?> fieldType) {
+        if (valueType == int.class) {
+            cob.iload(VALUE);
+        } else if (valueType == long.class) {
+            cob.lload(VALUE);
+        } else if (valueType == double.class) {
+            cob.dload(VALUE);
+        } else if (fieldType.isPrimitive()) {
+            final Class<?> wrapper = MethodType.methodType(fieldType).wrap().returnType();
+            cob.aload(VALUE);
+            cob.checkcast(desc(wrapper));
+            cob.invokevirtual(desc(wrapper), fieldType.getName() + "Value", MethodTypeDesc.of(desc(fieldType)));
+        } else {
+            cob.aload(VALUE);
+            cob.checkcast(desc(fieldType));
+        }
+    }
+
+    private static ClassDesc desc(final Class<?> type) {
+        return type.describeConstable().orElseThrow();
+    }
+}
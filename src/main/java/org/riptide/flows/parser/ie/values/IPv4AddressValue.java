@@ -6,8 +6,8 @@
 package org.riptide.flows.parser.ie.values;
 
 import com.google.common.base.MoreObjects;
+import com.google.common.primitives.Ints;
 import io.netty.buffer.ByteBuf;
-import org.riptide.flows.parser.exceptions.InvalidPacketException;
 import org.riptide.flows.parser.ie.InformationElement;
 import org.riptide.flows.parser.ie.Semantics;
 import org.riptide.flows.parser.ie.Value;
@@ -15,39 +15,47 @@ import org.riptide.flows.parser.session.Session;
 import org.riptide.flows.parser.ie.values.visitor.ValueVisitor;
 
 import java.net.Inet4Address;
+import java.net.InetAddress;
 import java.net.UnknownHostException;
 import java.util.Objects;
 
-import static org.riptide.flows.utils.BufferUtils.bytes;
-
+/**
+ * Held as the four address octets in an {@code int}: building the {@link Inet4Address} costs the
+ * byte array, the address and its holder per field per record, which a value that is never visited
+ * does not need to pay. {@link #getValue()} builds it on request.
+ */
 public class IPv4AddressValue extends Value<Inet4Address> {
-    public final Inet4Address value;
+    private final int address;
 
     public IPv4AddressValue(final String name,
                             final Semantics semantics,
                             final String unit,
                             final Inet4Address value) {
+        this(name, semantics, unit, Ints.fromByteArray(Objects.requireNonNull(value).getAddress()));
+    }
+
+    /** @param address the address in network byte order, as {@link ByteBuf#readInt()} reads it */
+    public IPv4AddressValue(final String name,
+                            final Semantics semantics,
+                            final String unit,
+                            final int address) {
         super(name, semantics, unit);
-        this.value = Objects.requireNonNull(value);
+        this.address = address;
     }
 
     @Override
     public String toString() {
         return MoreObjects.toStringHelper(this)
                 .add("name", getName())
-                .add("inet4Address", value)
+                .add("inet4Address", getValue())
                 .toString();
     }
 
     public static InformationElement parser(final String name, final Semantics semantics, final String unit) {
         return new InformationElement() {
             @Override
-            public Value<?> parse(final Session.Resolver resolver, final ByteBuf buffer) throws InvalidPacketException {
-                try {
-                    return new IPv4AddressValue(name, semantics, unit, (Inet4Address) Inet4Address.getByAddress(bytes(buffer, 4)));
-                } catch (final UnknownHostException e) {
-                    throw new InvalidPacketException(buffer, "Error parsing IPv4 value", e);
-                }
+            public Value<?> parse(final Session.Resolver resolver, final ByteBuf buffer) {
+                return new IPv4AddressValue(name, semantics, unit, buffer.readInt());
             }
 
             @Override
@@ -64,12 +72,46 @@ public class IPv4AddressValue extends Value<Inet4Address> {
             public int getMaximumFieldLength() {
                 return 4;
             }
+
+            @Override
+            public Encoding getEncoding() {
+                return Encoding.IPV4_ADDRESS;
+            }
+
+            @Override
+            public String getUnit() {
+                return unit;
+            }
         };
     }
 
     @Override
     public Inet4Address getValue() {
-        return this.value;
+        try {
+            return (Inet4Address) InetAddress.getByAddress(Ints.toByteArray(this.address));
+        } catch (final UnknownHostException e) {
+            // unreachable: getByAddress only rejects lengths other than 4 and 16
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /** The address in network byte order, without building the {@link Inet4Address}. */
+    public int bits() {
+        return this.address;
+    }
+
+    // As in UnsignedValue: Value's would build the address on every call. Inet4Address hashes as its bits.
+    @Override
+    public boolean equals(final Object o) {
+        if (o instanceof IPv4AddressValue that) {
+            return this.address == that.address && getName().equals(that.getName());
+        }
+        return super.equals(o);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (31 + getName().hashCode()) + this.address;
     }
 
     @Override
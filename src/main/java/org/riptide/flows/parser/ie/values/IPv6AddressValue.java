@@ -6,8 +6,9 @@
 package org.riptide.flows.parser.ie.values;
 
 import com.google.common.base.MoreObjects;
+import com.google.common.primitives.Bytes;
+import com.google.common.primitives.Longs;
 import io.netty.buffer.ByteBuf;
-import org.riptide.flows.parser.exceptions.InvalidPacketException;
 import org.riptide.flows.parser.ie.InformationElement;
 import org.riptide.flows.parser.ie.Semantics;
 import org.riptide.flows.parser.ie.Value;
@@ -17,43 +18,53 @@ import org.riptide.flows.parser.ie.values.visitor.ValueVisitor;
 import java.net.Inet6Address;
 import java.net.NetworkInterface;
 import java.net.UnknownHostException;
+import java.util.Arrays;
 import java.util.Objects;
 
-import static org.riptide.flows.utils.BufferUtils.bytes;
-
+/**
+ * Held as the 128 address bits in two {@code long}s, for the reasons {@link IPv4AddressValue} holds
+ * an {@code int}. {@link #getValue()} builds the {@link Inet6Address} on request.
+ */
 public class IPv6AddressValue extends Value<Inet6Address> {
-    public final Inet6Address value;
+    private final long high;
+    private final long low;
 
     public IPv6AddressValue(final String name,
                             final Semantics semantics,
                             final String unit,
                             final Inet6Address value) {
+        this(name, semantics, unit,
+                Longs.fromByteArray(Objects.requireNonNull(value).getAddress()),
+                Longs.fromByteArray(Arrays.copyOfRange(value.getAddress(), 8, 16)));
+    }
+
+    /**
+     * @param high the first eight octets in network byte order, as {@link ByteBuf#readLong()} reads them
+     * @param low the last eight
+     */
+    public IPv6AddressValue(final String name,
+                            final Semantics semantics,
+                            final String unit,
+                            final long high,
+                            final long low) {
         super(name, semantics, unit);
-        this.value = Objects.requireNonNull(value);
+        this.high = high;
+        this.low = low;
     }
 
     @Override
     public String toString() {
         return MoreObjects.toStringHelper(this)
                 .add("name", getName())
-                .add("inet6Address", value)
+                .add("inet6Address", getValue())
                 .toString();
     }
 
     public static InformationElement parser(final String name, final Semantics semantics, final String unit) {
         return new InformationElement() {
             @Override
-            public Value<?> parse(final Session.Resolver resolver, final ByteBuf buffer) throws InvalidPacketException {
-                try {
-                    // Not InetAddress.getByAddress: that maps a 16-byte IPv4-mapped address
-                    // (::ffff:a.b.c.d) to an Inet4Address, which dual-stack exporters do send in
-                    // IPv6 fields, and the cast to Inet6Address then fails. This overload keeps
-                    // the declared type for every 16-byte input.
-                    return new IPv6AddressValue(name, semantics, unit,
-                            Inet6Address.getByAddress(null, bytes(buffer, 16), (NetworkInterface) null));
-                } catch (UnknownHostException e) {
-                    throw new InvalidPacketException(buffer, "Error parsing IPv6 value", e);
-                }
+            public Value<?> parse(final Session.Resolver resolver, final ByteBuf buffer) {
+                return new IPv6AddressValue(name, semantics, unit, buffer.readLong(), buffer.readLong());
             }
 
             @Override
@@ -70,12 +81,56 @@ public class IPv6AddressValue extends Value<Inet6Address> {
             public int getMaximumFieldLength() {
                 return 16;
             }
+
+            @Override
+            public Encoding getEncoding() {
+                return Encoding.IPV6_ADDRESS;
+            }
+
+            @Override
+            public String getUnit() {
+                return unit;
+            }
         };
     }
 
     @Override
     public Inet6Address getValue() {
-        return this.value;
+        try {
+            // Not InetAddress.getByAddress: that maps a 16-byte IPv4-mapped address
+            // (::ffff:a.b.c.d) to an Inet4Address, which dual-stack exporters do send in
+            // IPv6 fields, and the cast to Inet6Address then fails. This overload keeps
+            // the declared type for every 16-byte input.
+            final byte[] bytes = Bytes.concat(Longs.toByteArray(this.high), Longs.toByteArray(this.low));
+            return Inet6Address.getByAddress(null, bytes, (NetworkInterface) null);
+        } catch (final UnknownHostException e) {
+            // unreachable: getByAddress only rejects lengths other than 16
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /** The first eight octets in network byte order, without building the {@link Inet6Address}. */
+    public long highBits() {
+        return this.high;
+    }
+
+    /** The last eight octets in network byte order. */
+    public long lowBits() {
+        return this.low;
+    }
+
+    // As in UnsignedValue: Value's would build the address on every call.
+    @Override
+    public boolean equals(final Object o) {
+        if (o instanceof IPv6AddressValue that) {
+            return this.high == that.high && this.low == that.low && getName().equals(that.getName());
+        }
+        return super.equals(o);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (31 * (31 + getName().hashCode()) + Long.hashCode(this.high)) + Long.hashCode(this.low);
     }
 
     @Override
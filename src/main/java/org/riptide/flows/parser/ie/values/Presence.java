@@ -0,0 +1,67 @@
+/*
+ * Copyright 2026 Riptide Labs, <https://github.com/Riptide-Labs>
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package org.riptide.flows.parser.ie.values;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Which {@code long} fields of a target a record wrote. A raw flow holds its numbers as primitives
+ * and marks one not exported with a sentinel, but an unsigned64 element fills its {@code long} to
+ * the last bit and may carry the sentinel as a real value. A target that declares a
+ * {@code transient long present} gets one bit in it per {@code long} field, in declaration order,
+ * set by its generated {@link FieldWriter} on every store into that field.
+ */
+public final class Presence {
+
+    /** The field a target tracks presence in; transient, so it is not bound to an element. */
+    public static final String FIELD = "present";
+
+    private Presence() {
+    }
+
+    /** {@code true} for the field a target tracks presence in. */
+    static boolean isPresenceField(final Field field) {
+        return FIELD.equals(field.getName())
+                && field.getType() == long.class
+                && Modifier.isTransient(field.getModifiers())
+                && !Modifier.isStatic(field.getModifiers());
+    }
+
+    /** The bit of each tracked field of {@code type}, by name; empty if it does not track presence. */
+    static Map<String, Long> bits(final Class<?> type) {
+        final Map<String, Long> bits = new LinkedHashMap<>();
+        boolean tracked = false;
+        for (final Field field : type.getDeclaredFields()) {
+            final int modifiers = field.getModifiers();
+            if (isPresenceField(field)) {
+                tracked = true;
+            } else if (field.getType() == long.class && !Modifier.isStatic(modifiers) && !Modifier.isTransient(modifiers)) {
+                if (bits.size() == Long.SIZE) {
+                    throw new IllegalStateException("%s has more long fields than %s has bits".formatted(type, FIELD));
+                }
+                bits.put(field.getName(), 1L << bits.size());
+            }
+        }
+        return tracked ? bits : Map.of();
+    }
+
+    /** The bits of {@code fields} of {@code type}, in that order, for a builder to test a record's presence against. */
+    public static long[] bits(final Class<?> type, final String... fields) {
+        final Map<String, Long> bits = bits(type);
+        final long[] result = new long[fields.length];
+        for (int i = 0; i < fields.length; i++) {
+            final Long bit = bits.get(fields[i]);
+            if (bit == null) {
+                throw new IllegalArgumentException("%s tracks no presence of %s".formatted(type, fields[i]));
+            }
+            result[i] = bit;
+        }
+        return result;
+    }
+}
@@ -57,6 +57,16 @@ public class SignedValue extends Value<Long> {
             public int getMaximumFieldLength() {
                 return 1;
             }
+
+            @Override
+            public Encoding getEncoding() {
+                return Encoding.SIGNED;
+            }
+
+            @Override
+            public String getUnit() {
+                return unit;
+            }
         };
     }
 
@@ -81,6 +91,16 @@ public class SignedValue extends Value<Long> {
             public int getMaximumFieldLength() {
                 return 2;
             }
+
+            @Override
+            public Encoding getEncoding() {
+                return Encoding.SIGNED;
+            }
+
+            @Override
+            public String getUnit() {
+                return unit;
+            }
         };
     }
 
@@ -105,6 +125,16 @@ public class SignedValue extends Value<Long> {
             public int getMaximumFieldLength() {
                 return 4;
             }
+
+            @Override
+            public Encoding getEncoding() {
+                return Encoding.SIGNED;
+            }
+
+            @Override
+            public String getUnit() {
+                return unit;
+            }
         };
     }
 
@@ -129,6 +159,16 @@ public class SignedValue extends Value<Long> {
             public int getMaximumFieldLength() {
                 return 8;
             }
+
+            @Override
+            public Encoding getEncoding() {
+                return Encoding.SIGNED;
+            }
+
+            @Override
+            public String getUnit() {
+                return unit;
+            }
         };
     }
 
@@ -137,6 +177,25 @@ public class SignedValue extends Value<Long> {
         return this.value;
     }
 
+    /** {@link #getValue()} without boxing it. */
+    public long longValue() {
+        return this.value;
+    }
+
+    // As in UnsignedValue: Value's would box the long on every call.
+    @Override
+    public boolean equals(final Object o) {
+        if (o instanceof SignedValue that) {
+            return this.value == that.value && getName().equals(that.getName());
+        }
+        return super.equals(o);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (31 + getName().hashCode()) + Long.hashCode(this.value);
+    }
+
     @Override
     public <X> X accept(ValueVisitor<X> visitor) {
         return Objects.requireNonNull(visitor).visit(this);
@@ -16,29 +16,43 @@ import org.riptide.flows.parser.ie.values.visitor.ValueVisitor;
 
 import java.util.Objects;
 
-import static org.riptide.flows.utils.BufferUtils.uint;
+import static org.riptide.flows.utils.BufferUtils.ulong;
 
+/**
+ * Held as the primitive bits rather than the {@link UnsignedLong} it presents: every unsigned field
+ * of every record decodes into one of these, and most are read once through a visitor that wants a
+ * {@code long}, {@code int} or {@code double} anyway. {@link #getValue()} builds the
+ * {@code UnsignedLong} only for the callers that ask for it.
+ */
 public class UnsignedValue extends Value<UnsignedLong> {
-    private final UnsignedLong value;
+    private final long value;
 
     public UnsignedValue(final String name,
                          final Semantics semantics,
                          final String unit,
                          final UnsignedLong value) {
+        this(name, semantics, unit, Objects.requireNonNull(value).longValue());
+    }
+
+    /** @param value the bits of the unsigned value, as {@link org.riptide.flows.utils.BufferUtils#ulong} reads them */
+    public UnsignedValue(final String name,
+                         final Semantics semantics,
+                         final String unit,
+                         final long value) {
         super(name, semantics, unit);
-        this.value = Objects.requireNonNull(value);
+        this.value = value;
     }
 
     public UnsignedValue(final String name,
                          final long value) {
-        this(name, null, null, UnsignedLong.valueOf(value));
+        this(name, null, null, value);
     }
 
     @Override
     public String toString() {
         return MoreObjects.toStringHelper(this)
                 .add("name", getName())
-                .add("value", value)
+                .add("value", Long.toUnsignedString(value))
                 .toString();
     }
 
@@ -46,7 +60,7 @@ public class UnsignedValue extends Value<UnsignedLong> {
         return new InformationElement() {
             @Override
             public Value<?> parse(final Session.Resolver resolver, final ByteBuf buffer) {
-                return new UnsignedValue(name, semantics, unit, uint(buffer, 1));
+                return new UnsignedValue(name, semantics, unit, ulong(buffer, 1));
             }
 
             @Override
@@ -63,6 +77,16 @@ public class UnsignedValue extends Value<UnsignedLong> {
             public int getMaximumFieldLength() {
                 return 1;
             }
+
+            @Override
+            public Encoding getEncoding() {
+                return Encoding.UNSIGNED;
+            }
+
+            @Override
+            public String getUnit() {
+                return unit;
+            }
         };
     }
 
@@ -70,7 +94,7 @@ public class UnsignedValue extends Value<UnsignedLong> {
         return new InformationElement() {
             @Override
             public Value<?> parse(final Session.Resolver resolver, final ByteBuf buffer) {
-                return new UnsignedValue(name, semantics, unit, uint(buffer, buffer.readableBytes()));
+                return new UnsignedValue(name, semantics, unit, ulong(buffer, buffer.readableBytes()));
             }
 
             @Override
@@ -87,6 +111,16 @@ public class UnsignedValue extends Value<UnsignedLong> {
             public int getMaximumFieldLength() {
                 return 2;
             }
+
+            @Override
+            public Encoding getEncoding() {
+                return Encoding.UNSIGNED;
+            }
+
+            @Override
+            public String getUnit() {
+                return unit;
+            }
         };
     }
 
@@ -94,7 +128,7 @@ public class UnsignedValue extends Value<UnsignedLong> {
         return new InformationElement() {
             @Override
             public Value<?> parse(final Session.Resolver resolver, final ByteBuf buffer) {
-                return new UnsignedValue(name, semantics, unit, uint(buffer, buffer.readableBytes()));
+                return new UnsignedValue(name, semantics, unit, ulong(buffer, buffer.readableBytes()));
             }
 
             @Override
@@ -111,6 +145,16 @@ public class UnsignedValue extends Value<UnsignedLong> {
             public int getMaximumFieldLength() {
                 return 3;
             }
+
+            @Override
+            public Encoding getEncoding() {
+                return Encoding.UNSIGNED;
+            }
+
+            @Override
+            public String getUnit() {
+                return unit;
+            }
         };
     }
 
@@ -118,7 +162,7 @@ public class UnsignedValue extends Value<UnsignedLong> {
         return new InformationElement() {
             @Override
             public Value<?> parse(final Session.Resolver resolver, final ByteBuf buffer) {
-                return new UnsignedValue(name, semantics, unit, uint(buffer, buffer.readableBytes()));
+                return new UnsignedValue(name, semantics, unit, ulong(buffer, buffer.readableBytes()));
             }
 
             @Override
@@ -135,6 +179,16 @@ public class UnsignedValue extends Value<UnsignedLong> {
             public int getMaximumFieldLength() {
                 return 4;
             }
+
+            @Override
+            public Encoding getEncoding() {
+                return Encoding.UNSIGNED;
+            }
+
+            @Override
+            public String getUnit() {
+                return unit;
+            }
         };
     }
 
@@ -142,7 +196,7 @@ public class UnsignedValue extends Value<UnsignedLong> {
         return new InformationElement() {
             @Override
             public Value<?> parse(final Session.Resolver resolver, final ByteBuf buffer) {
-                return new UnsignedValue(name, semantics, unit, uint(buffer, buffer.readableBytes()));
+                return new UnsignedValue(name, semantics, unit, ulong(buffer, buffer.readableBytes()));
             }
 
             @Override
@@ -159,14 +213,61 @@ public class UnsignedValue extends Value<UnsignedLong> {
             public int getMaximumFieldLength() {
                 return 8;
             }
+
+            @Override
+            public Encoding getEncoding() {
+                return Encoding.UNSIGNED;
+            }
+
+            @Override
+            public String getUnit() {
+                return unit;
+            }
         };
     }
 
     @Override
     public UnsignedLong getValue() {
+        return UnsignedLong.fromLongBits(this.value);
+    }
+
+    /** The value as {@link UnsignedLong#longValue()} has it: values above {@code Long.MAX_VALUE} read negative. */
+    public long longValue() {
         return this.value;
     }
 
+    /**
+     * As {@link UnsignedLong#doubleValue()}, without building one, and by its formula. Converting
+     * the low 63 bits and then adding 2^63 rounds twice, and near a tie the second rounding can land
+     * one ulp off. Halving first, while keeping the dropped bit as a sticky bit, rounds only once.
+     */
+    public double doubleValue() {
+        return toDouble(this.value);
+    }
+
+    /** {@link #doubleValue()} of the unsigned value with these bits. */
+    public static double toDouble(final long bits) {
+        if (bits >= 0) {
+            return bits;
+        }
+        return ((bits >>> 1) | (bits & 1)) * 2.0;
+    }
+
+    // Both as Value's, which would box the bits into an UnsignedLong on every call: scope values are
+    // hashed and compared per record when options are looked up. UnsignedLong hashes as Long does.
+    @Override
+    public boolean equals(final Object o) {
+        if (o instanceof UnsignedValue that) {
+            return this.value == that.value && getName().equals(that.getName());
+        }
+        return super.equals(o);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (31 + getName().hashCode()) + Long.hashCode(this.value);
+    }
+
     @Override
     public <X> X accept(ValueVisitor<X> visitor) {
         return Objects.requireNonNull(visitor).visit(this);
@@ -6,16 +6,25 @@
 package org.riptide.flows.parser.ie.values;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import lombok.extern.slf4j.Slf4j;
 import org.jetbrains.annotations.NotNull;
 import org.riptide.flows.parser.ie.Value;
 import org.riptide.flows.parser.ie.values.visitor.ValueVisitor;
+import org.riptide.flows.parser.session.Template;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 @Slf4j
@@ -31,22 +40,71 @@ public class ValueConversionService {
             float.class, Float.class,
             double.class, Double.class);
 
+    private static final MethodType FACTORY_TYPE = MethodType.methodType(Object.class);
+
     public final @VisibleForTesting Class<?> targetType;
     private final @NotNull Map<Class<?>, ValueVisitor<?>> visitors;
-    private final @NotNull Map<String, Field> fieldMap;
+
+    /**
+     * Each instance field of the target, by name, with its slot in {@link #writer}. This used to map
+     * names to {@link MethodHandle} setters of one erased {@code (Object, Object)void} shape, so that
+     * every value reached its field boxed. A compiled template resolves its fields here once, when
+     * it is compiled; only the generic {@link #apply} path still looks a value up by name, since a
+     * {@link Value} carries nothing else to find its field by.
+     */
+    private final @NotNull Map<String, Binding> bindings;
+
+    /** Stores into the target's fields, generated for it by {@link FieldWriters}. */
+    private final @NotNull FieldWriter writer;
+
+    /** Creates a target for compiled templates to decode into; {@code null} if it has no no-arg constructor. */
+    private final MethodHandle factory;
+
+    /**
+     * Templates compiled against this service. Weak and identity-keyed: a template is immutable and
+     * lives as long as its session holds it — a re-announcement replaces the instance — so the
+     * compiled form goes away with the template rather than needing an eviction of its own.
+     */
+    private final Cache<Template, CompiledTemplate> compiled = CacheBuilder.newBuilder().weakKeys().build();
 
     public ValueConversionService(Class<?> targetType, List<ValueVisitor<?>> visitors) {
         Objects.requireNonNull(visitors);
         Objects.requireNonNull(targetType);
         this.targetType = targetType;
         this.visitors = visitors.stream().collect(Collectors.toMap(ValueVisitor::targetClass, it -> it));
-        this.fieldMap = Stream.of(targetType.getDeclaredFields()).collect(Collectors.toMap(
-                Field::getName,
-                it -> {
-                    it.setAccessible(true);
-                    return it;
-                }));
         validate();
+        final List<Field> fields = Stream.of(targetType.getDeclaredFields())
+                .filter(field -> !Modifier.isStatic(field.getModifiers()) && !Presence.isPresenceField(field))
+                .toList();
+        for (final Field field : fields) {
+            if (Modifier.isFinal(field.getModifiers())) {
+                throw new IllegalStateException("Cannot write %s.%s, which is final".formatted(this.targetType, field.getName()));
+            }
+        }
+        this.bindings = IntStream.range(0, fields.size())
+                .mapToObj(slot -> new Binding(fields.get(slot).getName(), slot, fields.get(slot).getType(),
+                        this.visitors.get(boxed(fields.get(slot).getType()))))
+                .collect(Collectors.toUnmodifiableMap(Binding::name, binding -> binding));
+        this.writer = FieldWriters.spin(targetType, fields);
+        this.factory = factory(targetType);
+    }
+
+    private static MethodHandle factory(final Class<?> targetType) {
+        try {
+            final Constructor<?> constructor = targetType.getDeclaredConstructor();
+            constructor.setAccessible(true);
+            return MethodHandles.lookup().unreflectConstructor(constructor).asType(FACTORY_TYPE);
+        } catch (final NoSuchMethodException | IllegalAccessException e) {
+            return null;
+        }
+    }
+
+    /**
+     * One field of the target: its {@code slot} in the {@link FieldWriter}, its declared
+     * {@code type}, which tells a compiled template which of the writer's typed stores to use, and
+     * the visitor the generic path converts its values with.
+     */
+    record Binding(String name, int slot, Class<?> type, ValueVisitor<?> visitor) {
     }
 
     /**
@@ -55,7 +113,7 @@ public class ValueConversionService {
      * primitive-typed field at construction while apply() looked it up raw, missed, and threw an NPE
      * for every such value.
      */
-    private static Class<?> boxed(final Class<?> type) {
+    static Class<?> boxed(final Class<?> type) {
         return type.isPrimitive() ? PRIMITIVE_TYPE_MAP.get(type) : type;
     }
 
@@ -78,13 +136,11 @@ public class ValueConversionService {
         Objects.requireNonNull(source);
         Objects.requireNonNull(targetFlow);
         try {
-            final var key = source.getName();
-            final var field = fieldMap.get(key);
-            if (field != null) {
-                final var converterVisitor = visitors.get(boxed(field.getType()));
-                final var convertedValue = source.accept(converterVisitor);
+            final var binding = bindings.get(source.getName());
+            if (binding != null) {
+                final var convertedValue = source.accept(binding.visitor());
                 if (convertedValue != null) {
-                    field.set(targetFlow, convertedValue);
+                    this.writer.writeObject(targetFlow, binding.slot(), convertedValue);
                 }
             }
         } catch (Exception ex) {
@@ -95,4 +151,43 @@ public class ValueConversionService {
         }
 
     }
+
+    /**
+     * The template compiled against this service, compiled on first use and reused for as long as
+     * the template lives. Parsers call this when a template is added, so the work lands on the
+     * template packet rather than on the first data packet after it.
+     */
+    public CompiledTemplate compile(final Template template) {
+        Objects.requireNonNull(template);
+        if (template.type != Template.Type.TEMPLATE) {
+            throw new IllegalArgumentException("Only data templates compile, not " + template.type);
+        }
+        if (this.factory == null) {
+            throw new IllegalStateException("%s has no no-arg constructor to decode into".formatted(this.targetType));
+        }
+        CompiledTemplate plan = this.compiled.getIfPresent(template);
+        if (plan == null) {
+            // Two threads may both compile a template they see at once; the plans are equal and
+            // the second put simply wins, which is cheaper than holding a lock across compilation.
+            plan = new CompiledTemplate(this, template);
+            this.compiled.put(template, plan);
+        }
+        return plan;
+    }
+
+    Binding binding(final String name) {
+        return this.bindings.get(name);
+    }
+
+    FieldWriter writer() {
+        return this.writer;
+    }
+
+    Object newTarget() {
+        try {
+            return (Object) this.factory.invokeExact();
+        } catch (final Throwable e) {
+            throw new IllegalStateException("Cannot instantiate " + this.targetType, e);
+        }
+    }
 }
@@ -24,11 +24,11 @@ public class DoubleVisitor implements ValueVisitor<Double> {
 
     @Override
     public Double visit(SignedValue value) {
-        return value.getValue().doubleValue();
+        return (double) value.longValue();
     }
 
     @Override
     public Double visit(UnsignedValue value) {
-        return value.getValue().doubleValue();
+        return value.doubleValue();
     }
 }
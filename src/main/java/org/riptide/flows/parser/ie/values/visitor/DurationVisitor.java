@@ -21,10 +21,10 @@ public class DurationVisitor implements ValueVisitor<Duration> {
     @Override
     public Duration visit(final UnsignedValue value) {
         return switch (value.getUnit().orElse(null)) {
-            case "seconds" -> Duration.ofSeconds(value.getValue().longValue());
-            case "milliseconds" -> Duration.ofMillis(value.getValue().longValue());
-            case "microseconds" -> Duration.ofNanos(value.getValue().longValue() * 1_000);
-            case "nanoseconds" -> Duration.ofNanos(value.getValue().longValue());
+            case "seconds" -> Duration.ofSeconds(value.longValue());
+            case "milliseconds" -> Duration.ofMillis(value.longValue());
+            case "microseconds" -> Duration.ofNanos(value.longValue() * 1_000);
+            case "nanoseconds" -> Duration.ofNanos(value.longValue());
             case null, default -> null;
         };
     }
@@ -32,10 +32,10 @@ public class DurationVisitor implements ValueVisitor<Duration> {
     @Override
     public Duration visit(final SignedValue value) {
         return switch (value.getUnit().orElse(null)) {
-            case "seconds" -> Duration.ofSeconds(value.getValue());
-            case "milliseconds" -> Duration.ofMillis(value.getValue());
-            case "microseconds" -> Duration.ofNanos(value.getValue() * 1_000);
-            case "nanoseconds" -> Duration.ofNanos(value.getValue());
+            case "seconds" -> Duration.ofSeconds(value.longValue());
+            case "milliseconds" -> Duration.ofMillis(value.longValue());
+            case "microseconds" -> Duration.ofNanos(value.longValue() * 1_000);
+            case "nanoseconds" -> Duration.ofNanos(value.longValue());
             case null, default -> null;
         };
     }
@@ -28,8 +28,8 @@ public class InstantVisitor implements ValueVisitor<Instant> {
     @Override
     public Instant visit(final UnsignedValue value) {
         return switch (value.getUnit().orElse(null)) {
-            case "seconds" -> Instant.ofEpochSecond(value.getValue().longValue());
-            case "milliseconds" -> Instant.ofEpochMilli(value.getValue().longValue());
+            case "seconds" -> Instant.ofEpochSecond(value.longValue());
+            case "milliseconds" -> Instant.ofEpochMilli(value.longValue());
             case null, default -> null;
         };
     }
@@ -37,8 +37,8 @@ public class InstantVisitor implements ValueVisitor<Instant> {
     @Override
     public Instant visit(final SignedValue value) {
         return switch (value.getUnit().orElse(null)) {
-            case "seconds" -> Instant.ofEpochSecond(value.getValue());
-            case "milliseconds" -> Instant.ofEpochMilli(value.getValue());
+            case "seconds" -> Instant.ofEpochSecond(value.longValue());
+            case "milliseconds" -> Instant.ofEpochMilli(value.longValue());
             case null, default -> null;
         };
     }
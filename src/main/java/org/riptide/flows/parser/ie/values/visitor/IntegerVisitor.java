@@ -17,11 +17,11 @@ public class IntegerVisitor implements ValueVisitor<Integer> {
     }
     @Override
     public Integer visit(SignedValue value) {
-        return value.getValue().intValue();
+        return (int) value.longValue();
     }
 
     @Override
     public Integer visit(UnsignedValue value) {
-        return value.getValue().intValue();
+        return (int) value.longValue();
     }
 }
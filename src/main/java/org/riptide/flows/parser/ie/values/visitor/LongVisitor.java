@@ -18,11 +18,11 @@ public class LongVisitor implements ValueVisitor<Long> {
 
     @Override
     public Long visit(UnsignedValue value) {
-        return value.getValue().longValue();
+        return value.longValue();
     }
 
     @Override
     public Long visit(SignedValue value) {
-        return value.getValue();
+        return value.longValue();
     }
 }
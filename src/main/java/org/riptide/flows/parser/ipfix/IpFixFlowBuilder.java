@@ -5,21 +5,20 @@
 
 package org.riptide.flows.parser.ipfix;
 
-import com.google.common.base.Supplier;
-import com.google.common.base.Suppliers;
 import com.google.common.primitives.UnsignedLong;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
+import org.riptide.flows.parser.ie.values.Presence;
 import org.riptide.flows.parser.ie.values.ValueConversionService;
 import org.riptide.flows.parser.data.Flow;
 import org.riptide.flows.parser.data.Flow.SamplingProvenance;
+import org.riptide.flows.parser.data.FlowRecord;
 import org.riptide.flows.parser.data.Optionals;
 import org.riptide.flows.parser.data.ResolvedRate;
 import org.riptide.flows.parser.data.Timeout;
 import org.riptide.flows.parser.ipfix.proto.Packet;
 
-import java.net.InetAddress;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.Objects;
@@ -28,6 +27,15 @@ import java.util.stream.Stream;
 @Slf4j
 public class IpFixFlowBuilder {
 
+    /** The presence bits of the counter ladders, in ladder order. */
+    private static final long[] OCTET_COUNTS = Presence.bits(IpfixRawFlow.class,
+            "octetDeltaCount", "postOctetDeltaCount", "layer2OctetDeltaCount", "postLayer2OctetDeltaCount",
+            "transportOctetDeltaCount", "octetTotalCount", "postOctetTotalCount", "layer2OctetTotalCount",
+            "postLayer2OctetTotalCount");
+    private static final long[] PACKET_COUNTS = Presence.bits(IpfixRawFlow.class,
+            "packetDeltaCount", "postPacketDeltaCount", "transportPacketDeltaCount", "packetTotalCount",
+            "postPacketTotalCount");
+
     private final ValueConversionService conversionService;
 
     @Getter
@@ -52,322 +60,217 @@ public class IpFixFlowBuilder {
                 .map(rawFlow -> buildFlow(receivedAt, rawFlow));
     }
 
+    /**
+     * Walks every ladder once, in the order the getters of the anonymous {@code Flow} this used to
+     * return walked them on each call, and keeps the answers in a {@link FlowRecord}.
+     */
     public Flow buildFlow(final Instant receivedAt,
                           final IpfixRawFlow rawFlow) {
-        return new Flow() {
-            @Override
-            public Instant getReceivedAt() {
-                return receivedAt;
-            }
-
-            @Override
-            public Instant getTimestamp() {
-                return rawFlow.exportTime;
-            }
-
-            @Override
-            public long getBytes() {
-                // The total counters come last: some exporters (e.g. Juniper SRX inline J-Flow)
-                // send only octetTotalCount/packetTotalCount, never the delta variants. Like
-                // NetGauze and nfdump we treat the total as the record's count — a knowing
-                // approximation that over-counts a long-lived flow if its exporter re-reports
-                // growing totals at each active timeout.
-                return Optionals.first(
-                                rawFlow.octetDeltaCount,
-                                rawFlow.postOctetDeltaCount,
-                                rawFlow.layer2OctetDeltaCount,
-                                rawFlow.postLayer2OctetDeltaCount,
-                                rawFlow.transportOctetDeltaCount,
-                                rawFlow.octetTotalCount,
-                                rawFlow.postOctetTotalCount,
-                                rawFlow.layer2OctetTotalCount,
-                                rawFlow.postLayer2OctetTotalCount)
-                        .orElse(0L);
-            }
-
-            @Override
-            public Direction getDirection() {
-                return switch (rawFlow.flowDirection) {
-                    case 0 -> Direction.INGRESS;
-                    case 1 -> Direction.EGRESS;
-                    case null, default -> Direction.UNKNOWN;
-                };
-            }
-
-            @Override
-            public InetAddress getDstAddr() {
-                return Optionals.first(rawFlow.destinationIPv6Address, rawFlow.destinationIPv4Address).orElse(null);
-            }
-
-            @Override
-            public long getDstAs() {
-                return Optionals.first(rawFlow.bgpDestinationAsNumber).orElse(0L);
-            }
-
-            @Override
-            public int getDstMaskLen() {
-                return Optionals.first(rawFlow.destinationIPv6PrefixLength, rawFlow.destinationIPv4PrefixLength).orElse(0);
-            }
-
-            @Override
-            public int getDstPort() {
-                return Optionals.first(rawFlow.destinationTransportPort).orElse(0);
-            }
-
-            @Override
-            public int getEngineId() {
-                return Optionals.first(rawFlow.engineId).orElse(0);
-            }
-
-            @Override
-            public int getEngineType() {
-                return Optionals.first(rawFlow.engineType).orElse(0);
-            }
-
-            @Override
-            public Instant getFirstSwitched() {
-                return Optionals.first(
-                                rawFlow.flowStartSeconds,
-                                rawFlow.flowStartMilliseconds,
-                                rawFlow.flowStartMicroseconds,
-                                rawFlow.flowStartNanoseconds)
-                        .orElseGet(() -> {
-                            if (rawFlow.flowStartDeltaMicroseconds != null) {
-                                return rawFlow.exportTime.plus(rawFlow.flowStartDeltaMicroseconds);
-                            }
-                            if (rawFlow.flowStartSysUpTime != null) {
-                                return rawFlow.systemInitTimeMilliseconds.plus(rawFlow.flowStartSysUpTime);
-                            }
-                            // No flow-start element exported: fall back to the export time (the
-                            // packet header timestamp), as goflow2 does — honouring the non-null Flow
-                            // contract and the non-nullable column.
-                            return this.getTimestamp();
-                        });
-            }
-
-            @Override
-            public Instant getLastSwitched() {
-                return Optionals.first(
-                                rawFlow.flowEndSeconds,
-                                rawFlow.flowEndMilliseconds,
-                                rawFlow.flowEndMicroseconds,
-                                rawFlow.flowEndNanoseconds)
-                        .orElseGet(() -> {
-                            if (rawFlow.flowEndDeltaMicroseconds != null) {
-                                return rawFlow.exportTime.plus(rawFlow.flowEndDeltaMicroseconds);
-                            }
-                            if (rawFlow.flowEndSysUpTime != null) {
-                                return rawFlow.systemInitTimeMilliseconds.plus(rawFlow.flowEndSysUpTime);
-                            }
-                            // No flow-end element exported: fall back to the export time (see getFirstSwitched).
-                            return this.getTimestamp();
-                        });
-            }
-
-            @Override
-            public Instant getDeltaSwitched() {
-                final var flowActiveTimeout = Optionals.first(rawFlow.flowActiveTimeout, flowActiveTimeoutFallback).orElse(null);
-                final var flowInactiveTimeout = Optionals.first(rawFlow.flowInactiveTimeout, flowInactiveTimeoutFallback).orElse(null);
-
-                final var delta = new Timeout()
-                        .withActiveTimeout(flowActiveTimeout)
-                        .withInactiveTimeout(flowInactiveTimeout)
-                        .withFirstSwitched(this.getFirstSwitched())
-                        .withLastSwitched(this.getLastSwitched())
-                        .withNumBytes(this.getBytes())
-                        .withNumPackets(this.getPackets())
-                        .calculateDeltaSwitched();
-                // The timeout calc can yield null (no timeouts); default to firstSwitched like the
-                // Flow interface, which is now non-null.
-                return delta != null ? delta : this.getFirstSwitched();
-            }
-
-            @Override
-            public int getFlowRecords() {
-                return rawFlow.recordCount;
-            }
-
-            @Override
-            public long getFlowSeqNum() {
-                return rawFlow.sequenceNumber;
-            }
-
-            @Override
-            public int getInputSnmp() {
-                return Optionals.first(rawFlow.ingressPhysicalInterface, rawFlow.ingressInterface).orElse(0);
-            }
-
-            @Override
-            public int getIpProtocolVersion() {
-                return Optionals.first(rawFlow.ipVersion).orElse(0);
-            }
-
-            @Override
-            public InetAddress getNextHop() {
-                return Optionals.first(rawFlow.ipNextHopIPv6Address, rawFlow.ipNextHopIPv4Address, rawFlow.bgpNextHopIPv6Address, rawFlow.bgpNextHopIPv4Address).orElse(null);
-            }
-
-            @Override
-            public int getOutputSnmp() {
-                return Optionals.first(rawFlow.egressPhysicalInterface, rawFlow.egressInterface).orElse(0);
-            }
+        final var flow = new FlowRecord();
+        flow.setReceivedAt(receivedAt);
+        flow.setTimestamp(rawFlow.exportTime);
+        flow.setFlowProtocol(Flow.FlowProtocol.IPFIX);
+        flow.setFlowRecords(rawFlow.recordCount);
+        flow.setFlowSeqNum(rawFlow.sequenceNumber);
+
+        // The total counters come last: some exporters (e.g. Juniper SRX inline J-Flow)
+        // send only octetTotalCount/packetTotalCount, never the delta variants. Like
+        // NetGauze and nfdump we treat the total as the record's count — a knowing
+        // approximation that over-counts a long-lived flow if its exporter re-reports
+        // growing totals at each active timeout.
+        flow.setBytes(Optionals.firstPresentOrZero(rawFlow.present, OCTET_COUNTS,
+                rawFlow.octetDeltaCount,
+                rawFlow.postOctetDeltaCount,
+                rawFlow.layer2OctetDeltaCount,
+                rawFlow.postLayer2OctetDeltaCount,
+                rawFlow.transportOctetDeltaCount,
+                rawFlow.octetTotalCount,
+                rawFlow.postOctetTotalCount,
+                rawFlow.layer2OctetTotalCount,
+                rawFlow.postLayer2OctetTotalCount));
+        flow.setPackets(Optionals.firstPresentOrZero(rawFlow.present, PACKET_COUNTS,
+                rawFlow.packetDeltaCount,
+                rawFlow.postPacketDeltaCount,
+                rawFlow.transportPacketDeltaCount,
+                rawFlow.packetTotalCount,
+                rawFlow.postPacketTotalCount));
+
+        final Flow.Direction direction = switch (rawFlow.flowDirection) {
+            case 0 -> Flow.Direction.INGRESS;
+            case 1 -> Flow.Direction.EGRESS;
+            default -> Flow.Direction.UNKNOWN;
+        };
+        flow.setDirection(direction);
+
+        flow.setSrcAddr(Optionals.firstOrNull(rawFlow.sourceIPv6Address, rawFlow.sourceIPv4Address));
+        flow.setSrcAs(Optionals.presentOrZero(rawFlow.bgpSourceAsNumber));
+        flow.setSrcMaskLen(Optionals.presentOrZero(Optionals.firstPresent(rawFlow.sourceIPv6PrefixLength, rawFlow.sourceIPv4PrefixLength)));
+        flow.setSrcPort(Optionals.presentOrZero(rawFlow.sourceTransportPort));
+        flow.setDstAddr(Optionals.firstOrNull(rawFlow.destinationIPv6Address, rawFlow.destinationIPv4Address));
+        flow.setDstAs(Optionals.presentOrZero(rawFlow.bgpDestinationAsNumber));
+        flow.setDstMaskLen(Optionals.presentOrZero(Optionals.firstPresent(rawFlow.destinationIPv6PrefixLength, rawFlow.destinationIPv4PrefixLength)));
+        flow.setDstPort(Optionals.presentOrZero(rawFlow.destinationTransportPort));
+        flow.setNextHop(Optionals.firstOrNull(rawFlow.ipNextHopIPv6Address, rawFlow.ipNextHopIPv4Address, rawFlow.bgpNextHopIPv6Address, rawFlow.bgpNextHopIPv4Address));
+
+        flow.setEngineId(Optionals.presentOrZero(rawFlow.engineId));
+        flow.setEngineType(Optionals.presentOrZero(rawFlow.engineType));
+        // unsigned32 indexes, carried in the int of the flow as their 32 bits
+        flow.setInputSnmp((int) Optionals.presentOrZero(Optionals.firstPresent(rawFlow.ingressPhysicalInterface, rawFlow.ingressInterface)));
+        flow.setOutputSnmp((int) Optionals.presentOrZero(Optionals.firstPresent(rawFlow.egressPhysicalInterface, rawFlow.egressInterface)));
+        flow.setIpProtocolVersion(Optionals.presentOrZero(rawFlow.ipVersion));
+        flow.setProtocol(Optionals.presentOrZero(rawFlow.protocolIdentifier));
+        flow.setTcpFlags(Optionals.presentOrZero(rawFlow.tcpControlBits));
+        flow.setTos(Optionals.presentOrZero(rawFlow.ipClassOfService));
+        flow.setVlan(Optionals.presentOrZero(Optionals.firstPresent(rawFlow.vlanId, rawFlow.postVlanId, rawFlow.dot1qVlanId, rawFlow.dot1qCustomerVlanId, rawFlow.postDot1qVlanId, rawFlow.postDot1qCustomerVlanId)));
+
+        flow.setFirstSwitched(switched(rawFlow,
+                Optionals.firstOrNull(
+                        rawFlow.flowStartSeconds,
+                        rawFlow.flowStartMilliseconds,
+                        rawFlow.flowStartMicroseconds,
+                        rawFlow.flowStartNanoseconds),
+                rawFlow.flowStartDeltaMicroseconds,
+                rawFlow.flowStartSysUpTime));
+        flow.setLastSwitched(switched(rawFlow,
+                Optionals.firstOrNull(
+                        rawFlow.flowEndSeconds,
+                        rawFlow.flowEndMilliseconds,
+                        rawFlow.flowEndMicroseconds,
+                        rawFlow.flowEndNanoseconds),
+                rawFlow.flowEndDeltaMicroseconds,
+                rawFlow.flowEndSysUpTime));
+
+        // The timeout calc can yield null (no timeouts), which the record reads as firstSwitched
+        // like the Flow interface, which is now non-null.
+        flow.setDeltaSwitched(new Timeout()
+                .withActiveTimeout(Optionals.firstOrNull(rawFlow.flowActiveTimeout, this.flowActiveTimeoutFallback))
+                .withInactiveTimeout(Optionals.firstOrNull(rawFlow.flowInactiveTimeout, this.flowInactiveTimeoutFallback))
+                .withFirstSwitched(flow.getFirstSwitched())
+                .withLastSwitched(flow.getLastSwitched())
+                .withNumBytes(flow.getBytes())
+                .withNumPackets(flow.getPackets())
+                .calculateDeltaSwitched());
+
+        flow.setSamplingAlgorithm(samplingAlgorithm(rawFlow));
+        flow.setSamplingRate(samplingRate(rawFlow));
+        return flow;
+    }
 
-            @Override
-            public long getPackets() {
-                return Optionals.first(rawFlow.packetDeltaCount, rawFlow.postPacketDeltaCount, rawFlow.transportPacketDeltaCount, rawFlow.packetTotalCount, rawFlow.postPacketTotalCount).orElse(0L);
-            }
+    /**
+     * An absolute timestamp, then one relative to the export time, then one relative to system
+     * init. The last needs systemInitTimeMilliseconds, which comes from an options record and may
+     * not have been seen; without it the offset has nothing to be an offset from.
+     */
+    private static Instant switched(final IpfixRawFlow rawFlow,
+                                    final Instant absolute,
+                                    final Duration sinceExport,
+                                    final Duration sinceInit) {
+        if (absolute != null) {
+            return absolute;
+        }
+        if (sinceExport != null) {
+            return rawFlow.exportTime.plus(sinceExport);
+        }
+        if (sinceInit != null && rawFlow.systemInitTimeMilliseconds != null) {
+            return rawFlow.systemInitTimeMilliseconds.plus(sinceInit);
+        }
+        // No flow-start/-end element exported: fall back to the export time (the packet header
+        // timestamp), as goflow2 does — honouring the non-null Flow contract and the
+        // non-nullable column.
+        return rawFlow.exportTime;
+    }
 
-            @Override
-            public int getProtocol() {
-                return Optionals.first(rawFlow.protocolIdentifier).orElse(0);
-            }
+    private static Flow.SamplingAlgorithm samplingAlgorithm(final IpfixRawFlow rawFlow) {
+        final int deprecatedSamplingAlgorithm = Optionals.firstPresent(rawFlow.samplingAlgorithm, rawFlow.samplerMode);
+        if (deprecatedSamplingAlgorithm == Optionals.ABSENT) {
+            return Flow.SamplingAlgorithm.Unassigned;
+        }
+        if (deprecatedSamplingAlgorithm == 1) {
+            return Flow.SamplingAlgorithm.SystematicCountBasedSampling;
+        }
+        if (deprecatedSamplingAlgorithm == 2) {
+            return Flow.SamplingAlgorithm.RandomNOutOfNSampling;
+        }
+        return switch (rawFlow.selectorAlgorithm) {
+            case 1 -> Flow.SamplingAlgorithm.SystematicCountBasedSampling;
+            case 2 -> Flow.SamplingAlgorithm.SystematicTimeBasedSampling;
+            case 3 -> Flow.SamplingAlgorithm.RandomNOutOfNSampling;
+            case 4 -> Flow.SamplingAlgorithm.UniformProbabilisticSampling;
+            case 5 -> Flow.SamplingAlgorithm.PropertyMatchFiltering;
+            case 6, 7, 8 -> Flow.SamplingAlgorithm.HashBasedFiltering;
+            case 9 -> Flow.SamplingAlgorithm.FlowStateDependentIntermediateFlowSelectionProcess;
+            default -> Flow.SamplingAlgorithm.Unassigned;
+        };
+    }
 
-            @Override
-            public SamplingAlgorithm getSamplingAlgorithm() {
-                return Optionals.first(rawFlow.samplingAlgorithm, rawFlow.samplerMode)
-                        .map(deprecatedSamplingAlgorithm -> {
-                            if (deprecatedSamplingAlgorithm == 1) {
-                                return SamplingAlgorithm.SystematicCountBasedSampling;
-                            }
-                            if (deprecatedSamplingAlgorithm == 2) {
-                                return SamplingAlgorithm.RandomNOutOfNSampling;
-                            }
-                            return switch (rawFlow.selectorAlgorithm) {
-                                case 0 -> SamplingAlgorithm.Unassigned;
-                                case 1 -> SamplingAlgorithm.SystematicCountBasedSampling;
-                                case 2 -> SamplingAlgorithm.SystematicTimeBasedSampling;
-                                case 3 -> SamplingAlgorithm.RandomNOutOfNSampling;
-                                case 4 -> SamplingAlgorithm.UniformProbabilisticSampling;
-                                case 5 -> SamplingAlgorithm.PropertyMatchFiltering;
-                                case 6, 7, 8 -> SamplingAlgorithm.HashBasedFiltering;
-                                case 9 -> SamplingAlgorithm.FlowStateDependentIntermediateFlowSelectionProcess;
-                                case null, default -> null;
-                            };
-                        }).orElse(SamplingAlgorithm.Unassigned);
-            }
+    /*
+     * What the record carries, then what the selector algorithm implies, then what the
+     * operator configured, then an assumed 1.0. Algorithms 0, 8 and 9 have no expressible
+     * interval and yield NaN, which is honest but would land in a Float64 column and
+     * poison any aggregate multiplying by it — so it falls through as unknown instead.
+     *
+     * <p>Walked once: the interval and the rung that produced it are two views of one
+     * resolution, and a second traversal would drift from the first.
+     */
+    private ResolvedRate samplingRate(final IpfixRawFlow rawFlow) {
+        // Evaluated in order: the selector-algorithm derivation divides by exporter-supplied
+        // ranges, so it must not run for a record that already carries its rate — a degenerate
+        // range would then cost the whole packet's batch.
+        final Double onRecord = Optionals.firstOrNull(
+                usable(rawFlow.samplingInterval),
+                usable(rawFlow.samplerRandomInterval));
+        if (onRecord != null) {
+            return ResolvedRate.of(onRecord, SamplingProvenance.Record);
+        }
+        final Double derived = usable(fromSelectorAlgorithm(rawFlow));
+        if (derived != null) {
+            return ResolvedRate.of(derived, SamplingProvenance.Derived);
+        }
+        final Double configured = usable(asDouble(this.flowSamplingIntervalFallback));
+        if (configured != null) {
+            return ResolvedRate.of(configured, SamplingProvenance.Fallback);
+        }
+        return ResolvedRate.assumed();
+    }
 
-            /*
-             * What the record carries, then what the selector algorithm implies, then what the
-             * operator configured, then an assumed 1.0. Algorithms 0, 8 and 9 have no expressible
-             * interval and yield NaN, which is honest but would land in a Float64 column and
-             * poison any aggregate multiplying by it — so it falls through as unknown instead.
-             *
-             * <p>Walked once and memoized: the interval and the rung that produced it are two
-             * views of one resolution, and a second traversal would both drift from the first and
-             * defeat the laziness below.
-             */
-            private final Supplier<ResolvedRate> rate = Suppliers.memoize(() -> {
-                // Evaluated in order and lazily: the selector-algorithm derivation divides by
-                // exporter-supplied ranges, so it must not run for a record that already carries
-                // its rate — a degenerate range would then cost the whole packet's batch.
-                final Double onRecord = Optionals.first(
-                                usable(rawFlow.samplingInterval),
-                                usable(rawFlow.samplerRandomInterval))
-                        .orElse(null);
-                if (onRecord != null) {
-                    return ResolvedRate.of(onRecord, SamplingProvenance.Record);
+    /* RFC 5477 selector algorithms, as an interval where one is expressible; NaN where none is. */
+    private static double fromSelectorAlgorithm(final IpfixRawFlow rawFlow) {
+        return switch (rawFlow.selectorAlgorithm) {
+            case 0, 8, 9 -> {
+                yield Double.NaN;
+            }
+            case 1, 2 -> {
+                final var interval = Optionals.presentOr(Optionals.firstPresent(rawFlow.samplingFlowInterval, rawFlow.flowSamplingTimeInterval), 1.0);
+                final var spacing = Optionals.presentOr(Optionals.firstPresent(rawFlow.samplingFlowSpacing, rawFlow.flowSamplingTimeSpacing), 0.0);
+                yield interval + spacing / interval;
+            }
+            case 3 -> {
+                final var size = Optionals.presentOr(rawFlow.samplingSize, 1.0);
+                final var population = Optionals.presentOr(rawFlow.samplingPopulation, 1.0);
+                yield population / size;
+            }
+            case 4 -> {
+                final var probability = Optionals.presentOr(rawFlow.samplingProbability, 1.0);
+                yield 1.0 / probability;
+            }
+            case 5, 6, 7 -> {
+                final var selectedRangeMin = Optionals.of(rawFlow.hashSelectedRangeMin).orElse(UnsignedLong.ZERO);
+                final var selectedRangeMax = Optionals.of(rawFlow.hashSelectedRangeMax).orElse(UnsignedLong.MAX_VALUE);
+                final var outputRangeMin = Optionals.of(rawFlow.hashOutputRangeMin).orElse(UnsignedLong.ZERO);
+                final var outputRangeMax = Optionals.of(rawFlow.hashOutputRangeMax).orElse(UnsignedLong.MAX_VALUE);
+                final var selectedRange = selectedRangeMax.minus(selectedRangeMin);
+                // An exporter is free to send a degenerate range; dividing by it
+                // would throw and cost the whole packet, so treat it as unknown.
+                if (selectedRange.equals(UnsignedLong.ZERO)) {
+                    yield Double.NaN;
                 }
-                final Double derived = usable(fromSelectorAlgorithm());
-                if (derived != null) {
-                    return ResolvedRate.of(derived, SamplingProvenance.Derived);
-                }
-                final Double configured = usable(asDouble(flowSamplingIntervalFallback));
-                if (configured != null) {
-                    return ResolvedRate.of(configured, SamplingProvenance.Fallback);
-                }
-                return ResolvedRate.assumed();
-            });
-
-            @Override
-            public double getSamplingInterval() {
-                return this.rate.get().interval();
-            }
-
-            @Override
-            public SamplingProvenance getSamplingProvenance() {
-                return this.rate.get().from();
-            }
-
-            /* RFC 5477 selector algorithms, as an interval where one is expressible. */
-            private Double fromSelectorAlgorithm() {
-                return switch (rawFlow.selectorAlgorithm) {
-                    case 0, 8, 9 -> {
-                        yield Double.NaN;
-                    }
-                    case 1, 2 -> {
-                        final var interval = Optionals.first(rawFlow.samplingFlowInterval, rawFlow.flowSamplingTimeInterval).orElse(1.0);
-                        final var spacing = Optionals.first(rawFlow.samplingFlowSpacing, rawFlow.flowSamplingTimeSpacing).orElse(0.0);
-                        yield interval + spacing / interval;
-                    }
-                    case 3 -> {
-                        final var size = Optionals.of(rawFlow.samplingSize).orElse(1.0);
-                        final var population = Optionals.of(rawFlow.samplingPopulation).orElse(1.0);
-                        yield population / size;
-                    }
-                    case 4 -> {
-                        final var probability = Optionals.of(rawFlow.samplingProbability).orElse(1.0);
-                        yield 1.0 / probability;
-                    }
-                    case 5, 6, 7 -> {
-                        final var selectedRangeMin = Optionals.of(rawFlow.hashSelectedRangeMin).orElse(UnsignedLong.ZERO);
-                        final var selectedRangeMax = Optionals.of(rawFlow.hashSelectedRangeMax).orElse(UnsignedLong.MAX_VALUE);
-                        final var outputRangeMin = Optionals.of(rawFlow.hashOutputRangeMin).orElse(UnsignedLong.ZERO);
-                        final var outputRangeMax = Optionals.of(rawFlow.hashOutputRangeMax).orElse(UnsignedLong.MAX_VALUE);
-                        final var selectedRange = selectedRangeMax.minus(selectedRangeMin);
-                        // An exporter is free to send a degenerate range; dividing by it
-                        // would throw and cost the whole packet, so treat it as unknown.
-                        if (selectedRange.equals(UnsignedLong.ZERO)) {
-                            yield null;
-                        }
-                        yield outputRangeMax.minus(outputRangeMin).dividedBy(selectedRange).doubleValue();
-                    }
-                    case null, default -> {
-                        // No algorithm, or one this does not model: nothing was
-                        // derived, so fall through rather than assert "not sampled" —
-                        // that would outrank a configured fallback with a guess.
-                        yield null;
-                    }
-                };
-            }
-
-            @Override
-            public InetAddress getSrcAddr() {
-                return Optionals.first(rawFlow.sourceIPv6Address, rawFlow.sourceIPv4Address).orElse(null);
+                yield outputRangeMax.minus(outputRangeMin).dividedBy(selectedRange).doubleValue();
             }
-
-            @Override
-            public long getSrcAs() {
-                return Optionals.first(rawFlow.bgpSourceAsNumber).orElse(0L);
-            }
-
-            @Override
-            public int getSrcMaskLen() {
-                return Optionals.first(rawFlow.sourceIPv6PrefixLength, rawFlow.sourceIPv4PrefixLength).orElse(0);
-            }
-
-            @Override
-            public int getSrcPort() {
-                return Optionals.first(rawFlow.sourceTransportPort).orElse(0);
-            }
-
-            @Override
-            public int getTcpFlags() {
-                return Optionals.first(rawFlow.tcpControlBits).orElse(0);
-            }
-
-            @Override
-            public int getTos() {
-                return Optionals.first(rawFlow.ipClassOfService).orElse(0);
-            }
-
-            @Override
-            public int getVlan() {
-                return Optionals.first(rawFlow.vlanId, rawFlow.postVlanId, rawFlow.dot1qVlanId, rawFlow.dot1qCustomerVlanId, rawFlow.postDot1qVlanId, rawFlow.postDot1qCustomerVlanId).orElse(0);
-            }
-
-            @Override
-            public FlowProtocol getFlowProtocol() {
-                return FlowProtocol.IPFIX;
+            default -> {
+                // No algorithm, or one this does not model: nothing was
+                // derived, so fall through rather than assert "not sampled" —
+                // that would outrank a configured fallback with a guess.
+                yield Double.NaN;
             }
         };
     }
@@ -378,19 +281,22 @@ public class IpFixFlowBuilder {
      * receiver-wide fallback meant for a different exporter. Absent, 0 (a placeholder) and
      * non-finite — which is what an inexpressible selector algorithm yields — fall through.
      */
-    private static Double usable(final Double interval) {
-        return interval != null && Double.isFinite(interval) && interval >= 1.0 ? interval : null;
+    private static Double usable(final double interval) {
+        return Double.isFinite(interval) && interval >= 1.0 ? interval : null;
     }
 
-    private static Double asDouble(final Long value) {
-        return value != null ? value.doubleValue() : null;
+    private static double asDouble(final Long value) {
+        return value != null ? value.doubleValue() : Double.NaN;
     }
 
     private Stream<IpfixRawFlow> createRawFlows(final Packet packet) {
         final int recordCount = packet.dataRecordCount();
         return packet.dataSets.stream().flatMap(ds -> ds.records.stream()).map(record -> {
-            final var dummyFlow = new IpfixRawFlow();
-            record.getValues().forEach(value -> conversionService.apply(value, dummyFlow));
+            // Decoded already when the packet was parsed through a compiled template
+            final var dummyFlow = record.flow != null ? (IpfixRawFlow) record.flow : new IpfixRawFlow();
+            if (record.flow == null) {
+                record.getValues().forEach(value -> conversionService.apply(value, dummyFlow));
+            }
             dummyFlow.recordCount = recordCount;
             dummyFlow.sequenceNumber = packet.header.sequenceNumber;
             dummyFlow.exportTime = Instant.ofEpochSecond(packet.header.exportTime);
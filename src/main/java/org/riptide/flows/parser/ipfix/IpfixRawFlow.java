@@ -11,32 +11,41 @@ import java.net.InetAddress;
 import java.time.Duration;
 import java.time.Instant;
 
+import static org.riptide.flows.parser.data.Optionals.ABSENT;
+
 /// DTO object for Ipfix flows. This contains all the fields/scopes/options we want to use internally
 /// This object is required to make conversion to an actual [org.riptide.flows.parser.data.Flow] easier.
+///
+/// Numbers are primitives, stored without boxing by the writer [org.riptide.flows.parser.ie.values.ValueConversionService]
+/// generates for this class; one not exported holds [org.riptide.flows.parser.data.Optionals#ABSENT], or NaN.
+/// The unsigned32 interface indexes are `long` so that an all-ones index is not read as absent; an
+/// all-ones unsigned64 counter is told apart by its bit in [#present].
 public class IpfixRawFlow {
+    /// The [org.riptide.flows.parser.ie.values.Presence] of the `long` fields, set by the writer.
+    public transient long present;
     public int recordCount;
     public long sequenceNumber;
     public Instant exportTime;
     public Instant systemInitTimeMilliseconds;
     public long observationDomainId;
-    public Long octetDeltaCount;
-    public Long postOctetDeltaCount;
-    public Long layer2OctetDeltaCount;
-    public Long postLayer2OctetDeltaCount;
-    public Long transportOctetDeltaCount;
-    public Long octetTotalCount;
-    public Long postOctetTotalCount;
-    public Long layer2OctetTotalCount;
-    public Long postLayer2OctetTotalCount;
-    public Long bgpDestinationAsNumber;
-    public Integer flowDirection;
+    public long octetDeltaCount = ABSENT;
+    public long postOctetDeltaCount = ABSENT;
+    public long layer2OctetDeltaCount = ABSENT;
+    public long postLayer2OctetDeltaCount = ABSENT;
+    public long transportOctetDeltaCount = ABSENT;
+    public long octetTotalCount = ABSENT;
+    public long postOctetTotalCount = ABSENT;
+    public long layer2OctetTotalCount = ABSENT;
+    public long postLayer2OctetTotalCount = ABSENT;
+    public long bgpDestinationAsNumber = ABSENT;
+    public int flowDirection = ABSENT;
     public InetAddress destinationIPv6Address;
     public InetAddress destinationIPv4Address;
-    public Integer destinationIPv6PrefixLength;
-    public Integer destinationIPv4PrefixLength;
-    public Integer destinationTransportPort;
-    public Integer engineId;
-    public Integer engineType;
+    public int destinationIPv6PrefixLength = ABSENT;
+    public int destinationIPv4PrefixLength = ABSENT;
+    public int destinationTransportPort = ABSENT;
+    public int engineId = ABSENT;
+    public int engineType = ABSENT;
     public Duration flowActiveTimeout;
     public Duration flowInactiveTimeout;
     public Instant flowStartSeconds;
@@ -51,49 +60,49 @@ public class IpfixRawFlow {
     public Instant flowEndNanoseconds;
     public Duration flowEndDeltaMicroseconds;
     public Duration flowEndSysUpTime;
-    public Integer ingressPhysicalInterface;
-    public Integer ingressInterface;
-    public Integer ipVersion;
+    public long ingressPhysicalInterface = ABSENT;
+    public long ingressInterface = ABSENT;
+    public int ipVersion = ABSENT;
     public InetAddress ipNextHopIPv6Address;
     public InetAddress ipNextHopIPv4Address;
     public InetAddress bgpNextHopIPv6Address;
     public InetAddress bgpNextHopIPv4Address;
-    public Integer egressPhysicalInterface;
-    public Integer egressInterface;
-    public Long packetDeltaCount;
-    public Long postPacketDeltaCount;
-    public Long transportPacketDeltaCount;
-    public Long packetTotalCount;
-    public Long postPacketTotalCount;
-    public Integer protocolIdentifier;
-    public Integer samplingAlgorithm;
-    public Integer samplerMode;
-    public Integer selectorAlgorithm;
-    public Double samplingInterval;
-    public Double samplerRandomInterval;
-    public Double samplingFlowInterval;
-    public Double flowSamplingTimeInterval;
-    public Double samplingFlowSpacing;
-    public Double flowSamplingTimeSpacing;
-    public Double samplingSize;
-    public Double samplingPopulation;
-    public Double samplingProbability;
+    public long egressPhysicalInterface = ABSENT;
+    public long egressInterface = ABSENT;
+    public long packetDeltaCount = ABSENT;
+    public long postPacketDeltaCount = ABSENT;
+    public long transportPacketDeltaCount = ABSENT;
+    public long packetTotalCount = ABSENT;
+    public long postPacketTotalCount = ABSENT;
+    public int protocolIdentifier = ABSENT;
+    public int samplingAlgorithm = ABSENT;
+    public int samplerMode = ABSENT;
+    public int selectorAlgorithm = ABSENT;
+    public double samplingInterval = Double.NaN;
+    public double samplerRandomInterval = Double.NaN;
+    public double samplingFlowInterval = Double.NaN;
+    public double flowSamplingTimeInterval = Double.NaN;
+    public double samplingFlowSpacing = Double.NaN;
+    public double flowSamplingTimeSpacing = Double.NaN;
+    public double samplingSize = Double.NaN;
+    public double samplingPopulation = Double.NaN;
+    public double samplingProbability = Double.NaN;
     public UnsignedLong hashSelectedRangeMin;
     public UnsignedLong hashSelectedRangeMax;
     public UnsignedLong hashOutputRangeMin;
     public UnsignedLong hashOutputRangeMax;
     public InetAddress sourceIPv6Address;
     public InetAddress sourceIPv4Address;
-    public Long bgpSourceAsNumber;
-    public Integer sourceIPv6PrefixLength;
-    public Integer sourceIPv4PrefixLength;
-    public Integer sourceTransportPort;
-    public Integer tcpControlBits;
-    public Integer ipClassOfService;
-    public Integer vlanId;
-    public Integer postVlanId;
-    public Integer dot1qVlanId;
-    public Integer dot1qCustomerVlanId;
-    public Integer postDot1qVlanId;
-    public Integer postDot1qCustomerVlanId;
+    public long bgpSourceAsNumber = ABSENT;
+    public int sourceIPv6PrefixLength = ABSENT;
+    public int sourceIPv4PrefixLength = ABSENT;
+    public int sourceTransportPort = ABSENT;
+    public int tcpControlBits = ABSENT;
+    public int ipClassOfService = ABSENT;
+    public int vlanId = ABSENT;
+    public int postVlanId = ABSENT;
+    public int dot1qVlanId = ABSENT;
+    public int dot1qCustomerVlanId = ABSENT;
+    public int postDot1qVlanId = ABSENT;
+    public int postDot1qCustomerVlanId = ABSENT;
 }
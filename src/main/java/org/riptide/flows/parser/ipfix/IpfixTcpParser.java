@@ -38,6 +38,8 @@ import static org.riptide.flows.utils.BufferUtils.slice;
 
 public class IpfixTcpParser extends ParserBase implements TcpParser {
 
+    private final ValueConversionService conversionService;
+
     private final IpFixFlowBuilder flowBuilder;
 
     private final Set<TcpSession> sessions = Sets.newConcurrentHashSet();
@@ -54,6 +56,7 @@ public class IpfixTcpParser extends ParserBase implements TcpParser {
                           final MetricRegistry metricRegistry,
                       @Qualifier("ipfixValueConversionService") ValueConversionService conversionService) {
         super(Protocol.IPFIX, name, dispatcher, identity, metricRegistry);
+        this.conversionService = conversionService;
         this.flowBuilder = new IpFixFlowBuilder(conversionService);
     }
 
@@ -77,7 +80,7 @@ public class IpfixTcpParser extends ParserBase implements TcpParser {
 
                 final Packet packet;
                 if (buffer.isReadable(header.payloadLength())) {
-                    packet = new Packet(session, header, slice(buffer, header.payloadLength()));
+                    packet = new Packet(session, header, slice(buffer, header.payloadLength()), IpfixTcpParser.this.conversionService);
                 } else {
                     buffer.resetReaderIndex();
                     return Optional.empty();
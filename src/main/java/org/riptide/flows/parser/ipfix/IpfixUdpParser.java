@@ -36,6 +36,8 @@ import static org.riptide.flows.utils.BufferUtils.uint16;
 
 public class IpfixUdpParser extends UdpParserBase implements DispatchableUdpParser {
 
+    private final ValueConversionService conversionService;
+
     private final IpFixFlowBuilder flowBuilder;
 
     public IpfixUdpParser(final String name,
@@ -44,6 +46,7 @@ public class IpfixUdpParser extends UdpParserBase implements DispatchableUdpPars
                           final MetricRegistry metricRegistry,
                           @Qualifier("ipfixValueConversionService") final ValueConversionService conversionService) {
         super(Protocol.IPFIX, name, dispatcher, identity, metricRegistry);
+        this.conversionService = conversionService;
         this.flowBuilder = new IpFixFlowBuilder(conversionService);
     }
 
@@ -51,7 +54,7 @@ public class IpfixUdpParser extends UdpParserBase implements DispatchableUdpPars
     protected FlowPacket parse(final Session session,
                                final ByteBuf buffer) throws Exception {
         final Header header = new Header(slice(buffer, Header.SIZE));
-        final Packet packet = new Packet(session, header, slice(buffer, header.payloadLength()));
+        final Packet packet = new Packet(session, header, slice(buffer, header.payloadLength()), this.conversionService);
 
         return new FlowPacket() {
             @Override
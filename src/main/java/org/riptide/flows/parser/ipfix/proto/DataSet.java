@@ -10,9 +10,12 @@ import java.util.Iterator;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
+import java.util.Set;
 
 import org.riptide.flows.parser.exceptions.InvalidPacketException;
 import org.riptide.flows.parser.exceptions.MissingTemplateException;
+import org.riptide.flows.parser.ie.values.CompiledTemplate;
+import org.riptide.flows.parser.ie.values.ValueConversionService;
 import org.riptide.flows.parser.session.Template;
 import org.riptide.flows.parser.session.Session;
 
@@ -30,6 +33,19 @@ public class DataSet extends FlowSet<DataRecord> {
                    final FlowSetHeader header,
                    final Session.Resolver resolver,
                    final ByteBuf buffer) throws InvalidPacketException, MissingTemplateException {
+        this(packet, header, resolver, buffer, null);
+    }
+
+    /**
+     * With a conversion service, the records of a data template are decoded straight into its raw
+     * flow by the template's {@link CompiledTemplate} (see {@link DataRecord#flow}). Options data
+     * sets keep their values: they feed the session, not a flow.
+     */
+    public DataSet(final Packet packet,
+                   final FlowSetHeader header,
+                   final Session.Resolver resolver,
+                   final ByteBuf buffer,
+                   final ValueConversionService conversionService) throws InvalidPacketException, MissingTemplateException {
         super(packet, header);
 
         Session.Resolver resolver1 = Objects.requireNonNull(resolver);
@@ -48,8 +64,26 @@ public class DataSet extends FlowSet<DataRecord> {
         }
 
         final List<DataRecord> parsedRecords = new ArrayList<>();
-        while (buffer.isReadable(minimumRecordLength)) {
-            parsedRecords.add(new DataRecord(this, resolver1, this.template, buffer));
+        if (conversionService != null && this.template.type == Template.Type.TEMPLATE) {
+            final CompiledTemplate compiled = conversionService.compile(this.template);
+            // Read once for the set: options only change between sets, when an options data set
+            // earlier in the packet is stored.
+            final Set<String> optionScopes = resolver1.optionScopeNames();
+            if (compiled.stride() > 0) {
+                // no variable-length fields: minimumRecordLength is the stride, so the same records
+                for (final Object flow : compiled.decodeAll(resolver1, buffer, optionScopes)) {
+                    parsedRecords.add(new DataRecord(this, this.template, flow));
+                }
+            } else {
+                while (buffer.isReadable(minimumRecordLength)) {
+                    final var options = compiled.lookupOptions(resolver1, buffer, optionScopes);
+                    parsedRecords.add(new DataRecord(this, this.template, compiled.decode(resolver1, buffer, options)));
+                }
+            }
+        } else {
+            while (buffer.isReadable(minimumRecordLength)) {
+                parsedRecords.add(new DataRecord(this, resolver1, this.template, buffer));
+            }
         }
 
         if (parsedRecords.isEmpty()) {
@@ -57,11 +57,15 @@ public final class FieldSpecifier implements Field, Scope {
             this.enterpriseNumber = uint32(buffer);
         }
 
-        this.informationElement = InformationElementDatabase.instance
-                .lookup(Protocol.IPFIX, this.enterpriseNumber, this.informationElementId).orElseGet(() -> {
-                    LOG.warn("Undeclared information element: {}", UndeclaredValue.nameFor(this.enterpriseNumber, this.informationElementId));
-                    return UndeclaredValue.parser(this.enterpriseNumber, this.informationElementId);
-                });
+        final InformationElement element = this.enterpriseNumber == null
+                ? InformationElementDatabase.instance.find(Protocol.IPFIX, this.informationElementId)
+                : InformationElementDatabase.instance.find(Protocol.IPFIX, this.enterpriseNumber, this.informationElementId);
+        if (element != null) {
+            this.informationElement = element;
+        } else {
+            LOG.warn("Undeclared information element: {}", UndeclaredValue.nameFor(this.enterpriseNumber, this.informationElementId));
+            this.informationElement = UndeclaredValue.parser(this.enterpriseNumber, this.informationElementId);
+        }
 
         if (this.fieldLength > this.informationElement.getMaximumFieldLength() || this.fieldLength < this.informationElement.getMinimumFieldLength()) {
             throw new InvalidPacketException(buffer, "Template field '%s' has illegal size: %d (min=%d, max=%d)",
@@ -82,6 +86,16 @@ public final class FieldSpecifier implements Field, Scope {
         return this.fieldLength;
     }
 
+    @Override
+    public InformationElement informationElement() {
+        return this.informationElement;
+    }
+
+    @Override
+    public boolean isVariableLength() {
+        return this.fieldLength == DataRecord.VARIABLE_SIZED;
+    }
+
     @Override
     public String getName() {
         return this.informationElement.getName();
@@ -11,6 +11,7 @@ import io.netty.buffer.ByteBuf;
 import lombok.extern.slf4j.Slf4j;
 import org.riptide.flows.parser.exceptions.InvalidPacketException;
 import org.riptide.flows.parser.exceptions.MissingTemplateException;
+import org.riptide.flows.parser.ie.values.ValueConversionService;
 import org.riptide.flows.parser.session.Session;
 import org.riptide.flows.parser.session.Template;
 import org.slf4j.Logger;
@@ -51,6 +52,16 @@ public final class Packet implements Iterable<FlowSet<?>> {
     /** Data Sets discarded for a missing Template. See {@link org.riptide.flows.parser.FlowPacket#undecodableSets()}. */
     public final int undecodableSets;
 
+    public Packet(final Session session,
+                  final Header header,
+                  final ByteBuf buffer) throws InvalidPacketException {
+        this(session, header, buffer, null);
+    }
+
+    /**
+     * With a conversion service, data templates are compiled against it as they are added, and data
+     * records decoded through them straight into raw flows. See {@link DataSet}.
+     */
     // Left as a statement switch. The DATA_SET case uses `break` inside its catch block to
     // abandon an undecodable set and leave the switch, and `break` is not legal in an arrow case.
     // Converting means restructuring that early exit — the readability the check offers is not
@@ -58,7 +69,8 @@ public final class Packet implements Iterable<FlowSet<?>> {
     @SuppressWarnings("StatementSwitchToExpressionSwitch")
     public Packet(final Session session,
                   final Header header,
-                  final ByteBuf buffer) throws InvalidPacketException {
+                  final ByteBuf buffer,
+                  final ValueConversionService conversionService) throws InvalidPacketException {
         this.header = Objects.requireNonNull(header);
 
         final List<TemplateSet> parsedTemplateSets = new ArrayList<>();
@@ -96,10 +108,13 @@ public final class Packet implements Iterable<FlowSet<?>> {
                             }
 
                         } else {
-                            session.addTemplate(this.header.observationDomainId,
-                                    Template.builder(record.header.templateId, Template.Type.TEMPLATE)
-                                            .withFields(record.fields)
-                                            .build());
+                            final Template template = Template.builder(record.header.templateId, Template.Type.TEMPLATE)
+                                    .withFields(record.fields)
+                                    .build();
+                            session.addTemplate(this.header.observationDomainId, template);
+                            if (conversionService != null) {
+                                conversionService.compile(template);
+                            }
                         }
                     }
 
@@ -140,7 +155,7 @@ public final class Packet implements Iterable<FlowSet<?>> {
 
                     final DataSet dataSet;
                     try {
-                        dataSet = new DataSet(this, setHeader, resolver, payloadBuffer);
+                        dataSet = new DataSet(this, setHeader, resolver, payloadBuffer, conversionService);
                     } catch (final MissingTemplateException ex) {
                         // Counted, not merely logged: this discards the whole Set and used to be
                         // invisible at DEBUG. See FlowPacket#undecodableSets.
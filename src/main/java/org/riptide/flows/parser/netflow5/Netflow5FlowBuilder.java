@@ -10,12 +10,12 @@ import com.codahale.metrics.Meter;
 import com.codahale.metrics.MetricRegistry;
 import org.riptide.flows.parser.data.Flow;
 import org.riptide.flows.parser.data.Flow.SamplingProvenance;
+import org.riptide.flows.parser.data.FlowRecord;
 import org.riptide.flows.parser.data.ResolvedRate;
 import org.riptide.flows.parser.netflow5.proto.Header;
 import org.riptide.flows.parser.netflow5.proto.Packet;
 import org.riptide.flows.parser.netflow5.proto.Record;
 
-import java.net.InetAddress;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.Collections;
@@ -144,169 +144,46 @@ public final class Netflow5FlowBuilder {
         final var timestamp = Instant.ofEpochSecond(header.unixSecs, header.unixNSecs);
         final var bootTime = timestamp.minus(header.sysUptime, ChronoUnit.MILLIS);
 
-        return new Flow() {
-            @Override
-            public Instant getReceivedAt() {
-                return receivedAt;
-            }
-
-            @Override
-            public Instant getTimestamp() {
-                return timestamp;
-            }
-
-            @Override
-            public Flow.FlowProtocol getFlowProtocol() {
-                return Flow.FlowProtocol.NetflowV5;
-            }
-
-            @Override
-            public int getFlowRecords() {
-                return header.count;
-            }
-
-            @Override
-            public long getFlowSeqNum() {
-                return header.flowSequence;
-            }
-
-            @Override
-            public Instant getFirstSwitched() {
-                return bootTime.plus(record.first, ChronoUnit.MILLIS);
-            }
-
-            @Override
-            public Instant getLastSwitched() {
-                return bootTime.plus(record.last, ChronoUnit.MILLIS);
-            }
-
-            @Override
-            public int getInputSnmp() {
-                return record.input;
-            }
-
-            @Override
-            public int getOutputSnmp() {
-                return record.output;
-            }
-
-            @Override
-            public long getSrcAs() {
-                return record.srcAs;
-            }
-
-            @Override
-            public InetAddress getSrcAddr() {
-                return record.srcAddr;
-            }
-
-            @Override
-            public int getSrcMaskLen() {
-                return record.srcMask;
-            }
-
-            @Override
-            public int getSrcPort() {
-                return record.srcPort;
-            }
-
-            @Override
-            public long getDstAs() {
-                return record.dstAs;
-            }
-
-            @Override
-            public InetAddress getDstAddr() {
-                return record.dstAddr;
-            }
-
-            @Override
-            public int getDstMaskLen() {
-                return record.dstMask;
-            }
-
-            @Override
-            public int getDstPort() {
-                return record.dstPort;
-            }
-
-            @Override
-            public InetAddress getNextHop() {
-                return record.nextHop;
-            }
-
-            @Override
-            public long getBytes() {
-                return record.dOctets;
-            }
-
-            @Override
-            public long getPackets() {
-                return record.dPkts;
-            }
-
-            @Override
-            public Flow.Direction getDirection() {
-                return record.egress
-                        ? Flow.Direction.EGRESS
-                        : Flow.Direction.INGRESS;
-            }
-
-            @Override
-            public int getEngineId() {
-                return header.engineId;
-            }
-
-            @Override
-            public int getEngineType() {
-                return header.engineType;
-            }
-
-            @Override
-            public int getVlan() {
-                return 0;
-            }
-
-            @Override
-            public int getIpProtocolVersion() {
-                return 4;
-            }
-
-            @Override
-            public int getProtocol() {
-                return record.proto;
-            }
-
-            @Override
-            public int getTcpFlags() {
-                return record.tcpFlags;
-            }
-
-            @Override
-            public int getTos() {
-                return record.tos;
-            }
-
-            @Override
-            public Flow.SamplingAlgorithm getSamplingAlgorithm() {
-                return switch (header.samplingAlgorithm) {
-                    case 1 -> Flow.SamplingAlgorithm.SystematicCountBasedSampling;
-                    case 2 -> Flow.SamplingAlgorithm.RandomNOutOfNSampling;
-                    default -> Flow.SamplingAlgorithm.Unassigned;
-                };
-            }
-
-            /* Resolved once for the packet; see {@code resolveSamplingRate}. */
-            @Override
-            public double getSamplingInterval() {
-                return rate.interval();
-            }
-
-            @Override
-            public SamplingProvenance getSamplingProvenance() {
-                return rate.from();
-            }
+        final var flow = new FlowRecord();
+        flow.setReceivedAt(receivedAt);
+        flow.setTimestamp(timestamp);
+        flow.setFlowProtocol(Flow.FlowProtocol.NetflowV5);
+        flow.setFlowRecords(header.count);
+        flow.setFlowSeqNum(header.flowSequence);
+        flow.setFirstSwitched(bootTime.plus(record.first, ChronoUnit.MILLIS));
+        flow.setLastSwitched(bootTime.plus(record.last, ChronoUnit.MILLIS));
+        flow.setInputSnmp(record.input);
+        flow.setOutputSnmp(record.output);
+        flow.setSrcAs(record.srcAs);
+        flow.setSrcAddr(record.srcAddr);
+        flow.setSrcMaskLen(record.srcMask);
+        flow.setSrcPort(record.srcPort);
+        flow.setDstAs(record.dstAs);
+        flow.setDstAddr(record.dstAddr);
+        flow.setDstMaskLen(record.dstMask);
+        flow.setDstPort(record.dstPort);
+        flow.setNextHop(record.nextHop);
+        flow.setBytes(record.dOctets);
+        flow.setPackets(record.dPkts);
+        flow.setDirection(record.egress
+                ? Flow.Direction.EGRESS
+                : Flow.Direction.INGRESS);
+        flow.setEngineId(header.engineId);
+        flow.setEngineType(header.engineType);
+        flow.setVlan(0);
+        flow.setIpProtocolVersion(4);
+        flow.setProtocol(record.proto);
+        flow.setTcpFlags(record.tcpFlags);
+        flow.setTos(record.tos);
+        final Flow.SamplingAlgorithm samplingAlgorithm = switch (header.samplingAlgorithm) {
+            case 1 -> Flow.SamplingAlgorithm.SystematicCountBasedSampling;
+            case 2 -> Flow.SamplingAlgorithm.RandomNOutOfNSampling;
+            default -> Flow.SamplingAlgorithm.Unassigned;
         };
+        flow.setSamplingAlgorithm(samplingAlgorithm);
+        // Resolved once for the packet; see {@code resolveSamplingRate}.
+        flow.setSamplingRate(rate);
+        return flow;
     }
 
     /**
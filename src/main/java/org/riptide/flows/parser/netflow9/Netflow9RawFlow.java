@@ -9,54 +9,64 @@ import java.net.InetAddress;
 import java.time.Duration;
 import java.time.Instant;
 
+import static org.riptide.flows.parser.data.Optionals.ABSENT;
+
+/**
+ * What a NetFlow v9 data record decodes into, one field per element. Numbers are primitives, stored
+ * without boxing; one the record did not carry holds {@link org.riptide.flows.parser.data.Optionals#ABSENT},
+ * or NaN. The interface indexes are {@code long} so that an all-ones unsigned32 index is not read as
+ * absent; an all-ones unsigned64 counter is told apart by its bit in {@link #present}.
+ */
 public class Netflow9RawFlow {
+    /** The {@link org.riptide.flows.parser.ie.values.Presence} of the {@code long} fields, set by the writer. */
+    public transient long present;
     public long sequenceNumber;
     public Instant unixSecs;
     public Duration sysUpTime;
     public int recordCount;
-    public Long IN_BYTES;
-    public Long IN_PERMANENT_BYTES;
-    public Integer DIRECTION;
+    public long IN_BYTES = ABSENT;
+    public long IN_PERMANENT_BYTES = ABSENT;
+    public int DIRECTION = ABSENT;
     public InetAddress IPV6_DST_ADDR;
     public InetAddress IPV4_DST_ADDR;
-    public Long DST_AS;
-    public Integer IPV6_DST_MASK;
-    public Integer DST_MASK;
-    public Integer L4_DST_PORT;
-    public Integer ENGINE_ID;
-    public Integer ENGINE_TYPE;
+    public long DST_AS = ABSENT;
+    public int IPV6_DST_MASK = ABSENT;
+    public int DST_MASK = ABSENT;
+    public int L4_DST_PORT = ABSENT;
+    public int ENGINE_ID = ABSENT;
+    public int ENGINE_TYPE = ABSENT;
     public Duration FLOW_ACTIVE_TIMEOUT;
     public Duration FLOW_INACTIVE_TIMEOUT;
     public Duration FIRST_SWITCHED;
     public Instant flowStartMilliseconds;
-    public Integer ingressPhysicalInterface;
-    public Integer INPUT_SNMP;
-    public Integer IP_PROTOCOL_VERSION;
+    public long ingressPhysicalInterface = ABSENT;
+    public long INPUT_SNMP = ABSENT;
+    public int IP_PROTOCOL_VERSION = ABSENT;
     public Duration LAST_SWITCHED;
     public Instant flowEndMilliseconds;
     public InetAddress IPV6_NEXT_HOP;
     public InetAddress IPV4_NEXT_HOP;
     public InetAddress BPG_IPV6_NEXT_HOP;
     public InetAddress BPG_IPV4_NEXT_HOP;
-    public Integer egressPhysicalInterface;
-    public Integer OUTPUT_SNMP;
-    public Long IN_PKTS;
-    public Long IN_PERMANENT_PKTS;
-    public Integer PROTOCOL;
-    public Integer SAMPLING_ALGORITHM;
-    public Double SAMPLING_INTERVAL;
+    public long egressPhysicalInterface = ABSENT;
+    public long OUTPUT_SNMP = ABSENT;
+    public long IN_PKTS = ABSENT;
+    public long IN_PERMANENT_PKTS = ABSENT;
+    public int PROTOCOL = ABSENT;
+    public int SAMPLING_ALGORITHM = ABSENT;
+    public double SAMPLING_INTERVAL = Double.NaN;
     // Fields 49/50, the pair a sampler options record carries. Named exactly as
     // InformationElementProvider registers them, which is how ValueConversionService binds them.
-    public Integer FLOW_SAMPLER_MODE;
-    public Double FLOW_SAMPLER_RANDOM_INTERVAL;
+    public int FLOW_SAMPLER_MODE = ABSENT;
+    public double FLOW_SAMPLER_RANDOM_INTERVAL = Double.NaN;
     public InetAddress IPV6_SRC_ADDR;
     public InetAddress IPV4_SRC_ADDR;
-    public Long SRC_AS;
-    public Integer IPV6_SRC_MASK;
-    public Integer SRC_MASK;
-    public Integer L4_SRC_PORT;
-    public Integer TCP_FLAGS;
-    public Integer TOS;
-    public Integer SRC_VLAN;
-    public Integer DST_VLAN;
+    public long SRC_AS = ABSENT;
+    public int IPV6_SRC_MASK = ABSENT;
+    public int SRC_MASK = ABSENT;
+    public int L4_SRC_PORT = ABSENT;
+    public int TCP_FLAGS = ABSENT;
+    public int TOS = ABSENT;
+    public int SRC_VLAN = ABSENT;
+    public int DST_VLAN = ABSENT;
 }
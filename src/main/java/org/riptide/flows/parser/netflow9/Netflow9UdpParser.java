@@ -37,6 +37,8 @@ import static org.riptide.flows.utils.BufferUtils.uint16;
 
 public class Netflow9UdpParser extends UdpParserBase implements DispatchableUdpParser {
 
+    private final ValueConversionService conversionService;
+
     private final Netflow9FlowBuilder flowBuilder;
 
     public Netflow9UdpParser(final String name,
@@ -45,6 +47,7 @@ public class Netflow9UdpParser extends UdpParserBase implements DispatchableUdpP
                              final MetricRegistry metricRegistry,
                              final ValueConversionService valueConversionService) {
         super(Protocol.NETFLOW9, name, dispatcher, identity, metricRegistry);
+        this.conversionService = valueConversionService;
         this.flowBuilder = new Netflow9FlowBuilder(valueConversionService);
     }
 
@@ -52,7 +55,7 @@ public class Netflow9UdpParser extends UdpParserBase implements DispatchableUdpP
     protected FlowPacket parse(final Session session,
                                final ByteBuf buffer) throws Exception {
         final Header header = new Header(slice(buffer, Header.SIZE));
-        final Packet packet = new Packet(session, header, buffer);
+        final Packet packet = new Packet(session, header, buffer, this.conversionService);
         // The same identity the option tap keys sampler rates by, so a rate learned from this
         // exporter's options table is found again here.
         final ExporterIdentity exporter =
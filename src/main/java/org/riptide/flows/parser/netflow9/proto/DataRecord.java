@@ -15,6 +15,7 @@ import java.util.Objects;
 import org.riptide.flows.parser.exceptions.InvalidPacketException;
 import org.riptide.flows.parser.exceptions.MissingTemplateException;
 import org.riptide.flows.parser.ie.Value;
+import org.riptide.flows.parser.ie.values.CompiledTemplate;
 import org.riptide.flows.parser.session.Field;
 import org.riptide.flows.parser.session.Session;
 import org.riptide.flows.parser.session.Template;
@@ -45,6 +46,24 @@ public final class DataRecord implements Record {
     public final List<Value<?>> fields;
     public final List<Value<?>> options;
 
+    /**
+     * The record decoded straight into the parser's raw flow by its {@link CompiledTemplate}, with
+     * {@link #scopes}, {@link #fields} and {@link #options} left empty; {@code null} on the generic
+     * path, where those carry the values instead.
+     */
+    public final Object flow;
+
+    public DataRecord(final DataSet set,
+                      final Template template,
+                      final Object flow) {
+        this.set = Objects.requireNonNull(set);
+        this.template = Objects.requireNonNull(template);
+        this.flow = Objects.requireNonNull(flow);
+        this.scopes = List.of();
+        this.fields = List.of();
+        this.options = List.of();
+    }
+
     public DataRecord(final DataSet set,
                       final Session.Resolver resolver,
                       final Template template,
@@ -68,6 +87,7 @@ public final class DataRecord implements Record {
 
         // Expand the data record by appending values from
         this.options = resolver.lookupOptions(ScopeFieldSpecifier.buildScopeValues(this));
+        this.flow = null;
     }
 
     @Override
@@ -76,6 +96,7 @@ public final class DataRecord implements Record {
                 .add("scopes", this.scopes)
                 .add("fields", this.fields)
                 .add("options", this.options)
+                .add("flow", this.flow)
                 .toString();
     }
 
@@ -13,6 +13,9 @@ import java.util.Objects;
 
 import org.riptide.flows.parser.exceptions.InvalidPacketException;
 import org.riptide.flows.parser.exceptions.MissingTemplateException;
+import org.riptide.flows.parser.ie.Value;
+import org.riptide.flows.parser.ie.values.CompiledTemplate;
+import org.riptide.flows.parser.ie.values.ValueConversionService;
 import org.riptide.flows.parser.session.Template;
 import org.riptide.flows.parser.session.Session;
 
@@ -31,6 +34,19 @@ public final class DataSet extends FlowSet<DataRecord> {
                    final FlowSetHeader header,
                    final Session.Resolver resolver,
                    final ByteBuf buffer) throws InvalidPacketException, MissingTemplateException {
+        this(packet, header, resolver, buffer, null);
+    }
+
+    /**
+     * With a conversion service, the records of a data template are decoded straight into its raw
+     * flow by the template's {@link CompiledTemplate} (see {@link DataRecord#flow}). Options data
+     * sets keep their values: they feed the session, not a flow.
+     */
+    public DataSet(final Packet packet,
+                   final FlowSetHeader header,
+                   final Session.Resolver resolver,
+                   final ByteBuf buffer,
+                   final ValueConversionService conversionService) throws InvalidPacketException, MissingTemplateException {
         super(packet, header);
 
         this.resolver = Objects.requireNonNull(resolver);
@@ -48,8 +64,19 @@ public final class DataSet extends FlowSet<DataRecord> {
         }
 
         final List<DataRecord> parsedRecords = new ArrayList<>();
-        while (buffer.isReadable(minimumRecordLength)) {
-            parsedRecords.add(new DataRecord(this, resolver, template, buffer));
+        if (conversionService != null && this.template.type == Template.Type.TEMPLATE) {
+            final CompiledTemplate compiled = conversionService.compile(this.template);
+            // NetFlow v9 options are scoped on the exporter and template only, never on a field, so
+            // every record of the set carries the same ones: look them up once, not per record.
+            final List<Value<?>> options = resolver.lookupOptions(ScopeFieldSpecifier.buildScopeValues(this));
+            // NetFlow v9 fields are all fixed-length, so every set decodes in one pass
+            for (final Object flow : compiled.decodeAll(resolver, buffer, options)) {
+                parsedRecords.add(new DataRecord(this, this.template, flow));
+            }
+        } else {
+            while (buffer.isReadable(minimumRecordLength)) {
+                parsedRecords.add(new DataRecord(this, resolver, template, buffer));
+            }
         }
 
         if (parsedRecords.size() == 0) {
@@ -45,11 +45,13 @@ public final class FieldSpecifier implements Field {
         this.fieldType = uint16(buffer);
         this.fieldLength = uint16(buffer);
 
-        this.informationElement = InformationElementDatabase.instance
-                .lookup(Protocol.NETFLOW9, this.fieldType).orElseGet(() -> {
-                    LOG.warn("Undeclared field type: {}", UndeclaredValue.nameFor(null, this.fieldType));
-                    return UndeclaredValue.parser(this.fieldType);
-                });
+        final InformationElement element = InformationElementDatabase.instance.find(Protocol.NETFLOW9, this.fieldType);
+        if (element != null) {
+            this.informationElement = element;
+        } else {
+            LOG.warn("Undeclared field type: {}", UndeclaredValue.nameFor(null, this.fieldType));
+            this.informationElement = UndeclaredValue.parser(this.fieldType);
+        }
 
         if (this.fieldLength > this.informationElement.getMaximumFieldLength() || this.fieldLength < this.informationElement.getMinimumFieldLength()) {
             throw new InvalidPacketException(buffer, "Template field '%s' has illegal size: %d (min=%d, max=%d)",
@@ -70,6 +72,11 @@ public final class FieldSpecifier implements Field {
         return this.fieldLength;
     }
 
+    @Override
+    public InformationElement informationElement() {
+        return this.informationElement;
+    }
+
     @Override
     public String toString() {
         return MoreObjects.toStringHelper(this)
@@ -7,6 +7,7 @@ package org.riptide.flows.parser.session;
 
 import org.riptide.flows.parser.exceptions.InvalidPacketException;
 import org.riptide.flows.parser.exceptions.MissingTemplateException;
+import org.riptide.flows.parser.ie.InformationElement;
 import org.riptide.flows.parser.ie.Value;
 
 import io.netty.buffer.ByteBuf;
@@ -15,4 +16,17 @@ public interface Field {
     int length();
 
     Value<?> parse(Session.Resolver resolver, ByteBuf buffer) throws InvalidPacketException, MissingTemplateException;
+
+    /**
+     * The element this field carries, for a template compiled ahead of its records; {@code null}
+     * when unknown, which leaves the field on the generic {@link #parse} path.
+     */
+    default InformationElement informationElement() {
+        return null;
+    }
+
+    /** Whether each record prefixes this field with its own length (IPFIX, RFC 7011 §7) rather than using {@link #length()}. */
+    default boolean isVariableLength() {
+        return false;
+    }
 }
@@ -12,12 +12,23 @@ import org.riptide.pipeline.ExporterIdentity;
 import java.net.InetAddress;
 import java.util.Collection;
 import java.util.List;
+import java.util.Set;
 
 public interface Session {
 
     interface Resolver {
         Template lookupTemplate(int templateId) throws MissingTemplateException;
         List<Value<?>> lookupOptions(List<Value<?>> values);
+
+        /**
+         * The scope names {@link #lookupOptions} can currently match on, for a decoder that parses
+         * fields on demand: it then parses only the fields named here, and none for an empty set —
+         * which therefore means no options are recorded at all. {@code null} means every field must
+         * be passed, which the default answers because it is always correct.
+         */
+        default Set<String> optionScopeNames() {
+            return null;
+        }
     }
 
     void addTemplate(long observationDomainId, Template template);
@@ -75,6 +75,21 @@ public class TcpSession implements Session {
 
             return new ArrayList<>(options.values());
         }
+
+        @Override
+        public Set<String> optionScopeNames() {
+            final Set<String> names = new HashSet<>();
+            for (final Map.Entry<TemplateKey, Map<Set<Value<?>>, List<Value<?>>>> e : Iterables.filter(TcpSession.this.options.entrySet(),
+                                                                                               e -> e.getKey().observationDomainId == this.observationDomainId)) {
+                final Template template = TcpSession.this.templates.get(e.getKey());
+                // unknown, or matching every record: let lookupOptions see every field, as before
+                if (template == null || template.scopes.isEmpty()) {
+                    return null;
+                }
+                template.scopes.forEach(scope -> names.add(scope.getName()));
+            }
+            return names;
+        }
     }
 
     private static final class TemplateKey {
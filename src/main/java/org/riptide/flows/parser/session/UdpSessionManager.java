@@ -526,6 +526,27 @@ public class UdpSessionManager {
 
                 return new ArrayList<>(options.values());
             }
+
+            /**
+             * Walks the same templates as {@link #lookupOptions}, once per data set instead of once
+             * per record. A zero-scope options template holding options matches every record, so it
+             * answers {@code null}: the lookup must then run for every record, as it always did.
+             */
+            @Override
+            public Set<String> optionScopeNames() {
+                final Set<String> names = new HashSet<>();
+                for (final var wrapper : ownTemplates().values()) {
+                    if (wrapper.wrapped.options.isEmpty()) {
+                        continue;
+                    }
+                    final Set<String> scopeNames = wrapper.wrapped.template.scopeNames;
+                    if (scopeNames.isEmpty()) {
+                        return null;
+                    }
+                    names.addAll(scopeNames);
+                }
+                return names;
+            }
         }
     }
 }
@@ -6,11 +6,13 @@
 package org.riptide.flows.parser.sflow;
 
 import org.riptide.flows.parser.data.Flow;
+import org.riptide.flows.parser.data.FlowRecord;
+import org.riptide.flows.parser.data.Optionals;
+import org.riptide.flows.parser.data.ResolvedRate;
 import org.riptide.flows.parser.sflow.proto.Datagram;
 import org.riptide.flows.parser.sflow.proto.FlowSample;
 import org.riptide.flows.parser.sflow.proto.PacketInfo;
 
-import java.net.InetAddress;
 import java.time.Instant;
 
 /**
@@ -30,178 +32,62 @@ public final class SflowFlowBuilder {
                                  final FlowSample sample) {
         final PacketInfo packet = sample.packet() != null ? sample.packet() : new PacketInfo();
 
-        return new Flow() {
-            @Override
-            public Instant getReceivedAt() {
-                return receivedAt;
-            }
-
-            @Override
-            public Instant getTimestamp() {
-                return receivedAt;
-            }
-
-            @Override
-            public FlowProtocol getFlowProtocol() {
-                return FlowProtocol.SFLOW;
-            }
-
-            @Override
-            public int getFlowRecords() {
-                return datagram.samples.size();
-            }
-
-            @Override
-            public long getFlowSeqNum() {
-                return sample.sequence;
-            }
-
-            @Override
-            public Instant getFirstSwitched() {
-                return receivedAt;
-            }
-
-            @Override
-            public Instant getLastSwitched() {
-                return receivedAt;
-            }
-
-            @Override
-            public int getInputSnmp() {
-                return sample.input.ifIndex();
-            }
-
-            @Override
-            public int getOutputSnmp() {
-                return sample.output.ifIndex();
-            }
-
-            @Override
-            public long getSrcAs() {
-                return sample.extendedGateway() != null ? sample.extendedGateway().srcAs() : 0;
-            }
-
-            @Override
-            public InetAddress getSrcAddr() {
-                return packet.srcAddr;
-            }
-
-            @Override
-            public int getSrcMaskLen() {
-                return sample.extendedRouter() != null ? sample.extendedRouter().srcMaskLen() : 0;
-            }
-
-            @Override
-            public int getSrcPort() {
-                return packet.srcPort != null ? packet.srcPort : 0;
-            }
-
-            @Override
-            public long getDstAs() {
-                return sample.extendedGateway() != null ? sample.extendedGateway().dstAs() : 0;
-            }
-
-            @Override
-            public InetAddress getDstAddr() {
-                return packet.dstAddr;
-            }
-
-            @Override
-            public int getDstMaskLen() {
-                return sample.extendedRouter() != null ? sample.extendedRouter().dstMaskLen() : 0;
-            }
-
-            @Override
-            public int getDstPort() {
-                return packet.dstPort != null ? packet.dstPort : 0;
-            }
-
-            @Override
-            public InetAddress getNextHop() {
-                if (sample.extendedRouter() != null) {
-                    return sample.extendedRouter().nextHop();
-                }
-                return sample.extendedGateway() != null ? sample.extendedGateway().nextHop() : null;
-            }
-
-            @Override
-            public long getBytes() {
-                return sample.frameLength() != null ? sample.frameLength() * sample.samplingRate : 0;
-            }
-
-            @Override
-            public long getPackets() {
-                return sample.samplingRate;
-            }
-
-            @Override
-            public Direction getDirection() {
-                return Direction.UNKNOWN;
-            }
-
-            @Override
-            public int getEngineId() {
-                // sub_agent_id is a full uint32; clamp instead of casting negative —
-                // the persisted engineId column rejects out-of-range values batch-wide
-                return (int) Math.min(datagram.subAgentId, Integer.MAX_VALUE);
-            }
-
-            @Override
-            public int getEngineType() {
-                return 0;
-            }
-
-            @Override
-            public int getVlan() {
-                if (sample.extendedSwitch() != null) {
-                    return sample.extendedSwitch().srcVlan();
-                }
-                return packet.vlan != null ? packet.vlan : 0;
-            }
-
-            @Override
-            public int getIpProtocolVersion() {
-                return packet.ipVersion != null ? packet.ipVersion : 0;
-            }
-
-            @Override
-            public int getProtocol() {
-                return packet.protocol != null ? packet.protocol : 0;
-            }
-
-            @Override
-            public int getTcpFlags() {
-                return packet.tcpFlags != null ? packet.tcpFlags : 0;
-            }
-
-            @Override
-            public int getTos() {
-                return packet.tos != null ? packet.tos : 0;
-            }
-
-            @Override
-            public SamplingAlgorithm getSamplingAlgorithm() {
-                return SamplingAlgorithm.RandomNOutOfNSampling;
-            }
-
-            @Override
-            public double getSamplingInterval() {
-                return sample.samplingRate;
-            }
-
-            /*
-             * Always on the sample: sFlow carries the rate by construction, so there is no ladder
-             * here and no rung below this one.
-             *
-             * <p>Note what this provenance does <em>not</em> say. sFlow counters are already
-             * scaled at ingest ({@code bytes = frameLength × samplingRate}), so multiplying an
-             * sFlow row by its interval double-counts it. That is a property of the protocol, not
-             * of the rung, and {@code flowProtocol} is what distinguishes it.
-             */
-            @Override
-            public SamplingProvenance getSamplingProvenance() {
-                return SamplingProvenance.Record;
-            }
-        };
+        final var flow = new FlowRecord();
+        flow.setReceivedAt(receivedAt);
+        flow.setTimestamp(receivedAt);
+        flow.setFlowProtocol(Flow.FlowProtocol.SFLOW);
+        flow.setFlowRecords(datagram.samples.size());
+        flow.setFlowSeqNum(sample.sequence);
+        flow.setFirstSwitched(receivedAt);
+        flow.setLastSwitched(receivedAt);
+        flow.setInputSnmp(sample.input.ifIndex());
+        flow.setOutputSnmp(sample.output.ifIndex());
+
+        if (sample.extendedGateway() != null) {
+            flow.setSrcAs(sample.extendedGateway().srcAs());
+            flow.setDstAs(sample.extendedGateway().dstAs());
+            flow.setNextHop(sample.extendedGateway().nextHop());
+        }
+        // The router's next hop wins over the gateway's when a sample carries both.
+        if (sample.extendedRouter() != null) {
+            flow.setSrcMaskLen(sample.extendedRouter().srcMaskLen());
+            flow.setDstMaskLen(sample.extendedRouter().dstMaskLen());
+            flow.setNextHop(sample.extendedRouter().nextHop());
+        }
+
+        flow.setSrcAddr(packet.srcAddr);
+        flow.setSrcPort(Optionals.orZero(packet.srcPort));
+        flow.setDstAddr(packet.dstAddr);
+        flow.setDstPort(Optionals.orZero(packet.dstPort));
+
+        flow.setBytes(sample.frameLength() != null ? sample.frameLength() * sample.samplingRate : 0);
+        flow.setPackets(sample.samplingRate);
+        flow.setDirection(Flow.Direction.UNKNOWN);
+
+        // sub_agent_id is a full uint32; clamp instead of casting negative —
+        // the persisted engineId column rejects out-of-range values batch-wide
+        flow.setEngineId((int) Math.min(datagram.subAgentId, Integer.MAX_VALUE));
+        flow.setEngineType(0);
+
+        flow.setVlan(sample.extendedSwitch() != null
+                ? sample.extendedSwitch().srcVlan()
+                : Optionals.orZero(packet.vlan));
+        flow.setIpProtocolVersion(Optionals.orZero(packet.ipVersion));
+        flow.setProtocol(Optionals.orZero(packet.protocol));
+        flow.setTcpFlags(Optionals.orZero(packet.tcpFlags));
+        flow.setTos(Optionals.orZero(packet.tos));
+
+        flow.setSamplingAlgorithm(Flow.SamplingAlgorithm.RandomNOutOfNSampling);
+        /*
+         * Always on the sample: sFlow carries the rate by construction, so there is no ladder
+         * here and no rung below this one.
+         *
+         * <p>Note what this provenance does <em>not</em> say. sFlow counters are already
+         * scaled at ingest ({@code bytes = frameLength × samplingRate}), so multiplying an
+         * sFlow row by its interval double-counts it. That is a property of the protocol, not
+         * of the rung, and {@code flowProtocol} is what distinguishes it.
+         */
+        flow.setSamplingRate(ResolvedRate.of(sample.samplingRate, Flow.SamplingProvenance.Record));
+        return flow;
     }
 }
@@ -46,6 +46,14 @@ public final class BufferUtils {
     }
 
     public static UnsignedLong uint(final ByteBuf buffer, final int octets) {
+        return UnsignedLong.fromLongBits(ulong(buffer, octets));
+    }
+
+    /**
+     * {@link #uint} without the {@link UnsignedLong}: the bits of the unsigned value, which read
+     * negative above {@code Long.MAX_VALUE}. For callers that keep the value primitive.
+     */
+    public static long ulong(final ByteBuf buffer, final int octets) {
         Preconditions.checkArgument(0 <= octets && octets <= 8);
 
         long result = 0;
@@ -54,10 +62,10 @@ public final class BufferUtils {
             result = (result << 8L) | (buffer.readUnsignedByte() & 0xFFL);
         }
 
-        return UnsignedLong.fromLongBits(result);
+        return result;
     }
 
-    public static Long sint(final ByteBuf buffer, final int octets) {
+    public static long sint(final ByteBuf buffer, final int octets) {
         Preconditions.checkArgument(0 <= octets && octets <= 8);
 
         long result = buffer.readUnsignedByte() & 0xFFL;
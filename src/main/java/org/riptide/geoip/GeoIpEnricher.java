@@ -8,7 +8,6 @@ package org.riptide.geoip;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.riptide.pipeline.EnrichedFlow;
 import org.riptide.pipeline.Enricher;
 import org.riptide.pipeline.EnricherOrder;
 import org.riptide.pipeline.Source;
@@ -19,13 +18,13 @@ import org.springframework.stereotype.Component;
 import java.net.InetAddress;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
-import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+import java.util.function.LongSupplier;
 import java.util.function.Supplier;
 
 /**
@@ -40,7 +39,7 @@ import java.util.function.Supplier;
 @ConditionalOnProperty(name = "riptide.enricher.geoip.enabled", havingValue = "true", matchIfMissing = true)
 @Slf4j
 @RequiredArgsConstructor
-public class GeoIpEnricher extends Enricher.Single {
+public class GeoIpEnricher extends Enricher.Synchronous {
 
     /** Delay before closing a replaced snapshot's readers — lets in-flight lookups drain. */
     private static final long CLOSE_DELAY_SECONDS = 30;
@@ -134,20 +133,23 @@ public class GeoIpEnricher extends Enricher.Single {
     }
 
     @Override
-    protected CompletableFuture<Void> enrich(final Source source, final EnrichedFlow flow) {
+    protected Step prepare(final Source source) {
+        // One snapshot for the whole batch: a reload mid-batch applies from the next one.
         final GeoIpSnapshot snap = this.snapshot;
-        if (!snap.isEmpty()) {
+        if (snap.isEmpty()) {
+            return null;
+        }
+        return flow -> {
             enrichSide(snap, flow.getSrcAddr(), flow::setSrcCountry, flow::setSrcCity,
                     flow::getSrcAs, flow::setSrcAs, flow::getSrcAsOrg, flow::setSrcAsOrg);
             enrichSide(snap, flow.getDstAddr(), flow::setDstCountry, flow::setDstCity,
                     flow::getDstAs, flow::setDstAs, flow::getDstAsOrg, flow::setDstAsOrg);
-        }
-        return CompletableFuture.completedFuture(null);
+        };
     }
 
     private void enrichSide(final GeoIpSnapshot snap, final InetAddress address,
                             final Consumer<String> setCountry, final Consumer<String> setCity,
-                            final Supplier<Long> getAs, final Consumer<Long> setAs,
+                            final LongSupplier getAs, final LongConsumer setAs,
                             final Supplier<String> getOrg, final Consumer<String> setOrg) {
         if (address == null) {
             return;
@@ -165,11 +167,13 @@ public class GeoIpEnricher extends Enricher.Single {
         // AS data is the ladder's lowest rung: fill only zeros/absent, and only name an AS
         // number that actually is the GeoIP one — never label an exporter- or routing-provided
         // number with a GeoIP org.
-        final Long current = getAs.get();
-        if ((current == null || current == 0) && info.asn() != null) {
+        if (info.asn() == null) {
+            return;
+        }
+        if (getAs.getAsLong() == 0) {
             setAs.accept(info.asn());
         }
-        if (getOrg.get() == null && info.asOrg() != null && Objects.equals(getAs.get(), info.asn())) {
+        if (getOrg.get() == null && info.asOrg() != null && getAs.getAsLong() == info.asn()) {
             setOrg.accept(info.asOrg());
         }
     }
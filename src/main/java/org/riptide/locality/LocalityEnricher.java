@@ -13,14 +13,17 @@ import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Component;
 
 import java.net.InetAddress;
-import java.util.concurrent.CompletableFuture;
 
 @Component
 @Order(org.riptide.pipeline.EnricherOrder.LOCALITY)
-public class LocalityEnricher extends Enricher.Single {
+public class LocalityEnricher extends Enricher.Synchronous {
 
     @Override
-    protected CompletableFuture<Void> enrich(final Source source, final EnrichedFlow flow) {
+    protected Step prepare(final Source source) {
+        return LocalityEnricher::enrich;
+    }
+
+    private static void enrich(final EnrichedFlow flow) {
         if (flow.getSrcAddr() != null) {
             flow.setSrcLocality(isPrivateAddress(flow.getSrcAddr())
                     ? Flow.Locality.PRIVATE
@@ -38,8 +41,6 @@ public class LocalityEnricher extends Enricher.Single {
         } else if (Flow.Locality.PRIVATE.equals(flow.getDstLocality()) || Flow.Locality.PRIVATE.equals(flow.getSrcLocality())) {
             flow.setFlowLocality(Flow.Locality.PRIVATE);
         }
-
-        return CompletableFuture.completedFuture(null);
     }
 
     private static boolean isPrivateAddress(final InetAddress inetAddress) {
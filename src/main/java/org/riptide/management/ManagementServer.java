@@ -11,12 +11,16 @@ import com.sun.net.httpserver.HttpServer;
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.riptide.flows.Daemon;
+import org.riptide.flows.parser.DispatchScheduler;
 import org.riptide.utils.HttpServerConfig;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
 import java.io.OutputStream;
 import java.net.InetSocketAddress;
+import java.net.URLDecoder;
 import java.nio.charset.StandardCharsets;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -27,7 +31,7 @@ import java.util.function.Supplier;
 /**
  * A minimal HTTP server (JDK {@link HttpServer}, no web application server) exposing {@code /livez}
  * and {@code /readyz} on the management port for Kubernetes probes and Docker Compose health checks,
- * and {@code /metrics} in Prometheus text format.
+ * {@code /metrics} in Prometheus text format, and {@code /dispatch} for the shared dispatch pool.
  */
 @Slf4j
 @Component
@@ -45,6 +49,7 @@ public class ManagementServer {
     private final RiptideManagementProperties properties;
     private final HealthService health;
     private final MetricRegistry metrics;
+    private final DispatchScheduler dispatchScheduler;
 
     private HttpServer server;
     private ExecutorService executor;
@@ -52,9 +57,22 @@ public class ManagementServer {
 
     public ManagementServer(final RiptideManagementProperties properties, final HealthService health,
                             final MetricRegistry metrics) {
+        this(properties, health, metrics, (DispatchScheduler) null);
+    }
+
+    @Autowired
+    public ManagementServer(final RiptideManagementProperties properties, final HealthService health,
+                            final MetricRegistry metrics, final Daemon daemon) {
+        this(properties, health, metrics, daemon.getDispatchScheduler());
+    }
+
+    /** {@code dispatchScheduler} null serves no {@code /dispatch}. */
+    ManagementServer(final RiptideManagementProperties properties, final HealthService health,
+                     final MetricRegistry metrics, final DispatchScheduler dispatchScheduler) {
         this.properties = properties;
         this.health = health;
         this.metrics = metrics;
+        this.dispatchScheduler = dispatchScheduler;
     }
 
     @PostConstruct
@@ -80,11 +98,15 @@ public class ManagementServer {
         if (this.properties.isMetricsEnabled()) {
             this.server.createContext("/metrics", this::metrics);
         }
+        if (this.dispatchScheduler != null) {
+            this.server.createContext("/dispatch", this::dispatch);
+        }
         this.server.start();
 
-        log.info("Management server listening on {}:{} (/livez, /readyz{})",
+        log.info("Management server listening on {}:{} (/livez, /readyz{}{})",
                 this.properties.getBindAddress(), getPort(),
-                this.properties.isMetricsEnabled() ? ", /metrics" : "");
+                this.properties.isMetricsEnabled() ? ", /metrics" : "",
+                this.dispatchScheduler != null ? ", /dispatch" : "");
     }
 
     /**
@@ -177,6 +199,76 @@ public class ManagementServer {
         }
     }
 
+    /**
+     * The shared dispatch pool: {@code GET} reports its size and each receiver's lane, {@code POST}
+     * with {@code threads=N} resizes it when {@code dispatch-resize-enabled} allows. Under the same
+     * concurrency cap as the other handlers.
+     */
+    private void dispatch(final HttpExchange exchange) throws IOException {
+        if (!this.inFlight.tryAcquire()) {
+            respond(exchange, 503, "text/plain; charset=utf-8", "management server busy\n");
+            return;
+        }
+        try {
+            switch (exchange.getRequestMethod()) {
+                case "GET" -> respond(exchange, 200, "text/plain; charset=utf-8", dispatchState());
+                case "POST" -> resize(exchange);
+                default -> {
+                    exchange.getResponseHeaders().set("Allow", "GET, POST");
+                    respond(exchange, 405, "text/plain; charset=utf-8", "method not allowed\n");
+                }
+            }
+        } finally {
+            this.inFlight.release();
+        }
+    }
+
+    private void resize(final HttpExchange exchange) throws IOException {
+        if (!this.properties.isDispatchResizeEnabled()) {
+            respond(exchange, 403, "text/plain; charset=utf-8",
+                    "resizing is disabled (riptide.management.dispatch-resize-enabled=false)\n");
+            return;
+        }
+        final String threads = queryParameter(exchange, "threads");
+        try {
+            this.dispatchScheduler.resize(Integer.parseInt(threads != null ? threads : ""));
+        } catch (final IllegalArgumentException e) {
+            // NumberFormatException included: a missing or malformed count is the caller's error.
+            respond(exchange, 400, "text/plain; charset=utf-8",
+                    "expected threads=1.." + DispatchScheduler.MAX_THREADS + " (got " + threads + ")\n");
+            return;
+        }
+        respond(exchange, 200, "text/plain; charset=utf-8", dispatchState());
+    }
+
+    private String dispatchState() {
+        final StringBuilder body = new StringBuilder()
+                .append("threads ").append(this.dispatchScheduler.getThreads()).append('\n');
+        for (final var lane : this.dispatchScheduler.lanes()) {
+            body.append("lane ").append(lane.name())
+                    .append(" weight=").append(lane.weight())
+                    .append(" capacity=").append(lane.capacity())
+                    .append(" depth=").append(lane.depth())
+                    .append(" running=").append(lane.running())
+                    .append('\n');
+        }
+        return body.toString();
+    }
+
+    private static String queryParameter(final HttpExchange exchange, final String name) {
+        final String query = exchange.getRequestURI().getRawQuery();
+        if (query == null) {
+            return null;
+        }
+        for (final String pair : query.split("&")) {
+            final int eq = pair.indexOf('=');
+            if (eq > 0 && pair.substring(0, eq).equals(name)) {
+                return URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+            }
+        }
+        return null;
+    }
+
     private static void respond(final HttpExchange exchange, final Health health) throws IOException {
         respond(exchange, health.up() ? 200 : 503, "text/plain; charset=utf-8",
                 (health.up() ? "ok" : "unavailable") + ": " + health.detail() + "\n");
@@ -28,6 +28,15 @@ public class RiptideManagementProperties {
      */
     private boolean metricsEnabled = true;
 
+    /**
+     * Accept {@code POST /dispatch?threads=N}, which resizes the dispatch pool shared by the
+     * receivers configured with {@code dispatch=shared}. {@code GET /dispatch} is always served.
+     *
+     * <p>Off by default because this port has no authentication and listens on all interfaces:
+     * reading the pool's state is as harmless as a probe, changing it is not.
+     */
+    private boolean dispatchResizeEnabled = false;
+
     /** Management HTTP port. */
     private int port = 8080;
 
@@ -8,15 +8,12 @@ package org.riptide.node;
 import lombok.NonNull;
 import org.riptide.inventory.Inventory;
 import lombok.RequiredArgsConstructor;
-import org.riptide.pipeline.EnrichedFlow;
 import org.riptide.pipeline.Enricher;
 import org.riptide.pipeline.EnricherOrder;
 import org.riptide.pipeline.Source;
 import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Component;
 
-import java.util.List;
-import java.util.concurrent.CompletableFuture;
 
 /**
  * Stamps the matched node's name onto every flow as {@code exporterName}: the
@@ -30,17 +27,17 @@ import java.util.concurrent.CompletableFuture;
 @Component
 @Order(EnricherOrder.EXPORTER_NAME)
 @RequiredArgsConstructor
-public class ExporterNameEnricher implements Enricher {
+public class ExporterNameEnricher extends Enricher.Synchronous {
 
     @NonNull
     private final Inventory inventory;
 
     @Override
-    public CompletableFuture<Void> enrich(final Source source, final List<EnrichedFlow> flows) {
+    protected Step prepare(final Source source) {
         // captured once for the batch: a per-flow snapshot() read would straddle a
         // reload inside one batch, which is the split view AD-3 exists to prevent
-        this.inventory.snapshot().exporterView().match(source.identity())
-                .ifPresent(entry -> flows.forEach(flow -> flow.setExporterName(entry.name())));
-        return CompletableFuture.completedFuture(null);
+        return this.inventory.snapshot().exporterView().match(source.identity())
+                .map(entry -> (Step) flow -> flow.setExporterName(entry.name()))
+                .orElse(null);
     }
 }
@@ -5,63 +5,34 @@
 
 package org.riptide.pipeline;
 
-import lombok.Builder;
-import lombok.Data;
-import org.mapstruct.Mapper;
-import org.mapstruct.Mapping;
-import org.mapstruct.NullValueCheckStrategy;
+import lombok.AccessLevel;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
 import org.riptide.flows.parser.data.Flow;
-import org.riptide.flows.parser.data.Flow.Direction;
-import org.riptide.flows.parser.data.Flow.FlowProtocol;
-import org.riptide.flows.parser.data.Flow.Locality;
-import org.riptide.flows.parser.data.Flow.SamplingAlgorithm;
-import org.riptide.flows.parser.data.Flow.SamplingProvenance;
+import org.riptide.flows.parser.data.FlowRecord;
 
 import java.net.InetAddress;
 import java.time.Duration;
 import java.time.Instant;
 
-
-@Data
-@Builder
-public class EnrichedFlow {
-    private Instant receivedAt;
-    private Instant timestamp;
-    private Long bytes;
-    private Direction direction;
-    private InetAddress dstAddr;
-    private String dstAddrHostname;
-    private Long dstAs;
-    private String dstAsOrg;
-    private Integer dstMaskLen;
-    private Integer dstPort;
-    private Integer engineId;
-    private Integer engineType;
-    private Instant deltaSwitched;
-    private Instant firstSwitched;
-    private int flowRecords;
-    private long flowSeqNum;
-    private Integer inputSnmp;
-    private Integer ipProtocolVersion;
-    private Instant lastSwitched;
-    private InetAddress nextHop;
-    private String nextHopHostname;
-    private Integer outputSnmp;
-    private Long packets;
-    private Integer protocol;
-    private SamplingAlgorithm samplingAlgorithm;
-    private Double samplingInterval;
-    private SamplingProvenance samplingProvenance;
-    private InetAddress srcAddr;
-    private String srcAddrHostname;
-    private Long srcAs;
-    private String srcAsOrg;
-    private Integer srcMaskLen;
-    private Integer srcPort;
-    private Integer tcpFlags;
-    private Integer tos;
-    private FlowProtocol flowProtocol;
-    private Integer vlan;
+/**
+ * A flow on its way through the enrichers: the {@link FlowRecord} the parser filled, and the
+ * fields the enrichers add next to it.
+ *
+ * <p>The record is not copied. The pipeline used to map every flow, getter by getter, into a bean
+ * of its own whose counters, ports and interfaces were boxed again on the way; now the flow fields
+ * are read from and written to the parser's record, as the primitives it holds them in. Only the
+ * enrichment — the source's identity, names, localities, interface details, geo data — lives here.
+ */
+@Getter
+@Setter
+@EqualsAndHashCode
+@ToString
+public class EnrichedFlow implements Flow {
+    @Getter(AccessLevel.NONE)
+    private final FlowRecord flow;
 
     private String application;
     private String exporterAddr;
@@ -79,55 +50,676 @@ public class EnrichedFlow {
     private String outputSnmpIfName;
     private String outputSnmpIfAlias;
     private Long outputSnmpIfSpeed;
+    private String srcAddrHostname;
+    private String srcAsOrg;
+    private String dstAddrHostname;
+    private String dstAsOrg;
+    private String nextHopHostname;
     private String srcCountry;
     private String srcCity;
     private String dstCountry;
     private String dstCity;
     private String exporterName;
 
-    public Integer getDscp() {
-        return getTos() != null ? getTos() >>> 2 : null;
-    }
-
-    public Integer getEcn() {
-        return getTos() != null ? getTos() & 0x03 : null;
-    }
-
-    @Mapper(nullValueCheckStrategy = NullValueCheckStrategy.ALWAYS,
-            componentModel = "spring")
-    public abstract static class FlowMapper {
-        @Mapping(target = "application", ignore = true)
-        @Mapping(target = "srcLocality", ignore = true)
-        @Mapping(target = "dstLocality", ignore = true)
-        @Mapping(target = "flowLocality", ignore = true)
-        @Mapping(target = "clockCorrection", ignore = true)
-        @Mapping(target = "inputSnmpIfName", ignore = true)
-        @Mapping(target = "inputSnmpIfAlias", ignore = true)
-        @Mapping(target = "inputSnmpIfSpeed", ignore = true)
-        @Mapping(target = "outputSnmpIfName", ignore = true)
-        @Mapping(target = "outputSnmpIfAlias", ignore = true)
-        @Mapping(target = "outputSnmpIfSpeed", ignore = true)
-        @Mapping(target = "srcAsOrg", ignore = true)
-        @Mapping(target = "dstAsOrg", ignore = true)
-        @Mapping(target = "srcAddrHostname", ignore = true)
-        @Mapping(target = "dstAddrHostname", ignore = true)
-        @Mapping(target = "nextHopHostname", ignore = true)
-        @Mapping(target = "srcCountry", ignore = true)
-        @Mapping(target = "srcCity", ignore = true)
-        @Mapping(target = "dstCountry", ignore = true)
-        @Mapping(target = "dstCity", ignore = true)
-        @Mapping(target = "exporterName", ignore = true)
-
-        @Mapping(target = ".", source = "source")
-        @Mapping(target = ".", source = "flow")
-        public abstract EnrichedFlow enrichedFlow(Source source, Flow flow);
-
-        protected String address(final InetAddress address) {
-            if (address == null) {
-                return null;
+    /** {@code flow}, stamped with where it came from; the enrichers fill in the rest. */
+    public EnrichedFlow(final Source source, final FlowRecord flow) {
+        this(flow);
+        final InetAddress exporterAddr = source.getExporterAddr();
+        this.exporterAddr = exporterAddr != null ? exporterAddr.getHostAddress() : null;
+        this.tenant = source.getTenant();
+        this.organisation = source.getOrganisation();
+        this.zone = source.getZone();
+        this.system = source.getSystem();
+    }
+
+    private EnrichedFlow(final FlowRecord flow) {
+        this.flow = flow;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /** A flow equal to this one that shares nothing with it: writing to either leaves the other as it was. */
+    public EnrichedFlow copy() {
+        final var copy = new EnrichedFlow(FlowRecord.copyOf(this.flow));
+        copy.application = this.application;
+        copy.exporterAddr = this.exporterAddr;
+        copy.tenant = this.tenant;
+        copy.organisation = this.organisation;
+        copy.zone = this.zone;
+        copy.system = this.system;
+        copy.srcLocality = this.srcLocality;
+        copy.dstLocality = this.dstLocality;
+        copy.flowLocality = this.flowLocality;
+        copy.clockCorrection = this.clockCorrection;
+        copy.inputSnmpIfName = this.inputSnmpIfName;
+        copy.inputSnmpIfAlias = this.inputSnmpIfAlias;
+        copy.inputSnmpIfSpeed = this.inputSnmpIfSpeed;
+        copy.outputSnmpIfName = this.outputSnmpIfName;
+        copy.outputSnmpIfAlias = this.outputSnmpIfAlias;
+        copy.outputSnmpIfSpeed = this.outputSnmpIfSpeed;
+        copy.srcAddrHostname = this.srcAddrHostname;
+        copy.srcAsOrg = this.srcAsOrg;
+        copy.dstAddrHostname = this.dstAddrHostname;
+        copy.dstAsOrg = this.dstAsOrg;
+        copy.nextHopHostname = this.nextHopHostname;
+        copy.srcCountry = this.srcCountry;
+        copy.srcCity = this.srcCity;
+        copy.dstCountry = this.dstCountry;
+        copy.dstCity = this.dstCity;
+        copy.exporterName = this.exporterName;
+        return copy;
+    }
+
+    public int getDscp() {
+        return this.flow.getTos() >>> 2;
+    }
+
+    public int getEcn() {
+        return this.flow.getTos() & 0x03;
+    }
+
+    @Override
+    public Instant getReceivedAt() {
+        return this.flow.getReceivedAt();
+    }
+
+    public void setReceivedAt(final Instant receivedAt) {
+        this.flow.setReceivedAt(receivedAt);
+    }
+
+    @Override
+    public Instant getTimestamp() {
+        return this.flow.getTimestamp();
+    }
+
+    public void setTimestamp(final Instant timestamp) {
+        this.flow.setTimestamp(timestamp);
+    }
+
+    @Override
+    public FlowProtocol getFlowProtocol() {
+        return this.flow.getFlowProtocol();
+    }
+
+    public void setFlowProtocol(final FlowProtocol flowProtocol) {
+        this.flow.setFlowProtocol(flowProtocol);
+    }
+
+    @Override
+    public int getFlowRecords() {
+        return this.flow.getFlowRecords();
+    }
+
+    public void setFlowRecords(final int flowRecords) {
+        this.flow.setFlowRecords(flowRecords);
+    }
+
+    @Override
+    public long getFlowSeqNum() {
+        return this.flow.getFlowSeqNum();
+    }
+
+    public void setFlowSeqNum(final long flowSeqNum) {
+        this.flow.setFlowSeqNum(flowSeqNum);
+    }
+
+    @Override
+    public Instant getFirstSwitched() {
+        return this.flow.getFirstSwitched();
+    }
+
+    public void setFirstSwitched(final Instant firstSwitched) {
+        this.flow.setFirstSwitched(firstSwitched);
+    }
+
+    @Override
+    public Instant getLastSwitched() {
+        return this.flow.getLastSwitched();
+    }
+
+    public void setLastSwitched(final Instant lastSwitched) {
+        this.flow.setLastSwitched(lastSwitched);
+    }
+
+    @Override
+    public Instant getDeltaSwitched() {
+        return this.flow.getDeltaSwitched();
+    }
+
+    public void setDeltaSwitched(final Instant deltaSwitched) {
+        this.flow.setDeltaSwitched(deltaSwitched);
+    }
+
+    @Override
+    public int getInputSnmp() {
+        return this.flow.getInputSnmp();
+    }
+
+    public void setInputSnmp(final int inputSnmp) {
+        this.flow.setInputSnmp(inputSnmp);
+    }
+
+    @Override
+    public int getOutputSnmp() {
+        return this.flow.getOutputSnmp();
+    }
+
+    public void setOutputSnmp(final int outputSnmp) {
+        this.flow.setOutputSnmp(outputSnmp);
+    }
+
+    @Override
+    public long getSrcAs() {
+        return this.flow.getSrcAs();
+    }
+
+    public void setSrcAs(final long srcAs) {
+        this.flow.setSrcAs(srcAs);
+    }
+
+    @Override
+    public InetAddress getSrcAddr() {
+        return this.flow.getSrcAddr();
+    }
+
+    public void setSrcAddr(final InetAddress srcAddr) {
+        this.flow.setSrcAddr(srcAddr);
+    }
+
+    @Override
+    public int getSrcMaskLen() {
+        return this.flow.getSrcMaskLen();
+    }
+
+    public void setSrcMaskLen(final int srcMaskLen) {
+        this.flow.setSrcMaskLen(srcMaskLen);
+    }
+
+    @Override
+    public int getSrcPort() {
+        return this.flow.getSrcPort();
+    }
+
+    public void setSrcPort(final int srcPort) {
+        this.flow.setSrcPort(srcPort);
+    }
+
+    @Override
+    public long getDstAs() {
+        return this.flow.getDstAs();
+    }
+
+    public void setDstAs(final long dstAs) {
+        this.flow.setDstAs(dstAs);
+    }
+
+    @Override
+    public InetAddress getDstAddr() {
+        return this.flow.getDstAddr();
+    }
+
+    public void setDstAddr(final InetAddress dstAddr) {
+        this.flow.setDstAddr(dstAddr);
+    }
+
+    @Override
+    public int getDstMaskLen() {
+        return this.flow.getDstMaskLen();
+    }
+
+    public void setDstMaskLen(final int dstMaskLen) {
+        this.flow.setDstMaskLen(dstMaskLen);
+    }
+
+    @Override
+    public int getDstPort() {
+        return this.flow.getDstPort();
+    }
+
+    public void setDstPort(final int dstPort) {
+        this.flow.setDstPort(dstPort);
+    }
+
+    @Override
+    public InetAddress getNextHop() {
+        return this.flow.getNextHop();
+    }
+
+    public void setNextHop(final InetAddress nextHop) {
+        this.flow.setNextHop(nextHop);
+    }
+
+    @Override
+    public long getBytes() {
+        return this.flow.getBytes();
+    }
+
+    public void setBytes(final long bytes) {
+        this.flow.setBytes(bytes);
+    }
+
+    @Override
+    public long getPackets() {
+        return this.flow.getPackets();
+    }
+
+    public void setPackets(final long packets) {
+        this.flow.setPackets(packets);
+    }
+
+    @Override
+    public Direction getDirection() {
+        return this.flow.getDirection();
+    }
+
+    public void setDirection(final Direction direction) {
+        this.flow.setDirection(direction);
+    }
+
+    @Override
+    public int getEngineId() {
+        return this.flow.getEngineId();
+    }
+
+    public void setEngineId(final int engineId) {
+        this.flow.setEngineId(engineId);
+    }
+
+    @Override
+    public int getEngineType() {
+        return this.flow.getEngineType();
+    }
+
+    public void setEngineType(final int engineType) {
+        this.flow.setEngineType(engineType);
+    }
+
+    @Override
+    public int getVlan() {
+        return this.flow.getVlan();
+    }
+
+    public void setVlan(final int vlan) {
+        this.flow.setVlan(vlan);
+    }
+
+    @Override
+    public int getIpProtocolVersion() {
+        return this.flow.getIpProtocolVersion();
+    }
+
+    public void setIpProtocolVersion(final int ipProtocolVersion) {
+        this.flow.setIpProtocolVersion(ipProtocolVersion);
+    }
+
+    @Override
+    public int getProtocol() {
+        return this.flow.getProtocol();
+    }
+
+    public void setProtocol(final int protocol) {
+        this.flow.setProtocol(protocol);
+    }
+
+    @Override
+    public int getTcpFlags() {
+        return this.flow.getTcpFlags();
+    }
+
+    public void setTcpFlags(final int tcpFlags) {
+        this.flow.setTcpFlags(tcpFlags);
+    }
+
+    @Override
+    public int getTos() {
+        return this.flow.getTos();
+    }
+
+    public void setTos(final int tos) {
+        this.flow.setTos(tos);
+    }
+
+    @Override
+    public SamplingAlgorithm getSamplingAlgorithm() {
+        return this.flow.getSamplingAlgorithm();
+    }
+
+    public void setSamplingAlgorithm(final SamplingAlgorithm samplingAlgorithm) {
+        this.flow.setSamplingAlgorithm(samplingAlgorithm);
+    }
+
+    @Override
+    public double getSamplingInterval() {
+        return this.flow.getSamplingInterval();
+    }
+
+    public void setSamplingInterval(final double samplingInterval) {
+        this.flow.setSamplingInterval(samplingInterval);
+    }
+
+    @Override
+    public SamplingProvenance getSamplingProvenance() {
+        return this.flow.getSamplingProvenance();
+    }
+
+    public void setSamplingProvenance(final SamplingProvenance samplingProvenance) {
+        this.flow.setSamplingProvenance(samplingProvenance);
+    }
+
+    /**
+     * Builds a flow over a record of its own, for the spill's decoder and for tests. Setting a
+     * field after {@link #build()} starts a new flow from a copy of the one built.
+     */
+    public static final class Builder {
+        private EnrichedFlow flow = new EnrichedFlow(new FlowRecord());
+        private boolean built;
+
+        private Builder() {
+        }
+
+        public EnrichedFlow build() {
+            this.built = true;
+            return this.flow;
+        }
+
+        private EnrichedFlow flow() {
+            if (this.built) {
+                this.flow = this.flow.copy();
+                this.built = false;
             }
+            return this.flow;
+        }
+
+        public Builder receivedAt(final Instant receivedAt) {
+            flow().setReceivedAt(receivedAt);
+            return this;
+        }
+
+        public Builder timestamp(final Instant timestamp) {
+            flow().setTimestamp(timestamp);
+            return this;
+        }
+
+        public Builder flowProtocol(final FlowProtocol flowProtocol) {
+            flow().setFlowProtocol(flowProtocol);
+            return this;
+        }
+
+        public Builder flowRecords(final int flowRecords) {
+            flow().setFlowRecords(flowRecords);
+            return this;
+        }
+
+        public Builder flowSeqNum(final long flowSeqNum) {
+            flow().setFlowSeqNum(flowSeqNum);
+            return this;
+        }
+
+        public Builder firstSwitched(final Instant firstSwitched) {
+            flow().setFirstSwitched(firstSwitched);
+            return this;
+        }
+
+        public Builder lastSwitched(final Instant lastSwitched) {
+            flow().setLastSwitched(lastSwitched);
+            return this;
+        }
+
+        public Builder deltaSwitched(final Instant deltaSwitched) {
+            flow().setDeltaSwitched(deltaSwitched);
+            return this;
+        }
+
+        public Builder inputSnmp(final int inputSnmp) {
+            flow().setInputSnmp(inputSnmp);
+            return this;
+        }
+
+        public Builder outputSnmp(final int outputSnmp) {
+            flow().setOutputSnmp(outputSnmp);
+            return this;
+        }
+
+        public Builder srcAs(final long srcAs) {
+            flow().setSrcAs(srcAs);
+            return this;
+        }
+
+        public Builder srcAddr(final InetAddress srcAddr) {
+            flow().setSrcAddr(srcAddr);
+            return this;
+        }
+
+        public Builder srcMaskLen(final int srcMaskLen) {
+            flow().setSrcMaskLen(srcMaskLen);
+            return this;
+        }
+
+        public Builder srcPort(final int srcPort) {
+            flow().setSrcPort(srcPort);
+            return this;
+        }
+
+        public Builder dstAs(final long dstAs) {
+            flow().setDstAs(dstAs);
+            return this;
+        }
+
+        public Builder dstAddr(final InetAddress dstAddr) {
+            flow().setDstAddr(dstAddr);
+            return this;
+        }
+
+        public Builder dstMaskLen(final int dstMaskLen) {
+            flow().setDstMaskLen(dstMaskLen);
+            return this;
+        }
+
+        public Builder dstPort(final int dstPort) {
+            flow().setDstPort(dstPort);
+            return this;
+        }
+
+        public Builder nextHop(final InetAddress nextHop) {
+            flow().setNextHop(nextHop);
+            return this;
+        }
+
+        public Builder bytes(final long bytes) {
+            flow().setBytes(bytes);
+            return this;
+        }
+
+        public Builder packets(final long packets) {
+            flow().setPackets(packets);
+            return this;
+        }
+
+        public Builder direction(final Direction direction) {
+            flow().setDirection(direction);
+            return this;
+        }
+
+        public Builder engineId(final int engineId) {
+            flow().setEngineId(engineId);
+            return this;
+        }
+
+        public Builder engineType(final int engineType) {
+            flow().setEngineType(engineType);
+            return this;
+        }
+
+        public Builder vlan(final int vlan) {
+            flow().setVlan(vlan);
+            return this;
+        }
+
+        public Builder ipProtocolVersion(final int ipProtocolVersion) {
+            flow().setIpProtocolVersion(ipProtocolVersion);
+            return this;
+        }
+
+        public Builder protocol(final int protocol) {
+            flow().setProtocol(protocol);
+            return this;
+        }
+
+        public Builder tcpFlags(final int tcpFlags) {
+            flow().setTcpFlags(tcpFlags);
+            return this;
+        }
+
+        public Builder tos(final int tos) {
+            flow().setTos(tos);
+            return this;
+        }
+
+        public Builder samplingAlgorithm(final SamplingAlgorithm samplingAlgorithm) {
+            flow().setSamplingAlgorithm(samplingAlgorithm);
+            return this;
+        }
+
+        public Builder samplingInterval(final double samplingInterval) {
+            flow().setSamplingInterval(samplingInterval);
+            return this;
+        }
+
+        public Builder samplingProvenance(final SamplingProvenance samplingProvenance) {
+            flow().setSamplingProvenance(samplingProvenance);
+            return this;
+        }
+
+        public Builder application(final String application) {
+            flow().setApplication(application);
+            return this;
+        }
+
+        public Builder exporterAddr(final String exporterAddr) {
+            flow().setExporterAddr(exporterAddr);
+            return this;
+        }
+
+        public Builder tenant(final String tenant) {
+            flow().setTenant(tenant);
+            return this;
+        }
+
+        public Builder organisation(final String organisation) {
+            flow().setOrganisation(organisation);
+            return this;
+        }
+
+        public Builder zone(final String zone) {
+            flow().setZone(zone);
+            return this;
+        }
+
+        public Builder system(final String system) {
+            flow().setSystem(system);
+            return this;
+        }
+
+        public Builder srcLocality(final Locality srcLocality) {
+            flow().setSrcLocality(srcLocality);
+            return this;
+        }
+
+        public Builder dstLocality(final Locality dstLocality) {
+            flow().setDstLocality(dstLocality);
+            return this;
+        }
+
+        public Builder flowLocality(final Locality flowLocality) {
+            flow().setFlowLocality(flowLocality);
+            return this;
+        }
+
+        public Builder clockCorrection(final Duration clockCorrection) {
+            flow().setClockCorrection(clockCorrection);
+            return this;
+        }
+
+        public Builder inputSnmpIfName(final String inputSnmpIfName) {
+            flow().setInputSnmpIfName(inputSnmpIfName);
+            return this;
+        }
+
+        public Builder inputSnmpIfAlias(final String inputSnmpIfAlias) {
+            flow().setInputSnmpIfAlias(inputSnmpIfAlias);
+            return this;
+        }
+
+        public Builder inputSnmpIfSpeed(final Long inputSnmpIfSpeed) {
+            flow().setInputSnmpIfSpeed(inputSnmpIfSpeed);
+            return this;
+        }
+
+        public Builder outputSnmpIfName(final String outputSnmpIfName) {
+            flow().setOutputSnmpIfName(outputSnmpIfName);
+            return this;
+        }
+
+        public Builder outputSnmpIfAlias(final String outputSnmpIfAlias) {
+            flow().setOutputSnmpIfAlias(outputSnmpIfAlias);
+            return this;
+        }
+
+        public Builder outputSnmpIfSpeed(final Long outputSnmpIfSpeed) {
+            flow().setOutputSnmpIfSpeed(outputSnmpIfSpeed);
+            return this;
+        }
+
+        public Builder srcAddrHostname(final String srcAddrHostname) {
+            flow().setSrcAddrHostname(srcAddrHostname);
+            return this;
+        }
+
+        public Builder srcAsOrg(final String srcAsOrg) {
+            flow().setSrcAsOrg(srcAsOrg);
+            return this;
+        }
+
+        public Builder dstAddrHostname(final String dstAddrHostname) {
+            flow().setDstAddrHostname(dstAddrHostname);
+            return this;
+        }
+
+        public Builder dstAsOrg(final String dstAsOrg) {
+            flow().setDstAsOrg(dstAsOrg);
+            return this;
+        }
+
+        public Builder nextHopHostname(final String nextHopHostname) {
+            flow().setNextHopHostname(nextHopHostname);
+            return this;
+        }
+
+        public Builder srcCountry(final String srcCountry) {
+            flow().setSrcCountry(srcCountry);
+            return this;
+        }
+
+        public Builder srcCity(final String srcCity) {
+            flow().setSrcCity(srcCity);
+            return this;
+        }
+
+        public Builder dstCountry(final String dstCountry) {
+            flow().setDstCountry(dstCountry);
+            return this;
+        }
+
+        public Builder dstCity(final String dstCity) {
+            flow().setDstCity(dstCity);
+            return this;
+        }
 
-            return address.getHostAddress();
+        public Builder exporterName(final String exporterName) {
+            flow().setExporterName(exporterName);
+            return this;
         }
     }
 }
@@ -11,8 +11,55 @@ import java.util.stream.Stream;
 
 public interface Enricher {
 
+    /**
+     * The future of an enricher with nothing left to wait for: returned, shared, by every
+     * {@link Synchronous} enricher and by any other that did all its work on the calling thread,
+     * so a batch finished in place costs no allocation. Callers only wait on it — completing it is
+     * a bug.
+     */
+    CompletableFuture<Void> COMPLETED = CompletableFuture.completedFuture(null);
+
+    /**
+     * Enrich the {@code flows} of one packet from {@code source}, in place. The future completes
+     * once the enrichment is done; an enricher reports work still pending only when there is
+     * some, and otherwise returns {@link #COMPLETED}.
+     */
     CompletableFuture<Void> enrich(Source source, List<EnrichedFlow> flows);
 
+    /** One enricher's work on one flow, for a batch it has been {@linkplain Synchronous#prepare prepared} for. */
+    @FunctionalInterface
+    interface Step {
+        void enrich(EnrichedFlow flow);
+    }
+
+    /**
+     * An enricher that does all its work on the calling thread, over the whole batch at once: no
+     * future per flow, no {@code allOf} over them, and whatever it needs to look up once per
+     * batch — a snapshot, a config flag, the exporter — it looks up once, in {@link #prepare}.
+     * Every enricher that never waits on I/O should be one; {@link Single} and {@link Streaming}
+     * are for enrichers that do.
+     */
+    abstract class Synchronous implements Enricher {
+        @Override
+        public final CompletableFuture<Void> enrich(final Source source, final List<EnrichedFlow> flows) {
+            final Step step = this.prepare(source);
+            if (step != null) {
+                for (final EnrichedFlow flow : flows) {
+                    step.enrich(flow);
+                }
+            }
+            return COMPLETED;
+        }
+
+        /**
+         * Do the per-batch part of the work for a batch from {@code source} and return the
+         * per-flow part, or null when there is nothing to do for this batch. The
+         * {@link Pipeline} may interleave the step with the other enrichers' steps flow by flow
+         * (fused enrichment), so a step must not rely on seeing the batch's flows in one run.
+         */
+        protected abstract Step prepare(Source source);
+    }
+
     abstract class Streaming implements Enricher {
         @Override
         public CompletableFuture<Void> enrich(final Source source, final List<EnrichedFlow> flows) {
@@ -35,8 +82,6 @@ public interface Enricher {
         protected abstract CompletableFuture<Void> enrich(Source source, EnrichedFlow flow);
     }
 
-
-
     default void start() {
     }
 
@@ -6,18 +6,31 @@
 package org.riptide.pipeline;
 
 import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
 import com.codahale.metrics.Histogram;
 import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.Timer;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import lombok.extern.slf4j.Slf4j;
+import org.riptide.config.PipelineConfig;
 import org.riptide.flows.parser.data.Flow;
+import org.riptide.flows.parser.data.FlowRecord;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
 
 @Component
@@ -26,6 +39,10 @@ public class Pipeline {
 
     private static final Logger LOG = LoggerFactory.getLogger(Pipeline.class);
 
+    /** What {@link #process(Source, List)} does with a batch that fails after it returned. */
+    private static final FailureHandler LOG_FAILURE = (source, flows, cause) ->
+            LOG.warn("Dropping {} flows from {}: {}", flows, source.identity(), cause.getMessage(), cause);
+
     private final Timer logEnrichementTimer;
 
     /**
@@ -39,26 +56,88 @@ public class Pipeline {
     private final Counter emptyFlows;
 
     private final List<Enricher> enrichers;
+    private final boolean fused;
     private final FlowPersister persister;
 
-    private final EnrichedFlow.FlowMapper flowMapper;
+    private final MetricRegistry metricRegistry;
+
+    /** Continuation settings; null while continuations are off and workers wait for their batch. */
+    private final PipelineConfig.ContinuationConfig continuation;
+
+    /**
+     * One permit per batch that may be parked: taken when a batch is parked, given back once it
+     * is persisted or has failed. {@code inFlightBatches} is the permits taken.
+     */
+    private final Semaphore parked;
+
+    /** Waits for pending work that ran out of {@code continuation.timeout}. */
+    private final Counter continuationTimeouts;
+
+    /** Resumes parked batches: never the thread that completed their lookup, a DNS I/O thread. */
+    private final ExecutorService resumers;
+
+    private final String inFlightBatchesGauge = MetricRegistry.name("pipeline", "inFlightBatches");
+
+    public Pipeline(final List<Enricher> enrichers,
+                    final FlowPersister persister,
+                    final MetricRegistry metricRegistry
+    ) {
+        this(enrichers, persister, metricRegistry, new PipelineConfig());
+    }
 
+    @Autowired
     public Pipeline(final List<Enricher> enrichers,
                     final FlowPersister persister,
                     final MetricRegistry metricRegistry,
-                    final EnrichedFlow.FlowMapper flowMapper
+                    final PipelineConfig config
     ) {
-        this.flowMapper = Objects.requireNonNull(flowMapper);
+        this.fused = config.isFusedEnrichment();
+        this.metricRegistry = Objects.requireNonNull(metricRegistry);
         this.emptyFlows = metricRegistry.counter("emptyFlows");
         this.flowsPerLog = metricRegistry.histogram("flowsPerLog");
         this.logEnrichementTimer = metricRegistry.timer("logEnrichment");
         this.enrichers = Objects.requireNonNull(enrichers);
         this.persister = Objects.requireNonNull(persister);
 
-        log.info("Enabled enrichers: {}", enrichers.stream().map(enricher -> enricher.getClass().getSimpleName()).collect(Collectors.joining(", ")));
+        if (config.getContinuation().isEnabled()) {
+            this.continuation = config.getContinuation();
+            this.continuation.validate();
+            this.parked = new Semaphore(this.continuation.getMaxInFlightBatches());
+            this.continuationTimeouts = metricRegistry.counter(MetricRegistry.name("pipeline", "continuationTimeouts"));
+            // Created here, not in start(): threads are only spawned by the first resumed batch.
+            this.resumers = Executors.newFixedThreadPool(this.continuation.getThreads(), new ThreadFactoryBuilder()
+                    .setNameFormat("pipeline-continuation-%d")
+                    .setDaemon(true)
+                    .build());
+            metricRegistry.remove(this.inFlightBatchesGauge);
+            metricRegistry.register(this.inFlightBatchesGauge, (Gauge<Integer>) this::inFlightBatches);
+        } else {
+            this.continuation = null;
+            this.parked = null;
+            this.continuationTimeouts = null;
+            this.resumers = null;
+        }
+
+        log.info("Enabled enrichers{}: {}", this.fused ? " (fused)" : "",
+                enrichers.stream().map(enricher -> enricher.getClass().getSimpleName()).collect(Collectors.joining(", ")));
+    }
+
+    /** Batches parked on pending enrichment, or being resumed, right now. */
+    int inFlightBatches() {
+        return this.parked == null ? 0 : this.continuation.getMaxInFlightBatches() - this.parked.availablePermits();
     }
 
     public void process(final Source source, final List<Flow> flows) throws FlowException {
+        this.process(source, flows, LOG_FAILURE);
+    }
+
+    /**
+     * Enrich and persist one packet's flows. With continuations on, a batch whose enrichment is
+     * still pending when the calling worker has done its part is parked rather than waited for:
+     * this returns, and the batch is resumed on a continuation thread once the work completes. A
+     * failure up to that point is thrown; a failure after it goes to {@code onFailure}.
+     */
+    public void process(final Source source, final List<Flow> flows, final FailureHandler onFailure) throws FlowException {
         // Track the number of flows per call
         this.flowsPerLog.update(flows.size());
 
@@ -71,25 +150,222 @@ public class Pipeline {
 
         // Enrich with model data
         LOG.debug("Enriching {} flow documents.", flows.size());
-        final List<EnrichedFlow> enrichedFlows;
-        try (Timer.Context ctx = this.logEnrichementTimer.time()) {
-            enrichedFlows = flows.stream()
-                    .map(flow -> this.flowMapper.enrichedFlow(source, flow))
-                    .collect(Collectors.toList());
-
-            for (final var enricher : this.enrichers) {
-                enricher.enrich(source, enrichedFlows).get();
+        final Timer.Context timer = this.logEnrichementTimer.time();
+        final Batch batch;
+        CompletableFuture<?> pending;
+        try {
+            batch = new Batch(source, enrichable(source, flows), onFailure, timer);
+            if (this.continuation != null) {
+                batch.deadline = System.nanoTime() + this.continuation.getTimeout().toNanos();
+            }
+
+            pending = this.advance(batch);
+            // The worker waits here, as it always did, unless the batch can be parked: with
+            // continuations off, or with as many batches parked as allowed (back-pressure). With
+            // continuations on, it waits no longer than a parked batch would.
+            while (pending != null && (this.parked == null || !this.parked.tryAcquire())) {
+                if (this.continuation == null) {
+                    pending.get();
+                } else {
+                    this.await(batch, pending);
+                }
+                pending = this.advance(batch);
             }
         } catch (final Exception e) {
+            timer.stop();
             throw new FlowException("Failed to enrich one or more flows.", e);
         }
 
+        if (pending != null) {
+            this.park(batch, pending);
+            return;
+        }
+
+        timer.stop();
+        this.persist(batch.flows);
+    }
+
+    /**
+     * The flows to enrich, each over the parser's own record: nothing is copied. A {@link Flow}
+     * that is not a {@link FlowRecord} — no parser builds one — is read into a record first.
+     */
+    private static List<EnrichedFlow> enrichable(final Source source, final List<Flow> flows) {
+        final List<EnrichedFlow> enrichable = new ArrayList<>(flows.size());
+        for (final Flow flow : flows) {
+            enrichable.add(new EnrichedFlow(source, flow instanceof FlowRecord record ? record : FlowRecord.copyOf(flow)));
+        }
+        return enrichable;
+    }
+
+    /**
+     * Run the enrichers from where the batch stands until one leaves work pending; return that
+     * work, or null once every enricher is done. Work already complete is not waited for, but
+     * its failure is thrown.
+     */
+    private CompletableFuture<?> advance(final Batch batch) throws Exception {
+        if (this.fused && batch.next == 0) {
+            batch.next = this.enrichers.size();
+            return pendingOrNull(this.enrichFused(batch.source, batch.flows));
+        }
+        while (batch.next < this.enrichers.size()) {
+            final CompletableFuture<?> pending = pendingOrNull(
+                    this.enrichers.get(batch.next++).enrich(batch.source, batch.flows));
+            if (pending != null) {
+                return pending;
+            }
+        }
+        return null;
+    }
+
+    private static CompletableFuture<?> pendingOrNull(final CompletableFuture<?> future) throws Exception {
+        if (future == null) {
+            return null;
+        }
+        if (future.isDone()) {
+            future.get(); // throws its failure
+            return null;
+        }
+        return future;
+    }
+
+    /**
+     * Wait on the worker for {@code pending}, until the batch's deadline at the latest; past it,
+     * the batch carries on as a parked one would.
+     */
+    private void await(final Batch batch, final CompletableFuture<?> pending) throws Exception {
+        try {
+            pending.get(Math.max(0, batch.deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (final TimeoutException e) {
+            this.timedOut(batch);
+        }
+    }
+
+    /**
+     * Carry on without what the lookups would have filled, like after a failed lookup. Those still
+     * outstanding keep the flows they were handed, and would write to them while the batch is
+     * being persisted — under the flusher, the spill's encoder, and between two attempts of an
+     * insert that must carry the same rows each time. The batch goes on with copies, which nothing
+     * outstanding can reach. Cancelling instead would not do: a lookup's future may be shared, and
+     * one already running its callback cannot be stopped.
+     */
+    private void timedOut(final Batch batch) {
+        this.continuationTimeouts.inc();
+        batch.flows = batch.flows.stream()
+                .map(EnrichedFlow::copy)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Resume {@code batch} once {@code pending} completes, or its deadline passes. The wait is on
+     * a copy: an enricher's future may be shared, and the timeout must not complete it.
+     */
+    @SuppressWarnings("FutureReturnValueIgnored")
+    private void park(final Batch batch, final CompletableFuture<?> pending) {
+        final long remaining = Math.max(0, batch.deadline - System.nanoTime());
+        pending.copy()
+                .orTimeout(remaining, TimeUnit.NANOSECONDS)
+                .whenCompleteAsync((ignored, failure) -> this.resume(batch, failure), this.resumers);
+    }
+
+    private void resume(final Batch batch, final Throwable failure) {
+        final CompletableFuture<?> pending;
+        try {
+            if (failure != null) {
+                final Throwable cause = failure instanceof CompletionException && failure.getCause() != null
+                        ? failure.getCause()
+                        : failure;
+                if (!(cause instanceof TimeoutException)) {
+                    throw new FlowException("Failed to enrich one or more flows.", cause);
+                }
+                this.timedOut(batch);
+            }
+            pending = this.advance(batch);
+        } catch (final Exception e) {
+            batch.timer.stop();
+            this.parked.release();
+            batch.onFailure.failed(batch.source, batch.flows.size(),
+                    e instanceof FlowException ? e : new FlowException("Failed to enrich one or more flows.", e));
+            return;
+        }
+
+        if (pending != null) {
+            // Parked again: it keeps its permit.
+            this.park(batch, pending);
+            return;
+        }
+
+        batch.timer.stop();
+        try {
+            this.persist(batch.flows);
+        } catch (final FlowException | RuntimeException e) {
+            batch.onFailure.failed(batch.source, batch.flows.size(), e);
+        } finally {
+            this.parked.release();
+        }
+    }
+
+    private void persist(final List<EnrichedFlow> flows) throws FlowException {
         // Push flows to persistence
-            try {
-                this.persister.persist(enrichedFlows);
-            } catch (final IOException e) {
-                LOG.error("Failed to persist flows to {}", this.persister.getName(), e);
+        try {
+            this.persister.persist(flows);
+        } catch (final IOException e) {
+            LOG.error("Failed to persist flows to {}", this.persister.getName(), e);
+        }
+    }
+
+    /**
+     * Flow-major enrichment: each run of enrichers that can work flow by flow — the synchronous
+     * ones and the per-flow asynchronous {@link Enricher.Single} and {@link Enricher.Streaming} —
+     * is applied in one pass, every enricher's step on a flow before the next flow. Any other
+     * enricher runs over the whole batch in its place between two passes. Asynchronous work is
+     * started in order and collected, to be awaited once at the end; work already complete when
+     * it is returned is not even collected. Returns what is still pending, or null.
+     */
+    private CompletableFuture<?> enrichFused(final Source source, final List<EnrichedFlow> flows) {
+        final List<CompletableFuture<?>> pending = new ArrayList<>();
+        final List<Enricher.Step> steps = new ArrayList<>(this.enrichers.size());
+        for (final Enricher enricher : this.enrichers) {
+            if (enricher instanceof Enricher.Synchronous synchronous) {
+                final Enricher.Step step = synchronous.prepare(source);
+                if (step != null) {
+                    steps.add(step);
+                }
+            } else if (enricher instanceof Enricher.Single single) {
+                steps.add(flow -> track(pending, single.enrich(source, flow)));
+            } else if (enricher instanceof Enricher.Streaming streaming) {
+                steps.add(flow -> streaming.enrich(source, flow).forEach(future -> track(pending, future)));
+            } else {
+                // Works over whole batches only: finish the pass so far, then let it run.
+                pass(steps, flows);
+                track(pending, enricher.enrich(source, flows));
             }
+        }
+        pass(steps, flows);
+
+        return switch (pending.size()) {
+            case 0 -> null;
+            case 1 -> pending.get(0);
+            default -> CompletableFuture.allOf(pending.toArray(CompletableFuture[]::new));
+        };
+    }
+
+    /** Apply {@code steps} to every flow, flow by flow, and clear them. */
+    private static void pass(final List<Enricher.Step> steps, final List<EnrichedFlow> flows) {
+        if (steps.isEmpty()) {
+            return;
+        }
+        for (final EnrichedFlow flow : flows) {
+            for (final Enricher.Step step : steps) {
+                step.enrich(flow);
+            }
+        }
+        steps.clear();
+    }
+
+    private static void track(final List<CompletableFuture<?>> pending, final CompletableFuture<?> future) {
+        if (!future.isDone() || future.isCompletedExceptionally()) {
+            pending.add(future);
+        }
     }
 
     public void start() {
@@ -98,7 +374,60 @@ public class Pipeline {
     }
 
     public void stop() {
+        if (this.resumers != null) {
+            this.drainParked();
+            this.metricRegistry.remove(this.inFlightBatchesGauge);
+        }
         this.persister.stop();
         this.enrichers.forEach(Enricher::stop);
     }
+
+    /**
+     * Let the parked batches finish before the persister stops under them. Each resumes within
+     * the continuation timeout, so that bounds the wait; stopping stops the workers first, so no
+     * batch is parked after this starts.
+     */
+    private void drainParked() {
+        final int permits = this.continuation.getMaxInFlightBatches();
+        try {
+            if (!this.parked.tryAcquire(permits, this.continuation.getTimeout().plusSeconds(1).toMillis(),
+                    TimeUnit.MILLISECONDS)) {
+                LOG.warn("Stopping with {} enriching batches still parked; their flows are lost", this.inFlightBatches());
+            } else {
+                this.parked.release(permits);
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        this.resumers.shutdown();
+    }
+
+    /** Told about a batch that failed after {@link #process} had returned: while it was parked or being resumed. */
+    @FunctionalInterface
+    public interface FailureHandler {
+        void failed(Source source, int flows, Exception cause);
+    }
+
+    /** A batch on its way through the enrichers, and where it stands, for resuming it. */
+    private static final class Batch {
+        private final Source source;
+        /** Replaced by copies when its lookups time out; see {@link Pipeline#resume}. */
+        private List<EnrichedFlow> flows;
+        private final FailureHandler onFailure;
+        private final Timer.Context timer;
+
+        /** The next enricher to run. */
+        private int next;
+
+        /** {@link System#nanoTime()} by which the batch stops waiting for its pending work, parked or not. */
+        private long deadline;
+
+        Batch(final Source source, final List<EnrichedFlow> flows, final FailureHandler onFailure,
+              final Timer.Context timer) {
+            this.source = source;
+            this.flows = flows;
+            this.onFailure = Objects.requireNonNull(onFailure);
+            this.timer = timer;
+        }
+    }
 }
@@ -55,11 +55,7 @@ public class Source {
         return this.exporter;
     }
 
-    /**
-     * Derived from the identity's device address. Kept as a bean getter on purpose:
-     * {@code EnrichedFlow.FlowMapper} maps {@code Source} properties by name, so this
-     * accessor is what populates the persisted {@code exporterAddr} column.
-     */
+    /** Derived from the identity's device address; the persisted {@code exporterAddr} column. */
     public InetAddress getExporterAddr() {
         return this.exporter.deviceAddress();
     }
@@ -71,8 +71,10 @@ public final class ProvisioningDdl {
         final List<String> statements = new ArrayList<>();
         // Additive schema upgrades first (same precondition as the GRANTs below: the table
         // exists). Emitted on every run so re-running onboard upgrades a pre-existing table in
-        // place; IF NOT EXISTS makes them no-ops everywhere else.
+        // place; IF NOT EXISTS makes them no-ops everywhere else, as re-setting the same value does
+        // for the deduplication window the collector's insert retries rely on.
         statements.addAll(FlowsSchema.addAdditiveColumns(database));
+        statements.add(FlowsSchema.enableInsertDeduplication(database));
         statements.addAll(List.of(
                 "CREATE ROLE IF NOT EXISTS flow_writer",
                 "GRANT INSERT ON " + flows + " TO flow_writer",
@@ -27,6 +27,22 @@ public interface FlowRepository {
      */
     void persist(List<EnrichedFlow> flows) throws FlowException, IOException;
 
+    /**
+     * Persist a batch of flows that may be persisted again, by a retry of the same call.
+     *
+     * A repository able to recognise the second attempt as a duplicate of the first uses
+     * {@code deduplicationToken} to do so; every other repository ignores it, which is the default.
+     *
+     * @param flows              the flows which should be persisted
+     * @param deduplicationToken identifies the batch across its attempts; equal tokens mean equal flows
+     *
+     * @throws FlowException on any error happening during processing.
+     */
+    default void persist(final List<EnrichedFlow> flows, final String deduplicationToken)
+            throws FlowException, IOException {
+        persist(flows);
+    }
+
     default void start() {
     }
 
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2026 Riptide Labs, <https://github.com/Riptide-Labs>
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package org.riptide.repository.clickhouse;
+
+import java.time.Duration;
+
+/**
+ * The batch size the flusher aims for, steered AIMD-style by what each insert reports back. It
+ * only ever matters at the size trigger: below it, the time trigger flushes whatever has arrived,
+ * so a quiet night runs on {@code maxLatency} whatever the target says.
+ *
+ * <p>Multiplicative decrease, to no less than {@code minRows}: an insert that failed or took
+ * longer than the latency budget halves the target. An insert that overruns the drain window
+ * means the server is straining on batches of that size, and with one insert in flight the
+ * flusher falls behind by the overrun every time.
+ *
+ * <p>Additive increase, to no more than {@code maxRows}, by {@code minRows} per insert: when the
+ * queue already holds a full target's worth of rows (a backlog a larger batch drains in fewer
+ * round-trips), or when inserts — each one a new part the server has to merge — arrive faster than
+ * {@code maxInsertsPerSecond}. Neither signal says anything while the latency budget is exceeded,
+ * so decrease wins.
+ *
+ * <p>Starts at {@code maxRows}, the static size it replaces, and walks down only on evidence.
+ */
+final class AdaptiveBatchSize {
+
+    private final int minRows;
+    private final int maxRows;
+    private final long latencyBudgetNanos;
+    private final double maxInsertsPerSecond;
+
+    private volatile int target;
+
+    AdaptiveBatchSize(final int minRows, final int maxRows, final Duration latencyBudget,
+                      final double maxInsertsPerSecond) {
+        if (minRows <= 0 || minRows > maxRows) {
+            throw new IllegalArgumentException("Need 0 < minRows <= maxRows (got " + minRows + ", " + maxRows + ")");
+        }
+        this.minRows = minRows;
+        this.maxRows = maxRows;
+        this.latencyBudgetNanos = latencyBudget.toNanos();
+        this.maxInsertsPerSecond = maxInsertsPerSecond;
+        this.target = maxRows;
+    }
+
+    /** The rows a batch should reach before the size trigger flushes it. */
+    int target() {
+        return this.target;
+    }
+
+    /**
+     * Feed back one finished insert.
+     *
+     * @param succeeded        whether the insert landed
+     * @param latencyNanos     how long it took, as the flush timer recorded it
+     * @param queueDepth       rows waiting in the queue now
+     * @param insertsPerSecond recent insert (and so part) rate, as the flush timer measures it
+     */
+    synchronized void onInsert(final boolean succeeded, final long latencyNanos, final int queueDepth,
+                               final double insertsPerSecond) {
+        final int current = this.target;
+        if (!succeeded || latencyNanos > this.latencyBudgetNanos) {
+            this.target = Math.max(this.minRows, current / 2);
+        } else if (queueDepth >= current || insertsPerSecond > this.maxInsertsPerSecond) {
+            this.target = (int) Math.min(this.maxRows, (long) current + this.minRows);
+        }
+    }
+}
@@ -10,7 +10,6 @@ import com.codahale.metrics.Gauge;
 import com.codahale.metrics.Histogram;
 import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.Timer;
-import com.google.common.collect.Queues;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import lombok.extern.slf4j.Slf4j;
 import org.riptide.config.ClickhouseConfig;
@@ -19,27 +18,53 @@ import org.riptide.pipeline.FlowException;
 import org.riptide.repository.FlowRepository;
 
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToLongFunction;
 
 /**
- * Batching decorator around a {@link FlowRepository}: producers enqueue flows into a bounded
- * queue, a single background flusher drains them and hands the delegate one large insert per
- * batch (at {@code maxRows} rows or after {@code maxLatency}, whichever comes first). Each
+ * Batching decorator around a {@link FlowRepository}: producers hand their flows, a packet's list
+ * at a time, to a bounded lock-free {@link RowQueue}, a single background flusher drains them and
+ * hands the delegate one large insert per batch (at {@code maxRows} rows or after
+ * {@code maxLatency}, whichever comes first). Up to
+ * {@code maxInFlightInserts} of those inserts run at once, on a small pool of insert threads, so
+ * a slow round-trip to ClickHouse no longer caps throughput at one batch per round-trip. Each
  * ClickHouse insert forms a part and fires the four rollup materialized views, so collapsing the
  * per-record inserts into batches is what buys the throughput (see
- * {@link ClickhouseConfig.BatchConfig} for the sizing rationale).
+ * {@link ClickhouseConfig.BatchConfig} for the sizing rationale). With adaptive sizing the size
+ * trigger is not {@code maxRows} but a target {@link AdaptiveBatchSize} moves after every insert.
  *
  * <p>Loss model: a full queue drops flows (counted, rate-limited warn) instead of blocking —
  * blocking would backpressure the parser executors into the Netty socket where loss is invisible.
  * Insert failures likewise surface as flusher error logs and the {@code failedRows} counter, not
  * as exceptions to the caller. {@code stop()} rejects new flows and drains everything already
- * accepted within the shutdown grace period, preserving at-least-once for accepted flows. A
+ * accepted within the shutdown grace period — inserts already in flight included — preserving
+ * at-least-once for accepted flows.
+ *
+ * <p>A failed insert is first retried, with backoff, if the failure was transient, and bisected
+ * if the server rejected rows in it, so that only the rejected rows are lost. Every insert carries
+ * a deduplication token kept across its attempts, which makes the retries safe: the server
+ * discards an attempt repeating one that landed unacknowledged. A batch spilled after its attempts
+ * keeps the token on disk, and its replay carries it too.
+ *
+ * <p>With the optional spill ({@link ClickhouseConfig.BatchConfig.SpillConfig}) the rows a full
+ * queue would drop and the batches whose insert failed go to disk instead ({@link SpillQueue}),
+ * and only what the spill's cap refuses is dropped or failed. The flusher replays the spill in
+ * order, one insert at a time, once an insert has succeeded again — alternating with live
+ * batches, so live rows wait at most one replay insert — and probes a silent server with a replay
+ * whenever a drain window comes back empty. What is still spilled at {@code stop()} stays on disk
+ * for the next run. A
  * stopped instance cannot be restarted: {@code start()} after {@code stop()} fails loud, because
  * a half-alive instance that silently drops everything would be worse than a crash.
  */
@@ -64,79 +89,201 @@ public class BatchingFlowRepository implements FlowRepository {
      */
     private static final long INTERRUPT_JOIN_MS = 1_000;
 
+    /**
+     * How often the spill's head may fail while other inserts succeed before it is dropped as a
+     * poison batch. Failures while the server rejects everything do not count — that is an
+     * outage, and what the spill is for.
+     */
+    private static final int MAX_REPLAY_ATTEMPTS = 3;
+
     private final FlowRepository delegate;
 
+    /** Null for the only repository; see the four-argument constructor. */
+    private final String shard;
+
+    /** {@code persister}, or {@code persister.<shard>}: where this instance's metrics live. */
+    private final String scope;
+
     private final ClickhouseConfig.BatchConfig config;
 
-    private final LinkedBlockingQueue<EnrichedFlow> queue;
+    private final RowQueue queue;
+
+    /** Null unless adaptive sizing is enabled; the size trigger is then its target. */
+    private final AdaptiveBatchSize adaptive;
 
     /** Set once by stop(): producers reject-new, the flusher switches to its final drain. */
     private final AtomicBoolean stopped = new AtomicBoolean();
 
     private volatile Thread flusher;
 
+    /**
+     * One permit per insert that may be in flight. The flusher takes one <em>before</em> it
+     * drains and the insert returns it when done: rows stay in the queue — counted by
+     * {@code queueDepth} and subject to the drop policy — until an insert can take them, so the
+     * loss model is the one a single blocking flusher had, and with one permit so is the timing.
+     */
+    private final Semaphore inFlight;
+
+    private volatile ExecutorService inserters;
+
+    /**
+     * Inserts handed to the pool and not yet finished. Not the permits in use: the flusher holds
+     * one while it waits for a batch, which is not an insert.
+     */
+    private final AtomicInteger inserting = new AtomicInteger();
+
+    /** Null unless the spill is enabled; opened by start(), closed by stop(). */
+    private volatile SpillQueue spill;
+
+    /**
+     * Whether the last insert that finished succeeded: replay targets a server that is taking
+     * inserts, and only failures against one count towards {@link #MAX_REPLAY_ATTEMPTS}.
+     */
+    private final AtomicBoolean healthy = new AtomicBoolean();
+
+    /** One replay at a time, so the spill is replayed in order. */
+    private final AtomicBoolean replaying = new AtomicBoolean();
+
+    /** Consecutive failures of the spill's head against a healthy server. */
+    private final AtomicInteger replayFailures = new AtomicInteger();
+
     /** nanoTime, not wall clock: an NTP step backwards would mute drop warnings for the skew. */
     private final AtomicLong lastDropWarnNanos = new AtomicLong(System.nanoTime() - DROP_WARN_INTERVAL_NANOS);
 
     private final MetricRegistry metricRegistry;
     private final String queueDepthGauge;
+    private final String targetRowsGauge;
+    private final String inFlightGauge;
+    private final String spilledBytesGauge;
+    private final String spillSegmentsGauge;
+    private final String replayLagGauge;
     private final Counter droppedRows;
     private final Counter failedRows;
+    private final Counter spilledRows;
+    private final Counter replayedRows;
+    private final Counter retries;
+    private final Counter rejectedRows;
     private final Histogram batchSize;
+    private final Histogram partitionsPerInsert;
     private final Timer flushTimer;
 
     public BatchingFlowRepository(final FlowRepository delegate,
                                   final ClickhouseConfig.BatchConfig config,
                                   final MetricRegistry metricRegistry) {
+        this(delegate, config, metricRegistry, null);
+    }
+
+    /**
+     * One of several batching repositories in a process — one per shard — told apart by
+     * {@code shard}: its metrics are {@code persister.<shard>.batch.*} instead of
+     * {@code persister.batch.*}, its threads carry the name, and its spill lives in a
+     * subdirectory of that name, so no two of them share a queue, a gauge or a segment file.
+     *
+     * @param shard the shard's name, or null for the one and only repository
+     */
+    public BatchingFlowRepository(final FlowRepository delegate,
+                                  final ClickhouseConfig.BatchConfig config,
+                                  final MetricRegistry metricRegistry,
+                                  final String shard) {
+        this.shard = shard;
+        this.scope = MetricRegistry.name("persister", shard);
         this.delegate = Objects.requireNonNull(delegate);
         this.config = Objects.requireNonNull(config);
         this.metricRegistry = Objects.requireNonNull(metricRegistry);
 
         // Fail fast on nonsensical values: maxRows=0 would busy-spin the flusher, and
-        // queueCapacity=0 would surface as an opaque LinkedBlockingQueue exception here.
+        // queueCapacity=0 would surface as an opaque RowQueue exception here.
         config.validate();
 
-        this.queue = new LinkedBlockingQueue<>(config.getQueueCapacity());
-
-        this.droppedRows = metricRegistry.counter(MetricRegistry.name("persister", "batch", "droppedRows"));
-        this.failedRows = metricRegistry.counter(MetricRegistry.name("persister", "batch", "failedRows"));
-        this.batchSize = metricRegistry.histogram(MetricRegistry.name("persister", "batch", "batchSize"));
-        this.flushTimer = metricRegistry.timer(MetricRegistry.name("persister", "batch", "flush"));
-
-        this.queueDepthGauge = MetricRegistry.name("persister", "batch", "queueDepth");
+        this.queue = new RowQueue(config.getQueueCapacity());
+        this.inFlight = new Semaphore(config.getMaxInFlightInserts());
+        final ClickhouseConfig.BatchConfig.AdaptiveConfig adaptiveConfig = config.getAdaptive();
+        // The latency budget is one drain window: an insert that overruns it delays the next.
+        this.adaptive = adaptiveConfig.isEnabled()
+                ? new AdaptiveBatchSize(adaptiveConfig.getMinRows(), config.getMaxRows(), config.getMaxLatency(),
+                        adaptiveConfig.getMaxInsertsPerSecond())
+                : null;
+
+        this.droppedRows = metricRegistry.counter(MetricRegistry.name(this.scope, "batch", "droppedRows"));
+        this.failedRows = metricRegistry.counter(MetricRegistry.name(this.scope, "batch", "failedRows"));
+        this.spilledRows = metricRegistry.counter(MetricRegistry.name(this.scope, "batch", "spilledRows"));
+        this.replayedRows = metricRegistry.counter(MetricRegistry.name(this.scope, "batch", "replayedRows"));
+        this.retries = metricRegistry.counter(MetricRegistry.name(this.scope, "batch", "retries"));
+        this.rejectedRows = metricRegistry.counter(MetricRegistry.name(this.scope, "batch", "rejectedRows"));
+        this.batchSize = metricRegistry.histogram(MetricRegistry.name(this.scope, "batch", "batchSize"));
+        this.partitionsPerInsert = metricRegistry.histogram(
+                MetricRegistry.name(this.scope, "batch", "partitionsPerInsert"));
+        this.flushTimer = metricRegistry.timer(MetricRegistry.name(this.scope, "batch", "flush"));
+
+        this.queueDepthGauge = MetricRegistry.name(this.scope, "batch", "queueDepth");
         // Replace, don't keep: a stale gauge left by a previous instance would keep reading that
         // instance's dead queue — worse than no gauge at all. stop() unregisters it again.
         metricRegistry.remove(this.queueDepthGauge);
         metricRegistry.register(this.queueDepthGauge, (Gauge<Integer>) this.queue::size);
+
+        this.targetRowsGauge = MetricRegistry.name(this.scope, "batch", "targetRows");
+        metricRegistry.remove(this.targetRowsGauge);
+        metricRegistry.register(this.targetRowsGauge, (Gauge<Integer>) this::targetRows);
+
+        this.inFlightGauge = MetricRegistry.name(this.scope, "batch", "inFlight");
+        metricRegistry.remove(this.inFlightGauge);
+        metricRegistry.register(this.inFlightGauge, (Gauge<Integer>) this.inserting::get);
+
+        this.spilledBytesGauge = MetricRegistry.name(this.scope, "batch", "spilledBytes");
+        this.spillSegmentsGauge = MetricRegistry.name(this.scope, "batch", "spillSegments");
+        this.replayLagGauge = MetricRegistry.name(this.scope, "batch", "replayLag");
+        metricRegistry.remove(this.spilledBytesGauge);
+        metricRegistry.remove(this.spillSegmentsGauge);
+        metricRegistry.remove(this.replayLagGauge);
+        if (config.getSpill().isEnabled()) {
+            metricRegistry.register(this.spilledBytesGauge, spillGauge(SpillQueue::bytes));
+            metricRegistry.register(this.spillSegmentsGauge, spillGauge(SpillQueue::segments));
+            // Milliseconds since the oldest unreplayed row was spilled: how far behind the
+            // replay is, which spilledBytes alone cannot tell at an unknown insert rate.
+            metricRegistry.register(this.replayLagGauge, spillGauge(spill -> {
+                final long oldest = spill.oldestSpilledAt();
+                return oldest < 0 ? 0 : Math.max(0, System.currentTimeMillis() - oldest);
+            }));
+        }
     }
 
+    /** The size trigger: {@code maxRows}, or the adaptive target. */
+    private int targetRows() {
+        return this.adaptive == null ? this.config.getMaxRows() : this.adaptive.target();
+    }
+
+    private Gauge<Long> spillGauge(final ToLongFunction<SpillQueue> reading) {
+        return () -> {
+            final SpillQueue spill = this.spill;
+            return spill == null ? 0L : reading.applyAsLong(spill);
+        };
+    }
+
+    /**
+     * Hands {@code flows} to the flusher as one piece, without copying it: the list must not change
+     * after the call, which a pipeline building a fresh list per packet never does.
+     */
     @Override
     public void persist(final List<EnrichedFlow> flows) throws FlowException, IOException {
-        // One offer budget for the whole call (see OFFER_TIMEOUT_MS): the first rows may wait
-        // for space, and once the budget is spent the rest gets non-blocking offers only.
-        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(OFFER_TIMEOUT_MS);
-        for (int i = 0; i < flows.size(); i++) {
-            if (this.stopped.get()) {
-                // Reject-new after stop(): the drain must converge on the rows accepted so far.
-                drop(flows.size() - i, "repository is stopping");
-                return;
-            }
-            try {
-                final long remaining = deadline - System.nanoTime();
-                final boolean accepted = remaining > 0
-                        ? this.queue.offer(flows.get(i), remaining, TimeUnit.NANOSECONDS)
-                        : this.queue.offer(flows.get(i));
-                if (!accepted) {
-                    // Budget exhausted against a still-full queue: drop the remainder in one go
-                    // rather than burning a timeout per row.
-                    drop(flows.size() - i, "queue is full — ClickHouse cannot keep up");
-                    return;
-                }
-            } catch (final InterruptedException e) {
-                Thread.currentThread().interrupt();
-                drop(flows.size() - i, "producer interrupted");
-                return;
-            }
+        if (this.stopped.get()) {
+            // Reject-new after stop(): the drain must converge on the rows accepted so far.
+            drop(flows.size(), "repository is stopping");
+            return;
+        }
+        // One offer budget for the whole call (see OFFER_TIMEOUT_MS): as many rows as fit go in
+        // at once, and the rest waits for space only as long as the budget lasts.
+        final int accepted = this.queue.offer(flows, TimeUnit.MILLISECONDS.toNanos(OFFER_TIMEOUT_MS));
+        if (accepted == flows.size()) {
+            return;
+        }
+        final List<EnrichedFlow> rest = flows.subList(accepted, flows.size());
+        if (Thread.currentThread().isInterrupted()) {
+            drop(rest.size(), "producer interrupted");
+        } else if (!spill(rest)) {
+            // Budget exhausted against a still-full queue: spill or drop the remainder in one go.
+            drop(rest.size(), this.spill == null
+                    ? "queue is full — ClickHouse cannot keep up"
+                    : "queue and spill are full — ClickHouse cannot keep up");
         }
     }
 
@@ -151,6 +298,33 @@ public class BatchingFlowRepository implements FlowRepository {
         }
     }
 
+    /** Put rows no insert was attempted with on disk; see {@link #spill(List, String)}. */
+    private boolean spill(final List<EnrichedFlow> rows) {
+        return spill(rows, null);
+    }
+
+    /**
+     * Put rows on disk for a later replay, with the token their insert was attempted under, so
+     * the replay carries it too. True when they are there (and counted as spilled); false — spill
+     * disabled, full, closed or failing — leaves them to the caller to count.
+     */
+    private boolean spill(final List<EnrichedFlow> rows, final String token) {
+        final SpillQueue spill = this.spill;
+        if (spill == null || rows.isEmpty()) {
+            return false;
+        }
+        try {
+            if (!spill.append(rows, token)) {
+                return false;
+            }
+        } catch (final IOException | RuntimeException e) {
+            log.error("Failed to spill {} flows", rows.size(), e);
+            return false;
+        }
+        this.spilledRows.inc(rows.size());
+        return true;
+    }
+
     @Override
     public void start() {
         if (this.stopped.get()) {
@@ -164,11 +338,30 @@ public class BatchingFlowRepository implements FlowRepository {
             throw new IllegalStateException("BatchingFlowRepository is already started");
         }
 
+        // The spill before anything else: an unusable directory must fail the start, not
+        // surface as dropped rows in the first outage.
+        final ClickhouseConfig.BatchConfig.SpillConfig spillConfig = this.config.getSpill();
+        if (spillConfig.isEnabled()) {
+            try {
+                this.spill = SpillQueue.open(spillDirectory(), spillConfig.getMaxBytes(),
+                        spillConfig.getSegmentBytes());
+            } catch (final IOException e) {
+                throw new IllegalStateException("Cannot open the spill directory " + spillDirectory(), e);
+            }
+        }
+
         // Delegate first: the flusher must not insert before the schema is ensured/validated.
         this.delegate.start();
 
+        // Exactly one thread per permit, so a submitted insert never waits in the pool's queue.
+        this.inserters = Executors.newFixedThreadPool(this.config.getMaxInFlightInserts(),
+                new ThreadFactoryBuilder()
+                        .setNameFormat(threadName("clickhouse-batch-insert") + "-%d")
+                        .setDaemon(true)
+                        .build());
+
         final Thread thread = new ThreadFactoryBuilder()
-                .setNameFormat("clickhouse-batch-flusher")
+                .setNameFormat(threadName("clickhouse-batch-flusher"))
                 .setDaemon(true)
                 .build()
                 .newThread(this::flushLoop);
@@ -176,63 +369,364 @@ public class BatchingFlowRepository implements FlowRepository {
         thread.start();
     }
 
+    private Path spillDirectory() {
+        final Path directory = this.config.getSpill().getDirectory();
+        return this.shard == null ? directory : directory.resolve(this.shard);
+    }
+
+    private String threadName(final String name) {
+        return this.shard == null ? name : name + "-" + this.shard;
+    }
+
     private void flushLoop() {
+        // Whether the last turn went to the spill: live rows get the next one.
+        boolean replayed = false;
         while (!Thread.currentThread().isInterrupted()) {
             // A fresh list per batch: the delegate (and tests) may retain the reference.
             final List<EnrichedFlow> batch = new ArrayList<>();
+            boolean permit = false;
             try {
+                try {
+                    // An insert slot before the drain, not after (see inFlight). Only stop()
+                    // interrupts this, after the grace period; nothing is in hand yet.
+                    this.inFlight.acquire();
+                    permit = true;
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
                 if (this.stopped.get()) {
-                    // Final drain: non-blocking, so the loop exits as soon as the queue is empty.
+                    // Final drain: non-blocking, so the loop exits as soon as the queue is empty
+                    // — and the inserts still in flight have finished.
                     this.queue.drainTo(batch, this.config.getMaxRows());
                     if (batch.isEmpty()) {
+                        this.inFlight.release();
+                        permit = false;
+                        awaitInFlight();
                         return;
                     }
+                } else if ((!replayed || this.queue.isEmpty()) && startReplay(this.healthy.get())) {
+                    // The permit travels with the replay, like with a batch.
+                    replayed = true;
+                    permit = false;
+                    continue;
+                } else if (replayed) {
+                    // Live rows' turn between replays, without waiting out a drain window: they
+                    // are delayed by at most one replay insert while the spill catches up.
+                    replayed = false;
+                    this.queue.drainTo(batch, targetRows());
                 } else {
                     try {
                         // Blocks until maxRows are available or maxLatency elapsed — the two
                         // flush triggers in one call.
-                        Queues.drain(this.queue, batch, this.config.getMaxRows(), this.config.getMaxLatency());
+                        this.queue.drain(batch, targetRows(), this.config.getMaxLatency());
                     } catch (final InterruptedException e) {
                         // Only stop() interrupts us, and only after the grace period expired —
                         // the insert below would be interrupted too, so give up instead of
                         // flushing. These rows already left the queue, so stop()'s leftover
-                        // sweep cannot see them: count them here or they vanish from every
-                        // counter.
+                        // sweep cannot see them: spill or count them here or they vanish from
+                        // every counter.
                         Thread.currentThread().interrupt();
-                        if (!batch.isEmpty()) {
+                        if (!batch.isEmpty() && !spill(batch)) {
                             this.failedRows.inc(batch.size());
                             log.warn("Flusher interrupted with {} rows drained but unflushed", batch.size());
                         }
                         return;
                     }
+                    if (batch.isEmpty() && startReplay(true)) {
+                        // A whole window without traffic: probe the server with the spill's
+                        // head, or a spill left behind by an outage would wait for the next
+                        // live insert to succeed before it is ever replayed.
+                        replayed = true;
+                        permit = false;
+                        continue;
+                    }
                 }
                 if (!batch.isEmpty()) {
-                    flush(batch);
+                    // The permit travels with the batch: the insert returns it.
+                    this.inserting.incrementAndGet();
+                    try {
+                        this.inserters.execute(new Insert(batch));
+                    } catch (final RuntimeException e) {
+                        this.inserting.decrementAndGet();
+                        throw e;
+                    }
+                    permit = false;
                 }
             } catch (final Throwable e) {
                 // Throwable on purpose: this is the only flusher, and a silent death (a metrics
-                // bug, an Error, anything unforeseen) would turn into a permanent 100% drop.
-                // Count whatever was in hand, log, and keep looping.
+                // bug, an Error, a rejected submission, anything unforeseen) would turn into a
+                // permanent 100% drop. Count whatever was in hand, log, and keep looping.
                 this.failedRows.inc(batch.size());
                 log.error("Unexpected error in the batch flusher — continuing", e);
+            } finally {
+                if (permit) {
+                    this.inFlight.release();
+                }
+            }
+        }
+    }
+
+    /**
+     * Hand the spill's head to an insert thread, if there is one, {@code due} is set and no
+     * other replay is running. The caller's permit goes with it.
+     */
+    private boolean startReplay(final boolean due) {
+        final SpillQueue spill = this.spill;
+        if (!due || spill == null || spill.isEmpty() || !this.replaying.compareAndSet(false, true)) {
+            return false;
+        }
+        this.inserting.incrementAndGet();
+        try {
+            this.inserters.execute(new Replay(spill));
+        } catch (final RuntimeException e) {
+            this.inserting.decrementAndGet();
+            this.replaying.set(false);
+            throw e;
+        }
+        return true;
+    }
+
+    /** Block until no insert is in flight. */
+    private void awaitInFlight() {
+        final int permits = this.config.getMaxInFlightInserts();
+        try {
+            this.inFlight.acquire(permits);
+            this.inFlight.release(permits);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** One batch on its way to the delegate, holding one {@link #inFlight} permit until it lands. */
+    private final class Insert implements Runnable {
+        private final List<EnrichedFlow> batch;
+
+        Insert(final List<EnrichedFlow> batch) {
+            this.batch = batch;
+        }
+
+        @Override
+        public void run() {
+            try {
+                flush(this.batch);
+            } catch (final Throwable e) {
+                // flush() counts and logs what it expects; anything else must not take the
+                // permit down with it, or the flusher would eventually wait forever.
+                failedRows.inc(this.batch.size());
+                log.error("Unexpected error in a batch insert — continuing", e);
+            } finally {
+                inserting.decrementAndGet();
+                inFlight.release();
+            }
+        }
+    }
+
+    /** The spill's head on its way to the delegate, holding one {@link #inFlight} permit. */
+    private final class Replay implements Runnable {
+        private final SpillQueue spill;
+
+        Replay(final SpillQueue spill) {
+            this.spill = spill;
+        }
+
+        @Override
+        public void run() {
+            try {
+                replay(this.spill);
+            } catch (final Throwable e) {
+                // Whatever it was, the rows are still on disk; the next replay tries again.
+                log.error("Unexpected error replaying the spill — continuing", e);
+            } finally {
+                replaying.set(false);
+                inserting.decrementAndGet();
+                inFlight.release();
             }
         }
     }
 
     /**
      * Hand one batch to the delegate. Never throws: a poison batch (mapping bug, rejected rows,
-     * unreachable server after client-side retries) is logged and counted, and the flusher moves
-     * on — one bad batch must not wedge the pipeline. An interrupt during the insert stays
-     * visible on the thread (the delegate restores the flag), so the loop above still exits.
+     * unreachable server after retries) is logged, spilled or counted, and the flusher moves on —
+     * one bad batch must not wedge the pipeline. Runs on an insert thread, or on the caller of
+     * {@code stop()} for the leftover sweep.
      */
     private void flush(final List<EnrichedFlow> batch) {
+        shape(batch);
+        final Timer.Context ctx = this.flushTimer.time();
+        boolean succeeded = false;
+        try {
+            // Drawn once per batch and kept across its attempts: what makes a retry safe.
+            final String token = UUID.randomUUID().toString();
+            final Exception failure = insert(batch, token);
+            succeeded = failure == null;
+            if (succeeded) {
+                this.healthy.set(true);
+            } else {
+                failed(batch, token, failure, new AtomicInteger(this.config.getRetry().getMaxBisectInserts()));
+            }
+        } finally {
+            adapt(succeeded, ctx.stop());
+        }
+    }
+
+    /**
+     * One insert, with transient failures retried (see {@link ClickhouseConfig.BatchConfig.RetryConfig}).
+     * Every attempt carries {@code token}, so the server discards an attempt repeating one that
+     * landed unacknowledged. Returns null once the rows are in, or the failure that ended the
+     * attempts: not transient, out of attempts, or interrupted.
+     */
+    private Exception insert(final List<EnrichedFlow> rows, final String token) {
+        final ClickhouseConfig.BatchConfig.RetryConfig retry = this.config.getRetry();
+        long backoffNanos = retry.getInitialBackoff().toNanos();
+        for (int attempt = 1; ; attempt++) {
+            try {
+                this.delegate.persist(rows, token);
+                return null;
+            } catch (final FlowException | IOException | RuntimeException e) {
+                if (attempt >= retry.getMaxAttempts() || InsertFailure.of(e) != InsertFailure.TRANSIENT
+                        || Thread.currentThread().isInterrupted()) {
+                    return e;
+                }
+                this.retries.inc();
+                // Jittered, so the inserts of one outage do not all come back in the same instant.
+                final long sleepNanos = backoffNanos / 2 + ThreadLocalRandom.current().nextLong(backoffNanos / 2 + 1);
+                log.warn("Failed to persist {} flows (attempt {} of {}), retrying in {} ms: {}", rows.size(),
+                        attempt, retry.getMaxAttempts(), TimeUnit.NANOSECONDS.toMillis(sleepNanos), e.toString());
+                try {
+                    TimeUnit.NANOSECONDS.sleep(sleepNanos);
+                } catch (final InterruptedException interrupted) {
+                    // stop() gave up on the drain: no more attempts, the caller spills.
+                    Thread.currentThread().interrupt();
+                    return e;
+                }
+                backoffNanos = Math.min(backoffNanos * 2, retry.getMaxBackoff().toNanos());
+            }
+        }
+    }
+
+    /**
+     * Settle rows whose insert failed for good. Rows the server rejected are bisected until the
+     * rejected ones are isolated, within {@code budget} further inserts, and only those are lost;
+     * anything else — an outage, the budget spent on a batch that is bad throughout — is spilled,
+     * or counted as failed. Returns how many of the rows were inserted after all.
+     */
+    private int failed(final List<EnrichedFlow> rows, final String token, final Exception failure,
+                        final AtomicInteger budget) {
+        if (InsertFailure.of(failure) != InsertFailure.REJECTED) {
+            this.healthy.set(false);
+            // With its token: an attempt may have landed unacknowledged, and the replay must be
+            // recognised as its repeat.
+            if (spill(rows, token)) {
+                log.warn("Failed to persist a batch of {} flows — spilled it for replay", rows.size(), failure);
+            } else {
+                this.failedRows.inc(rows.size());
+                log.error("Failed to persist a batch of {} flows — dropping the batch", rows.size(), failure);
+            }
+            return 0;
+        }
+
+        // The server answered, about these rows: it is taking inserts.
+        this.healthy.set(true);
+        if (rows.size() == 1 || budget.get() <= 0) {
+            this.rejectedRows.inc(rows.size());
+            this.failedRows.inc(rows.size());
+            log.error("ClickHouse rejected {} flows — dropping them", rows.size(), failure);
+            return 0;
+        }
+        final int half = rows.size() / 2;
+        final List<List<EnrichedFlow>> halves = List.of(
+                new ArrayList<>(rows.subList(0, half)),
+                new ArrayList<>(rows.subList(half, rows.size())));
+        int inserted = 0;
+        for (int i = 0; i < halves.size(); i++) {
+            // Derived, not drawn: a half is new to the server, but its own retries must match.
+            final String halfToken = token + "." + i;
+            // Out of budget, a half is settled on its parent's rejection, unattempted.
+            final Exception halfFailure = budget.getAndDecrement() > 0 ? insert(halves.get(i), halfToken) : failure;
+            inserted += halfFailure == null
+                    ? halves.get(i).size()
+                    : failed(halves.get(i), halfToken, halfFailure, budget);
+        }
+        return inserted;
+    }
+    /**
+     * Record a batch about to be inserted, putting it into the table's order first if presorting
+     * is on. Every partition the batch touches becomes a part of its own on the server.
+     */
+    private void shape(final List<EnrichedFlow> batch) {
         this.batchSize.update(batch.size());
-        try (var ctx = this.flushTimer.time()) {
-            this.delegate.persist(batch);
-        } catch (final FlowException | IOException | RuntimeException e) {
-            this.failedRows.inc(batch.size());
-            log.error("Failed to persist a batch of {} flows — dropping the batch", batch.size(), e);
+        this.partitionsPerInsert.update(this.config.isPresort()
+                ? BatchShaper.shape(batch)
+                : BatchShaper.partitions(batch));
+    }
+
+    /** Feed one finished insert back into the adaptive target, if sizing is adaptive. */
+    private void adapt(final boolean succeeded, final long latencyNanos) {
+        if (this.adaptive != null) {
+            // Every insert is a part: the flush timer's rate is the part rate riptide causes.
+            this.adaptive.onInsert(succeeded, latencyNanos, this.queue.size(), this.flushTimer.getOneMinuteRate());
+        }
+    }
+
+    /**
+     * Insert the spill's head and remove it once it landed. Up to {@code maxRows} rows of
+     * consecutive spilled batches go as one insert, so the many small records an overflow spills
+     * do not come back as many small parts. The head keeps those records until it is removed —
+     * split after a failure, a part of it would go under a new token, and be written twice had
+     * the failed insert landed unacknowledged — so a poison batch among them is dropped with them.
+     */
+    private void replay(final SpillQueue spill) {
+        final SpillQueue.Batch head;
+        try {
+            head = spill.peek(targetRows());
+        } catch (final IllegalArgumentException e) {
+            final int rows = spill.discard();
+            this.failedRows.inc(rows);
+            log.error("Discarding {} spilled flows this version cannot read", rows, e);
+            return;
+        }
+        if (head == null) {
+            return;
+        }
+        final List<EnrichedFlow> flows = head.flows();
+        final boolean wasHealthy = this.healthy.get();
+        shape(flows);
+        final Timer.Context ctx = this.flushTimer.time();
+        // The head's token: the attempts' own for a batch spilled after a failed insert, else
+        // derived from where it sits. Either way the same head replayed again — after a failed
+        // attempt, or by the next run after a crash before remove() — is discarded if it landed.
+        final Exception e = insert(flows, head.token());
+        if (e != null) {
+            adapt(false, ctx.stop());
+            if (InsertFailure.of(e) == InsertFailure.REJECTED) {
+                // Isolate what the server refuses and replay the rest; a part that fails
+                // otherwise on the way goes back into the spill, at its tail.
+                this.replayFailures.set(0);
+                this.replayedRows.inc(failed(flows, head.token(), e,
+                        new AtomicInteger(this.config.getRetry().getMaxBisectInserts())));
+                spill.remove(head.records());
+                return;
+            }
+            this.healthy.set(false);
+            if (wasHealthy && this.replayFailures.incrementAndGet() >= MAX_REPLAY_ATTEMPTS) {
+                // The server takes other inserts but not this one: a poison batch, which
+                // would otherwise block the replay of everything behind it forever.
+                this.replayFailures.set(0);
+                spill.remove(head.records());
+                this.failedRows.inc(flows.size());
+                log.error("Failed to replay {} spilled flows {} times while other inserts succeed — dropping them",
+                        flows.size(), MAX_REPLAY_ATTEMPTS, e);
+            } else {
+                log.warn("Failed to replay {} spilled flows — keeping them for the next attempt", flows.size(), e);
+            }
+            return;
         }
+        adapt(true, ctx.stop());
+        spill.remove(head.records());
+        this.replayFailures.set(0);
+        this.healthy.set(true);
+        this.replayedRows.inc(flows.size());
     }
 
     @Override
@@ -247,7 +741,7 @@ public class BatchingFlowRepository implements FlowRepository {
             try {
                 // The flusher sees the stop flag at the latest after the current drain window
                 // (maxLatency < grace, enforced by validate()), then drains the queue
-                // non-blocking and exits.
+                // non-blocking, waits for the inserts in flight, and exits.
                 thread.join(Math.max(1, this.config.getShutdownGracePeriod().toMillis()));
             } catch (final InterruptedException e) {
                 Thread.currentThread().interrupt();
@@ -259,6 +753,7 @@ public class BatchingFlowRepository implements FlowRepository {
                 // insert still in flight.
                 graceExpired = true;
                 thread.interrupt();
+                abortInserts();
                 log.warn("Batch flusher did not drain within {}; about {} accepted rows undelivered",
                         this.config.getShutdownGracePeriod(), this.queue.size());
                 try {
@@ -273,6 +768,7 @@ public class BatchingFlowRepository implements FlowRepository {
             }
             this.flusher = null;
         }
+        shutdownInserters();
 
         // Straggler sweep: a producer may pass the stopped check and offer after the flusher's
         // final drain — without this, those rows would be lost uncounted.
@@ -284,14 +780,71 @@ public class BatchingFlowRepository implements FlowRepository {
         // can insert it any more (the delegate is stopped), but silent loss is the one outcome
         // this class must never have — count it.
         final List<EnrichedFlow> residue = new ArrayList<>();
-        this.queue.drainTo(residue);
-        if (!residue.isEmpty()) {
+        this.queue.drainTo(residue, Integer.MAX_VALUE);
+        if (!residue.isEmpty() && !spill(residue)) {
             this.droppedRows.inc(residue.size());
             log.warn("Dropping {} flows offered after the shutdown drain", residue.size());
         }
 
-        // Unregister the gauge: left behind, it would read this dead instance's queue forever.
+        // Whatever is still spilled is the next run's to replay.
+        final SpillQueue spill = this.spill;
+        if (spill != null) {
+            spill.close();
+        }
+
+        // Unregister the gauges: left behind, they would read this dead instance forever.
         this.metricRegistry.remove(this.queueDepthGauge);
+        this.metricRegistry.remove(this.targetRowsGauge);
+        this.metricRegistry.remove(this.inFlightGauge);
+        this.metricRegistry.remove(this.spilledBytesGauge);
+        this.metricRegistry.remove(this.spillSegmentsGauge);
+        this.metricRegistry.remove(this.replayLagGauge);
+    }
+
+    /**
+     * Interrupt the inserts in flight once the grace period is spent: they are what the flusher is
+     * waiting on. An insert that had not started yet never will, so its rows are spilled or
+     * counted here; a replay that had not started leaves its rows on disk.
+     */
+    private void abortInserts() {
+        final ExecutorService pool = this.inserters;
+        if (pool == null) {
+            return;
+        }
+        for (final Runnable unstarted : pool.shutdownNow()) {
+            if (unstarted instanceof Insert insert) {
+                if (!spill(insert.batch)) {
+                    this.failedRows.inc(insert.batch.size());
+                }
+                this.inserting.decrementAndGet();
+                this.inFlight.release();
+            } else if (unstarted instanceof Replay) {
+                this.replaying.set(false);
+                this.inserting.decrementAndGet();
+                this.inFlight.release();
+            }
+        }
+    }
+
+    /**
+     * Retire the insert threads. On the healthy path the flusher has already waited for every
+     * insert, so this returns at once; after an abort it gives the interrupted inserts a moment to
+     * unwind, so delegate.stop() does not run under one.
+     */
+    private void shutdownInserters() {
+        final ExecutorService pool = this.inserters;
+        if (pool == null) {
+            return;
+        }
+        pool.shutdown();
+        try {
+            if (!pool.awaitTermination(INTERRUPT_JOIN_MS, TimeUnit.MILLISECONDS)) {
+                log.warn("Batch inserts still running after the interrupt — continuing shutdown");
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        this.inserters = null;
     }
 
     /**
@@ -303,7 +856,8 @@ public class BatchingFlowRepository implements FlowRepository {
      * @param graceExpired when the flusher had to be interrupted: the grace budget is spent and
      *                     the delegate is why, so another blocking insert would hang shutdown
      *                     past the service manager's stop timeout (the client has no socket
-     *                     timeout by default) for rows unlikely to land anyway. Count and log.
+     *                     timeout by default) for rows unlikely to land anyway. Spill them, or
+     *                     count and log.
      */
     private void sweep(final boolean graceExpired) {
         while (true) {
@@ -313,6 +867,9 @@ public class BatchingFlowRepository implements FlowRepository {
                 return;
             }
             if (graceExpired) {
+                if (spill(chunk)) {
+                    continue;
+                }
                 this.failedRows.inc(chunk.size());
                 log.error("Dropping {} leftover flows: the shutdown grace period is exhausted",
                         chunk.size());
@@ -7,17 +7,15 @@ package org.riptide.repository.clickhouse;
 
 
 import com.clickhouse.client.api.Client;
+import com.clickhouse.client.api.insert.InsertSettings;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
-import org.mapstruct.BeanMapping;
-import org.mapstruct.Mapper;
-import org.mapstruct.NullValueCheckStrategy;
 import org.riptide.config.ClickhouseConfig;
-import org.riptide.flows.parser.data.Flow;
 import org.riptide.pipeline.EnrichedFlow;
 import org.riptide.pipeline.FlowException;
 import com.clickhouse.client.api.metadata.TableSchema;
 import com.clickhouse.data.ClickHouseColumn;
+import com.clickhouse.data.ClickHouseFormat;
 import org.riptide.repository.FlowRepository;
 import org.riptide.schema.FlowsSchema;
 import org.riptide.schema.RollupAvailability;
@@ -25,54 +23,69 @@ import org.riptide.schema.RollupShapeCheck;
 import org.riptide.secrets.SecretResolvers;
 
 import java.io.IOException;
-import java.net.Inet4Address;
-import java.net.Inet6Address;
-import java.lang.reflect.Field;
-import java.lang.reflect.Modifier;
-import java.net.InetAddress;
-import java.time.Instant;
-import java.time.OffsetDateTime;
-import java.time.ZoneOffset;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutionException;
 import java.util.stream.Collectors;
 
 @Slf4j
-public class ClickhouseRepository implements FlowRepository {
+public class ClickhouseRepository implements FlowRepository, RollupSink {
 
     /**
-     * The columns riptide inserts, derived from the persisted-flow POJO whose field names match
-     * the ClickHouse column names 1:1. The startup schema check requires all of these to be
-     * present; a table missing any is stale or mis-provisioned and fails fast (before the first
-     * insert would fail opaquely).
+     * The columns riptide inserts: exactly those the batch writer fills. The startup schema check
+     * requires all of these to be present; a table missing any is stale or mis-provisioned and
+     * fails fast (before the first insert would fail opaquely).
      */
-    private static final Set<String> REQUIRED_COLUMNS = Arrays.stream(ClickhouseFlow.class.getDeclaredFields())
-            .filter(field -> !Modifier.isStatic(field.getModifiers()) && !field.isSynthetic())
-            .map(Field::getName)
-            .collect(Collectors.toUnmodifiableSet());
-
-    private final FlowMapper flowMapper;
+    private static final Set<String> REQUIRED_COLUMNS = Set.copyOf(FlowBatchWriter.FIELDS.keySet());
 
     private final ClickhouseConfig config;
 
+    private final String endpoint;
+
+    // Whether the endpoint is one of several replicas of its shard, whose flows table must then
+    // replicate; see checkReplicated().
+    private final boolean replica;
+
     private final Client client;
 
     // Retained so manage mode can open a second, unpinned client to create the database.
     private final String username;
     private final String password;
 
+    // The writer bound to the live flows table by start(); every pooled writer is a copy of it.
+    private volatile FlowBatchWriter binding;
+
+    // Whether start() saw a rollup view; see rollupViewsPresent().
+    private volatile boolean rollupViewsPresent;
+
+    // Batches with their writers, reused across inserts. A pool rather than one per repository:
+    // without the batching decorator every parser thread calls persist directly, concurrently. It
+    // holds at most as many slots as there were concurrent inserts at the peak.
+    private final ConcurrentLinkedQueue<Slot> slots = new ConcurrentLinkedQueue<>();
+
+    public ClickhouseRepository(final ClickhouseConfig config,
+                                final SecretResolvers secretResolvers) {
+        this(config, config.getEndpoint(), secretResolvers);
+    }
+
+    /**
+     * A repository writing to {@code endpoint} rather than {@link ClickhouseConfig#getEndpoint()}:
+     * one replica of one of the configured {@link ClickhouseConfig#getShards() shards}. Everything
+     * else — credentials, database, schema management — comes from {@code config}, so every
+     * replica ends up with the same schema.
+     */
     @SneakyThrows
-    public ClickhouseRepository(final FlowMapper flowMapper,
-                                final ClickhouseConfig config,
+    public ClickhouseRepository(final ClickhouseConfig config,
+                                final String endpoint,
                                 final SecretResolvers secretResolvers) {
-        this.flowMapper = Objects.requireNonNull(flowMapper);
         this.config = Objects.requireNonNull(config);
+        this.endpoint = Objects.requireNonNull(endpoint, "endpoint");
+        this.replica = config.topology().stream().anyMatch(shard -> shard.size() > 1 && shard.contains(endpoint));
         Objects.requireNonNull(secretResolvers, "secretResolvers");
 
         // Resolve the credential SecretRefs once, before the client is built. resolve() is
@@ -87,7 +100,7 @@ public class ClickhouseRepository implements FlowRepository {
         this.password = resolvedPassword != null ? resolvedPassword : "";
 
         final var builder = new Client.Builder()
-                .addEndpoint(config.getEndpoint())
+                .addEndpoint(endpoint)
                 .setUsername(this.username)
                 .setPassword(this.password)
                 .setDefaultDatabase(config.getDatabase())
@@ -110,9 +123,34 @@ public class ClickhouseRepository implements FlowRepository {
 
     @Override
     public void persist(final List<EnrichedFlow> flows) throws FlowException, IOException {
+        persist(flows, null);
+    }
+
+    /**
+     * Insert with {@code insert_deduplication_token} set, so the server discards a second insert
+     * of the same batch — the retry of an insert whose acknowledgement was lost. The token covers
+     * the insert's blocks in order, so a retry must carry the same rows in the same order.
+     * Deduplication needs a replicated {@code flows} table or one with
+     * {@code non_replicated_deduplication_window} set (see
+     * {@link FlowsSchema#enableInsertDeduplication}), and is off for coalesced (async) inserts.
+     */
+    @Override
+    public void persist(final List<EnrichedFlow> flows, final String deduplicationToken)
+            throws FlowException, IOException {
+        final FlowBatchWriter binding = this.binding;
+        if (binding == null) {
+            throw new IllegalStateException("ClickhouseRepository.persist called before start()");
+        }
+        final Slot slot = Objects.requireNonNullElseGet(this.slots.poll(),
+                () -> new Slot(new FlowBatch(), binding.copy()));
         try {
-            // Persist raw flows
-            this.client.insert("flows", flows.stream().map(this.flowMapper::flow).toList()).get();
+            slot.batch().appendAll(flows);
+            // Straight from the batch's columns: no per-row POJO, no reflection. The header names
+            // each column with its live type, so the server checks what it is sent. The batch is
+            // held until the insert completes, so a client retry re-reads the same rows.
+            this.client.insert("flows", slot.writer().columns(),
+                    out -> slot.writer().write(slot.batch(), out),
+                    ClickHouseFormat.RowBinaryWithNamesAndTypes, insertSettings(deduplicationToken)).get();
 
         } catch (final InterruptedException e) {
             // Restore the flag before wrapping: the batching flusher swallows FlowException (a
@@ -122,7 +160,41 @@ public class ClickhouseRepository implements FlowRepository {
             throw new FlowException(e);
         } catch (final ExecutionException e) {
             throw new FlowException(e);
+        } finally {
+            slot.batch().clear();
+            this.slots.offer(slot);
+        }
+    }
+
+    @Override
+    public void insertRollup(final String table, final List<String> columns, final byte[] body) throws FlowException {
+        try {
+            this.client.insert(table, columns, out -> out.write(body),
+                    ClickHouseFormat.RowBinaryWithNamesAndTypes, new InsertSettings()).get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new FlowException(e);
+        } catch (final ExecutionException e) {
+            throw new FlowException(e);
+        }
+    }
+
+    /**
+     * From the catalog read at {@code start()}: in manage mode with collector rollups the views
+     * were dropped just before, so this reads false unless the drop was refused; in validate mode
+     * it is whatever the provisioning left. A catalog that could not be read counts as no views.
+     */
+    @Override
+    public boolean rollupViewsPresent() {
+        return this.rollupViewsPresent;
+    }
+
+    private static InsertSettings insertSettings(final String deduplicationToken) {
+        final InsertSettings settings = new InsertSettings();
+        if (deduplicationToken != null) {
+            settings.setDeduplicationToken(deduplicationToken);
         }
+        return settings;
     }
 
     @Override
@@ -142,13 +214,20 @@ public class ClickhouseRepository implements FlowRepository {
             for (final String ddl : FlowsSchema.addAdditiveColumns(this.config.getDatabase())) {
                 this.client.execute(ddl).get();
             }
+            this.client.execute(FlowsSchema.enableInsertDeduplication(this.config.getDatabase())).get();
         }
 
         // Both modes: the flows table must exist and carry every column riptide inserts. Fail-fast
         // guard (no ALTER, no migration): in manage mode it catches a stale table that IF NOT
         // EXISTS no-oped over; in validate mode it catches an absent or mis-provisioned schema —
-        // before the first insert would fail with an opaque error. Reuses the schema for register.
-        final TableSchema schema = checkSchema();
+        // before the first insert would fail with an opaque error. The writer is bound to the
+        // schema it read, so a column of a type riptide cannot write fails here too. Pooled writers
+        // from an earlier start() are bound to what the table was then, so they go.
+        this.binding = FlowBatchWriter.forSchema(checkSchema());
+        this.slots.clear();
+        if (this.replica) {
+            checkReplicated();
+        }
 
         if (this.config.isManageSchema()) {
             // Rollups come after the flows check, not with the DDL above: their materialized views
@@ -158,7 +237,12 @@ public class ClickhouseRepository implements FlowRepository {
             for (final String ddl : FlowsSchema.createRollupTables(this.config.getDatabase())) {
                 this.client.execute(ddl).get();
             }
-            for (final String ddl : FlowsSchema.createRollupViews(this.config.getDatabase())) {
+            // With the collector computing the rollups the views go, including any an earlier
+            // run in server mode created: left in place, each would count every insert twice.
+            final List<String> views = this.config.getRollups().isCollector()
+                    ? FlowsSchema.dropRollupViews(this.config.getDatabase())
+                    : FlowsSchema.createRollupViews(this.config.getDatabase());
+            for (final String ddl : views) {
                 this.client.execute(ddl).get();
             }
         }
@@ -167,8 +251,6 @@ public class ClickhouseRepository implements FlowRepository {
         // query path off it. Runs last because in manage mode the CREATEs above are what a fresh
         // install's shape comes from. Never fails startup — see verifyRollupShapes.
         verifyRollupShapes();
-
-        this.client.register(ClickhouseFlow.class, schema);
     }
 
     /**
@@ -188,7 +270,11 @@ public class ClickhouseRepository implements FlowRepository {
     private void verifyRollupShapes() {
         final List<RollupShapeCheck.Result> results;
         try {
-            results = RollupShapeCheck.compare(this.config.getDatabase(), readRollupSelects(), readRollupColumns());
+            final Map<String, String> selects = readRollupSelects();
+            this.rollupViewsPresent = FlowsSchema.rollupTableNames().stream()
+                    .anyMatch(rollup -> selects.containsKey(rollup + "_mv"));
+            results = RollupShapeCheck.compare(this.config.getDatabase(), selects, readRollupColumns(),
+                    !this.config.getRollups().isCollector());
         } catch (final InterruptedException e) {
             // Startup is being torn down. Restore the flag and leave the verdict at its default —
             // every rollup usable — rather than judging on a half-read catalog.
@@ -266,6 +352,29 @@ public class ClickhouseRepository implements FlowRepository {
         return columns;
     }
 
+    /**
+     * Verify the {@code flows} table replicates, throwing an actionable
+     * {@link IllegalStateException} otherwise. Failover writes each batch to one replica of the
+     * shard and relies on the table to copy it to the rest; a plain {@code MergeTree} keeps it
+     * where it landed, and its deduplication log is its own, so a retry that fails over to another
+     * replica is inserted twice. {@code Shared*} engines (ClickHouse Cloud) replicate too.
+     */
+    private void checkReplicated() throws Exception {
+        final List<String> engines = new ArrayList<>();
+        try (var records = this.client.queryRecords(
+                "SELECT engine FROM system.tables WHERE database = "
+                        + quote(this.config.getDatabase()) + " AND name = 'flows'").get()) {
+            records.forEach(record -> engines.add(record.getString("engine")));
+        }
+        if (engines.isEmpty() || !(engines.get(0).startsWith("Replicated") || engines.get(0).startsWith("Shared"))) {
+            throw new IllegalStateException(
+                    "flows table in database '" + this.config.getDatabase() + "' on replica " + this.endpoint
+                            + " is " + (engines.isEmpty() ? "not visible in system.tables" : "a " + engines.get(0))
+                            + ", which does not replicate — a shard of several replicas needs ReplicatedMergeTree"
+                            + " tables (see the ClickHouse deployment docs).");
+        }
+    }
+
     /**
      * The database name as a SQL string literal. {@link FlowsSchema} already rejects any name
      * outside {@code [A-Za-z0-9_-]+} before it reaches a statement, so this is defence in depth
@@ -285,7 +394,7 @@ public class ClickhouseRepository implements FlowRepository {
     @SneakyThrows
     private void ensureDatabase() {
         try (Client bootstrap = new Client.Builder()
-                .addEndpoint(this.config.getEndpoint())
+                .addEndpoint(this.endpoint)
                 .setUsername(this.username)
                 .setPassword(this.password)
                 .setDefaultDatabase("default")
@@ -302,7 +411,7 @@ public class ClickhouseRepository implements FlowRepository {
      * {@code system} database), so it works for a narrowly-granted writer that can describe its
      * table but not the server catalog.
      *
-     * @return the table schema, reused for POJO registration
+     * @return the table schema, which the batch writer is bound to
      */
     private TableSchema checkSchema() {
         final TableSchema schema;
@@ -349,95 +458,7 @@ public class ClickhouseRepository implements FlowRepository {
         return schema;
     }
 
-    @Mapper(nullValueCheckStrategy = NullValueCheckStrategy.ALWAYS,
-            componentModel = "spring")
-    public abstract static class FlowMapper {
-        @BeanMapping(ignoreUnmappedSourceProperties = {
-                "dscp",
-                "ecn",
-                "flowRecords",
-                "flowSeqNum",
-        })
-        public abstract ClickhouseFlow flow(EnrichedFlow flow);
-
-        protected OffsetDateTime timestamp(final Instant value) {
-            // UTC offset so the client-v2 DateTime64 encoding is an absolute instant, independent
-            // of the collector host's timezone (#276).
-            return value.atOffset(ZoneOffset.UTC);
-        }
-
-        @SneakyThrows
-        protected Inet6Address address(final InetAddress value) {
-            if (value instanceof Inet6Address v6) {
-                return v6;
-            }
-
-            if (value instanceof Inet4Address v4) {
-                final var d = v4.getAddress();
-                return Inet6Address.getByAddress(null, new byte[]{
-                        (byte) 0x00, (byte) 0x00, (byte) 0x00, (byte) 0x00,
-                        (byte) 0x00, (byte) 0x00, (byte) 0x00, (byte) 0x00,
-                        (byte) 0x00, (byte) 0x00, (byte) 0xff, (byte) 0xff,
-                        (byte) d[0], (byte) d[1], (byte) d[2], (byte) d[3],
-                }, null);
-            }
-
-            return null;
-        }
-
-        // The four Enum8 columns below are mapped by name rather than by ordinal. The values are
-        // fixed by the schema (FlowsSchema.createFlowsTable) and are already written into every
-        // stored row, so they cannot move: with ordinal arithmetic, reordering a constant or
-        // inserting one in the middle would silently re-map live data and every historical row
-        // would read back as the wrong value. An exhaustive switch instead fails to compile when a
-        // constant is added, which is the moment the schema needs the matching ALTER.
-
-        protected byte direction(final Flow.Direction value) {
-            return switch (value) {
-                case INGRESS -> (byte) 1;
-                case EGRESS -> (byte) 2;
-                case UNKNOWN -> (byte) 3;
-            };
-        }
-
-        protected byte samplingAlgorithm(final Flow.SamplingAlgorithm value) {
-            return switch (value) {
-                case Unassigned -> (byte) 1;
-                case SystematicCountBasedSampling -> (byte) 2;
-                case SystematicTimeBasedSampling -> (byte) 3;
-                case RandomNOutOfNSampling -> (byte) 4;
-                case UniformProbabilisticSampling -> (byte) 5;
-                case PropertyMatchFiltering -> (byte) 6;
-                case HashBasedFiltering -> (byte) 7;
-                case FlowStateDependentIntermediateFlowSelectionProcess -> (byte) 8;
-            };
-        }
-
-        protected byte protocol(final Flow.FlowProtocol value) {
-            return switch (value) {
-                case NetflowV5 -> (byte) 1;
-                case NetflowV9 -> (byte) 2;
-                case IPFIX -> (byte) 3;
-                case SFLOW -> (byte) 4;
-            };
-        }
-
-        protected byte locality(final Flow.Locality value) {
-            return switch (value) {
-                case PUBLIC -> (byte) 1;
-                case PRIVATE -> (byte) 2;
-            };
-        }
-
-        /**
-         * A {@code LowCardinality(String)}, not an {@code Enum8} like the four above: the rung set
-         * is riptide's own and still growing, and the additive-column path can only add a column,
-         * never modify one, so an enum that later gained a value would need machinery that does
-         * not exist. The token comes off the constant rather than {@code name()} so renaming a
-         * Java constant cannot silently change what stored rows say.
-         */
-        protected String samplingProvenance(final Flow.SamplingProvenance value) {
-            return value.token();
-        }
+    /** A batch and the writer that encodes it, pooled together so neither is allocated per insert. */
+    private record Slot(FlowBatch batch, FlowBatchWriter writer) {
     }
 }
@@ -0,0 +1,263 @@
+/*
+ * Copyright 2026 Riptide Labs, <https://github.com/Riptide-Labs>
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package org.riptide.repository.clickhouse;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.riptide.pipeline.EnrichedFlow;
+import org.riptide.pipeline.FlowException;
+import org.riptide.repository.FlowRepository;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.LongSupplier;
+
+/**
+ * The replicas of one shard behind a single repository: every insert goes to exactly one of them,
+ * the first healthy one in configured order. A replica whose insert fails is marked down and
+ * passed over for the failover cooldown while the others take its inserts; a success marks it
+ * healthy again. The replicas' tables are replicated — riptide refuses to manage the schema of
+ * a shard of several replicas, and checks the engine of a provisioned one at startup — so the rows
+ * reach the rest whichever replica took them, and the replicas share one deduplication log: a
+ * retried insert that lands on another replica than the attempt it repeats is still discarded.
+ *
+ * <p>When every replica is down, every one is tried anyway — the one that has been down longest
+ * first — rather than failing the insert unattempted: the cooldown is a guess about when a server
+ * is back, and a guess must not turn a recovered shard into lost rows. Only if all of them fail
+ * does the insert fail, with the last replica's error, and the batching layer in front decides what
+ * happens to the rows (spill or count them).
+ *
+ * <p>An insert the server rejects for its rows ({@link InsertFailure#REJECTED}) is not a replica
+ * failure: it is rethrown as is, without marking the replica down or trying the next.
+ *
+ * <p>A replica that cannot be reached at startup does not fail it as long as one other replica
+ * starts: its schema check is retried before its first insert, so a replica that was down for the
+ * deploy joins once it is back. Per replica, {@code persister.<shard>.replica<N>.inserts} and
+ * {@code .failures} count what it was sent, and the {@code .healthy} gauge reads 1 while it is not
+ * passed over.
+ */
+@Slf4j
+public final class FailoverFlowRepository implements FlowRepository, RollupSink {
+
+    private final String shard;
+
+    private final List<Replica> replicas;
+
+    private final long cooldownNanos;
+
+    private final LongSupplier nanoTime;
+
+    private final MetricRegistry metricRegistry;
+
+    /**
+     * @param shard    the shard's name, for metrics and logs
+     * @param replicas the shard's replicas by endpoint, in failover order
+     */
+    public FailoverFlowRepository(final String shard,
+                                  final Map<String, ? extends FlowRepository> replicas,
+                                  final Duration cooldown,
+                                  final MetricRegistry metricRegistry) {
+        this(shard, replicas, cooldown, metricRegistry, System::nanoTime);
+    }
+
+    /** Test seam: a controllable clock, so the cooldown can be exercised without sleeping. */
+    FailoverFlowRepository(final String shard,
+                           final Map<String, ? extends FlowRepository> replicas,
+                           final Duration cooldown,
+                           final MetricRegistry metricRegistry,
+                           final LongSupplier nanoTime) {
+        if (replicas.isEmpty()) {
+            throw new IllegalArgumentException("Shard " + shard + " has no replicas");
+        }
+        this.shard = Objects.requireNonNull(shard);
+        this.cooldownNanos = cooldown.toNanos();
+        this.metricRegistry = Objects.requireNonNull(metricRegistry);
+        this.nanoTime = Objects.requireNonNull(nanoTime);
+
+        this.replicas = new ArrayList<>();
+        for (final var entry : replicas.entrySet()) {
+            final String scope = MetricRegistry.name("persister", shard, "replica" + this.replicas.size());
+            final Replica replica = new Replica(entry.getKey(), Objects.requireNonNull(entry.getValue()),
+                    metricRegistry.counter(MetricRegistry.name(scope, "inserts")),
+                    metricRegistry.counter(MetricRegistry.name(scope, "failures")),
+                    MetricRegistry.name(scope, "healthy"));
+            // Remove first, as the batching gauges do: a restarted context registers again, and a
+            // gauge left reading a dead instance is worse than none.
+            metricRegistry.remove(replica.healthyGauge);
+            metricRegistry.register(replica.healthyGauge, (Gauge<Integer>) () -> replica.isDown(this.nanoTime.getAsLong()) ? 0 : 1);
+            this.replicas.add(replica);
+        }
+    }
+
+    @Override
+    public void persist(final List<EnrichedFlow> flows) throws FlowException, IOException {
+        persist(flows, null);
+    }
+
+    /**
+     * The token goes to whichever replica takes the insert: replicas share their deduplication log,
+     * so a retry that lands on another replica than the attempt it repeats is still recognised.
+     */
+    @Override
+    public void persist(final List<EnrichedFlow> flows, final String deduplicationToken)
+            throws FlowException, IOException {
+        attempt(replica -> replica.repository.persist(flows, deduplicationToken));
+    }
+
+    /**
+     * Rollup rows take the same way as flows, so they land on whichever replica is taking inserts
+     * and replication copies them like any other rows.
+     */
+    @Override
+    public void insertRollup(final String table, final List<String> columns, final byte[] body) throws FlowException {
+        try {
+            attempt(replica -> sink(replica).insertRollup(table, columns, body));
+        } catch (final IOException e) {
+            throw new FlowException(e);
+        }
+    }
+
+    /** Any started replica still having a view is enough: they all share the one schema. */
+    @Override
+    public boolean rollupViewsPresent() {
+        return this.replicas.stream().anyMatch(replica -> replica.started && sink(replica).rollupViewsPresent());
+    }
+
+    private static RollupSink sink(final Replica replica) {
+        if (replica.repository instanceof RollupSink sink) {
+            return sink;
+        }
+        throw new IllegalStateException("Replica " + replica.endpoint + " cannot take rollup inserts");
+    }
+
+    /** One insert, sent to the first replica that is up and takes it. */
+    private void attempt(final Insert insert) throws FlowException, IOException {
+        final long now = this.nanoTime.getAsLong();
+        List<Replica> candidates = this.replicas.stream().filter(replica -> !replica.isDown(now)).toList();
+        if (candidates.isEmpty()) {
+            candidates = this.replicas.stream().sorted(Comparator.comparingLong(replica -> replica.downUntil)).toList();
+        }
+
+        Exception last = null;
+        for (final Replica replica : candidates) {
+            try {
+                replica.ensureStarted();
+                insert.into(replica);
+                replica.inserts.inc();
+                if (replica.downUntil != 0) {
+                    replica.downUntil = 0;
+                    log.info("ClickHouse replica {} of {} is back", replica.endpoint, this.shard);
+                }
+                return;
+            } catch (final Exception e) {
+                if (InsertFailure.of(e) == InsertFailure.REJECTED) {
+                    // The replica answered, and about the rows: every other one would say the
+                    // same, and the replica is as healthy as before.
+                    throw e;
+                }
+                replica.failures.inc();
+                markDown(replica, e);
+                last = e;
+                if (Thread.currentThread().isInterrupted()) {
+                    // Shutting down: the flusher wants out, not the next replica.
+                    break;
+                }
+            }
+        }
+        if (last instanceof FlowException e) {
+            throw e;
+        } else if (last instanceof IOException e) {
+            throw e;
+        } else if (last instanceof RuntimeException e) {
+            throw e;
+        }
+        throw new FlowException(last);
+    }
+
+    @Override
+    public void start() {
+        Exception last = null;
+        for (final Replica replica : this.replicas) {
+            try {
+                replica.ensureStarted();
+            } catch (final Exception e) {
+                markDown(replica, e);
+                last = e;
+            }
+        }
+        if (this.replicas.stream().noneMatch(replica -> replica.started)) {
+            throw new IllegalStateException("No replica of " + this.shard + " could be started", last);
+        }
+    }
+
+    @Override
+    public void stop() {
+        for (final Replica replica : this.replicas) {
+            this.metricRegistry.remove(replica.healthyGauge);
+            if (replica.started) {
+                try {
+                    replica.repository.stop();
+                } catch (final RuntimeException e) {
+                    log.warn("Stopping ClickHouse replica {} of {} failed", replica.endpoint, this.shard, e);
+                }
+            }
+        }
+    }
+
+    private void markDown(final Replica replica, final Exception cause) {
+        // Never 0, which means healthy, and never before now even at a zero cooldown.
+        replica.downUntil = Math.max(1, this.nanoTime.getAsLong() + this.cooldownNanos);
+        log.warn("ClickHouse replica {} of {} failed, passing it over for {} ms: {}", replica.endpoint, this.shard,
+                this.cooldownNanos / 1_000_000, cause.toString());
+    }
+
+    @FunctionalInterface
+    private interface Insert {
+        void into(Replica replica) throws FlowException, IOException;
+    }
+
+    private static final class Replica {
+        private final String endpoint;
+        private final FlowRepository repository;
+        private final Counter inserts;
+        private final Counter failures;
+        private final String healthyGauge;
+
+        private volatile boolean started;
+
+        /** {@code nanoTime} until which the replica is passed over; 0 while healthy. */
+        private volatile long downUntil;
+
+        Replica(final String endpoint, final FlowRepository repository, final Counter inserts,
+                final Counter failures, final String healthyGauge) {
+            this.endpoint = endpoint;
+            this.repository = repository;
+            this.inserts = inserts;
+            this.failures = failures;
+            this.healthyGauge = healthyGauge;
+        }
+
+        boolean isDown(final long now) {
+            final long until = this.downUntil;
+            return until != 0 && now - until < 0;
+        }
+
+        /** Start the replica once; concurrent inserters wait for the first attempt rather than racing it. */
+        synchronized void ensureStarted() {
+            if (!this.started) {
+                this.repository.start();
+                this.started = true;
+            }
+        }
+    }
+}
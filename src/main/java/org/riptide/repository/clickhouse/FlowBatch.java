@@ -0,0 +1,499 @@
+/*
+ * Copyright 2026 Riptide Labs, <https://github.com/Riptide-Labs>
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package org.riptide.repository.clickhouse;
+
+import org.riptide.flows.parser.data.Flow;
+import org.riptide.pipeline.EnrichedFlow;
+
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A batch of enriched flows held column by column: one primitive array per numeric column,
+ * dictionary codes for the string columns, and nothing allocated per row once the arrays have
+ * grown to the batch size.
+ *
+ * <p>The insert path used to turn every {@link EnrichedFlow} into a {@code ClickhouseFlow} POJO —
+ * five {@code OffsetDateTime}s and up to three {@code Inet6Address}es each — which the client then
+ * read back out field by field through reflection. For a 10k-row batch that was 10k POJOs and
+ * some 50k value objects per flush, all garbage by the next one. Appending to a batch instead
+ * reduces a row to a handful of array stores; the batch is {@link #clear() cleared} and reused,
+ * so its arrays are allocated once and kept at the largest size seen.
+ *
+ * <p>The batch is the buffer {@link FlowBatchWriter} streams the insert from, and nothing else:
+ * {@link ClickhouseRepository} appends the {@link EnrichedFlow}s it is handed just before the
+ * insert. Parsers and enrichers never see it.
+ *
+ * <p>The string columns are dictionary-encoded per batch. Most of them — tenant, zone, exporter,
+ * interface names, countries, the application — take a few dozen distinct values across a batch,
+ * so each value is stored, and encoded by the writer, once per batch rather than once per row.
+ *
+ * <p>Columns are public and final: the writer walks them directly, which is the point. They are
+ * named after the {@code flows} table columns they feed. Instants are held as epoch nanoseconds,
+ * which covers every instant from 1677 to 2262 and clamps the rest; addresses as two longs in IPv6 form, an IPv4 address
+ * mapped into {@code ::ffff:0:0/96} exactly as the table stores it.
+ *
+ * <p>Not thread-safe. A batch is filled and written by one thread at a time.
+ */
+public final class FlowBatch {
+
+    private static final int INITIAL_CAPACITY = 256;
+
+    public final InstantColumn timestamp = new InstantColumn();
+    public final EnumColumn<Flow.FlowProtocol> flowProtocol = new EnumColumn<>(Flow.FlowProtocol.class);
+
+    public final StringColumn tenant = new StringColumn();
+    public final StringColumn organisation = new StringColumn();
+    public final StringColumn zone = new StringColumn();
+    public final StringColumn system = new StringColumn();
+    public final StringColumn exporterAddr = new StringColumn();
+
+    public final InstantColumn receivedAt = new InstantColumn();
+    public final InstantColumn firstSwitched = new InstantColumn();
+    public final InstantColumn deltaSwitched = new InstantColumn();
+    public final InstantColumn lastSwitched = new InstantColumn();
+
+    public final LongColumn inputSnmp = new LongColumn();
+    public final StringColumn inputSnmpIfName = new StringColumn();
+    public final StringColumn inputSnmpIfAlias = new StringColumn();
+    public final LongColumn inputSnmpIfSpeed = new LongColumn();
+
+    public final LongColumn outputSnmp = new LongColumn();
+    public final StringColumn outputSnmpIfName = new StringColumn();
+    public final StringColumn outputSnmpIfAlias = new StringColumn();
+    public final LongColumn outputSnmpIfSpeed = new LongColumn();
+
+    public final LongColumn srcAs = new LongColumn();
+    public final StringColumn srcAsOrg = new StringColumn();
+    public final AddressColumn srcAddr = new AddressColumn();
+    public final LongColumn srcMaskLen = new LongColumn();
+    public final StringColumn srcAddrHostname = new StringColumn();
+    public final LongColumn srcPort = new LongColumn();
+
+    public final LongColumn dstAs = new LongColumn();
+    public final StringColumn dstAsOrg = new StringColumn();
+    public final AddressColumn dstAddr = new AddressColumn();
+    public final LongColumn dstMaskLen = new LongColumn();
+    public final StringColumn dstAddrHostname = new StringColumn();
+    public final LongColumn dstPort = new LongColumn();
+
+    public final AddressColumn nextHop = new AddressColumn();
+    public final StringColumn nextHopHostname = new StringColumn();
+
+    public final LongColumn bytes = new LongColumn();
+    public final LongColumn packets = new LongColumn();
+
+    public final EnumColumn<Flow.Direction> direction = new EnumColumn<>(Flow.Direction.class);
+
+    public final LongColumn engineId = new LongColumn();
+    public final LongColumn engineType = new LongColumn();
+
+    public final LongColumn vlan = new LongColumn();
+    public final LongColumn ipProtocolVersion = new LongColumn();
+    public final LongColumn protocol = new LongColumn();
+    public final LongColumn tcpFlags = new LongColumn();
+    public final LongColumn tos = new LongColumn();
+
+    public final EnumColumn<Flow.SamplingAlgorithm> samplingAlgorithm = new EnumColumn<>(Flow.SamplingAlgorithm.class);
+    public final DoubleColumn samplingInterval = new DoubleColumn();
+    public final EnumColumn<Flow.SamplingProvenance> samplingProvenance = new EnumColumn<>(Flow.SamplingProvenance.class);
+
+    public final StringColumn application = new StringColumn();
+
+    public final EnumColumn<Flow.Locality> srcLocality = new EnumColumn<>(Flow.Locality.class);
+    public final EnumColumn<Flow.Locality> dstLocality = new EnumColumn<>(Flow.Locality.class);
+    public final EnumColumn<Flow.Locality> flowLocality = new EnumColumn<>(Flow.Locality.class);
+
+    /** In milliseconds, the unit of the skew threshold it is compared against. */
+    public final LongColumn clockCorrection = new LongColumn();
+
+    public final StringColumn srcCountry = new StringColumn();
+    public final StringColumn srcCity = new StringColumn();
+    public final StringColumn dstCountry = new StringColumn();
+    public final StringColumn dstCity = new StringColumn();
+    public final StringColumn exporterName = new StringColumn();
+
+    private final List<Column> columns = List.of(
+            this.timestamp, this.flowProtocol,
+            this.tenant, this.organisation, this.zone, this.system, this.exporterAddr,
+            this.receivedAt, this.firstSwitched, this.deltaSwitched, this.lastSwitched,
+            this.inputSnmp, this.inputSnmpIfName, this.inputSnmpIfAlias, this.inputSnmpIfSpeed,
+            this.outputSnmp, this.outputSnmpIfName, this.outputSnmpIfAlias, this.outputSnmpIfSpeed,
+            this.srcAs, this.srcAsOrg, this.srcAddr, this.srcMaskLen, this.srcAddrHostname, this.srcPort,
+            this.dstAs, this.dstAsOrg, this.dstAddr, this.dstMaskLen, this.dstAddrHostname, this.dstPort,
+            this.nextHop, this.nextHopHostname,
+            this.bytes, this.packets,
+            this.direction,
+            this.engineId, this.engineType,
+            this.vlan, this.ipProtocolVersion, this.protocol, this.tcpFlags, this.tos,
+            this.samplingAlgorithm, this.samplingInterval, this.samplingProvenance,
+            this.application,
+            this.srcLocality, this.dstLocality, this.flowLocality,
+            this.clockCorrection,
+            this.srcCountry, this.srcCity, this.dstCountry, this.dstCity, this.exporterName);
+
+    private int size;
+    private int capacity;
+
+    public FlowBatch() {
+        resize(INITIAL_CAPACITY);
+    }
+
+    /** A batch holding {@code flows}, for callers that have no batch of their own to reuse. */
+    public static FlowBatch of(final List<EnrichedFlow> flows) {
+        final var batch = new FlowBatch();
+        batch.appendAll(flows);
+        return batch;
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    public boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    /**
+     * Empties the batch and its dictionaries, keeping the arrays: the next batch of the same size
+     * allocates nothing.
+     */
+    public void clear() {
+        for (final Column column : this.columns) {
+            column.clear();
+        }
+        this.size = 0;
+    }
+
+    public void appendAll(final List<EnrichedFlow> flows) {
+        ensureCapacity(this.size + flows.size());
+        for (final EnrichedFlow flow : flows) {
+            append(flow);
+        }
+    }
+
+    public void append(final EnrichedFlow flow) {
+        ensureCapacity(this.size + 1);
+        final int row = this.size++;
+
+        this.timestamp.set(row, flow.getTimestamp());
+        this.flowProtocol.set(row, flow.getFlowProtocol());
+
+        this.tenant.set(row, flow.getTenant());
+        this.organisation.set(row, flow.getOrganisation());
+        this.zone.set(row, flow.getZone());
+        this.system.set(row, flow.getSystem());
+        this.exporterAddr.set(row, flow.getExporterAddr());
+
+        this.receivedAt.set(row, flow.getReceivedAt());
+        this.firstSwitched.set(row, flow.getFirstSwitched());
+        this.deltaSwitched.set(row, flow.getDeltaSwitched());
+        this.lastSwitched.set(row, flow.getLastSwitched());
+
+        this.inputSnmp.set(row, flow.getInputSnmp());
+        this.inputSnmpIfName.set(row, flow.getInputSnmpIfName());
+        this.inputSnmpIfAlias.set(row, flow.getInputSnmpIfAlias());
+        this.inputSnmpIfSpeed.set(row, flow.getInputSnmpIfSpeed());
+
+        this.outputSnmp.set(row, flow.getOutputSnmp());
+        this.outputSnmpIfName.set(row, flow.getOutputSnmpIfName());
+        this.outputSnmpIfAlias.set(row, flow.getOutputSnmpIfAlias());
+        this.outputSnmpIfSpeed.set(row, flow.getOutputSnmpIfSpeed());
+
+        this.srcAs.set(row, flow.getSrcAs());
+        this.srcAsOrg.set(row, flow.getSrcAsOrg());
+        this.srcAddr.set(row, flow.getSrcAddr());
+        this.srcMaskLen.set(row, flow.getSrcMaskLen());
+        this.srcAddrHostname.set(row, flow.getSrcAddrHostname());
+        this.srcPort.set(row, flow.getSrcPort());
+
+        this.dstAs.set(row, flow.getDstAs());
+        this.dstAsOrg.set(row, flow.getDstAsOrg());
+        this.dstAddr.set(row, flow.getDstAddr());
+        this.dstMaskLen.set(row, flow.getDstMaskLen());
+        this.dstAddrHostname.set(row, flow.getDstAddrHostname());
+        this.dstPort.set(row, flow.getDstPort());
+
+        this.nextHop.set(row, flow.getNextHop());
+        this.nextHopHostname.set(row, flow.getNextHopHostname());
+
+        this.bytes.set(row, flow.getBytes());
+        this.packets.set(row, flow.getPackets());
+
+        this.direction.set(row, flow.getDirection());
+
+        this.engineId.set(row, flow.getEngineId());
+        this.engineType.set(row, flow.getEngineType());
+
+        this.vlan.set(row, flow.getVlan());
+        this.ipProtocolVersion.set(row, flow.getIpProtocolVersion());
+        this.protocol.set(row, flow.getProtocol());
+        this.tcpFlags.set(row, flow.getTcpFlags());
+        this.tos.set(row, flow.getTos());
+
+        this.samplingAlgorithm.set(row, flow.getSamplingAlgorithm());
+        // Interval and provenance are only ever set together: no provenance, no interval either.
+        if (flow.getSamplingProvenance() != null) {
+            this.samplingInterval.set(row, flow.getSamplingInterval());
+        } else {
+            this.samplingInterval.set(row, null);
+        }
+        this.samplingProvenance.set(row, flow.getSamplingProvenance());
+
+        this.application.set(row, flow.getApplication());
+
+        this.srcLocality.set(row, flow.getSrcLocality());
+        this.dstLocality.set(row, flow.getDstLocality());
+        this.flowLocality.set(row, flow.getFlowLocality());
+
+        final Duration clockCorrection = flow.getClockCorrection();
+        this.clockCorrection.set(row, clockCorrection != null ? clockCorrection.toMillis() : null);
+
+        this.srcCountry.set(row, flow.getSrcCountry());
+        this.srcCity.set(row, flow.getSrcCity());
+        this.dstCountry.set(row, flow.getDstCountry());
+        this.dstCity.set(row, flow.getDstCity());
+        this.exporterName.set(row, flow.getExporterName());
+    }
+
+    private void ensureCapacity(final int required) {
+        if (required > this.capacity) {
+            resize(Math.max(required, this.capacity * 2));
+        }
+    }
+
+    private void resize(final int capacity) {
+        for (final Column column : this.columns) {
+            column.resize(capacity);
+        }
+        this.capacity = capacity;
+    }
+
+    /** One column's storage. Every column holds a null flag per row, set when the value was absent. */
+    public abstract static class Column {
+        protected boolean[] nulls = new boolean[0];
+
+        public boolean isNull(final int row) {
+            return this.nulls[row];
+        }
+
+        void resize(final int capacity) {
+            this.nulls = Arrays.copyOf(this.nulls, capacity);
+        }
+
+        void clear() {
+        }
+    }
+
+    /** Every integer column, whatever its width in the table: the writer narrows on the way out. */
+    public static final class LongColumn extends Column {
+        private long[] values = new long[0];
+
+        public long get(final int row) {
+            return this.values[row];
+        }
+
+        void set(final int row, final long value) {
+            this.nulls[row] = false;
+            this.values[row] = value;
+        }
+
+        void set(final int row, final Number value) {
+            this.nulls[row] = value == null;
+            this.values[row] = value != null ? value.longValue() : 0L;
+        }
+
+        @Override
+        void resize(final int capacity) {
+            super.resize(capacity);
+            this.values = Arrays.copyOf(this.values, capacity);
+        }
+    }
+
+    public static final class DoubleColumn extends Column {
+        private double[] values = new double[0];
+
+        public double get(final int row) {
+            return this.values[row];
+        }
+
+        void set(final int row, final double value) {
+            this.nulls[row] = false;
+            this.values[row] = value;
+        }
+
+        void set(final int row, final Double value) {
+            this.nulls[row] = value == null;
+            this.values[row] = value != null ? value : 0.0;
+        }
+
+        @Override
+        void resize(final int capacity) {
+            super.resize(capacity);
+            this.values = Arrays.copyOf(this.values, capacity);
+        }
+    }
+
+    public static final class InstantColumn extends Column {
+        private static final Instant MIN_NANOS = Instant.EPOCH.plusNanos(Long.MIN_VALUE);
+        private static final Instant MAX_NANOS = Instant.EPOCH.plusNanos(Long.MAX_VALUE);
+
+        private long[] epochNanos = new long[0];
+
+        public long epochNanos(final int row) {
+            return this.epochNanos[row];
+        }
+
+        /**
+         * Nanoseconds since the epoch span 1677 to 2262; an instant outside is clamped to the
+         * nearer end rather than thrown on. A {@code DateTime64(9)} cannot hold it either, and
+         * one exporter with a wild clock must not cost the rest of its batch.
+         */
+        void set(final int row, final Instant value) {
+            this.nulls[row] = value == null;
+            this.epochNanos[row] = value != null ? epochNanos(value) : 0L;
+        }
+
+        static long epochNanos(final Instant value) {
+            if (value.isBefore(MIN_NANOS)) {
+                return Long.MIN_VALUE;
+            }
+            if (value.isAfter(MAX_NANOS)) {
+                return Long.MAX_VALUE;
+            }
+            // The product may wrap just before 1677; the sum, in range, comes out right regardless.
+            return value.getEpochSecond() * 1_000_000_000L + value.getNano();
+        }
+
+        @Override
+        void resize(final int capacity) {
+            super.resize(capacity);
+            this.epochNanos = Arrays.copyOf(this.epochNanos, capacity);
+        }
+    }
+
+    public static final class AddressColumn extends Column {
+        private long[] high = new long[0];
+        private long[] low = new long[0];
+
+        /** The first eight bytes of the IPv6 form, in network order. */
+        public long high(final int row) {
+            return this.high[row];
+        }
+
+        /** The last eight bytes of the IPv6 form, in network order. */
+        public long low(final int row) {
+            return this.low[row];
+        }
+
+        void set(final int row, final InetAddress value) {
+            this.nulls[row] = value == null;
+            if (value == null) {
+                this.high[row] = 0L;
+                this.low[row] = 0L;
+            } else if (value instanceof Inet4Address) {
+                this.high[row] = 0L;
+                this.low[row] = 0xFFFF_0000_0000L | (ByteBuffer.wrap(value.getAddress()).getInt() & 0xFFFF_FFFFL);
+            } else {
+                final ByteBuffer address = ByteBuffer.wrap(value.getAddress());
+                this.high[row] = address.getLong();
+                this.low[row] = address.getLong();
+            }
+        }
+
+        @Override
+        void resize(final int capacity) {
+            super.resize(capacity);
+            this.high = Arrays.copyOf(this.high, capacity);
+            this.low = Arrays.copyOf(this.low, capacity);
+        }
+    }
+
+    /**
+     * Codes into a per-batch dictionary. The dictionary keeps each distinct value's UTF-8 form, so
+     * a value repeated on every row is encoded once per batch.
+     */
+    public static final class StringColumn extends Column {
+        private int[] codes = new int[0];
+        private final List<byte[]> dictionary = new ArrayList<>();
+        private final Map<String, Integer> index = new HashMap<>();
+
+        public int code(final int row) {
+            return this.codes[row];
+        }
+
+        /** The UTF-8 bytes of {@code code}'s value. */
+        public byte[] utf8(final int code) {
+            return this.dictionary.get(code);
+        }
+
+        /** Distinct non-null values in the batch. */
+        public int cardinality() {
+            return this.dictionary.size();
+        }
+
+        void set(final int row, final String value) {
+            this.nulls[row] = value == null;
+            if (value == null) {
+                this.codes[row] = -1;
+                return;
+            }
+            Integer code = this.index.get(value);
+            if (code == null) {
+                code = this.dictionary.size();
+                this.dictionary.add(value.getBytes(StandardCharsets.UTF_8));
+                this.index.put(value, code);
+            }
+            this.codes[row] = code;
+        }
+
+        @Override
+        void resize(final int capacity) {
+            super.resize(capacity);
+            this.codes = Arrays.copyOf(this.codes, capacity);
+        }
+
+        @Override
+        void clear() {
+            this.dictionary.clear();
+            this.index.clear();
+        }
+    }
+
+    /** The constants themselves: shared, so storing them costs a reference and no allocation. */
+    public static final class EnumColumn<E extends Enum<E>> extends Column {
+        private final Class<E> type;
+        private Object[] values = new Object[0];
+
+        EnumColumn(final Class<E> type) {
+            this.type = type;
+        }
+
+        public E get(final int row) {
+            return this.type.cast(this.values[row]);
+        }
+
+        void set(final int row, final E value) {
+            this.nulls[row] = value == null;
+            this.values[row] = value;
+        }
+
+        @Override
+        void resize(final int capacity) {
+            super.resize(capacity);
+            this.values = Arrays.copyOf(this.values, capacity);
+        }
+    }
+}
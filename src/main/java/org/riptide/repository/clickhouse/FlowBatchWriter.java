@@ -0,0 +1,519 @@
+/*
+ * Copyright 2026 Riptide Labs, <https://github.com/Riptide-Labs>
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package org.riptide.repository.clickhouse;
+
+import com.clickhouse.client.api.metadata.TableSchema;
+import com.clickhouse.data.ClickHouseColumn;
+import com.clickhouse.data.ClickHouseDataType;
+import org.riptide.flows.parser.data.Flow;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Streams a {@link FlowBatch} into the {@code flows} table as {@code RowBinaryWithNamesAndTypes},
+ * straight from the batch's columns.
+ *
+ * <p>A writer is bound to the table it writes: {@link #forSchema} walks the live columns read by
+ * the startup schema check and picks, for each one riptide fills, the encoding of the type the
+ * table actually has — its width, whether it is {@code Nullable}, the scale of a
+ * {@code DateTime64}. Rows follow the table's column order, and a live column riptide does not
+ * fill is left out and takes its default. The header names every column with its live type, so
+ * the server checks the bytes against what it was told rather than trusting a hard-coded layout;
+ * a column whose type riptide cannot encode, or an {@code Enum8} whose values have moved, fails
+ * {@code start()} instead of the first insert.
+ *
+ * <p>Absent values in a non-{@code Nullable} column store what the POJO path stored: {@code ''}
+ * for a string, the assumed {@code 1.0}/{@code 'assumed'} for {@code samplingInterval} and
+ * {@code samplingProvenance}, and zero for everything else.
+ *
+ * <p>Bytes are gathered in a buffer owned by the writer and handed to the stream in large writes;
+ * the client's stream compresses, and feeding it a few bytes at a time is what it is slowest at.
+ * The buffer is not shared: {@link #copy()} gives each concurrent insert its own writer over the
+ * same binding.
+ */
+public final class FlowBatchWriter {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final byte[] EMPTY = new byte[0];
+
+    private static final String REPROVISION = " Riptide performs no automatic migration: re-provision the"
+            + " flows table (see the ClickHouse deployment docs).";
+
+    /**
+     * Every column riptide fills, in {@code FlowsSchema} order, and how to encode it once the live
+     * type is known. The schema check requires all of these on the live table; a table missing one
+     * is stale or mis-provisioned.
+     */
+    static final Map<String, Field> FIELDS;
+
+    static {
+        final Map<String, Field> fields = new LinkedHashMap<>();
+        fields.put("timestamp", instant(batch -> batch.timestamp));
+        fields.put("flowProtocol", enumeration(batch -> batch.flowProtocol, Flow.FlowProtocol.class,
+                FlowBatchWriter::protocol));
+
+        fields.put("tenant", string(batch -> batch.tenant));
+        fields.put("organisation", string(batch -> batch.organisation));
+        fields.put("zone", string(batch -> batch.zone));
+        fields.put("system", string(batch -> batch.system));
+        fields.put("exporterAddr", string(batch -> batch.exporterAddr));
+
+        fields.put("receivedAt", instant(batch -> batch.receivedAt));
+        fields.put("firstSwitched", instant(batch -> batch.firstSwitched));
+        fields.put("deltaSwitched", instant(batch -> batch.deltaSwitched));
+        fields.put("lastSwitched", instant(batch -> batch.lastSwitched));
+
+        fields.put("inputSnmp", integer(batch -> batch.inputSnmp));
+        fields.put("inputSnmpIfName", string(batch -> batch.inputSnmpIfName));
+        fields.put("inputSnmpIfAlias", string(batch -> batch.inputSnmpIfAlias));
+        fields.put("inputSnmpIfSpeed", integer(batch -> batch.inputSnmpIfSpeed));
+
+        fields.put("outputSnmp", integer(batch -> batch.outputSnmp));
+        fields.put("outputSnmpIfName", string(batch -> batch.outputSnmpIfName));
+        fields.put("outputSnmpIfAlias", string(batch -> batch.outputSnmpIfAlias));
+        fields.put("outputSnmpIfSpeed", integer(batch -> batch.outputSnmpIfSpeed));
+
+        fields.put("srcAs", integer(batch -> batch.srcAs));
+        fields.put("srcAsOrg", string(batch -> batch.srcAsOrg));
+        fields.put("srcAddr", address(batch -> batch.srcAddr));
+        fields.put("srcMaskLen", integer(batch -> batch.srcMaskLen));
+        fields.put("srcAddrHostname", string(batch -> batch.srcAddrHostname));
+        fields.put("srcPort", integer(batch -> batch.srcPort));
+
+        fields.put("dstAs", integer(batch -> batch.dstAs));
+        fields.put("dstAsOrg", string(batch -> batch.dstAsOrg));
+        fields.put("dstAddr", address(batch -> batch.dstAddr));
+        fields.put("dstMaskLen", integer(batch -> batch.dstMaskLen));
+        fields.put("dstAddrHostname", string(batch -> batch.dstAddrHostname));
+        fields.put("dstPort", integer(batch -> batch.dstPort));
+
+        fields.put("nextHop", address(batch -> batch.nextHop));
+        fields.put("nextHopHostname", string(batch -> batch.nextHopHostname));
+
+        fields.put("bytes", integer(batch -> batch.bytes));
+        fields.put("packets", integer(batch -> batch.packets));
+
+        fields.put("direction", enumeration(batch -> batch.direction, Flow.Direction.class,
+                FlowBatchWriter::direction));
+
+        fields.put("engineId", integer(batch -> batch.engineId));
+        fields.put("engineType", integer(batch -> batch.engineType));
+
+        fields.put("vlan", integer(batch -> batch.vlan));
+        fields.put("ipProtocolVersion", integer(batch -> batch.ipProtocolVersion));
+        fields.put("protocol", integer(batch -> batch.protocol));
+        fields.put("tcpFlags", integer(batch -> batch.tcpFlags));
+        fields.put("tos", integer(batch -> batch.tos));
+
+        fields.put("samplingAlgorithm", enumeration(batch -> batch.samplingAlgorithm,
+                Flow.SamplingAlgorithm.class, FlowBatchWriter::samplingAlgorithm));
+        fields.put("samplingInterval", floatingPoint(batch -> batch.samplingInterval, 1.0));
+
+        fields.put("application", string(batch -> batch.application));
+
+        fields.put("srcLocality", enumeration(batch -> batch.srcLocality, Flow.Locality.class,
+                FlowBatchWriter::locality));
+        fields.put("dstLocality", enumeration(batch -> batch.dstLocality, Flow.Locality.class,
+                FlowBatchWriter::locality));
+        fields.put("flowLocality", enumeration(batch -> batch.flowLocality, Flow.Locality.class,
+                FlowBatchWriter::locality));
+
+        fields.put("clockCorrection", integer(batch -> batch.clockCorrection));
+
+        fields.put("srcCountry", string(batch -> batch.srcCountry));
+        fields.put("srcCity", string(batch -> batch.srcCity));
+        fields.put("dstCountry", string(batch -> batch.dstCountry));
+        fields.put("dstCity", string(batch -> batch.dstCity));
+        fields.put("exporterName", string(batch -> batch.exporterName));
+
+        fields.put("samplingProvenance", token(batch -> batch.samplingProvenance));
+        FIELDS = Collections.unmodifiableMap(fields);
+    }
+
+    private final List<String> columns;
+    private final Encoder[] encoders;
+    private final byte[] header;
+
+    private final Buffer buffer = new Buffer();
+
+    private FlowBatchWriter(final List<String> columns, final Encoder[] encoders, final byte[] header) {
+        this.columns = columns;
+        this.encoders = encoders;
+        this.header = header;
+    }
+
+    /**
+     * A writer for the table {@code schema} describes: every column of it riptide fills, in the
+     * table's order, each encoded as its live type.
+     *
+     * @throws IllegalStateException if a column has a type riptide cannot write its value as, or
+     *                               is an {@code Enum8} that does not store riptide's constants
+     *                               under the values riptide writes
+     */
+    public static FlowBatchWriter forSchema(final TableSchema schema) {
+        final List<String> columns = new ArrayList<>();
+        final List<String> types = new ArrayList<>();
+        final List<Encoder> encoders = new ArrayList<>();
+        for (final ClickHouseColumn column : schema.getColumns()) {
+            final Field field = FIELDS.get(column.getColumnName());
+            if (field == null) {
+                continue;
+            }
+            final Encoder value = field.bind().apply(column);
+            if (value == null) {
+                throw new IllegalStateException("flows column " + column.getColumnName() + " has type "
+                        + column.getOriginalTypeName() + ", which riptide cannot write — the schema is"
+                        + " mis-provisioned." + REPROVISION);
+            }
+            columns.add(column.getColumnName());
+            types.add(column.getOriginalTypeName());
+            encoders.add(column.isNullable() ? nullable(field.column(), value) : value);
+        }
+        return new FlowBatchWriter(List.copyOf(columns), encoders.toArray(Encoder[]::new), header(columns, types));
+    }
+
+    /** A writer over the same binding with a buffer of its own, for another concurrent insert. */
+    public FlowBatchWriter copy() {
+        return new FlowBatchWriter(this.columns, this.encoders, this.header);
+    }
+
+    /** The columns {@link #write} emits, in order — the column list of the insert. */
+    public List<String> columns() {
+        return this.columns;
+    }
+
+    /** Writes the header and every row of {@code batch}, then flushes what is buffered to {@code out}. */
+    public void write(final FlowBatch batch, final OutputStream out) throws IOException {
+        this.buffer.out = out;
+        try {
+            this.buffer.bytes(this.header);
+            for (int row = 0; row < batch.size(); row++) {
+                for (final Encoder encoder : this.encoders) {
+                    encoder.write(batch, row, this.buffer);
+                }
+            }
+            this.buffer.flush();
+        } finally {
+            this.buffer.out = null;
+            this.buffer.position = 0;
+        }
+    }
+
+    /**
+     * The {@code RowBinaryWithNamesAndTypes} header: the column count, then the names, then the
+     * types, each a string. Built once per binding; every insert repeats it verbatim.
+     */
+    private static byte[] header(final List<String> columns, final List<String> types) {
+        final var out = new ByteArrayOutputStream();
+        final var buffer = new Buffer();
+        buffer.out = out;
+        try {
+            buffer.varint(columns.size());
+            for (final String name : columns) {
+                buffer.string(name.getBytes(StandardCharsets.UTF_8));
+            }
+            for (final String type : types) {
+                buffer.string(type.getBytes(StandardCharsets.UTF_8));
+            }
+            buffer.flush();
+        } catch (final IOException e) {
+            // A ByteArrayOutputStream does not throw.
+            throw new IllegalStateException(e);
+        }
+        return out.toByteArray();
+    }
+
+    /** One column's value for one row. */
+    @FunctionalInterface
+    interface Encoder {
+        void write(FlowBatch batch, int row, Buffer out) throws IOException;
+    }
+
+    /**
+     * A batch column and how to encode it as a given live column type: {@code bind} returns
+     * {@code null} for a type the value cannot be written as. The encoder it returns writes a
+     * present value or the absent default; the {@code Nullable} marker is added around it.
+     */
+    record Field(Function<FlowBatch, ? extends FlowBatch.Column> column,
+                 Function<ClickHouseColumn, Encoder> bind) {
+    }
+
+    /** Any integer type, at the table's width: the batch holds every integer as a long. */
+    private static Field integer(final Function<FlowBatch, FlowBatch.LongColumn> column) {
+        return new Field(column, live -> {
+            final int width = switch (live.getDataType()) {
+                case Int8, UInt8 -> 1;
+                case Int16, UInt16 -> 2;
+                case Int32, UInt32 -> 4;
+                case Int64, UInt64 -> 8;
+                default -> 0;
+            };
+            if (width == 0) {
+                return null;
+            }
+            return (batch, row, out) -> out.integer(column.apply(batch).get(row), width);
+        });
+    }
+
+    private static Field floatingPoint(final Function<FlowBatch, FlowBatch.DoubleColumn> column,
+                                       final double absent) {
+        return new Field(column, live -> switch (live.getDataType()) {
+            case Float64 -> (batch, row, out) -> {
+                final FlowBatch.DoubleColumn values = column.apply(batch);
+                out.integer(Double.doubleToRawLongBits(values.isNull(row) ? absent : values.get(row)), 8);
+            };
+            case Float32 -> (batch, row, out) -> {
+                final FlowBatch.DoubleColumn values = column.apply(batch);
+                out.integer(Float.floatToRawIntBits((float) (values.isNull(row) ? absent : values.get(row))), 4);
+            };
+            default -> null;
+        });
+    }
+
+    /**
+     * A {@code DateTime64} at its scale, or a {@code DateTime} in seconds. The scale is the live
+     * column's, so a table provisioned at another precision stores the same instant rather than
+     * one a thousand times off.
+     */
+    private static Field instant(final Function<FlowBatch, FlowBatch.InstantColumn> column) {
+        return new Field(column, live -> {
+            if (live.getDataType() == ClickHouseDataType.DateTime64 && live.getScale() >= 0 && live.getScale() <= 9) {
+                final long divisor = (long) Math.pow(10, 9 - live.getScale());
+                return (batch, row, out) -> out.integer(Math.floorDiv(column.apply(batch).epochNanos(row), divisor), 8);
+            }
+            if (live.getDataType() == ClickHouseDataType.DateTime || live.getDataType() == ClickHouseDataType.DateTime32) {
+                return (batch, row, out) -> out.integer(Math.floorDiv(column.apply(batch).epochNanos(row), 1_000_000_000L), 4);
+            }
+            return null;
+        });
+    }
+
+    /** An {@code IPv6}; absent is {@code ::}. */
+    private static Field address(final Function<FlowBatch, FlowBatch.AddressColumn> column) {
+        return new Field(column, live -> {
+            if (live.getDataType() != ClickHouseDataType.IPv6) {
+                return null;
+            }
+            return (batch, row, out) -> {
+                final FlowBatch.AddressColumn addresses = column.apply(batch);
+                out.integerBigEndian(addresses.high(row));
+                out.integerBigEndian(addresses.low(row));
+            };
+        });
+    }
+
+    /** A {@code String}, {@code LowCardinality} or not — the two encode alike. Absent is {@code ''}. */
+    private static Field string(final Function<FlowBatch, FlowBatch.StringColumn> column) {
+        return new Field(column, live -> {
+            if (live.getDataType() != ClickHouseDataType.String) {
+                return null;
+            }
+            return (batch, row, out) -> {
+                final FlowBatch.StringColumn strings = column.apply(batch);
+                out.string(strings.isNull(row) ? EMPTY : strings.utf8(strings.code(row)));
+            };
+        });
+    }
+
+    /**
+     * An {@code Enum8}, each constant stored under the value {@code code} gives it. The constants
+     * are checked against the live definition when the writer is bound: the server rejects a value
+     * it does not know, but a value that now names a different constant would be stored as that
+     * constant, silently. Absent stores 0, which is what the POJO's byte default stored.
+     */
+    private static <E extends Enum<E>> Field enumeration(final Function<FlowBatch, FlowBatch.EnumColumn<E>> column,
+                                                         final Class<E> type,
+                                                         final Function<E, Byte> code) {
+        return new Field(column, live -> {
+            if (live.getDataType() != ClickHouseDataType.Enum8) {
+                return null;
+            }
+            for (final E constant : type.getEnumConstants()) {
+                final String stored = live.getEnumConstants().nameNullable(code.apply(constant));
+                if (!constant.name().equals(stored)) {
+                    throw new IllegalStateException("flows column " + live.getColumnName() + " is "
+                            + live.getOriginalTypeName() + ", which does not store " + constant.name()
+                            + " as " + code.apply(constant) + " — the schema is stale or mis-provisioned."
+                            + REPROVISION);
+                }
+            }
+            return (batch, row, out) -> {
+                final FlowBatch.EnumColumn<E> values = column.apply(batch);
+                out.integer(values.isNull(row) ? 0 : code.apply(values.get(row)), 1);
+            };
+        });
+    }
+
+    /** {@code samplingProvenance}: the constant's token as a string, {@code 'assumed'} when absent. */
+    private static Field token(final Function<FlowBatch, FlowBatch.EnumColumn<Flow.SamplingProvenance>> column) {
+        return new Field(column, live -> {
+            if (live.getDataType() != ClickHouseDataType.String) {
+                return null;
+            }
+            return (batch, row, out) -> {
+                final FlowBatch.EnumColumn<Flow.SamplingProvenance> values = column.apply(batch);
+                out.string(samplingProvenance(values.isNull(row) ? Flow.SamplingProvenance.Assumed : values.get(row)));
+            };
+        });
+    }
+
+    /** The {@code Nullable} prefix: 1 and nothing else for null, 0 and the value otherwise. */
+    private static Encoder nullable(final Function<FlowBatch, ? extends FlowBatch.Column> column,
+                                    final Encoder value) {
+        return (batch, row, out) -> {
+            if (column.apply(batch).isNull(row)) {
+                out.integer(1, 1);
+            } else {
+                out.integer(0, 1);
+                value.write(batch, row, out);
+            }
+        };
+    }
+
+    // The four Enum8 columns below are mapped by name rather than by ordinal. The values are
+    // fixed by the schema (FlowsSchema.createFlowsTable) and are already written into every
+    // stored row, so they cannot move: with ordinal arithmetic, reordering a constant or
+    // inserting one in the middle would silently re-map live data and every historical row
+    // would read back as the wrong value. An exhaustive switch instead fails to compile when a
+    // constant is added, which is the moment the schema needs the matching ALTER.
+
+    static byte direction(final Flow.Direction value) {
+        return switch (value) {
+            case INGRESS -> (byte) 1;
+            case EGRESS -> (byte) 2;
+            case UNKNOWN -> (byte) 3;
+        };
+    }
+
+    static byte samplingAlgorithm(final Flow.SamplingAlgorithm value) {
+        return switch (value) {
+            case Unassigned -> (byte) 1;
+            case SystematicCountBasedSampling -> (byte) 2;
+            case SystematicTimeBasedSampling -> (byte) 3;
+            case RandomNOutOfNSampling -> (byte) 4;
+            case UniformProbabilisticSampling -> (byte) 5;
+            case PropertyMatchFiltering -> (byte) 6;
+            case HashBasedFiltering -> (byte) 7;
+            case FlowStateDependentIntermediateFlowSelectionProcess -> (byte) 8;
+        };
+    }
+
+    static byte protocol(final Flow.FlowProtocol value) {
+        return switch (value) {
+            case NetflowV5 -> (byte) 1;
+            case NetflowV9 -> (byte) 2;
+            case IPFIX -> (byte) 3;
+            case SFLOW -> (byte) 4;
+        };
+    }
+
+    static byte locality(final Flow.Locality value) {
+        return switch (value) {
+            case PUBLIC -> (byte) 1;
+            case PRIVATE -> (byte) 2;
+        };
+    }
+
+    /**
+     * A {@code LowCardinality(String)}, not an {@code Enum8} like the four above: the rung set
+     * is riptide's own and still growing, and the additive-column path can only add a column,
+     * never modify one, so an enum that later gained a value would need machinery that does
+     * not exist. The token comes off the constant rather than {@code name()} so renaming a
+     * Java constant cannot silently change what stored rows say.
+     */
+    private static final byte[][] PROVENANCE_TOKENS = new byte[Flow.SamplingProvenance.values().length][];
+
+    static {
+        for (final Flow.SamplingProvenance provenance : Flow.SamplingProvenance.values()) {
+            PROVENANCE_TOKENS[provenance.ordinal()] = provenance.token().getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    private static byte[] samplingProvenance(final Flow.SamplingProvenance value) {
+        return PROVENANCE_TOKENS[value.ordinal()];
+    }
+
+    /** Little-endian, as {@code RowBinary} is throughout, except for the IPv6 bytes. */
+    static final class Buffer {
+        private final byte[] bytes = new byte[BUFFER_SIZE];
+        private int position;
+        private OutputStream out;
+
+        Buffer() {
+        }
+
+        /** A buffer writing to {@code out}, for encoders outside this class. */
+        Buffer(final OutputStream out) {
+            this.out = out;
+        }
+
+        /** The low {@code width} bytes of {@code value}, least significant first. */
+        void integer(final long value, final int width) throws IOException {
+            require(width);
+            for (int i = 0; i < width; i++) {
+                this.bytes[this.position++] = (byte) (value >>> (i * 8));
+            }
+        }
+
+        void integerBigEndian(final long value) throws IOException {
+            require(8);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                this.bytes[this.position++] = (byte) (value >>> shift);
+            }
+        }
+
+        /** An unsigned LEB128 varint, as string lengths and the header's column count are written. */
+        void varint(final long value) throws IOException {
+            long remaining = value;
+            while ((remaining & ~0x7FL) != 0) {
+                integer((remaining & 0x7F) | 0x80, 1);
+                remaining >>>= 7;
+            }
+            integer(remaining, 1);
+        }
+
+        /** A {@code String}: its byte length as a varint, then the bytes. */
+        void string(final byte[] utf8) throws IOException {
+            varint(utf8.length);
+            bytes(utf8);
+        }
+
+        void bytes(final byte[] source) throws IOException {
+            if (source.length > this.bytes.length - this.position) {
+                flush();
+                if (source.length > this.bytes.length) {
+                    this.out.write(source);
+                    return;
+                }
+            }
+            System.arraycopy(source, 0, this.bytes, this.position, source.length);
+            this.position += source.length;
+        }
+
+        private void require(final int length) throws IOException {
+            if (this.bytes.length - this.position < length) {
+                flush();
+            }
+        }
+
+        void flush() throws IOException {
+            if (this.position > 0) {
+                this.out.write(this.bytes, 0, this.position);
+                this.position = 0;
+            }
+        }
+    }
+}
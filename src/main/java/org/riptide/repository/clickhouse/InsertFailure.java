@@ -0,0 +1,100 @@
+/*
+ * Copyright 2026 Riptide Labs, <https://github.com/Riptide-Labs>
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package org.riptide.repository.clickhouse;
+
+import com.clickhouse.client.api.ClickHouseException;
+import com.clickhouse.client.api.ServerException;
+
+import java.io.UncheckedIOException;
+import java.util.Set;
+
+/**
+ * What a failed insert says about the next attempt, read off the exception chain. The client
+ * wraps a server error in an {@code ExecutionException}, which {@link ClickhouseRepository} wraps
+ * in a {@code FlowException}, so the cause that matters is never the outermost.
+ */
+enum InsertFailure {
+
+    /**
+     * The server refused these rows, or riptide could not encode them: the same rows fail the same
+     * way on every attempt and every replica, while other rows go in. Only taking the offending
+     * rows out helps.
+     */
+    REJECTED,
+
+    /**
+     * The server or the way to it is struggling — a refused connection, a timeout, a server error
+     * the client marks retryable (too many parts, memory limit, a replica that is read-only for
+     * now). The same insert may well succeed a moment later, elsewhere or here.
+     */
+    TRANSIENT,
+
+    /**
+     * Neither: a server error that does not depend on the rows yet will not go away by itself —
+     * authentication, a missing table, a privilege — or an interrupt. Retrying only delays the
+     * spill.
+     */
+    PERMANENT;
+
+    /**
+     * Server error codes caused by the values in the insert. Kept to the codes a row can earn on
+     * its own: a format mismatch of the whole payload ({@code CANNOT_READ_ALL_DATA}, say) fails
+     * every half of a bisection too, and would only burn its budget.
+     */
+    private static final Set<Integer> REJECTING_CODES = Set.of(
+            6,    // CANNOT_PARSE_TEXT
+            27,   // CANNOT_PARSE_INPUT_ASSERTION_FAILED
+            38,   // CANNOT_PARSE_DATE
+            41,   // CANNOT_PARSE_DATETIME
+            53,   // TYPE_MISMATCH
+            69,   // ARGUMENT_OUT_OF_BOUND
+            70,   // CANNOT_CONVERT_TYPE
+            72,   // CANNOT_PARSE_NUMBER
+            117,  // INCORRECT_DATA
+            131,  // TOO_LARGE_STRING_SIZE
+            321,  // VALUE_IS_OUT_OF_RANGE_OF_DATA_TYPE
+            469   // VIOLATED_CONSTRAINT: the multi-tenant CHECK barrier
+    );
+
+    static InsertFailure of(final Throwable failure) {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof InterruptedException) {
+                return PERMANENT;
+            }
+            if (cause instanceof ServerException server) {
+                if (REJECTING_CODES.contains(server.getCode())) {
+                    return REJECTED;
+                }
+                return server.isRetryable() ? TRANSIENT : PERMANENT;
+            }
+            if (rowShaped(cause)) {
+                return REJECTED;
+            }
+            if (cause.getCause() == cause) {
+                break;
+            }
+        }
+        // No answer from the server at all: the connection, the transport or a client-side
+        // timeout — the shapes a network blip takes.
+        return TRANSIENT;
+    }
+
+    /**
+     * A runtime exception riptide threw itself while turning the rows into the insert — an
+     * arithmetic overflow, an argument out of range, a cast that did not fit — before or while the
+     * body went out. Such a failure follows a row: retried as is it fails again, so it is bisected
+     * like a server rejection instead of spilled and finally dropped whole. The client's own
+     * exceptions ({@link ClickHouseException}) and an I/O failure in disguise are the transport's,
+     * and an {@link IllegalStateException} is the repository's lifecycle, not a row's: those are
+     * looked through, to their cause.
+     */
+    private static boolean rowShaped(final Throwable cause) {
+        return cause instanceof RuntimeException
+                && !(cause instanceof ClickHouseException)
+                && !(cause instanceof UncheckedIOException)
+                && !(cause instanceof IllegalStateException);
+    }
+}
@@ -0,0 +1,525 @@
+/*
+ * Copyright 2026 Riptide Labs, <https://github.com/Riptide-Labs>
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package org.riptide.repository.clickhouse;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.riptide.config.ClickhouseConfig;
+import org.riptide.flows.parser.data.Flow;
+import org.riptide.pipeline.EnrichedFlow;
+import org.riptide.pipeline.FlowException;
+import org.riptide.repository.FlowRepository;
+import org.riptide.schema.FlowsSchema;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * The 1-minute rollups computed in the collector ({@code riptide.clickhouse.rollups.mode=collector})
+ * rather than by materialized views on the server: a decorator that totals every batch its delegate
+ * inserted successfully into per-minute maps, and inserts a minute's totals into the rollup tables
+ * once the minute is {@code grace} past its end.
+ *
+ * <p>It sits under the batching layer, in front of the repository that writes the flows, so it
+ * sees the inserts that were acknowledged — retries, bisected halves and spill replays included.
+ * A view fires where a block is written instead, and a repeat of an
+ * {@code insert_deduplication_token} the server already has is acknowledged but not written. An
+ * attempt that landed unacknowledged is totalled once, at its acknowledged repeat, as the view
+ * counted it once at the landing. A repeat of an insert that was acknowledged and totalled — a
+ * spill head replayed again because removing it failed — must not be totalled again, so the
+ * tokens of the last inserts totalled are kept and a repeated token is skipped. The tokens live in
+ * memory: a run that died between a replay and its removal from the spill leaves its successor
+ * to total that replay a second time, if the first run's totals for it had already been flushed.
+ * The server's written-row count cannot close that: a landed-unacknowledged attempt's repeat,
+ * which must be counted, reports no rows either.
+ *
+ * <p>The totals are the views': each rollup's
+ * dimensions as {@code flows} stores them (absent strings as {@code ''}, addresses in their IPv6
+ * form, the timestamp truncated to the minute) and the measures of
+ * {@link FlowsSchema#rollupMeasureNames()}. The shape comes from {@link FlowsSchema} itself, so a
+ * rollup or measure this class cannot compute fails construction instead of feeding a rollup that
+ * silently differs from the views'.
+ *
+ * <p>Inserting a minute more than once is harmless: the rollup tables are {@code SummingMergeTree},
+ * which folds rows with the same key on merge, as it already does for the views' one row per
+ * insert. That makes both bounds cheap to hold. A flow later than the grace is totalled into a
+ * fresh entry and inserted with the next flush; past {@code maxRows} totals the oldest minutes go
+ * early. A rollup insert that fails is merged back and retried with the next flush while there is
+ * room, and otherwise dropped and counted in {@code rollups.failedRows} — the flows themselves are
+ * safe in {@code flows} either way.
+ *
+ * <p>If a view still feeds a rollup when the repository starts, the collector stays out: totalling
+ * the flows a second time would double every rollup, where leaving it to the view is merely the
+ * server mode's cost. Manage mode drops the views itself; a provisioned deployment has to.
+ */
+@Slf4j
+public final class RollupAggregator implements FlowRepository {
+
+    /**
+     * How many deduplication tokens of totalled inserts are kept. A repeat follows its original
+     * within one replay, so a handful would do.
+     */
+    private static final int TOTALLED_TOKENS = 1_024;
+
+    /** How often the flusher looks for minutes past their grace. */
+    private static final long TICK_MS = 1_000;
+
+    private static final long MINUTE_MS = 60_000;
+
+    /**
+     * The measures, in the order of {@link FlowsSchema#rollupMeasureNames()}: bytes, packets,
+     * flows, then bytes and packets split by direction — a flow neither ingress nor egress counts
+     * in the totals only, as {@code sumIf} has it.
+     */
+    private static final List<String> MEASURES =
+            List.of("bytes", "packets", "flowCount", "bytesIn", "bytesOut", "packetsIn", "packetsOut");
+
+    /** The dimensions a rollup may carry, read off a flow: the raw value, before its column type shapes it. */
+    private static final Map<String, Function<EnrichedFlow, Object>> DIMENSIONS = Map.ofEntries(
+            Map.entry("tenant", EnrichedFlow::getTenant),
+            Map.entry("organisation", EnrichedFlow::getOrganisation),
+            Map.entry("timestamp", flow -> minuteOf(flow.getTimestamp())),
+            Map.entry("zone", EnrichedFlow::getZone),
+            Map.entry("application", EnrichedFlow::getApplication),
+            Map.entry("protocol", EnrichedFlow::getProtocol),
+            Map.entry("srcAddr", EnrichedFlow::getSrcAddr),
+            Map.entry("dstAddr", EnrichedFlow::getDstAddr),
+            Map.entry("exporterAddr", EnrichedFlow::getExporterAddr),
+            Map.entry("exporterName", EnrichedFlow::getExporterName),
+            Map.entry("inputSnmp", EnrichedFlow::getInputSnmp),
+            Map.entry("outputSnmp", EnrichedFlow::getOutputSnmp),
+            Map.entry("srcAs", EnrichedFlow::getSrcAs),
+            Map.entry("dstAs", EnrichedFlow::getDstAs),
+            Map.entry("srcCountry", EnrichedFlow::getSrcCountry),
+            Map.entry("dstCountry", EnrichedFlow::getDstCountry));
+
+    private final FlowRepository delegate;
+
+    private final RollupSink sink;
+
+    private final ClickhouseConfig.RollupConfig config;
+
+    private final String shard;
+
+    private final List<Rollup> rollups;
+
+    private final LongSupplier currentTimeMillis;
+
+    /** Minute start in epoch seconds to the totals held for it; guarded by {@code this}. */
+    private final NavigableMap<Long, Map<Group, long[]>> minutes = new TreeMap<>();
+
+    /** Totals held across all minutes; guarded by {@code this}. */
+    private int held;
+
+    /** The tokens of the last {@link #TOTALLED_TOKENS} inserts totalled, oldest first; guarded by {@code this}. */
+    private final Set<String> totalled = new LinkedHashSet<>();
+
+    /** Off when a view still feeds the rollups; see the class comment. */
+    private volatile boolean aggregating = true;
+
+    private volatile ScheduledExecutorService flusher;
+
+    /** Set while an early flush for {@code maxRows} is queued, so a burst queues one. */
+    private final AtomicBoolean overflowQueued = new AtomicBoolean();
+
+    private final MetricRegistry metricRegistry;
+    private final Counter insertedRows;
+    private final Counter failedRows;
+    private final Counter repeatedInserts;
+    private final String heldRowsGauge;
+
+    /**
+     * @param delegate the repository writing the flows, which also takes the rollup inserts
+     * @param shard    the shard's name for metrics and the thread, or null for the only repository
+     */
+    public <R extends FlowRepository & RollupSink> RollupAggregator(final R delegate,
+                                                                   final ClickhouseConfig.RollupConfig config,
+                                                                   final MetricRegistry metricRegistry,
+                                                                   final String shard) {
+        this(delegate, config, metricRegistry, shard, System::currentTimeMillis);
+    }
+
+    /** Test seam: a controllable wall clock, so minutes and the grace pass without waiting. */
+    <R extends FlowRepository & RollupSink> RollupAggregator(final R delegate,
+                                                            final ClickhouseConfig.RollupConfig config,
+                                                            final MetricRegistry metricRegistry,
+                                                            final String shard,
+                                                            final LongSupplier currentTimeMillis) {
+        this.delegate = Objects.requireNonNull(delegate);
+        this.sink = delegate;
+        this.config = Objects.requireNonNull(config);
+        config.validate();
+        this.shard = shard;
+        this.currentTimeMillis = Objects.requireNonNull(currentTimeMillis);
+        this.rollups = rollups();
+        this.metricRegistry = Objects.requireNonNull(metricRegistry);
+
+        final String scope = MetricRegistry.name("persister", shard, "rollups");
+        this.insertedRows = metricRegistry.counter(MetricRegistry.name(scope, "insertedRows"));
+        this.failedRows = metricRegistry.counter(MetricRegistry.name(scope, "failedRows"));
+        this.repeatedInserts = metricRegistry.counter(MetricRegistry.name(scope, "repeatedInserts"));
+        this.heldRowsGauge = MetricRegistry.name(scope, "heldRows");
+        metricRegistry.remove(this.heldRowsGauge);
+        metricRegistry.register(this.heldRowsGauge, (Gauge<Integer>) this::heldRows);
+    }
+
+    private synchronized int heldRows() {
+        return this.held;
+    }
+
+    @Override
+    public void persist(final List<EnrichedFlow> flows) throws FlowException, IOException {
+        persist(flows, null);
+    }
+
+    @Override
+    public void persist(final List<EnrichedFlow> flows, final String deduplicationToken)
+            throws FlowException, IOException {
+        this.delegate.persist(flows, deduplicationToken);
+        if (this.aggregating) {
+            aggregate(flows, deduplicationToken);
+        }
+    }
+
+    /** Total an insert that landed, unless it repeats one already totalled; see the class comment. */
+    private void aggregate(final List<EnrichedFlow> flows, final String deduplicationToken) {
+        final boolean overflow;
+        synchronized (this) {
+            if (deduplicationToken != null) {
+                if (!this.totalled.add(deduplicationToken)) {
+                    this.repeatedInserts.inc();
+                    return;
+                }
+                if (this.totalled.size() > TOTALLED_TOKENS) {
+                    this.totalled.remove(this.totalled.iterator().next());
+                }
+            }
+            for (final EnrichedFlow flow : flows) {
+                final long minute = minuteOf(flow.getTimestamp());
+                final Map<Group, long[]> groups = this.minutes.computeIfAbsent(minute, m -> new HashMap<>());
+                final long bytes = flow.getBytes();
+                final long packets = flow.getPackets();
+                final boolean ingress = flow.getDirection() == Flow.Direction.INGRESS;
+                final boolean egress = flow.getDirection() == Flow.Direction.EGRESS;
+                for (int r = 0; r < this.rollups.size(); r++) {
+                    final long[] totals = groups.computeIfAbsent(this.rollups.get(r).group(r, minute, flow), group -> {
+                        this.held++;
+                        return new long[MEASURES.size()];
+                    });
+                    totals[0] += bytes;
+                    totals[1] += packets;
+                    totals[2]++;
+                    if (ingress) {
+                        totals[3] += bytes;
+                        totals[5] += packets;
+                    } else if (egress) {
+                        totals[4] += bytes;
+                        totals[6] += packets;
+                    }
+                }
+            }
+            overflow = this.held > this.config.getMaxRows();
+        }
+        final ScheduledExecutorService flusher = this.flusher;
+        if (overflow && flusher != null && this.overflowQueued.compareAndSet(false, true)) {
+            // On the flusher, not here: this is an insert thread, and the rollup insert would
+            // hold up the next batch of flows.
+            flusher.execute(() -> {
+                this.overflowQueued.set(false);
+                flush(false);
+            });
+        }
+    }
+
+    /**
+     * Insert the minutes that are due: those {@code grace} past their end and, beyond
+     * {@code maxRows}, the oldest — or, with {@code everything}, all of them. Package-private so
+     * tests can flush at a moment of their choosing.
+     */
+    void flush(final boolean everything) {
+        final Map<Long, Map<Group, long[]>> due = new TreeMap<>();
+        synchronized (this) {
+            final long now = this.currentTimeMillis.getAsLong();
+            while (!this.minutes.isEmpty()) {
+                final long minute = this.minutes.firstKey();
+                final boolean closed = minute * 1_000 + MINUTE_MS + this.config.getGrace().toMillis() <= now;
+                if (!everything && !closed && this.held <= this.config.getMaxRows()) {
+                    break;
+                }
+                final Map<Group, long[]> groups = this.minutes.pollFirstEntry().getValue();
+                this.held -= groups.size();
+                due.put(minute, groups);
+            }
+        }
+        if (due.isEmpty()) {
+            return;
+        }
+
+        for (int r = 0; r < this.rollups.size(); r++) {
+            final Rollup rollup = this.rollups.get(r);
+            final List<Map.Entry<Group, long[]>> rows = new ArrayList<>();
+            for (final Map<Group, long[]> groups : due.values()) {
+                for (final var entry : groups.entrySet()) {
+                    if (entry.getKey().rollup() == r) {
+                        rows.add(entry);
+                    }
+                }
+            }
+            if (rows.isEmpty()) {
+                continue;
+            }
+            try {
+                this.sink.insertRollup(rollup.table(), rollup.columns(), rollup.encode(rows));
+                this.insertedRows.inc(rows.size());
+            } catch (final FlowException | RuntimeException e) {
+                requeue(rollup, rows, e, everything);
+            }
+        }
+    }
+
+    /** Merge a failed insert's totals back for the next flush, if there is room and a next flush. */
+    private void requeue(final Rollup rollup, final List<Map.Entry<Group, long[]>> rows, final Exception cause,
+                         final boolean stopping) {
+        synchronized (this) {
+            if (!stopping && this.held + rows.size() <= this.config.getMaxRows()) {
+                for (final var row : rows) {
+                    final long minute = row.getKey().minute();
+                    final long[] totals = this.minutes.computeIfAbsent(minute, m -> new HashMap<>())
+                            .computeIfAbsent(row.getKey(), group -> {
+                                this.held++;
+                                return new long[MEASURES.size()];
+                            });
+                    for (int i = 0; i < totals.length; i++) {
+                        totals[i] += row.getValue()[i];
+                    }
+                }
+                log.warn("Inserting {} rows into rollup {} failed, retrying with the next flush: {}",
+                        rows.size(), rollup.table(), cause.toString());
+                return;
+            }
+        }
+        this.failedRows.inc(rows.size());
+        log.error("Dropping {} rows of rollup {}: the insert failed and {}", rows.size(), rollup.table(),
+                stopping ? "the repository is stopping" : "no room is left to hold them", cause);
+    }
+
+    @Override
+    public void start() {
+        this.delegate.start();
+        if (this.sink.rollupViewsPresent()) {
+            this.aggregating = false;
+            log.warn("riptide.clickhouse.rollups.mode is collector, but materialized views still feed the"
+                    + " rollups{} — leaving the rollups to them rather than counting every flow twice."
+                    + " Drop the views (DROP VIEW … _mv) to move the aggregation here.",
+                    this.shard == null ? "" : " of " + this.shard);
+            return;
+        }
+        this.aggregating = true;
+        final String name = this.shard == null ? "clickhouse-rollups" : "clickhouse-rollups-" + this.shard;
+        final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(() -> {
+            try {
+                flush(false);
+            } catch (final RuntimeException e) {
+                // A scheduled task that throws is never run again: the next minutes would pile up.
+                log.error("Flushing the rollups failed", e);
+            }
+        }, TICK_MS, TICK_MS, TimeUnit.MILLISECONDS);
+        this.flusher = flusher;
+    }
+
+    /**
+     * Insert every minute still held, closed or not — a partial minute is completed by whoever
+     * writes the rest of it, the merges sum the two — then stop the delegate. Called by the
+     * batching layer once its last insert is done, so nothing is totalled after this.
+     */
+    @Override
+    public void stop() {
+        final ScheduledExecutorService flusher = this.flusher;
+        this.flusher = null;
+        if (flusher != null) {
+            flusher.shutdown();
+            try {
+                if (!flusher.awaitTermination(5, TimeUnit.SECONDS)) {
+                    flusher.shutdownNow();
+                }
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                flusher.shutdownNow();
+            }
+        }
+        flush(true);
+        this.metricRegistry.remove(this.heldRowsGauge);
+        this.delegate.stop();
+    }
+
+    /** {@code toStartOfMinute(timestamp)} in epoch seconds; an absent timestamp is stored as the epoch. */
+    private static long minuteOf(final Instant timestamp) {
+        return timestamp == null ? 0 : Math.floorDiv(timestamp.getEpochSecond(), 60) * 60;
+    }
+
+    /** Every rollup in {@link FlowsSchema}, with how to compute it; fails on one this class cannot. */
+    private static List<Rollup> rollups() {
+        if (!FlowsSchema.rollupMeasureNames().equals(MEASURES)) {
+            throw new IllegalStateException("The rollup measures are " + FlowsSchema.rollupMeasureNames()
+                    + ", but the collector computes " + MEASURES + " — use riptide.clickhouse.rollups.mode=server");
+        }
+        final List<Rollup> rollups = new ArrayList<>();
+        for (final var table : FlowsSchema.rollupColumns().entrySet()) {
+            final List<String> columns = List.copyOf(table.getValue().keySet());
+            final List<String> types = List.copyOf(table.getValue().values());
+            final List<Dimension> dimensions = new ArrayList<>();
+            for (int i = 0; i < columns.size() - MEASURES.size(); i++) {
+                dimensions.add(dimension(table.getKey(), columns.get(i), types.get(i)));
+            }
+            rollups.add(new Rollup(table.getKey(), columns, List.copyOf(dimensions), header(columns, types)));
+        }
+        return List.copyOf(rollups);
+    }
+
+    /** A dimension's value as its column stores it, and how to write that value. */
+    private static Dimension dimension(final String table, final String column, final String type) {
+        final Function<EnrichedFlow, Object> raw = DIMENSIONS.get(column);
+        if (raw == null) {
+            throw new IllegalStateException("Rollup " + table + " has a dimension " + column
+                    + " the collector cannot compute — use riptide.clickhouse.rollups.mode=server");
+        }
+        return switch (type) {
+            case "String", "LowCardinality(String)" -> new Dimension(
+                    flow -> Objects.requireNonNullElse((String) raw.apply(flow), ""),
+                    (value, out) -> out.string(((String) value).getBytes(StandardCharsets.UTF_8)));
+            case "DateTime('UTC')", "DateTime" -> new Dimension(raw,
+                    (value, out) -> out.integer((Long) value, 4));
+            case "UInt8" -> integer(raw, 1);
+            case "UInt16" -> integer(raw, 2);
+            case "UInt32" -> integer(raw, 4);
+            case "UInt64" -> integer(raw, 8);
+            case "IPv6" -> new Dimension(flow -> Ipv6.of((InetAddress) raw.apply(flow)), (value, out) -> {
+                out.integerBigEndian(((Ipv6) value).high());
+                out.integerBigEndian(((Ipv6) value).low());
+            });
+            default -> throw new IllegalStateException("Rollup " + table + " column " + column + " has type "
+                    + type + ", which the collector cannot write — use riptide.clickhouse.rollups.mode=server");
+        };
+    }
+
+    /** An unsigned integer at its column's width: the low bytes, as the flows table stores it. */
+    private static Dimension integer(final Function<EnrichedFlow, Object> raw, final int width) {
+        final long mask = width == 8 ? -1L : (1L << (width * 8)) - 1;
+        return new Dimension(flow -> {
+            final Number value = (Number) raw.apply(flow);
+            return value == null ? 0L : value.longValue() & mask;
+        }, (value, out) -> out.integer((Long) value, width));
+    }
+
+    private static byte[] header(final List<String> columns, final List<String> types) {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final FlowBatchWriter.Buffer out = new FlowBatchWriter.Buffer(bytes);
+        try {
+            out.varint(columns.size());
+            for (final String column : columns) {
+                out.string(column.getBytes(StandardCharsets.UTF_8));
+            }
+            for (final String type : types) {
+                out.string(type.getBytes(StandardCharsets.UTF_8));
+            }
+            out.flush();
+        } catch (final IOException e) {
+            // A ByteArrayOutputStream does not throw.
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /** One rollup: its table, its columns in table order, and its dimensions — the leading columns. */
+    private record Rollup(String table, List<String> columns, List<Dimension> dimensions, byte[] header) {
+
+        Group group(final int index, final long minute, final EnrichedFlow flow) {
+            final Object[] values = new Object[this.dimensions.size()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = this.dimensions.get(i).value().apply(flow);
+            }
+            return new Group(index, minute, List.of(values));
+        }
+
+        byte[] encode(final List<Map.Entry<Group, long[]>> rows) {
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            final FlowBatchWriter.Buffer out = new FlowBatchWriter.Buffer(bytes);
+            try {
+                out.bytes(this.header);
+                for (final var row : rows) {
+                    final List<Object> values = row.getKey().values();
+                    for (int i = 0; i < values.size(); i++) {
+                        this.dimensions.get(i).writer().write(values.get(i), out);
+                    }
+                    for (final long total : row.getValue()) {
+                        out.integer(total, 8);
+                    }
+                }
+                out.flush();
+            } catch (final IOException e) {
+                throw new IllegalStateException(e);
+            }
+            return bytes.toByteArray();
+        }
+    }
+
+    private record Dimension(Function<EnrichedFlow, Object> value, Writer writer) {
+    }
+
+    @FunctionalInterface
+    private interface Writer {
+        void write(Object value, FlowBatchWriter.Buffer out) throws IOException;
+    }
+
+    /**
+     * One row of one rollup: its minute, and its dimension values, the minute among them again.
+     * Values are never null — every dimension stores its absent value — so the list compares and
+     * hashes by value.
+     */
+    private record Group(int rollup, long minute, List<Object> values) {
+    }
+
+    /** An address in its IPv6 form, IPv4 mapped into {@code ::ffff:0:0/96}; absent is {@code ::}. */
+    private record Ipv6(long high, long low) {
+
+        static Ipv6 of(final InetAddress address) {
+            final ByteBuffer ipv6 = ByteBuffer.allocate(16);
+            if (address instanceof Inet4Address) {
+                ipv6.putShort(10, (short) 0xFFFF).put(12, address.getAddress());
+            } else if (address != null) {
+                ipv6.put(0, address.getAddress());
+            }
+            return new Ipv6(ipv6.getLong(0), ipv6.getLong(8));
+        }
+    }
+}
@@ -0,0 +1,31 @@
+/*
+ * Copyright 2026 Riptide Labs, <https://github.com/Riptide-Labs>
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package org.riptide.repository.clickhouse;
+
+import org.riptide.pipeline.FlowException;
+
+import java.util.List;
+
+/**
+ * Where a {@link RollupAggregator} inserts the rollup rows it computed: the repository writing the
+ * flows they total, so the rollups land on the same server — or the same shard — as their flows,
+ * exactly where a materialized view would have put them.
+ */
+public interface RollupSink {
+
+    /**
+     * Insert {@code body} into the rollup table {@code table}: rows as
+     * {@code RowBinaryWithNamesAndTypes}, header included, naming {@code columns}. The body is not
+     * consumed, so a failed insert can be sent again, to this sink or another.
+     */
+    void insertRollup(String table, List<String> columns, byte[] body) throws FlowException;
+
+    /**
+     * Whether a materialized view still feeds one of the rollups, as far as {@code start()} could
+     * see. The collector must not total the flows a second time then.
+     */
+    boolean rollupViewsPresent();
+}
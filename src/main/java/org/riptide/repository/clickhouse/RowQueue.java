@@ -0,0 +1,204 @@
+/*
+ * Copyright 2026 Riptide Labs, <https://github.com/Riptide-Labs>
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package org.riptide.repository.clickhouse;
+
+import org.riptide.pipeline.EnrichedFlow;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The hand-off between the persisting threads and the batch flusher: many producers, one
+ * consumer, bounded in rows. A producer hands over a whole list in one step — a capacity
+ * reservation (a CAS on the row count) and a link (one swap of the tail) — where a
+ * {@code LinkedBlockingQueue} took its lock and allocated a node for every row. The consumer
+ * takes whole runs of rows off the head with one update of the row count per drain, splitting a
+ * list where a batch ends.
+ *
+ * <p>The list is the node's payload, not a copy: a producer must not change it after handing it
+ * over, which the pipeline, building a fresh list per packet, never does.
+ *
+ * <p>The linked list is Vyukov's intrusive MPSC queue: producers swap themselves in as the tail
+ * and then link the previous tail to themselves; in between, the consumer sees the queue end one
+ * node early, and finds the rest on its next look. The row count is reserved before the link, so
+ * it may briefly count rows the consumer cannot see yet, never the other way round: a full queue
+ * is never overfilled.
+ *
+ * <p>Nobody spins on a full or empty queue. A producer out of space parks until the consumer
+ * frees some, or its offer budget runs out; the consumer parks until enough rows for its batch
+ * have arrived, or its drain window ends. Each side checks for the other after publishing its
+ * own state — the row count, or the wait it is about to start — so a wake-up is never lost.
+ */
+final class RowQueue {
+
+    private final int capacity;
+
+    /** Rows reserved by producers and not yet taken by the consumer. */
+    private final AtomicInteger rows = new AtomicInteger();
+
+    private final AtomicReference<Node> tail;
+
+    /** The node last taken from, whose {@code next} is the next to take from; guarded by {@code this}. */
+    private Node head;
+
+    /** The consumer, while it waits for {@link #wanted} rows; null while it does not wait. */
+    private volatile Thread consumer;
+    private volatile int wanted;
+
+    /** Producers parked on a full queue. */
+    private final ConcurrentLinkedQueue<Thread> producers = new ConcurrentLinkedQueue<>();
+
+    RowQueue(final int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be > 0 (got " + capacity + ")");
+        }
+        this.capacity = capacity;
+        this.head = new Node(List.of(), 0, 0);
+        this.tail = new AtomicReference<>(this.head);
+    }
+
+    /** Rows waiting, including any a producer has reserved and is about to link. */
+    int size() {
+        return this.rows.get();
+    }
+
+    boolean isEmpty() {
+        return this.rows.get() == 0;
+    }
+
+    /**
+     * Hand over {@code flows}, as many as fit, waiting up to {@code timeoutNanos} in all for space
+     * when the queue is full. Returns how many — always a prefix of the list. An interrupt ends
+     * the wait with the flag set, like the budget running out.
+     */
+    int offer(final List<EnrichedFlow> flows, final long timeoutNanos) {
+        final long deadline = System.nanoTime() + timeoutNanos;
+        int offered = tryOffer(flows, 0);
+        while (offered < flows.size()) {
+            final long remaining = deadline - System.nanoTime();
+            if (remaining <= 0 || Thread.currentThread().isInterrupted()) {
+                break;
+            }
+            final Thread self = Thread.currentThread();
+            this.producers.add(self);
+            try {
+                // Registered before the re-check: space freed after it unparks us.
+                if (this.rows.get() >= this.capacity) {
+                    LockSupport.parkNanos(this, remaining);
+                }
+            } finally {
+                this.producers.remove(self);
+            }
+            offered += tryOffer(flows, offered);
+        }
+        return offered;
+    }
+
+    /** Hand over as much of {@code flows} from {@code from} on as fits now; returns how much. */
+    private int tryOffer(final List<EnrichedFlow> flows, final int from) {
+        final int wanting = flows.size() - from;
+        if (wanting <= 0) {
+            return 0;
+        }
+        int reserved;
+        int taken;
+        do {
+            reserved = this.rows.get();
+            taken = Math.min(wanting, this.capacity - reserved);
+            if (taken <= 0) {
+                return 0;
+            }
+        } while (!this.rows.compareAndSet(reserved, reserved + taken));
+
+        final Node node = new Node(flows, from, from + taken);
+        this.tail.getAndSet(node).next = node;
+
+        final Thread waiting = this.consumer;
+        if (waiting != null && reserved + taken >= this.wanted) {
+            LockSupport.unpark(waiting);
+        }
+        return taken;
+    }
+
+    /**
+     * Move up to {@code max} rows into {@code batch} without waiting; returns how many. The one
+     * lock in the class, and only among consumers: uncontended for the flusher, it keeps stop()'s
+     * sweep safe next to a flusher that would not die.
+     */
+    synchronized int drainTo(final List<EnrichedFlow> batch, final int max) {
+        int drained = 0;
+        while (drained < max) {
+            final Node next = this.head.next;
+            if (next == null) {
+                break;
+            }
+            final int take = Math.min(max - drained, next.to - next.from);
+            batch.addAll(next.flows.subList(next.from, next.from + take));
+            next.from += take;
+            drained += take;
+            if (next.from == next.to) {
+                // Fully taken: it becomes the head, and lets go of the producer's list.
+                next.flows = List.of();
+                this.head = next;
+            }
+        }
+        if (drained > 0) {
+            this.rows.addAndGet(-drained);
+            for (final Thread producer : this.producers) {
+                LockSupport.unpark(producer);
+            }
+        }
+        return drained;
+    }
+
+    /**
+     * The flusher's wait: move rows into {@code batch} until {@code max} of them have been moved or
+     * {@code timeout} has passed — the semantics of Guava's {@code Queues.drain}. Returns how many.
+     */
+    int drain(final List<EnrichedFlow> batch, final int max, final Duration timeout) throws InterruptedException {
+        final long deadline = System.nanoTime() + timeout.toNanos();
+        int drained = drainTo(batch, max);
+        while (drained < max) {
+            final long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                break;
+            }
+            this.wanted = max - drained;
+            this.consumer = Thread.currentThread();
+            // Published before the re-check: rows linked after it unpark us.
+            if (this.rows.get() < this.wanted) {
+                LockSupport.parkNanos(this, remaining);
+            } else {
+                // Counted but maybe not linked yet: give the producer its moment.
+                Thread.onSpinWait();
+            }
+            this.consumer = null;
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            drained += drainTo(batch, max - drained);
+        }
+        return drained;
+    }
+
+    private static final class Node {
+        /** Consumer-written once fully taken; until then, what the producer linked. */
+        private List<EnrichedFlow> flows;
+        private int from;
+        private final int to;
+        private volatile Node next;
+
+        Node(final List<EnrichedFlow> flows, final int from, final int to) {
+            this.flows = flows;
+            this.from = from;
+            this.to = to;
+        }
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2026 Riptide Labs, <https://github.com/Riptide-Labs>
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package org.riptide.repository.clickhouse;
+
+import org.riptide.pipeline.EnrichedFlow;
+import org.riptide.pipeline.FlowException;
+import org.riptide.repository.FlowRepository;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Splits every persisted list across the shards by a {@link ShardingPolicy} and hands each shard
+ * its part. Each shard is a full write path of its own — in production a
+ * {@link BatchingFlowRepository} over a {@link FailoverFlowRepository} — so a shard that slows
+ * down or goes away fills (and spills) its own queue while the others carry on.
+ *
+ * <p>A shard that throws does not cost the other shards their rows: every shard gets its part,
+ * and the first failure is rethrown afterwards. With the batching layer in front that only happens
+ * once a shard has been stopped.
+ */
+public final class ShardedFlowRepository implements FlowRepository {
+
+    private final List<? extends FlowRepository> shards;
+
+    private final ShardingPolicy policy;
+
+    public ShardedFlowRepository(final List<? extends FlowRepository> shards, final ShardingPolicy policy) {
+        if (shards.isEmpty()) {
+            throw new IllegalArgumentException("At least one shard is required");
+        }
+        this.shards = List.copyOf(shards);
+        this.policy = Objects.requireNonNull(policy);
+    }
+
+    @Override
+    public void persist(final List<EnrichedFlow> flows) throws FlowException, IOException {
+        if (this.shards.size() == 1) {
+            this.shards.get(0).persist(flows);
+            return;
+        }
+
+        final List<List<EnrichedFlow>> parts = new ArrayList<>(this.shards.size());
+        for (int i = 0; i < this.shards.size(); i++) {
+            parts.add(new ArrayList<>());
+        }
+        for (final EnrichedFlow flow : flows) {
+            final int shard = this.policy.shardOf(flow, this.shards.size());
+            if (shard < 0 || shard >= this.shards.size()) {
+                throw new IllegalStateException("Sharding policy placed a flow on shard " + shard
+                        + " of " + this.shards.size());
+            }
+            parts.get(shard).add(flow);
+        }
+
+        Exception first = null;
+        for (int i = 0; i < this.shards.size(); i++) {
+            if (parts.get(i).isEmpty()) {
+                continue;
+            }
+            try {
+                this.shards.get(i).persist(parts.get(i));
+            } catch (final FlowException | IOException | RuntimeException e) {
+                if (first == null) {
+                    first = e;
+                } else {
+                    first.addSuppressed(e);
+                }
+            }
+        }
+        if (first instanceof FlowException e) {
+            throw e;
+        } else if (first instanceof IOException e) {
+            throw e;
+        } else if (first instanceof RuntimeException e) {
+            throw e;
+        }
+    }
+
+    @Override
+    public void start() {
+        final List<FlowRepository> started = new ArrayList<>();
+        try {
+            for (final FlowRepository shard : this.shards) {
+                shard.start();
+                started.add(shard);
+            }
+        } catch (final RuntimeException e) {
+            // Leave nothing half-running behind a failed startup: started shards own threads.
+            for (final FlowRepository shard : started.reversed()) {
+                try {
+                    shard.stop();
+                } catch (final RuntimeException suppressed) {
+                    e.addSuppressed(suppressed);
+                }
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public void stop() {
+        // Every shard, even past a failure, and all at once: each drains (or spills) its own queue
+        // for up to the shutdown grace period, and one after the other that would add up to more
+        // than the service manager waits.
+        final List<RuntimeException> failures = Collections.synchronizedList(new ArrayList<>());
+        final List<Thread> stopping = new ArrayList<>();
+        for (int i = 0; i < this.shards.size(); i++) {
+            final FlowRepository shard = this.shards.get(i);
+            stopping.add(Thread.ofPlatform().name("clickhouse-shard-stop-" + i).start(() -> {
+                try {
+                    shard.stop();
+                } catch (final RuntimeException e) {
+                    failures.add(e);
+                }
+            }));
+        }
+        boolean interrupted = false;
+        for (final Thread thread : stopping) {
+            while (thread.isAlive()) {
+                try {
+                    thread.join();
+                } catch (final InterruptedException e) {
+                    // Keep waiting: returning early would let the context close under the drains.
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        if (!failures.isEmpty()) {
+            final RuntimeException first = failures.get(0);
+            failures.subList(1, failures.size()).forEach(first::addSuppressed);
+            throw first;
+        }
+    }
+}
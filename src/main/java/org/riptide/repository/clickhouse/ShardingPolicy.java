@@ -0,0 +1,56 @@
+/*
+ * Copyright 2026 Riptide Labs, <https://github.com/Riptide-Labs>
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package org.riptide.repository.clickhouse;
+
+import org.riptide.config.ClickhouseConfig;
+import org.riptide.pipeline.EnrichedFlow;
+
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * Which of the configured ClickHouse shards a flow is written to. The built-in policies are chosen
+ * with {@code riptide.clickhouse.sharding}; a {@code ShardingPolicy} bean in the application
+ * context replaces them.
+ *
+ * <p>A policy must be deterministic — the same flow, the same shard — or rows a query expects
+ * together end up apart. It is called once per flow on the persisting thread, so it must be cheap.
+ */
+@FunctionalInterface
+public interface ShardingPolicy {
+
+    /**
+     * @param flow   the flow to place
+     * @param shards the number of shards, at least two
+     * @return the shard's index, in {@code [0, shards)}
+     */
+    int shardOf(EnrichedFlow flow, int shards);
+
+    /** All of a tenant's flows on one shard; flows without a tenant share one. */
+    static ShardingPolicy byTenant() {
+        return hashing(EnrichedFlow::getTenant);
+    }
+
+    /** Each exporter's flows on one shard, spreading exporters evenly. */
+    static ShardingPolicy byExporter() {
+        return hashing(EnrichedFlow::getExporterAddr);
+    }
+
+    static ShardingPolicy of(final ClickhouseConfig.Sharding sharding) {
+        return switch (sharding) {
+            case TENANT -> byTenant();
+            case EXPORTER -> byExporter();
+        };
+    }
+
+    /**
+     * {@link String#hashCode()} is specified, so a key lands on the same shard on every collector
+     * and across restarts.
+     */
+    private static ShardingPolicy hashing(final Function<EnrichedFlow, String> key) {
+        return (flow, shards) -> Math.floorMod(Objects.hashCode(key.apply(flow)), shards);
+    }
+}
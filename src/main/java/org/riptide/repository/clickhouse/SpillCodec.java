@@ -0,0 +1,297 @@
+/*
+ * Copyright 2026 Riptide Labs, <https://github.com/Riptide-Labs>
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package org.riptide.repository.clickhouse;
+
+import org.riptide.flows.parser.data.Flow;
+import org.riptide.pipeline.EnrichedFlow;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The on-disk form of a spilled batch: every {@link EnrichedFlow} field in a fixed order, each
+ * behind a presence byte. The flow's counters, ports and interfaces are primitives and always
+ * present, but keep their byte: it is the format the boxed fields were spilled in, and an absent
+ * one in an older spill reads back as the {@code 0} the flow would have held. Deliberately not the RowBinary the insert sends —
+ * that form is bound to one server's live schema and cannot be read back into flows, while a
+ * spilled batch may be replayed by a later riptide against a migrated table.
+ *
+ * <p>Enums are stored by name, not ordinal, so a reordered constant does not silently turn into
+ * another one on replay; a removed one fails the decode, and the spill discards that record
+ * (counted) rather than guessing. {@link SpillQueue#VERSION} must be bumped whenever the field
+ * list changes — {@code SpillCodecTest} round-trips every field reflectively to catch a new one
+ * that was not added here.
+ */
+final class SpillCodec {
+
+    private SpillCodec() {
+    }
+
+    static void encode(final List<EnrichedFlow> flows, final DataOutput out) throws IOException {
+        for (final EnrichedFlow flow : flows) {
+            instant(out, flow.getReceivedAt());
+            instant(out, flow.getTimestamp());
+            int64(out, flow.getBytes());
+            enumeration(out, flow.getDirection());
+            address(out, flow.getDstAddr());
+            string(out, flow.getDstAddrHostname());
+            int64(out, flow.getDstAs());
+            string(out, flow.getDstAsOrg());
+            int32(out, flow.getDstMaskLen());
+            int32(out, flow.getDstPort());
+            int32(out, flow.getEngineId());
+            int32(out, flow.getEngineType());
+            instant(out, flow.getDeltaSwitched());
+            instant(out, flow.getFirstSwitched());
+            out.writeInt(flow.getFlowRecords());
+            out.writeLong(flow.getFlowSeqNum());
+            int32(out, flow.getInputSnmp());
+            int32(out, flow.getIpProtocolVersion());
+            instant(out, flow.getLastSwitched());
+            address(out, flow.getNextHop());
+            string(out, flow.getNextHopHostname());
+            int32(out, flow.getOutputSnmp());
+            int64(out, flow.getPackets());
+            int32(out, flow.getProtocol());
+            enumeration(out, flow.getSamplingAlgorithm());
+            float64(out, flow.getSamplingInterval());
+            enumeration(out, flow.getSamplingProvenance());
+            address(out, flow.getSrcAddr());
+            string(out, flow.getSrcAddrHostname());
+            int64(out, flow.getSrcAs());
+            string(out, flow.getSrcAsOrg());
+            int32(out, flow.getSrcMaskLen());
+            int32(out, flow.getSrcPort());
+            int32(out, flow.getTcpFlags());
+            int32(out, flow.getTos());
+            enumeration(out, flow.getFlowProtocol());
+            int32(out, flow.getVlan());
+
+            string(out, flow.getApplication());
+            string(out, flow.getExporterAddr());
+            string(out, flow.getTenant());
+            string(out, flow.getOrganisation());
+            string(out, flow.getZone());
+            string(out, flow.getSystem());
+            enumeration(out, flow.getSrcLocality());
+            enumeration(out, flow.getDstLocality());
+            enumeration(out, flow.getFlowLocality());
+            duration(out, flow.getClockCorrection());
+            string(out, flow.getInputSnmpIfName());
+            string(out, flow.getInputSnmpIfAlias());
+            nullableInt64(out, flow.getInputSnmpIfSpeed());
+            string(out, flow.getOutputSnmpIfName());
+            string(out, flow.getOutputSnmpIfAlias());
+            nullableInt64(out, flow.getOutputSnmpIfSpeed());
+            string(out, flow.getSrcCountry());
+            string(out, flow.getSrcCity());
+            string(out, flow.getDstCountry());
+            string(out, flow.getDstCity());
+            string(out, flow.getExporterName());
+        }
+    }
+
+    /**
+     * Read {@code rows} flows back. Throws {@link IllegalArgumentException} on a record this
+     * build cannot represent (an unknown enum constant, a malformed address).
+     */
+    static List<EnrichedFlow> decode(final ByteBuffer in, final int rows) {
+        final List<EnrichedFlow> flows = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            flows.add(EnrichedFlow.builder()
+                    .receivedAt(instant(in))
+                    .timestamp(instant(in))
+                    .bytes(int64(in))
+                    .direction(enumeration(in, Flow.Direction.class))
+                    .dstAddr(address(in))
+                    .dstAddrHostname(string(in))
+                    .dstAs(int64(in))
+                    .dstAsOrg(string(in))
+                    .dstMaskLen(int32(in))
+                    .dstPort(int32(in))
+                    .engineId(int32(in))
+                    .engineType(int32(in))
+                    .deltaSwitched(instant(in))
+                    .firstSwitched(instant(in))
+                    .flowRecords(in.getInt())
+                    .flowSeqNum(in.getLong())
+                    .inputSnmp(int32(in))
+                    .ipProtocolVersion(int32(in))
+                    .lastSwitched(instant(in))
+                    .nextHop(address(in))
+                    .nextHopHostname(string(in))
+                    .outputSnmp(int32(in))
+                    .packets(int64(in))
+                    .protocol(int32(in))
+                    .samplingAlgorithm(enumeration(in, Flow.SamplingAlgorithm.class))
+                    .samplingInterval(float64(in))
+                    .samplingProvenance(enumeration(in, Flow.SamplingProvenance.class))
+                    .srcAddr(address(in))
+                    .srcAddrHostname(string(in))
+                    .srcAs(int64(in))
+                    .srcAsOrg(string(in))
+                    .srcMaskLen(int32(in))
+                    .srcPort(int32(in))
+                    .tcpFlags(int32(in))
+                    .tos(int32(in))
+                    .flowProtocol(enumeration(in, Flow.FlowProtocol.class))
+                    .vlan(int32(in))
+                    .application(string(in))
+                    .exporterAddr(string(in))
+                    .tenant(string(in))
+                    .organisation(string(in))
+                    .zone(string(in))
+                    .system(string(in))
+                    .srcLocality(enumeration(in, Flow.Locality.class))
+                    .dstLocality(enumeration(in, Flow.Locality.class))
+                    .flowLocality(enumeration(in, Flow.Locality.class))
+                    .clockCorrection(duration(in))
+                    .inputSnmpIfName(string(in))
+                    .inputSnmpIfAlias(string(in))
+                    .inputSnmpIfSpeed(nullableInt64(in))
+                    .outputSnmpIfName(string(in))
+                    .outputSnmpIfAlias(string(in))
+                    .outputSnmpIfSpeed(nullableInt64(in))
+                    .srcCountry(string(in))
+                    .srcCity(string(in))
+                    .dstCountry(string(in))
+                    .dstCity(string(in))
+                    .exporterName(string(in))
+                    .build());
+        }
+        return flows;
+    }
+
+    private static boolean present(final DataOutput out, final Object value) throws IOException {
+        out.writeBoolean(value != null);
+        return value != null;
+    }
+
+    private static boolean present(final ByteBuffer in) {
+        return in.get() != 0;
+    }
+
+    private static void instant(final DataOutput out, final Instant value) throws IOException {
+        if (present(out, value)) {
+            out.writeLong(value.getEpochSecond());
+            out.writeInt(value.getNano());
+        }
+    }
+
+    private static Instant instant(final ByteBuffer in) {
+        return present(in) ? Instant.ofEpochSecond(in.getLong(), in.getInt()) : null;
+    }
+
+    private static void duration(final DataOutput out, final Duration value) throws IOException {
+        if (present(out, value)) {
+            out.writeLong(value.getSeconds());
+            out.writeInt(value.getNano());
+        }
+    }
+
+    private static Duration duration(final ByteBuffer in) {
+        return present(in) ? Duration.ofSeconds(in.getLong(), in.getInt()) : null;
+    }
+
+    private static void int32(final DataOutput out, final int value) throws IOException {
+        out.writeBoolean(true);
+        out.writeInt(value);
+    }
+
+    private static int int32(final ByteBuffer in) {
+        return present(in) ? in.getInt() : 0;
+    }
+
+    private static void int64(final DataOutput out, final long value) throws IOException {
+        out.writeBoolean(true);
+        out.writeLong(value);
+    }
+
+    private static long int64(final ByteBuffer in) {
+        return present(in) ? in.getLong() : 0L;
+    }
+
+    private static void nullableInt64(final DataOutput out, final Long value) throws IOException {
+        if (present(out, value)) {
+            out.writeLong(value);
+        }
+    }
+
+    private static Long nullableInt64(final ByteBuffer in) {
+        return present(in) ? in.getLong() : null;
+    }
+
+    private static void float64(final DataOutput out, final double value) throws IOException {
+        out.writeBoolean(true);
+        out.writeDouble(value);
+    }
+
+    private static double float64(final ByteBuffer in) {
+        return present(in) ? in.getDouble() : 0.0;
+    }
+
+    private static void string(final DataOutput out, final String value) throws IOException {
+        if (present(out, value)) {
+            final byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(utf8.length);
+            out.write(utf8);
+        }
+    }
+
+    private static String string(final ByteBuffer in) {
+        if (!present(in)) {
+            return null;
+        }
+        final byte[] utf8 = new byte[in.getInt()];
+        in.get(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    private static void address(final DataOutput out, final InetAddress value) throws IOException {
+        if (present(out, value)) {
+            final byte[] raw = value.getAddress();
+            out.writeByte(raw.length);
+            out.write(raw);
+        }
+    }
+
+    private static InetAddress address(final ByteBuffer in) {
+        if (!present(in)) {
+            return null;
+        }
+        final byte[] raw = new byte[in.get()];
+        in.get(raw);
+        try {
+            return InetAddress.getByAddress(raw);
+        } catch (final UnknownHostException e) {
+            throw new IllegalArgumentException("Spilled address of " + raw.length + " bytes", e);
+        }
+    }
+
+    private static void enumeration(final DataOutput out, final Enum<?> value) throws IOException {
+        if (present(out, value)) {
+            out.writeUTF(value.name());
+        }
+    }
+
+    private static <E extends Enum<E>> E enumeration(final ByteBuffer in, final Class<E> type) {
+        if (!present(in)) {
+            return null;
+        }
+        final byte[] utf8 = new byte[in.getShort() & 0xFFFF];
+        in.get(utf8);
+        // Enum names are ASCII, where modified UTF-8 and UTF-8 agree.
+        return Enum.valueOf(type, new String(utf8, StandardCharsets.UTF_8));
+    }
+}
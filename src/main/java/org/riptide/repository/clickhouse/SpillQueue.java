@@ -0,0 +1,651 @@
+/*
+ * Copyright 2026 Riptide Labs, <https://github.com/Riptide-Labs>
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package org.riptide.repository.clickhouse;
+
+import lombok.extern.slf4j.Slf4j;
+import org.riptide.pipeline.EnrichedFlow;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only, on-disk FIFO of flow batches the batching repository could not insert: a
+ * directory of memory-mapped segment files, each a small header followed by length-prefixed,
+ * checksummed records of one spilled batch each. Appends go to the newest segment and roll to a
+ * fresh one when it is full; the head is read in order and a segment file is deleted as soon as
+ * its last record has been replayed.
+ *
+ * <p>Writes land in the page cache through the mapping, so they survive the collector crashing —
+ * not the host losing power: segments are forced to disk when they roll and on {@link #close()},
+ * not per append, because an fsync per overflowing persist() call would make the spill slower than
+ * the ClickHouse it stands in for. The replay cursor lives in each segment's header and is
+ * advanced after the insert succeeded, so a crash in between replays that batch once more —
+ * at-least-once, like the rest of the insert path.
+ *
+ * <p>The cap counts allocated segment files, not records: a segment is written out at its full
+ * size when it is created, so {@code maxBytes} is what the directory can grow to. An append that would
+ * need a segment past the cap is refused, and the caller counts those rows as lost. On open, the
+ * segments of a previous run are picked up in order; a record cut short by a crash ends its
+ * segment (length zero or checksum mismatch), and a segment written by an incompatible version is
+ * left on disk with a warning rather than replayed as garbage. Left there, it still takes its
+ * size out of {@code maxBytes} until someone removes it, or the cap would no longer bound the
+ * directory.
+ *
+ * <p>Each segment is mapped in an {@link Arena} of its own and unmapped the moment it is deleted.
+ * A {@code MappedByteBuffer} is unmapped only when the collector gets round to it, and until then
+ * the deleted file's blocks stay allocated: a replay after a long outage freed no disk at all.
+ *
+ * <p>Thread-safe: producers spill on overflow while the flusher's inserts spill failed batches
+ * and replay the head, all under this object's monitor — except for writing out a new segment,
+ * which can take a while and is done by the append that needs it with the monitor released. The
+ * replay and appends that still fit the old segment go on meanwhile; appends that need the new one
+ * wait for it rather than write out another.
+ */
+@Slf4j
+final class SpillQueue implements Closeable {
+
+    /** {@code RPSP}: identifies a spill segment. */
+    static final int MAGIC = 0x52505350;
+
+    /** The record and {@link SpillCodec} format; bump on any change to either. */
+    static final int VERSION = 3;
+
+    /** Magic, version, replay cursor. */
+    private static final int SEGMENT_HEADER = 4 + 4 + 8;
+
+    private static final int CURSOR_OFFSET = 8;
+
+    /**
+     * Length (whole record), CRC32 of what follows the group, the group (see {@link #peek}),
+     * spilled-at millis, row count, the length of the deduplication token; then the token in UTF-8
+     * (none when empty), and the rows.
+     */
+    private static final int RECORD_HEADER = 4 + 4 + 4 + 8 + 4 + 2;
+
+    /** Where the checksummed part of a record starts: the group is written after the record. */
+    private static final int CHECKED_OFFSET = 12;
+
+    private static final String SUFFIX = ".spill";
+
+    /**
+     * One spilled record's worth of rows at the head, or several coalesced, with the token to
+     * insert them under. A record spilled with a token — a batch whose insert was attempted, and
+     * may have landed unacknowledged — comes alone, under that token, so its replay is recognised
+     * as a repeat of the attempts. Records spilled without one were never attempted, and may be
+     * coalesced; their token names the first record — where on disk, its checksum, when it was
+     * spilled — and how many records they span. The records a head spans are fixed the first time
+     * it is peeked (see {@link #peek}), so the same head peeked again, by a later attempt or the
+     * next run, has the same token, and a different one practically never does.
+     */
+    record Batch(List<EnrichedFlow> flows, int records, String token) {
+    }
+
+    private final Path directory;
+    private final long maxBytes;
+    private final int segmentBytes;
+
+    /** Oldest first; the last one takes appends. */
+    private final ArrayDeque<Segment> segments = new ArrayDeque<>();
+
+    private final Encoder encoder = new Encoder();
+
+    private long nextSequence;
+
+    /** Unreplayed record bytes across all segments. */
+    private long pendingBytes;
+
+    /** Segment files found on open that this build will not replay, left in place: counted against the cap. */
+    private long skippedBytes;
+
+    /** The capacity of the segment an append is writing out, or 0 while none is: counted against the cap. */
+    private int allocating;
+
+    private boolean closed;
+
+    private SpillQueue(final Path directory, final long maxBytes, final int segmentBytes) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        this.segmentBytes = segmentBytes;
+    }
+
+    /** Open (creating if need be) the spill in {@code directory}, picking up what a previous run left. */
+    static SpillQueue open(final Path directory, final long maxBytes, final int segmentBytes) throws IOException {
+        Objects.requireNonNull(directory);
+        Files.createDirectories(directory);
+        final SpillQueue spill = new SpillQueue(directory, maxBytes, segmentBytes);
+
+        final List<Path> files;
+        try (Stream<Path> listing = Files.list(directory)) {
+            // Zero-padded sequence numbers: name order is spill order.
+            files = listing.filter(p -> p.getFileName().toString().endsWith(SUFFIX)).sorted().toList();
+        }
+        for (final Path file : files) {
+            final String name = file.getFileName().toString();
+            try {
+                spill.nextSequence = Math.max(spill.nextSequence,
+                        Long.parseLong(name.substring(0, name.length() - SUFFIX.length())) + 1);
+            } catch (final NumberFormatException e) {
+                log.warn("Ignoring {} in the spill directory: not a spill segment", file);
+                spill.skippedBytes += Files.size(file);
+                continue;
+            }
+            final Segment segment = Segment.recover(file);
+            if (segment == null) {
+                spill.skippedBytes += Files.size(file);
+                continue;
+            }
+            if (segment.pending() == 0) {
+                segment.delete();
+            } else {
+                spill.segments.add(segment);
+                spill.pendingBytes += segment.pending();
+            }
+        }
+        if (spill.skippedBytes > 0) {
+            log.warn("Spill directory {} holds {} bytes this build will not replay; they count against "
+                    + "the spill's {} byte cap until removed", directory, spill.skippedBytes, maxBytes);
+        }
+        if (!spill.segments.isEmpty()) {
+            log.info("Spill holds {} bytes in {} segments from a previous run; replaying once inserts succeed",
+                    spill.pendingBytes, spill.segments.size());
+        }
+        return spill;
+    }
+
+    /** Append rows no insert has been attempted with; see {@link #append(List, String)}. */
+    boolean append(final List<EnrichedFlow> flows) throws IOException {
+        return append(flows, null);
+    }
+
+    /**
+     * Append one batch as one record, with the deduplication token its insert was attempted
+     * under, or null if it never was. Returns false when the cap leaves no room for it (or the
+     * spill is closed); the caller still owns those rows then.
+     */
+    boolean append(final List<EnrichedFlow> flows, final String token) throws IOException {
+        Segment created = null;
+        try {
+            while (true) {
+                final Path file;
+                final int capacity;
+                synchronized (this) {
+                    if (this.closed) {
+                        return false;
+                    }
+                    if (flows.isEmpty()) {
+                        return true;
+                    }
+                    // Encoded on every pass: another append may have used the encoder while this one
+                    // was away writing out a segment or waiting for one.
+                    final int length = this.encoder.encode(flows, token);
+
+                    final Segment tail = this.segments.peekLast();
+                    if (tail != null && tail.fits(length) && !tail.recovered) {
+                        return write(tail, length);
+                    }
+                    // Recovered segments are never appended to: their tail may be a torn record.
+                    if (created != null) {
+                        if (tail != null) {
+                            tail.force();
+                        }
+                        final Segment next = created;
+                        created = null;
+                        this.segments.add(next);
+                        this.allocating = 0;
+                        notifyAll();
+                        return write(next, length);
+                    }
+                    if (this.allocating > 0) {
+                        awaitAllocation();
+                        continue;
+                    }
+                    capacity = Math.max(this.segmentBytes, SEGMENT_HEADER + length);
+                    if (allocated() + capacity > this.maxBytes) {
+                        return false;
+                    }
+                    // Named now, so segments are named in the order they are put to use.
+                    file = this.directory.resolve(String.format("%020d%s", this.nextSequence++, SUFFIX));
+                    this.allocating = capacity;
+                }
+                created = allocate(file, capacity);
+            }
+        } finally {
+            if (created != null) {
+                // Never put to use: the spill was closed while it was written out.
+                created.delete();
+                synchronized (this) {
+                    this.allocating = 0;
+                    notifyAll();
+                }
+            }
+        }
+    }
+
+    private boolean write(final Segment tail, final int length) {
+        tail.append(this.encoder.bytes(), length);
+        this.pendingBytes += length;
+        return true;
+    }
+
+    /** Write out a new segment, outside the monitor; see the class comment. */
+    private Segment allocate(final Path file, final int capacity) throws IOException {
+        try {
+            return Segment.create(file, capacity);
+        } catch (final IOException | RuntimeException e) {
+            synchronized (this) {
+                this.allocating = 0;
+                notifyAll();
+            }
+            throw e;
+        }
+    }
+
+    /** Wait, releasing the monitor, until the segment another append is writing out is in place. */
+    private void awaitAllocation() throws IOException {
+        try {
+            wait();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for a new spill segment");
+        }
+    }
+
+    /**
+     * The head of the spill without removing it: whole records, in order, up to {@code maxRows}
+     * rows — but always at least one record, however large. Null when empty. Throws
+     * {@link IllegalArgumentException} when the head record cannot be decoded by this build;
+     * {@link #discard()} moves past it.
+     *
+     * <p>Coalesced records are a group from the first peek on: their number is written into the
+     * head record, and every later peek hands over exactly those records, under the same token,
+     * whatever {@code maxRows} it asks for, until they are removed. A head whose insert may have
+     * landed unacknowledged must come back as it went, or the server takes the repeat for new
+     * rows; the group is in the mapping, so it survives the collector crashing, as the records do.
+     */
+    synchronized Batch peek(final int maxRows) {
+        final List<EnrichedFlow> flows = new ArrayList<>();
+        int records = 0;
+        int group = 0;
+        Segment first = null;
+        int firstPosition = 0;
+        for (final Segment segment : this.segments) {
+            int position = segment.readPosition;
+            while (position < segment.writePosition) {
+                final int rows = segment.rows(position);
+                final String token = segment.token(position);
+                if (records > 0 && (group > 0
+                        ? records == group
+                        : token != null || flows.size() + rows > maxRows)) {
+                    return group(first, firstPosition, flows, records);
+                }
+                try {
+                    flows.addAll(SpillCodec.decode(segment.payload(position), rows));
+                } catch (final RuntimeException e) {
+                    if (records > 0 && group == 0) {
+                        // Hand over what decodes; the bad record is the next call's head.
+                        return group(first, firstPosition, flows, records);
+                    }
+                    throw new IllegalArgumentException("Spilled record in " + segment.file
+                            + " at offset " + position + " cannot be decoded", e);
+                }
+                if (token != null) {
+                    // Attempted before it was spilled: alone, under the attempts' token.
+                    return new Batch(flows, 1, token);
+                }
+                if (records == 0) {
+                    first = segment;
+                    firstPosition = position;
+                    group = segment.group(position);
+                }
+                records++;
+                position += segment.length(position);
+            }
+        }
+        return records == 0 ? null : group(first, firstPosition, flows, records);
+    }
+
+    /** Fix the records as the head's group, if they are not yet, and hand them over. */
+    private static Batch group(final Segment first, final int position, final List<EnrichedFlow> flows,
+                               final int records) {
+        first.group(position, records);
+        // Segment names restart at zero in an emptied directory and repeat across collectors; the
+        // first record's checksum and spill time do not.
+        return new Batch(flows, records, first.file.getFileName() + "@" + position + "#"
+                + Integer.toHexString(first.crc(position)) + "-" + first.spilledAt(position) + "+" + records);
+    }
+
+    /** Remove {@code records} records from the head, once their rows are safely elsewhere. */
+    synchronized void remove(final int records) {
+        for (int i = 0; i < records; i++) {
+            removeHead();
+        }
+    }
+
+    /** Remove the head record unread, returning how many rows it held. */
+    synchronized int discard() {
+        final Segment head = this.segments.peekFirst();
+        if (head == null) {
+            return 0;
+        }
+        final int rows = head.rows(head.readPosition);
+        removeHead();
+        return rows;
+    }
+
+    private void removeHead() {
+        final Segment head = this.segments.peekFirst();
+        if (head == null) {
+            throw new IllegalStateException("Spill is empty");
+        }
+        final int length = head.length(head.readPosition);
+        head.advance(length);
+        this.pendingBytes -= length;
+        if (head.pending() == 0) {
+            // Fully replayed — the tail included: the next append starts a fresh segment.
+            this.segments.removeFirst();
+            head.delete();
+        }
+    }
+
+    synchronized boolean isEmpty() {
+        return this.segments.isEmpty();
+    }
+
+    /** Bytes spilled and not yet replayed. */
+    synchronized long bytes() {
+        return this.pendingBytes;
+    }
+
+    synchronized int segments() {
+        return this.segments.size();
+    }
+
+    /** When the oldest unreplayed record was spilled (epoch millis), or -1 when empty. */
+    synchronized long oldestSpilledAt() {
+        final Segment head = this.segments.peekFirst();
+        return head == null ? -1 : head.spilledAt(head.readPosition);
+    }
+
+    private long allocated() {
+        long total = this.skippedBytes + this.allocating;
+        for (final Segment segment : this.segments) {
+            total += segment.capacity();
+        }
+        return total;
+    }
+
+    /**
+     * Force every segment to disk, unmap it and stop accepting appends; what is left is replayed by
+     * the next run, and this one reads as empty from here on.
+     */
+    @Override
+    public synchronized void close() {
+        if (this.closed) {
+            return;
+        }
+        this.closed = true;
+        // An append waiting for a segment gives up; one writing a segment out deletes it.
+        notifyAll();
+        for (final Segment segment : this.segments) {
+            segment.force();
+            segment.unmap();
+        }
+        this.segments.clear();
+        this.pendingBytes = 0;
+    }
+
+    /** Encodes a batch as a complete record into a reused buffer. */
+    private static final class Encoder extends ByteArrayOutputStream {
+        private final DataOutputStream out = new DataOutputStream(this);
+        private final CRC32 crc = new CRC32();
+
+        Encoder() {
+            super(64 * 1024);
+        }
+
+        int encode(final List<EnrichedFlow> flows, final String token) throws IOException {
+            reset();
+            this.out.writeInt(0);
+            this.out.writeInt(0);
+            this.out.writeInt(0);
+            this.out.writeLong(System.currentTimeMillis());
+            this.out.writeInt(flows.size());
+            final byte[] tokenBytes = token == null ? new byte[0] : token.getBytes(StandardCharsets.UTF_8);
+            this.out.writeShort(tokenBytes.length);
+            this.out.write(tokenBytes);
+            SpillCodec.encode(flows, this.out);
+            this.out.flush();
+
+            final ByteBuffer header = ByteBuffer.wrap(this.buf);
+            header.putInt(0, this.count);
+            this.crc.reset();
+            this.crc.update(this.buf, CHECKED_OFFSET, this.count - CHECKED_OFFSET);
+            header.putInt(4, (int) this.crc.getValue());
+            return this.count;
+        }
+
+        byte[] bytes() {
+            return this.buf;
+        }
+    }
+
+    /**
+     * One mapped segment file, with its read and write positions. The mapping is read and written
+     * through a big-endian {@link ByteBuffer} view, the layout segments have always had on disk.
+     */
+    private static final class Segment {
+        private final Path file;
+        /** Shared: the segment is used under the queue's monitor, but from several threads. */
+        private final Arena arena;
+        private final MemorySegment mapping;
+        private final ByteBuffer map;
+        private final boolean recovered;
+        private int readPosition;
+        private int writePosition;
+
+        private Segment(final Path file, final Arena arena, final MemorySegment mapping, final boolean recovered) {
+            this.file = file;
+            this.arena = arena;
+            this.mapping = mapping;
+            this.map = mapping.asByteBuffer();
+            this.recovered = recovered;
+        }
+
+        static Segment create(final Path file, final int capacity) throws IOException {
+            final Arena arena = Arena.ofShared();
+            final MemorySegment mapping;
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                // Written out, not just mapped: a sparse file on a full disk fails a later store
+                // into the mapping with a SIGBUS the JVM can only report as an InternalError.
+                // Allocating up front turns that into an IOException here, and makes the cap a
+                // true bound on the disk the spill takes.
+                final ByteBuffer zeros = ByteBuffer.allocate(1 << 20);
+                long position = 0;
+                while (position < capacity) {
+                    zeros.clear().limit((int) Math.min(zeros.capacity(), capacity - position));
+                    while (zeros.hasRemaining()) {
+                        position += channel.write(zeros, position);
+                    }
+                }
+                // The mapping outlives the channel.
+                mapping = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity, arena);
+            } catch (final IOException | RuntimeException e) {
+                arena.close();
+                Files.deleteIfExists(file);
+                throw e;
+            }
+            final Segment segment = new Segment(file, arena, mapping, false);
+            segment.map.putInt(0, MAGIC);
+            segment.map.putInt(4, VERSION);
+            segment.map.putLong(CURSOR_OFFSET, SEGMENT_HEADER);
+            segment.readPosition = SEGMENT_HEADER;
+            segment.writePosition = SEGMENT_HEADER;
+            return segment;
+        }
+
+        /** Map a segment left by a previous run, or null if it is not one this build can replay. */
+        static Segment recover(final Path file) throws IOException {
+            final Arena arena = Arena.ofShared();
+            final MemorySegment mapping;
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                final long size = channel.size();
+                if (size < SEGMENT_HEADER || size > Integer.MAX_VALUE) {
+                    log.warn("Ignoring spill segment {}: {} bytes is not a segment size", file, size);
+                    arena.close();
+                    return null;
+                }
+                mapping = channel.map(FileChannel.MapMode.READ_WRITE, 0, size, arena);
+            } catch (final IOException | RuntimeException e) {
+                arena.close();
+                throw e;
+            }
+            final Segment segment = new Segment(file, arena, mapping, true);
+            final ByteBuffer map = segment.map;
+            if (map.getInt(0) != MAGIC || map.getInt(4) != VERSION) {
+                log.warn("Ignoring spill segment {}: written by an incompatible version (format {}); "
+                        + "it is left in place", file, map.getInt(4));
+                segment.unmap();
+                return null;
+            }
+            final CRC32 crc = new CRC32();
+            // Through a heap array: CRC32 reads a direct buffer by its address, which a view of a
+            // closeable shared mapping does not hand out.
+            final byte[] scratch = new byte[64 * 1024];
+            int position = SEGMENT_HEADER;
+            while (position + RECORD_HEADER <= map.capacity()) {
+                final int length = map.getInt(position);
+                if (length < RECORD_HEADER || position + length > map.capacity()) {
+                    break;
+                }
+                crc.reset();
+                int offset = position + CHECKED_OFFSET;
+                while (offset < position + length) {
+                    final int chunk = Math.min(scratch.length, position + length - offset);
+                    map.get(offset, scratch, 0, chunk);
+                    crc.update(scratch, 0, chunk);
+                    offset += chunk;
+                }
+                if ((int) crc.getValue() != map.getInt(position + 4)) {
+                    log.warn("Spill segment {} ends in a torn record at offset {}; replaying what precedes it",
+                            file, position);
+                    break;
+                }
+                position += length;
+            }
+            segment.writePosition = position;
+            final long cursor = map.getLong(CURSOR_OFFSET);
+            segment.readPosition = (int) Math.min(Math.max(cursor, SEGMENT_HEADER), position);
+            return segment;
+        }
+
+        boolean fits(final int length) {
+            return this.writePosition + length <= this.map.capacity();
+        }
+
+        void append(final byte[] record, final int length) {
+            // Body first, length last: until the length is in place, a crash leaves the zero that
+            // marks the end of the segment.
+            this.map.put(this.writePosition + 4, record, 4, length - 4);
+            this.map.putInt(this.writePosition, length);
+            this.writePosition += length;
+        }
+
+        int length(final int position) {
+            return this.map.getInt(position);
+        }
+
+        int crc(final int position) {
+            return this.map.getInt(position + 4);
+        }
+
+        /** How many records the head starting here was fixed to span, or 0 while it is not. */
+        int group(final int position) {
+            return this.map.getInt(position + 8);
+        }
+
+        void group(final int position, final int records) {
+            this.map.putInt(position + 8, records);
+        }
+
+        long spilledAt(final int position) {
+            return this.map.getLong(position + 12);
+        }
+
+        int rows(final int position) {
+            return this.map.getInt(position + 20);
+        }
+
+        /** The token the record was spilled with, or null for none. */
+        String token(final int position) {
+            final int length = tokenLength(position);
+            if (length == 0) {
+                return null;
+            }
+            final byte[] bytes = new byte[length];
+            this.map.get(position + RECORD_HEADER, bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        private int tokenLength(final int position) {
+            return Short.toUnsignedInt(this.map.getShort(position + RECORD_HEADER - 2));
+        }
+
+        ByteBuffer payload(final int position) {
+            final int offset = RECORD_HEADER + tokenLength(position);
+            return this.map.slice(position + offset, length(position) - offset);
+        }
+
+        void advance(final int length) {
+            this.readPosition += length;
+            this.map.putLong(CURSOR_OFFSET, this.readPosition);
+        }
+
+        int pending() {
+            return this.writePosition - this.readPosition;
+        }
+
+        int capacity() {
+            return this.map.capacity();
+        }
+
+        void force() {
+            this.mapping.force();
+        }
+
+        /** Release the mapping now rather than at some later GC; the segment is unusable after. */
+        void unmap() {
+            this.arena.close();
+        }
+
+        void delete() {
+            unmap();
+            try {
+                Files.deleteIfExists(this.file);
+            } catch (final IOException e) {
+                // Replayed already; a leftover file is only re-read (and deleted) by the next run.
+                log.warn("Could not delete replayed spill segment {}", this.file, e);
+            }
+        }
+    }
+}
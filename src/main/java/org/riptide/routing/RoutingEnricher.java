@@ -15,8 +15,9 @@ import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Component;
 
 import java.net.InetAddress;
-import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+import java.util.function.LongSupplier;
 import java.util.function.Supplier;
 
 /**
@@ -28,24 +29,28 @@ import java.util.function.Supplier;
 @Component
 @Order(org.riptide.pipeline.EnricherOrder.ROUTING)
 @RequiredArgsConstructor
-public class RoutingEnricher extends Enricher.Single {
+public class RoutingEnricher extends Enricher.Synchronous {
 
     @NonNull
     private final RoutingConfig routingConfig;
 
     @Override
-    protected CompletableFuture<Void> enrich(final Source source, final EnrichedFlow flow) {
-        if (!this.routingConfig.isEmpty()) {
-            enrichSide(flow.getSrcAddr(), flow::getSrcAs, flow::setSrcAs, flow::getSrcAsOrg, flow::setSrcAsOrg);
-            enrichSide(flow.getDstAddr(), flow::getDstAs, flow::setDstAs, flow::getDstAsOrg, flow::setDstAsOrg);
+    protected Step prepare(final Source source) {
+        if (this.routingConfig.isEmpty()) {
+            return null;
         }
-        return CompletableFuture.completedFuture(null);
+        return this::enrich;
     }
 
-    private void enrichSide(final InetAddress address, final Supplier<Long> getAs,
-                            final Consumer<Long> setAs, final Supplier<String> getOrg, final Consumer<String> setOrg) {
+    private void enrich(final EnrichedFlow flow) {
+        enrichSide(flow.getSrcAddr(), flow::getSrcAs, flow::setSrcAs, flow::getSrcAsOrg, flow::setSrcAsOrg);
+        enrichSide(flow.getDstAddr(), flow::getDstAs, flow::setDstAs, flow::getDstAsOrg, flow::setDstAsOrg);
+    }
+
+    private void enrichSide(final InetAddress address, final LongSupplier getAs,
+                            final LongConsumer setAs, final Supplier<String> getOrg, final Consumer<String> setOrg) {
         // 1. fill AS number and org from the prefix table — only when the exporter sent 0/absent
-        if (address != null && (getAs.get() == null || getAs.get() == 0)) {
+        if (address != null && getAs.getAsLong() == 0) {
             this.routingConfig.lookupPrefix(new IPAddressString(address.getHostAddress())).ifPresent(info -> {
                 if (info.asn() != null) {
                     setAs.accept(info.asn());
@@ -57,8 +62,8 @@ public class RoutingEnricher extends Enricher.Single {
         }
         // 2. name whatever number the flow ends up with (exporter-provided or just
         // filled) — a prefix-provided org is not overwritten
-        final Long effective = getAs.get();
-        if (effective != null && effective != 0 && getOrg.get() == null) {
+        final long effective = getAs.getAsLong();
+        if (effective != 0 && getOrg.get() == null) {
             this.routingConfig.lookupAsName(effective).ifPresent(setOrg);
         }
     }
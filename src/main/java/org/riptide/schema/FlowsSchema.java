@@ -57,6 +57,9 @@ public final class FlowsSchema {
      */
     public static final int DEFAULT_ROLLUP_TTL_DAYS = 365;
 
+    /** Recent insert blocks a plain {@code flows} table remembers to discard retries; see {@link #enableInsertDeduplication}. */
+    public static final int DEDUPLICATION_WINDOW = 1_000;
+
     /** Same charset as the provisioning boundary ({@code TenantSpec}): no quotes, backticks, spaces. */
     private static final Pattern SAFE_NAME = Pattern.compile("[A-Za-z0-9_-]+");
 
@@ -77,7 +80,24 @@ public final class FlowsSchema {
     public static String createFlowsTable(final String database, final int ttlDays) {
         return FLOWS_TABLE
                 .replace(FLOWS_TOKEN, qualifiedFlows(database))
-                .replace(TTL_DAYS_TOKEN, Integer.toString(ttlDays));
+                .replace(TTL_DAYS_TOKEN, Integer.toString(ttlDays))
+                .replace(DEDUPLICATION_WINDOW_TOKEN, Integer.toString(DEDUPLICATION_WINDOW));
+    }
+
+    /**
+     * {@code ALTER TABLE … MODIFY SETTING non_replicated_deduplication_window}: the in-place upgrade
+     * of a table created before the setting was part of {@link #createFlowsTable}. Idempotent.
+     *
+     * <p>The batching writer retries a failed insert with the same
+     * {@code insert_deduplication_token}, which a replicated table honours out of the box and a
+     * plain {@code MergeTree} only within this window of recent inserts. Without it, a retry of an
+     * insert whose acknowledgement was lost inserts the batch twice. The window is counted in
+     * blocks, one per partition an insert touches; a retry comes seconds after its first attempt,
+     * so the window only has to outlast that.
+     */
+    public static String enableInsertDeduplication(final String database) {
+        return "ALTER TABLE " + qualifiedFlows(database)
+                + " MODIFY SETTING non_replicated_deduplication_window = " + DEDUPLICATION_WINDOW;
     }
 
     /** {@code CREATE OR REPLACE VIEW `<db>`.samples AS … FROM `<db>`.flows} — collector-only. */
@@ -130,6 +150,28 @@ public final class FlowsSchema {
         return ROLLUPS.stream().map(rollup -> rollupView(database, rollup)).toList();
     }
 
+    /**
+     * {@code DROP VIEW IF EXISTS} for every rollup's materialized view: what manage mode runs when
+     * the collector computes the rollups itself ({@code riptide.clickhouse.rollups.mode=collector}).
+     * A view left in place would feed its rollup a second copy of every insert. The target tables
+     * and their data stay.
+     */
+    public static List<String> dropRollupViews(final String database) {
+        return ROLLUPS.stream()
+                .map(rollup -> "DROP VIEW IF EXISTS " + qualifiedRollupView(database, rollup.table()))
+                .toList();
+    }
+
+    /**
+     * The measures every rollup carries, in column order — the trailing columns of each entry of
+     * {@link #rollupColumns()}; the columns before them are the dimensions. A collector computing
+     * the rollups itself checks its own aggregates against this list, so a measure added here
+     * cannot be left out of one of the two ways the rollups are fed.
+     */
+    public static List<String> rollupMeasureNames() {
+        return MEASURES.stream().map(Measure::column).toList();
+    }
+
     /**
      * A rollup target table: every dimension in the sort key, every measure a {@code UInt64} the
      * {@code SummingMergeTree} engine collapses on merge.
@@ -398,6 +440,7 @@ public final class FlowsSchema {
     private static final String FLOWS_TOKEN = "@@flows@@";
     private static final String SAMPLES_TOKEN = "@@samples@@";
     private static final String TTL_DAYS_TOKEN = "@@ttlDays@@";
+    private static final String DEDUPLICATION_WINDOW_TOKEN = "@@dedupWindow@@";
 
     @Language("ClickHouse")
     private static final String FLOWS_TABLE = """
@@ -519,7 +562,9 @@ public final class FlowsSchema {
         )
         PARTITION BY toYYYYMMDD(timestamp)
         TTL toDateTime(timestamp) + INTERVAL @@ttlDays@@ DAY
-        SETTINGS index_granularity = 8192;
+        -- Remember the last inserts' block hashes so a retried insert carrying the same
+        -- insert_deduplication_token is discarded; see enableInsertDeduplication().
+        SETTINGS index_granularity = 8192, non_replicated_deduplication_window = @@dedupWindow@@;
     """;
 
     @Language("ClickHouse")
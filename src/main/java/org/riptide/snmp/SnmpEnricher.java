@@ -18,9 +18,7 @@ import org.riptide.pipeline.Source;
 import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Component;
 
-import java.util.List;
 import java.util.Optional;
-import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
 
 /**
@@ -32,7 +30,7 @@ import java.util.function.Consumer;
 @Component
 @Order(org.riptide.pipeline.EnricherOrder.SNMP)
 @RequiredArgsConstructor
-public class SnmpEnricher implements Enricher {
+public class SnmpEnricher extends Enricher.Synchronous {
 
     @NonNull
     private final InterfaceSource interfaceSource;
@@ -44,7 +42,7 @@ public class SnmpEnricher implements Enricher {
     private final ExporterInterfaceTable exporterInterfaceTable;
 
     /**
-     * Resolves inline and returns an already-completed future.
+     * Resolves inline, on the calling thread.
      *
      * <p>Inline is now correct rather than merely honest. This used to perform a synchronous SNMP
      * walk on a first-touch cache miss, so a parser worker blocked for the walk timeout and a
@@ -58,7 +56,7 @@ public class SnmpEnricher implements Enricher {
      * enrichment degrades rather than fails.
      */
     @Override
-    public CompletableFuture<Void> enrich(final Source source, final List<EnrichedFlow> flows) {
+    protected Step prepare(final Source source) {
         // one capture for the whole batch: both views must come from the same snapshot
         // instance, and a per-flow read would let a reload split a batch across two
         // configuration generations (AD-3)
@@ -70,14 +68,13 @@ public class SnmpEnricher implements Enricher {
         // enrichment entry pins fields, and exporter-pushed option data is keyed by
         // identity and needs neither. Any one of them is reason enough to continue
         if (agent.isEmpty() && exporter == null && this.exporterInterfaceTable.isEmpty()) {
-            return CompletableFuture.completedFuture(null); // nothing could contribute
+            return null; // nothing could contribute
         }
 
         // resolved once per batch, never per flow: the endpoint is constant for a source
         final Optional<SnmpEndpoint> endpoint = agent
                 .flatMap(entry -> AgentEndpointFactory.endpointFor(entry, address(source)));
-        enrichInline(source, flows, exporter, endpoint);
-        return CompletableFuture.completedFuture(null);
+        return flow -> enrichInline(source, flow, exporter, endpoint);
     }
 
     private static IPAddressString address(final Source source) {
@@ -87,29 +84,27 @@ public class SnmpEnricher implements Enricher {
     }
 
     private void enrichInline(final Source source,
-                              final List<EnrichedFlow> flows,
+                              final EnrichedFlow flow,
                               final ExporterEntry exporter,
                               final Optional<SnmpEndpoint> snmpEndpoint) {
-        for (final EnrichedFlow flow : flows) {
-            apply(exporter, snmpEndpoint, source, flow.getInputSnmp(), ifInfo -> {
-                flow.setInputSnmpIfName(ifInfo.name());
-                flow.setInputSnmpIfAlias(ifInfo.alias());
-                flow.setInputSnmpIfSpeed(ifInfo.highSpeed());
-            });
-            apply(exporter, snmpEndpoint, source, flow.getOutputSnmp(), ifInfo -> {
-                flow.setOutputSnmpIfName(ifInfo.name());
-                flow.setOutputSnmpIfAlias(ifInfo.alias());
-                flow.setOutputSnmpIfSpeed(ifInfo.highSpeed());
-            });
-        }
+        apply(exporter, snmpEndpoint, source, flow.getInputSnmp(), ifInfo -> {
+            flow.setInputSnmpIfName(ifInfo.name());
+            flow.setInputSnmpIfAlias(ifInfo.alias());
+            flow.setInputSnmpIfSpeed(ifInfo.highSpeed());
+        });
+        apply(exporter, snmpEndpoint, source, flow.getOutputSnmp(), ifInfo -> {
+            flow.setOutputSnmpIfName(ifInfo.name());
+            flow.setOutputSnmpIfAlias(ifInfo.alias());
+            flow.setOutputSnmpIfSpeed(ifInfo.highSpeed());
+        });
     }
 
     private void apply(final ExporterEntry exporter, final Optional<SnmpEndpoint> snmpEndpoint, final Source source,
-                       final Integer ifIndex, final Consumer<IfInfo> setter) {
+                       final int ifIndex, final Consumer<IfInfo> setter) {
         // ifIndex 0 is the NetFlow/IPFIX "unknown interface" marker (valid indexes start at 1,
         // RFC 2863) — exporters tagging a single direction emit it on every flow, and no rung
         // of the ladder can ever resolve it
-        if (ifIndex == null || ifIndex <= 0) {
+        if (ifIndex <= 0) {
             return;
         }
         final IfInfo pinned = InventoryPins.pinFor(exporter, ifIndex);
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2026 Riptide Labs, <https://github.com/Riptide-Labs>
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package org.riptide.benchmarks.parser;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.riptide.flows.parser.Protocol;
+import org.riptide.flows.parser.ie.InformationElement;
+import org.riptide.flows.parser.ie.InformationElementDatabase;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What resolving one template's fields against the information element registry costs, and what
+ * it allocates.
+ *
+ * <p>Every template field goes through the registry when its template set is parsed, and exporters
+ * re-announce templates on a timer — a Cisco or Juniper box with a few 60-field templates every
+ * few seconds, times every exporter. The registry used to be a {@code Map<Key, InformationElement>}
+ * keyed by {@code (Protocol, Long, Integer)} and hashed with {@code Objects.hash}, wrapped in an
+ * {@code Optional}: a key, its boxes, the varargs array and the optional per field.
+ *
+ * <ul>
+ *   <li>{@code keyedMap} — that lookup, rebuilt here over the same elements, since the registry no
+ *       longer holds one</li>
+ *   <li>{@code optional} — {@code lookup()}, the dense structure behind the old signature</li>
+ *   <li>{@code dense} — {@code find()}, which the field specifiers now call</li>
+ * </ul>
+ *
+ * <p>Run with {@code -prof gc}: {@code gc.alloc.rate.norm} for {@code dense} should read 0 B/op,
+ * which is the claim this exists to check. {@code InformationElementDatabaseTest} asserts the same
+ * from a thread allocation counter, so a regression fails the build rather than waiting for
+ * someone to run this.
+ *
+ * <p>One op resolves the NetFlow v9 fields of a 64-field template, so {@code ns/op} is per template.
+ */
+@Fork(value = 1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class InformationElementLookupBenchmark {
+
+    private static final int FIELDS = 64;
+
+    private final InformationElementDatabase database = InformationElementDatabase.instance;
+
+    private Map<Key, InformationElement> keyed;
+    private int[] template;
+
+    /** The old key, as it was: the boxes and the {@code Objects.hash} varargs are what it cost. */
+    private static final class Key {
+        private final Protocol protocol;
+        private final Long enterpriseNumber;
+        private final Integer informationElementIdentifier;
+
+        Key(final Protocol protocol, final Long enterpriseNumber, final Integer informationElementIdentifier) {
+            this.protocol = protocol;
+            this.enterpriseNumber = enterpriseNumber;
+            this.informationElementIdentifier = informationElementIdentifier;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            return o instanceof Key that
+                    && Objects.equals(this.protocol, that.protocol)
+                    && Objects.equals(this.enterpriseNumber, that.enterpriseNumber)
+                    && Objects.equals(this.informationElementIdentifier, that.informationElementIdentifier);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(this.protocol, this.enterpriseNumber, this.informationElementIdentifier);
+        }
+    }
+
+    @Setup
+    public void setup() {
+        this.keyed = new HashMap<>();
+        this.template = new int[FIELDS];
+        int fields = 0;
+        // The highest-numbered elements: vendor ones, above the Integer cache like most fields of
+        // the large vendor templates this is about.
+        for (int id = 0xFFFF; id >= 0 && fields < FIELDS; id--) {
+            final InformationElement element = this.database.find(Protocol.NETFLOW9, id);
+            if (element != null) {
+                this.keyed.put(new Key(Protocol.NETFLOW9, null, id), element);
+                this.template[fields++] = id;
+            }
+        }
+        if (fields < FIELDS) {
+            throw new IllegalStateException("the NetFlow v9 registry has only " + fields + " elements");
+        }
+    }
+
+    @Benchmark
+    public void keyedMap(final Blackhole blackhole) {
+        for (final int id : this.template) {
+            blackhole.consume(Optional.ofNullable(this.keyed.get(new Key(Protocol.NETFLOW9, null, id))));
+        }
+    }
+
+    @Benchmark
+    public void optional(final Blackhole blackhole) {
+        for (final int id : this.template) {
+            blackhole.consume(this.database.lookup(Protocol.NETFLOW9, id));
+        }
+    }
+
+    @Benchmark
+    public void dense(final Blackhole blackhole) {
+        for (final int id : this.template) {
+            blackhole.consume(this.database.find(Protocol.NETFLOW9, id));
+        }
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2026 Riptide Labs, <https://github.com/Riptide-Labs>
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package org.riptide.benchmarks.parser;
+
+import io.netty.buffer.Unpooled;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.riptide.flows.parser.ie.Value;
+import org.riptide.flows.parser.ie.values.UnsignedValue;
+import org.riptide.flows.parser.ie.values.ValueConversionService;
+import org.riptide.flows.parser.ie.values.visitor.BooleanVisitor;
+import org.riptide.flows.parser.ie.values.visitor.DoubleVisitor;
+import org.riptide.flows.parser.ie.values.visitor.DurationVisitor;
+import org.riptide.flows.parser.ie.values.visitor.InetAddressVisitor;
+import org.riptide.flows.parser.ie.values.visitor.InstantVisitor;
+import org.riptide.flows.parser.ie.values.visitor.IntegerVisitor;
+import org.riptide.flows.parser.ie.values.visitor.LongVisitor;
+import org.riptide.flows.parser.ie.values.visitor.StringVisitor;
+import org.riptide.flows.parser.ie.values.visitor.UnsignedLongVisitor;
+import org.riptide.flows.parser.ie.values.visitor.ValueVisitor;
+import org.riptide.flows.parser.ipfix.IpfixRawFlow;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * What writing one record's values into an {@link IpfixRawFlow} costs through
+ * {@link ValueConversionService#apply}, against the reflective path it replaced.
+ *
+ * <ul>
+ *   <li>{@code reflective} — that path, rebuilt here since the service no longer holds one: the
+ *       {@code Map<String, Field>} lookup by name, the visitor, and {@code Field.set}, which checks
+ *       access and dispatches on the field's type for every value</li>
+ *   <li>{@code generated} — {@code apply()}: the same name lookup and visitor, then the store
+ *       through the writer class generated for the target at construction</li>
+ * </ul>
+ *
+ * <p>The name lookup and the conversion are common to both, so the difference is the field write
+ * alone. One op writes twelve values, each into a primitive field, into a fresh flow.
+ */
+@Fork(value = 1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class ValueConversionBenchmark {
+
+    private static final List<ValueVisitor<?>> VISITORS = List.of(
+            new BooleanVisitor(),
+            new DoubleVisitor(),
+            new DurationVisitor(),
+            new InetAddressVisitor(),
+            new InstantVisitor(),
+            new IntegerVisitor(),
+            new LongVisitor(),
+            new StringVisitor(),
+            new UnsignedLongVisitor());
+
+    private ValueConversionService service;
+    private Map<String, Field> fields;
+    private Map<Class<?>, ValueVisitor<?>> visitors;
+    private List<Value<?>> values;
+
+    @Setup
+    public void setup() throws Exception {
+        this.service = new ValueConversionService(IpfixRawFlow.class, VISITORS);
+        this.fields = Stream.of(IpfixRawFlow.class.getDeclaredFields())
+                .filter(field -> !Modifier.isStatic(field.getModifiers()))
+                .peek(field -> field.setAccessible(true))
+                .collect(Collectors.toMap(Field::getName, field -> field));
+        this.visitors = VISITORS.stream().collect(Collectors.toMap(ValueVisitor::targetClass, visitor -> visitor));
+        this.values = List.of(
+                unsigned32("recordCount", 7),
+                unsigned32("sequenceNumber", 1_234),
+                unsigned32("observationDomainId", 42),
+                unsigned64("octetDeltaCount", 1_500),
+                unsigned64("postOctetDeltaCount", 1_480),
+                unsigned64("octetTotalCount", 9_000_000),
+                unsigned64("bgpDestinationAsNumber", 64_512),
+                unsigned32("flowDirection", 1),
+                unsigned32("destinationTransportPort", 443),
+                unsigned32("destinationIPv4PrefixLength", 24),
+                unsigned32("engineId", 3),
+                unsigned32("engineType", 1));
+        for (final Value<?> value : this.values) {
+            if (!this.fields.containsKey(value.getName())) {
+                throw new IllegalStateException(IpfixRawFlow.class + " has no field " + value.getName());
+            }
+        }
+    }
+
+    @Benchmark
+    public IpfixRawFlow reflective() throws IllegalAccessException {
+        final IpfixRawFlow flow = new IpfixRawFlow();
+        for (final Value<?> value : this.values) {
+            final Field field = this.fields.get(value.getName());
+            final Object converted = value.accept(this.visitors.get(boxed(field.getType())));
+            if (converted != null) {
+                field.set(flow, converted);
+            }
+        }
+        return flow;
+    }
+
+    @Benchmark
+    public IpfixRawFlow generated() {
+        final IpfixRawFlow flow = new IpfixRawFlow();
+        for (final Value<?> value : this.values) {
+            this.service.apply(value, flow);
+        }
+        return flow;
+    }
+
+    private static Class<?> boxed(final Class<?> type) {
+        if (type == int.class) {
+            return Integer.class;
+        }
+        if (type == double.class) {
+            return Double.class;
+        }
+        return type == long.class ? Long.class : type;
+    }
+
+    private static Value<?> unsigned32(final String name, final int value) throws Exception {
+        return UnsignedValue.parserWith32Bit(name, null, null).parse(null, Unpooled.buffer(4).writeInt(value));
+    }
+
+    private static Value<?> unsigned64(final String name, final long value) throws Exception {
+        return UnsignedValue.parserWith64Bit(name, null, null).parse(null, Unpooled.buffer(8).writeLong(value));
+    }
+}
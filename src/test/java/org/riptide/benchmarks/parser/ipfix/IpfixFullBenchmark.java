@@ -7,7 +7,6 @@ package org.riptide.benchmarks.parser.ipfix;
 
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
-import org.mapstruct.factory.Mappers;
 import org.openjdk.jmh.annotations.Benchmark;
 import org.openjdk.jmh.annotations.BenchmarkMode;
 import org.openjdk.jmh.annotations.Fork;
@@ -19,6 +18,7 @@ import org.openjdk.jmh.annotations.Setup;
 import org.openjdk.jmh.annotations.State;
 import org.openjdk.jmh.annotations.Warmup;
 import org.openjdk.jmh.infra.Blackhole;
+import org.riptide.flows.parser.data.FlowRecord;
 import org.riptide.flows.parser.ie.values.ValueConversionService;
 import org.riptide.flows.parser.ie.values.visitor.BooleanVisitor;
 import org.riptide.flows.parser.ie.values.visitor.DoubleVisitor;
@@ -57,7 +57,7 @@ import static org.riptide.flows.utils.BufferUtils.slice;
 public class IpfixFullBenchmark {
 
     public static final InetAddress LOOPBACK_ADDRESS = InetAddress.getLoopbackAddress();
-    public static final EnrichedFlow.FlowMapper FLOW_MAPPER = Mappers.getMapper(EnrichedFlow.FlowMapper.class);
+    public static final Source SOURCE = new Source("", LOOPBACK_ADDRESS);
     private final ValueConversionService converter = new ValueConversionService(IpfixRawFlow.class, List.of(
             new StringVisitor(),
             new BooleanVisitor(),
@@ -94,7 +94,7 @@ public class IpfixFullBenchmark {
         final var flows = ipFixFlowBuilder.buildFlows(Instant.EPOCH, packet);
 
         final var enrichedFlows = flows
-                .map(flow -> FLOW_MAPPER.enrichedFlow(new Source("", LOOPBACK_ADDRESS), flow))
+                .map(flow -> new EnrichedFlow(SOURCE, (FlowRecord) flow))
                 .toList();
 
         blackhole.consume(enrichedFlows);
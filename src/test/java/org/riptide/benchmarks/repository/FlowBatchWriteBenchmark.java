@@ -0,0 +1,114 @@
+/*
+ * Copyright 2026 Riptide Labs, <https://github.com/Riptide-Labs>
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package org.riptide.benchmarks.repository;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.riptide.flows.parser.data.Flow;
+import org.riptide.pipeline.EnrichedFlow;
+import org.riptide.repository.clickhouse.FlowBatch;
+import org.riptide.repository.clickhouse.FlowBatchWriter;
+import org.riptide.repository.clickhouse.FlowsTableSchema;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What does a flush cost the collector before the bytes reach the client's compressor?
+ *
+ * <p>The insert path appends a flush's flows to a reused {@link FlowBatch} and streams it as
+ * {@code RowBinaryWithNamesAndTypes} through {@link FlowBatchWriter}, bound to the schema a fresh
+ * table has. This measures exactly that, for one flush of the production batch size (10k rows),
+ * into a stream that discards what it is given — the network and LZ4 are not riptide's to
+ * optimise and would drown the figure.
+ *
+ * <p>It replaces the field-access benchmark, which measured reflective getter calls on the
+ * {@code ClickhouseFlow} POJO and concluded the rewrite was not worth ~0.4% of a core. That
+ * conclusion held for field access alone; what it did not count was the allocation — a POJO,
+ * five {@code OffsetDateTime}s and up to three {@code Inet6Address}es per row, all garbage by the
+ * next flush — which is what the batch removes. {@code ops/s} here is flushes/s; multiply by 10k
+ * for rows/s, and run with {@code -prof gc} to see the per-flush allocation, which should be
+ * roughly the dictionary entries and nothing that scales with the row count.
+ */
+@Fork(value = 1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+public class FlowBatchWriteBenchmark {
+
+    private static final int ROWS = 10_000;
+
+    private static final OutputStream DISCARD = new OutputStream() {
+        @Override
+        public void write(final int b) {
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) {
+        }
+    };
+
+    private final FlowBatch batch = new FlowBatch();
+    private final FlowBatchWriter writer = FlowBatchWriter.forSchema(FlowsTableSchema.current());
+    private List<EnrichedFlow> flows;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        // Values outside the Integer/Long caches and a realistic spread of distinct strings: a
+        // handful of tenants and exporters, a few hundred hostnames.
+        final Instant now = Instant.now();
+        this.flows = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            this.flows.add(EnrichedFlow.builder()
+                    .timestamp(now)
+                    .receivedAt(now)
+                    .firstSwitched(now.minusSeconds(30))
+                    .deltaSwitched(now.minusSeconds(30))
+                    .lastSwitched(now)
+                    .flowProtocol(Flow.FlowProtocol.IPFIX)
+                    .tenant("tenant-" + (i % 4))
+                    .exporterAddr("198.51.100." + (i % 16))
+                    .srcAddr(InetAddress.getByAddress(new byte[]{10, 0, (byte) (i >> 8), (byte) i}))
+                    .dstAddr(InetAddress.getByName("2001:db8::" + Integer.toHexString(i)))
+                    .srcAddrHostname("host-" + (i % 300))
+                    .srcPort(1024 + i)
+                    .dstPort(443)
+                    .srcAs(64_512L + (i % 8))
+                    .dstAs(65_001L)
+                    .bytes(9_876_543L + i)
+                    .packets(1_234L + i)
+                    .protocol(6)
+                    .direction(Flow.Direction.INGRESS)
+                    .samplingAlgorithm(Flow.SamplingAlgorithm.Unassigned)
+                    .samplingInterval(1.0)
+                    .build());
+        }
+    }
+
+    @Benchmark
+    public FlowBatch appendAndWrite() throws IOException {
+        this.batch.clear();
+        this.batch.appendAll(this.flows);
+        this.writer.write(this.batch, DISCARD);
+        return this.batch;
+    }
+}
@@ -7,12 +7,10 @@ package org.riptide.classification.internal;
 
 import com.codahale.metrics.MetricRegistry;
 import org.junit.jupiter.api.Test;
-import org.mapstruct.factory.Mappers;
 import org.mockito.Mockito;
 import org.riptide.classification.ClassificationEngine;
 import org.riptide.classification.ClassificationEnricher;
 import org.riptide.flows.parser.data.Flow;
-import org.riptide.pipeline.EnrichedFlow;
 import org.riptide.pipeline.Enricher;
 import org.riptide.pipeline.Pipeline;
 import org.riptide.pipeline.Source;
@@ -34,13 +32,12 @@ public class ClassificationEnricherTest {
     @Autowired
     ClassificationEngine classificationEngine;
 
-    private final EnrichedFlow.FlowMapper flowMapper = Mappers.getMapper(EnrichedFlow.FlowMapper.class);
 
     @Test
     public void testEnrichment() throws Exception {
         final var enrichers = List.<Enricher>of(new ClassificationEnricher(this.classificationEngine));
         final var repository = new TestRepository(metricRegistry);
-        final var pipeline = new Pipeline(enrichers, repository.asPersister(), this.metricRegistry, this.flowMapper);
+        final var pipeline = new Pipeline(enrichers, repository.asPersister(), this.metricRegistry);
 
         final Flow flow = Mockito.mock(Flow.class);
         when(flow.getSrcPort()).thenReturn(80);
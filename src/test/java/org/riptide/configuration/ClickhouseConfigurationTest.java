@@ -11,12 +11,15 @@ import org.junit.jupiter.api.Test;
 import org.riptide.config.ClickhouseConfig;
 import org.riptide.repository.clickhouse.BatchingFlowRepository;
 import org.riptide.repository.clickhouse.ClickhouseRepository;
-import org.riptide.repository.clickhouse.ClickhouseRepository$FlowMapperImpl;
+import org.riptide.repository.clickhouse.ShardedFlowRepository;
 import org.riptide.secrets.SecretResolvers;
 
+import java.util.List;
+
 /**
  * Wiring test for the repository bean: the batch.enabled flag decides between the batching
- * decorator and the raw per-record repository. Constructing a ClickhouseRepository performs no
+ * decorator and the raw per-record repository, configured shards put a router in front, and collector
+ * rollups an aggregator beneath the batching. Constructing a ClickhouseRepository performs no
  * I/O (the client only connects on start()/persist()), so this runs without a server.
  */
 class ClickhouseConfigurationTest {
@@ -24,8 +27,7 @@ class ClickhouseConfigurationTest {
     @Test
     void beanIsTheBatchingDecoratorWhenBatchingIsEnabled() {
         final var repository = new ClickhouseConfiguration().clickhouseRepository(
-                new ClickhouseRepository$FlowMapperImpl(), new ClickhouseConfig(), SecretResolvers.defaults(),
-                new MetricRegistry());
+                new ClickhouseConfig(), SecretResolvers.defaults(), new MetricRegistry(), null);
 
         Assertions.assertThat(repository).isInstanceOf(BatchingFlowRepository.class);
     }
@@ -36,9 +38,63 @@ class ClickhouseConfigurationTest {
         config.getBatch().setEnabled(false);
 
         final var repository = new ClickhouseConfiguration().clickhouseRepository(
-                new ClickhouseRepository$FlowMapperImpl(), config, SecretResolvers.defaults(),
-                new MetricRegistry());
+                config, SecretResolvers.defaults(), new MetricRegistry(), null);
 
         Assertions.assertThat(repository).isInstanceOf(ClickhouseRepository.class);
     }
+
+    @Test
+    void beanRoutesAcrossShardsWhenShardsAreConfigured() {
+        final var config = new ClickhouseConfig();
+        config.setShards(List.of(List.of("http://ch1a:8123", "http://ch1b:8123"), List.of("http://ch2:8123")));
+        config.setManageSchema(false);
+        final var metrics = new MetricRegistry();
+
+        final var repository = new ClickhouseConfiguration().clickhouseRepository(
+                config, SecretResolvers.defaults(), metrics, null);
+
+        Assertions.assertThat(repository).isInstanceOf(ShardedFlowRepository.class);
+        // One batching queue per shard, one health gauge per replica.
+        Assertions.assertThat(metrics.getGauges().keySet()).contains(
+                "persister.shard0.batch.queueDepth", "persister.shard1.batch.queueDepth",
+                "persister.shard0.replica0.healthy", "persister.shard0.replica1.healthy",
+                "persister.shard1.replica0.healthy");
+    }
+
+    @Test
+    void collectorRollupsAggregateBelowTheBatchingOfEveryShard() {
+        final var config = new ClickhouseConfig();
+        config.getRollups().setMode(ClickhouseConfig.RollupConfig.Mode.COLLECTOR);
+        config.setShards(List.of(List.of("http://ch1:8123"), List.of("http://ch2:8123")));
+        final var metrics = new MetricRegistry();
+
+        new ClickhouseConfiguration().clickhouseRepository(config, SecretResolvers.defaults(), metrics, null);
+
+        Assertions.assertThat(metrics.getGauges().keySet()).contains(
+                "persister.shard0.rollups.heldRows", "persister.shard1.rollups.heldRows");
+    }
+
+    @Test
+    void beanRejectsAShardWithoutEndpoints() {
+        final var config = new ClickhouseConfig();
+        config.setShards(List.of(List.of("http://ch1:8123"), List.of(" ")));
+
+        Assertions.assertThatThrownBy(() -> new ClickhouseConfiguration().clickhouseRepository(
+                        config, SecretResolvers.defaults(), new MetricRegistry(), null))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("shards[1]");
+    }
+
+    @Test
+    void beanRefusesToManageTheSchemaOfAShardOfSeveralReplicas() {
+        final var config = new ClickhouseConfig();
+        config.setShards(List.of(List.of("http://ch1:8123"), List.of("http://ch2a:8123", "http://ch2b:8123")));
+
+        // Manage mode creates a plain MergeTree on each replica, which would not replicate.
+        Assertions.assertThatThrownBy(() -> new ClickhouseConfiguration().clickhouseRepository(
+                        config, SecretResolvers.defaults(), new MetricRegistry(), null))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("shards[1]")
+                .hasMessageContaining("manage-schema");
+    }
 }
@@ -8,14 +8,12 @@ package org.riptide.dns;
 import com.codahale.metrics.MetricRegistry;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.RegisterExtension;
-import org.mapstruct.factory.Mappers;
 import org.mockito.Mockito;
 import org.riptide.config.enricher.HostnamesConfig;
 import org.riptide.dns.netty.DefaultDnsReverseCache;
 import org.riptide.dns.netty.DefaultDnsServerAddressProvider;
 import org.riptide.dns.netty.NettyDnsResolver;
 import org.riptide.flows.parser.data.Flow;
-import org.riptide.pipeline.EnrichedFlow;
 import org.riptide.pipeline.Enricher;
 import org.riptide.pipeline.Pipeline;
 import org.riptide.pipeline.Source;
@@ -33,7 +31,6 @@ public class HostnamesEnricherTest {
 
     private final MetricRegistry metricRegistry = new MetricRegistry();
 
-    private final EnrichedFlow.FlowMapper flowMapper = Mappers.getMapper(EnrichedFlow.FlowMapper.class);
 
     @RegisterExtension
     static MockDnsServer dnsServer = new MockDnsServer(request -> {
@@ -59,7 +56,7 @@ public class HostnamesEnricherTest {
         final var enrichers = List.<Enricher>of(new HostnamesEnricher(dnsResolver));
 
         final var repository = new TestRepository(metricRegistry);
-        final var pipeline = new Pipeline(enrichers, repository.asPersister(), this.metricRegistry, this.flowMapper);
+        final var pipeline = new Pipeline(enrichers, repository.asPersister(), this.metricRegistry);
 
         final Flow flow = Mockito.mock(Flow.class);
         when(flow.getSrcAddr()).thenReturn(InetAddress.getByName("192.0.2.1"));
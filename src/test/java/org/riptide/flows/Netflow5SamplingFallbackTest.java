@@ -265,7 +265,7 @@ class Netflow5SamplingFallbackTest {
         while (System.nanoTime() < deadline) {
             try {
                 Mockito.verify(pipeline, Mockito.atLeastOnce())
-                        .process(Mockito.any(Source.class), captor.capture());
+                        .process(Mockito.any(Source.class), captor.capture(), Mockito.any());
                 return (List<Flow>) captor.getValue();
             } catch (final AssertionError notYet) {
                 Thread.sleep(25);
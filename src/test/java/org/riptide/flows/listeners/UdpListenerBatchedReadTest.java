@@ -0,0 +1,110 @@
+/*
+ * Copyright 2026 Riptide Labs, <https://github.com/Riptide-Labs>
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package org.riptide.flows.listeners;
+
+import com.codahale.metrics.MetricRegistry;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.epoll.Epoll;
+import org.junit.jupiter.api.Test;
+
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * With {@code receive-batch-size} the datagrams of one {@code recvmmsg} call are slices of one
+ * buffer. What must hold is that each still reaches the parser as exactly its own bytes — a slice
+ * sized to the slot rather than the datagram would hand the parser trailing garbage from the slot,
+ * and a shared reader index would hand it a neighbour's payload.
+ */
+class UdpListenerBatchedReadTest {
+
+    @Test
+    void everyDatagramOfABatchArrivesAsItsOwnBytes() throws Exception {
+        assumeTrue(Epoll.isAvailable(), "native epoll transport is Linux-only");
+
+        final var registry = new MetricRegistry();
+        final List<String> payloads = new CopyOnWriteArrayList<>();
+        final var listener = new UdpListener("batched", recordingParser(payloads), registry)
+                .withHost("127.0.0.1")
+                .withPort(0)
+                .withMaxPacketSize(64)
+                .withReceiveBatchSize(8);
+
+        listener.start();
+        try {
+            final int port = Integer.parseInt(listener.getDescription().replaceAll("^UDP 127\\.0\\.0\\.1:(\\d+).*$", "$1"));
+
+            // Different lengths, so a slice that ran to the end of its slot would show up as a
+            // payload longer than the one sent.
+            final List<String> sent = IntStream.range(0, 40).mapToObj(i -> "datagram-" + "x".repeat(i % 7) + i).toList();
+            try (DatagramSocket sender = new DatagramSocket()) {
+                for (final String payload : sent) {
+                    final byte[] bytes = payload.getBytes(StandardCharsets.US_ASCII);
+                    sender.send(new DatagramPacket(bytes, bytes.length, InetAddress.getLoopbackAddress(), port));
+                }
+            }
+
+            final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (payloads.size() < sent.size() && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertThat(payloads).containsExactlyElementsOf(sent);
+
+            final var perRead = registry.histogram(MetricRegistry.name("listeners", "batched", "datagramsPerRead"));
+            assertThat(perRead.getCount()).isPositive();
+            assertThat(perRead.getSnapshot().getMax()).isBetween(1L, (long) sent.size());
+        } finally {
+            listener.stop();
+        }
+    }
+
+    private static UdpParser recordingParser(final List<String> payloads) {
+        return new UdpParser() {
+            @Override
+            public CompletableFuture<?> parse(final Instant receivedAt, final ByteBuf buffer,
+                                              final InetSocketAddress remoteAddress,
+                                              final InetSocketAddress localAddress) {
+                payloads.add(buffer.toString(StandardCharsets.US_ASCII));
+                return CompletableFuture.completedFuture(null);
+            }
+
+            @Override
+            public String getName() {
+                return "batched";
+            }
+
+            @Override
+            public String getDescription() {
+                return "batched";
+            }
+
+            @Override
+            public Object dumpInternalState() {
+                return null;
+            }
+
+            @Override
+            public void start() {
+            }
+
+            @Override
+            public void stop() {
+            }
+        };
+    }
+}
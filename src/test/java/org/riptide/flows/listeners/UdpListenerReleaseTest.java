@@ -23,6 +23,9 @@ import static org.assertj.core.api.Assertions.assertThat;
  * The datagram buffer's lifecycle across every parse outcome. The regression (#273): parse errors
  * throw synchronously, so the release attached to the returned future never ran and the retained
  * buffer leaked — one per malformed packet, surfacing as Netty {@code LEAK} errors in production.
+ *
+ * <p>The buffer is now released when {@code parse} returns rather than when its future completes,
+ * so the same assertion holds for a packet whose records are still queued.
  */
 class UdpListenerReleaseTest {
 
@@ -55,6 +58,13 @@ class UdpListenerReleaseTest {
         }));
     }
 
+    @Test
+    void releasesBufferWhileDispatchIsStillPending() {
+        // The flows are materialised before parse returns; a full dispatch queue must not pin the
+        // receive buffer as well (it used to: ~33 MB of direct memory per parser at 4096 packets).
+        assertFullyReleased(parser(CompletableFuture::new));
+    }
+
     @Test
     void releasesBufferWhenNoParserHandlesThePacket() {
         // A dispatching parser returns null for packets no sub-parser handles.
@@ -69,8 +79,8 @@ class UdpListenerReleaseTest {
         channel.writeInbound(new DatagramPacket(content, RECIPIENT, SENDER));
 
         // The handler must not leak the parse failure into the pipeline (it logs with the sender
-        // itself), and the buffer must be fully released: the handler's retain undone plus
-        // SimpleChannelInboundHandler's auto-release of the original reference.
+        // itself), and the buffer must be fully released by SimpleChannelInboundHandler's
+        // auto-release — whether or not the returned future has completed.
         channel.checkException();
         assertThat(content.refCnt()).isZero();
         channel.finishAndReleaseAll();
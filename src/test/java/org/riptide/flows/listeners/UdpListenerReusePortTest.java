@@ -0,0 +1,130 @@
+/*
+ * Copyright 2026 Riptide Labs, <https://github.com/Riptide-Labs>
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package org.riptide.flows.listeners;
+
+import com.codahale.metrics.MetricRegistry;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.epoll.Epoll;
+import org.junit.jupiter.api.Test;
+
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.time.Instant;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * {@code receive-threads} must give every socket its own loop, on one port, under one set of
+ * receiver metrics.
+ *
+ * <p>The ephemeral bind is the case worth pinning: binding N sockets to {@code port = 0} hands each
+ * its own port unless the later binds join the first one's, and the listener would then report and
+ * receive on only one of N unrelated sockets while still starting N threads.
+ */
+class UdpListenerReusePortTest {
+
+    private static final int SOCKETS = 3;
+
+    @Test
+    void socketsShareOnePortEachOnItsOwnLoop() throws Exception {
+        assumeTrue(Epoll.isAvailable(), "native epoll transport is Linux-only");
+
+        final var registry = new MetricRegistry();
+        final Set<String> readers = ConcurrentHashMap.newKeySet();
+        final var listener = new UdpListener("fanout", recordingParser(readers), registry)
+                .withHost("127.0.0.1")
+                .withPort(0)
+                .withReceiveThreads(SOCKETS);
+
+        listener.start();
+        try {
+            final var loopThreads = Thread.getAllStackTraces().keySet().stream()
+                    .map(Thread::getName)
+                    .filter(name -> name.startsWith("udp-listener-epoll-fanout-"))
+                    .collect(Collectors.toSet());
+            assertThat(loopThreads).hasSize(SOCKETS);
+            assertThat(listener.isListening()).isTrue();
+
+            final int port = Integer.parseInt(listener.getDescription().replaceAll("^UDP 127\\.0\\.0\\.1:(\\d+).*$", "$1"));
+            assertThat(port).isPositive();
+
+            // One sender per datagram: SO_REUSEPORT hashes on the 4-tuple, so distinct source ports
+            // are what spread the load. Every datagram must land, whichever socket it hashed onto.
+            final int datagrams = 64;
+            for (int i = 0; i < datagrams; i++) {
+                try (DatagramSocket sender = new DatagramSocket()) {
+                    sender.send(new DatagramPacket(new byte[]{1}, 1, InetAddress.getLoopbackAddress(), port));
+                }
+            }
+
+            final var received = registry.meter(MetricRegistry.name("listeners", "fanout", "packetsReceived"));
+            final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (received.getCount() < datagrams && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertThat(received.getCount())
+                    .as("one meter per receiver, marked by every socket's loop")
+                    .isEqualTo(datagrams);
+            assertThat(readers).isSubsetOf(loopThreads);
+            assertThat(registry.getGauges()).containsKey(MetricRegistry.name("listeners", "fanout", "socketDrops"));
+        } finally {
+            listener.stop();
+        }
+
+        assertThat(listener.isListening()).isFalse();
+    }
+
+    @Test
+    void receiveThreadsMustBePositive() {
+        assertThatThrownBy(() -> new UdpListener("fanout", recordingParser(Set.of()), new MetricRegistry())
+                .withReceiveThreads(0))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static UdpParser recordingParser(final Set<String> readers) {
+        return new UdpParser() {
+            @Override
+            public CompletableFuture<?> parse(final Instant receivedAt, final ByteBuf buffer,
+                                              final InetSocketAddress remoteAddress,
+                                              final InetSocketAddress localAddress) {
+                readers.add(Thread.currentThread().getName());
+                return CompletableFuture.completedFuture(null);
+            }
+
+            @Override
+            public String getName() {
+                return "fanout";
+            }
+
+            @Override
+            public String getDescription() {
+                return "fanout";
+            }
+
+            @Override
+            public Object dumpInternalState() {
+                return null;
+            }
+
+            @Override
+            public void start() {
+            }
+
+            @Override
+            public void stop() {
+            }
+        };
+    }
+}
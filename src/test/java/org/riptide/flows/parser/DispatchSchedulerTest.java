@@ -0,0 +1,207 @@
+/*
+ * Copyright 2026 Riptide Labs, <https://github.com/Riptide-Labs>
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package org.riptide.flows.parser;
+
+import com.codahale.metrics.MetricRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * The shared pool's scheduling: weighted shares between saturated lanes, no banked credit for an
+ * idle one, work-conserving when only one lane is busy, resizing while running, and each lane's own
+ * bound. One worker where the order matters, with a gate task holding it while the queues fill, so
+ * the order the worker then drains them in is the scheduler's choice and nothing else's.
+ */
+class DispatchSchedulerTest {
+
+    private final MetricRegistry registry = new MetricRegistry();
+    private final List<String> served = Collections.synchronizedList(new ArrayList<>());
+    private DispatchScheduler scheduler;
+
+    @AfterEach
+    void tearDown() {
+        if (this.scheduler != null) {
+            this.scheduler.stop();
+        }
+    }
+
+    @Test
+    void saturatedLanesAreServedInProportionToTheirWeights() throws Exception {
+        this.scheduler = new DispatchScheduler(1, this.registry);
+        final var gate = this.scheduler.lane("gate", 1, 1);
+        final var light = this.scheduler.lane("light", 1, 16);
+        final var heavy = this.scheduler.lane("heavy", 3, 16);
+
+        final var release = hold(gate);
+        for (int i = 0; i < 8; i++) {
+            light.execute(record("light"));
+            heavy.execute(record("heavy"));
+        }
+        release.countDown();
+        awaitServed(16);
+
+        assertThat(this.served.subList(0, 8)).filteredOn("heavy"::equals).hasSize(6);
+    }
+
+    @Test
+    void aLaneThatWasIdleRejoinsWithoutCreditForTheTimeItHadNoWork() throws Exception {
+        this.scheduler = new DispatchScheduler(1, this.registry);
+        final var busy = this.scheduler.lane("busy", 1, 16);
+        final var idle = this.scheduler.lane("idle", 1, 16);
+
+        for (int i = 0; i < 10; i++) {
+            busy.execute(() -> { });
+        }
+        final var release = hold(busy);
+        for (int i = 0; i < 4; i++) {
+            busy.execute(record("busy"));
+            idle.execute(record("idle"));
+        }
+        release.countDown();
+        awaitServed(8);
+
+        // Credited with the ten packets it did not send, "idle" would take all of its four first.
+        assertThat(this.served.subList(0, 4)).containsExactly("idle", "busy", "idle", "busy");
+    }
+
+    @Test
+    void oneBusyLaneGetsEveryWorker() throws Exception {
+        this.scheduler = new DispatchScheduler(2, this.registry);
+        final var lane = this.scheduler.lane("only", 1, 16);
+        this.scheduler.lane("quiet", 8, 16);
+
+        final var entered = new CountDownLatch(2);
+        final var release = new CountDownLatch(1);
+        lane.execute(gated(entered, release));
+        lane.execute(gated(entered, release));
+
+        assertThat(entered.await(10, TimeUnit.SECONDS))
+                .as("the quiet lane's weight reserves nothing while it has no work")
+                .isTrue();
+        release.countDown();
+    }
+
+    @Test
+    void resizingAddsWorkersAtOnceAndRetiresSurplusOnesAfterTheirTask() throws Exception {
+        this.scheduler = new DispatchScheduler(1, this.registry);
+        final var lane = this.scheduler.lane("lane", 1, 16);
+
+        final var entered = new CountDownLatch(2);
+        final var release = new CountDownLatch(1);
+        lane.execute(gated(entered, release));
+        lane.execute(gated(entered, release));
+        assertThat(entered.await(200, TimeUnit.MILLISECONDS)).as("one worker runs one task").isFalse();
+
+        this.scheduler.resize(2);
+        assertThat(entered.await(10, TimeUnit.SECONDS)).as("the new worker takes the queued task").isTrue();
+        assertThat(this.registry.getGauges().get("dispatch.threads").getValue()).isEqualTo(2);
+
+        this.scheduler.resize(1);
+        release.countDown();
+        final var again = new CountDownLatch(2);
+        final var hold = new CountDownLatch(1);
+        lane.execute(gated(again, hold));
+        lane.execute(gated(again, hold));
+        assertThat(again.await(200, TimeUnit.MILLISECONDS)).as("back to one worker").isFalse();
+        hold.countDown();
+    }
+
+    @Test
+    void anErrorFromATaskDoesNotCostThePoolAWorker() throws Exception {
+        this.scheduler = new DispatchScheduler(1, this.registry);
+        final var lane = this.scheduler.lane("lane", 1, 16);
+
+        lane.execute(() -> {
+            throw new StackOverflowError("deep enrichment");
+        });
+        lane.execute(record("after"));
+        awaitServed(1);
+
+        // and still one worker, not a second one spawned beside a survivor
+        final var entered = new CountDownLatch(2);
+        final var release = new CountDownLatch(1);
+        lane.execute(gated(entered, release));
+        lane.execute(gated(entered, release));
+        assertThat(entered.await(200, TimeUnit.MILLISECONDS)).as("exactly one worker").isFalse();
+        release.countDown();
+        assertThat(this.scheduler.getThreads()).isEqualTo(1);
+    }
+
+    @Test
+    void aLaneIsBoundedAndHandsBackWhatNeverRan() throws Exception {
+        this.scheduler = new DispatchScheduler(1, this.registry);
+        final var lane = this.scheduler.lane("lane", 1, 2);
+
+        final var release = hold(lane);
+        final Runnable first = () -> { };
+        final Runnable second = () -> { };
+        lane.execute(first);
+        lane.execute(second);
+        assertThat(lane.depth()).isEqualTo(2);
+        assertThatThrownBy(() -> lane.execute(() -> { })).isInstanceOf(RejectedExecutionException.class);
+        assertThat(lane.offer(() -> { }, 50, TimeUnit.MILLISECONDS)).as("full for the whole wait").isFalse();
+
+        assertThat(lane.shutdownNow()).containsExactly(first, second);
+        assertThat(lane.awaitTermination(50, TimeUnit.MILLISECONDS)).as("the held task still runs").isFalse();
+        release.countDown();
+        assertThat(lane.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(this.scheduler.lanes()).as("a terminated lane leaves the scheduler").isEmpty();
+    }
+
+    @Test
+    void sizesAndWeightsAreRangeChecked() {
+        this.scheduler = new DispatchScheduler(1, this.registry);
+
+        assertThatThrownBy(() -> this.scheduler.resize(0)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> this.scheduler.resize(DispatchScheduler.MAX_THREADS + 1))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> this.scheduler.lane("lane", 0, 1)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    /** Occupy the single worker with a task on {@code lane} until the returned latch is released. */
+    private static CountDownLatch hold(final DispatchScheduler.Lane lane) throws InterruptedException {
+        final var entered = new CountDownLatch(1);
+        final var release = new CountDownLatch(1);
+        lane.execute(gated(entered, release));
+        assertThat(entered.await(10, TimeUnit.SECONDS)).as("the worker must pick up the gate").isTrue();
+        return release;
+    }
+
+    private static Runnable gated(final CountDownLatch entered, final CountDownLatch release) {
+        return () -> {
+            entered.countDown();
+            try {
+                release.await(20, TimeUnit.SECONDS);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+    }
+
+    private Runnable record(final String name) {
+        return () -> this.served.add(name);
+    }
+
+    private void awaitServed(final int count) throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (this.served.size() < count) {
+            if (System.nanoTime() > deadline) {
+                throw new AssertionError("Timed out waiting for " + count + " tasks, served " + this.served);
+            }
+            Thread.sleep(10);
+        }
+    }
+}
@@ -39,9 +39,10 @@ import static org.assertj.core.api.Assertions.assertThat;
  *
  * <p>Every case here also asserts the invariant that matters most and is invisible to a functional
  * test: <strong>the future returned by {@code transmit} is completed on every exit path.</strong>
- * {@code UdpListener} releases the packet's retained direct {@code ByteBuf} when it completes, so a
- * path that returns something pending leaks a buffer per packet — which is exactly how the 2 GB
- * direct pool was exhausted in about 90 seconds during development.
+ * Both listeners report a failed dispatch through it, so a path that returns something pending
+ * swallows that outcome for good. (It once also leaked the packet's direct {@code ByteBuf}, which
+ * {@code UdpListener} released on completion — exactly how the 2 GB direct pool was exhausted in
+ * about 90 seconds during development. The buffer is now released when {@code parse} returns.)
  */
 class ParserDispatchTest {
 
@@ -82,7 +83,7 @@ class ParserDispatchTest {
         final var dropped = parser.dispatch();
 
         assertThat(dropped)
-                .as("a dropped packet must return a COMPLETED future or its ByteBuf leaks")
+                .as("a dropped packet must return a COMPLETED future")
                 .isCompleted();
         assertThat(counter(registry, "udp", "dispatchDrops"))
                 .as("every lost record counted, not every lost packet")
@@ -155,7 +156,7 @@ class ParserDispatchTest {
                 .as("records discarded by shutdownNow must be counted, not silently lost")
                 .isEqualTo(3 * FLOWS_PER_PACKET);
         assertThat(queued)
-                .as("and their futures completed, or the retained buffers leak on every restart")
+                .as("and their futures completed, or they stay pending across every restart")
                 .allSatisfy(f -> assertThat(f).isCompleted());
 
         gate.countDown();
@@ -279,6 +280,110 @@ class ParserDispatchTest {
                 .isCompleted();
     }
 
+    /**
+     * Virtual dispatch has no queue: every admitted packet runs at once, on a thread of its own,
+     * so here the capacity alone is what the gated workers may hold before the next one drops.
+     */
+    @Test
+    void virtualDispatchDropsPastTheAdmittedCapacityForUdp() throws Exception {
+        final var registry = new MetricRegistry();
+        final var gate = new CountDownLatch(1);
+        final var entered = new CountDownLatch(2);
+        final var tally = new AtomicInteger();
+        final var parser = startVirtual(new StubParser("vudp", registry, true, gated(entered, gate, tally)), 2);
+
+        final var accepted = List.<CompletableFuture<?>>of(parser.dispatch(), parser.dispatch());
+        assertThat(entered.await(10, TimeUnit.SECONDS)).as("both packets run without waiting for a worker").isTrue();
+        assertThat(gauge(registry, "vudp", "dispatchQueueDepth")).isEqualTo(2);
+
+        assertThat(parser.dispatch()).as("a dropped packet must return a COMPLETED future").isCompleted();
+        assertThat(counter(registry, "vudp", "dispatchDrops")).isEqualTo(FLOWS_PER_PACKET);
+
+        gate.countDown();
+        for (final var f : accepted) {
+            f.get(10, TimeUnit.SECONDS);
+        }
+        assertThat(tally.get()).isEqualTo(2 * FLOWS_PER_PACKET);
+        // The permit goes back in run()'s finally, just after the future completes.
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (gauge(registry, "vudp", "dispatchQueueDepth") != 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(gauge(registry, "vudp", "dispatchQueueDepth")).as("every permit returned").isZero();
+    }
+
+    @Test
+    void virtualDispatchBlocksPastTheAdmittedCapacityForAReliableTransport() throws Exception {
+        final var registry = new MetricRegistry();
+        final var gate = new CountDownLatch(1);
+        final var entered = new CountDownLatch(1);
+        final var tally = new AtomicInteger();
+        final var parser = startVirtual(new StubParser("vtcp", registry, false, gated(entered, gate, tally)), 1);
+
+        assertThat(parser.dispatch()).isNotNull();
+        assertThat(entered.await(10, TimeUnit.SECONDS)).isTrue();
+
+        final var blocked = new CompletableFuture<CompletableFuture<?>>();
+        final var submitter = new Thread(() -> blocked.complete(parser.dispatch()), "blocked-submitter");
+        submitter.setDaemon(true);
+        submitter.start();
+        Thread.sleep(300);
+        assertThat(blocked.isDone()).as("submission must block while no permit is free").isFalse();
+        assertThat(counter(registry, "vtcp", "dispatchDrops")).isZero();
+
+        gate.countDown();
+        blocked.get(10, TimeUnit.SECONDS).get(10, TimeUnit.SECONDS);
+        submitter.join(TimeUnit.SECONDS.toMillis(10));
+        assertThat(tally.get()).isEqualTo(2 * FLOWS_PER_PACKET);
+    }
+
+    @Test
+    void dispatchModeIsFixedOnceStarted() {
+        final var parser = startVirtual(new StubParser("vfixed", new MetricRegistry(), true, (s2, f2) -> { }), 8);
+        assertThat(parser.isVirtualDispatch()).isTrue();
+        assertThat(catchThrowableOf(() -> parser.setVirtualDispatch(false)))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    /**
+     * A lane of the shared pool keeps the private pool's loss semantics: the worker is shared, the
+     * queue and its drop counter are this parser's own.
+     */
+    @Test
+    void sharedDispatchDropsWhenItsOwnLaneIsFull() throws Exception {
+        final var registry = new MetricRegistry();
+        final var scheduler = new DispatchScheduler(1, registry);
+        try {
+            final var gate = new CountDownLatch(1);
+            final var entered = new CountDownLatch(1);
+            final var tally = new AtomicInteger();
+            final var parser = new StubParser("shared", registry, true, gated(entered, gate, tally));
+            parser.setDispatchScheduler(scheduler, 1);
+            start(parser, 1, 1);
+
+            final var accepted = new ArrayList<CompletableFuture<?>>();
+            accepted.add(parser.dispatch());
+            assertThat(entered.await(10, TimeUnit.SECONDS)).as("worker must pick up the first packet").isTrue();
+            accepted.add(parser.dispatch());
+            assertThat(gauge(registry, "shared", "dispatchQueueDepth")).isEqualTo(1);
+
+            assertThat(parser.dispatch()).as("a dropped packet must return a COMPLETED future").isCompleted();
+            assertThat(counter(registry, "shared", "dispatchDrops")).isEqualTo(FLOWS_PER_PACKET);
+            assertThat(catchThrowableOf(() -> parser.setDispatchScheduler(null, 1)))
+                    .isInstanceOf(IllegalStateException.class);
+
+            gate.countDown();
+            for (final var f : accepted) {
+                f.get(10, TimeUnit.SECONDS);
+            }
+            assertThat(tally.get()).isEqualTo(2 * FLOWS_PER_PACKET);
+        } finally {
+            this.started.forEach(StubParser::stop);
+            this.started.clear();
+            scheduler.stop();
+        }
+    }
+
     // ---------------------------------------------------------------- helpers
 
     /**
@@ -328,6 +433,17 @@ class ParserDispatchTest {
         return parser;
     }
 
+    private StubParser startVirtual(final StubParser parser, final int capacity) {
+        parser.setVirtualDispatch(true);
+        return start(parser, 1, capacity);
+    }
+
+    private static int gauge(final MetricRegistry r, final String parser, final String name) {
+        final var g = r.getGauges().get(MetricRegistry.name("parsers", parser, name));
+        assertThat(g).as("gauge parsers.%s.%s", parser, name).isNotNull();
+        return (Integer) g.getValue();
+    }
+
     private static long counter(final MetricRegistry r, final String parser, final String name) {
         final var c = r.getCounters().get(MetricRegistry.name("parsers", parser, name));
         assertThat(c).as("counter parsers.%s.%s", parser, name).isNotNull();
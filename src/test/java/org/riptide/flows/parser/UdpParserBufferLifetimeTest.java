@@ -0,0 +1,112 @@
+/*
+ * Copyright 2026 Riptide Labs, <https://github.com/Riptide-Labs>
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package org.riptide.flows.parser;
+
+import com.codahale.metrics.MetricRegistry;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.jupiter.api.Test;
+import org.riptide.flows.parser.data.Flow;
+import org.riptide.flows.parser.ie.values.ValueConversionService;
+import org.riptide.flows.parser.ie.values.visitor.BooleanVisitor;
+import org.riptide.flows.parser.ie.values.visitor.DoubleVisitor;
+import org.riptide.flows.parser.ie.values.visitor.DurationVisitor;
+import org.riptide.flows.parser.ie.values.visitor.InetAddressVisitor;
+import org.riptide.flows.parser.ie.values.visitor.InstantVisitor;
+import org.riptide.flows.parser.ie.values.visitor.IntegerVisitor;
+import org.riptide.flows.parser.ie.values.visitor.LongVisitor;
+import org.riptide.flows.parser.ie.values.visitor.StringVisitor;
+import org.riptide.flows.parser.ie.values.visitor.UnsignedLongVisitor;
+import org.riptide.flows.parser.netflow9.Netflow9RawFlow;
+import org.riptide.flows.parser.netflow9.Netflow9UdpParser;
+import org.riptide.pipeline.Identity;
+
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * {@code UdpListener} releases the datagram buffer as soon as {@code parse} returns, while the
+ * packet's flows may still be waiting in the dispatch queue. That is only sound if nothing decoded
+ * from the packet still reads the buffer: a value holding a slice would read whatever the pool
+ * wrote into that memory next — a silently wrong flow, not an error.
+ *
+ * <p>This parses a real NetFlow v9 template/data pair, scribbles over and releases the data buffer
+ * while its flows are held in the queue, and only then lets them through. Built by hand rather
+ * than through Spring, following {@code SamplingIntervalResolutionTest}.
+ */
+class UdpParserBufferLifetimeTest {
+
+    private static final InetSocketAddress REMOTE = new InetSocketAddress("10.0.0.1", 51000);
+    private static final InetSocketAddress LOCAL = new InetSocketAddress("10.0.0.2", 2055);
+
+    private static final ValueConversionService NETFLOW9 = new ValueConversionService(Netflow9RawFlow.class, List.of(
+            new BooleanVisitor(), new DoubleVisitor(), new DurationVisitor(), new InetAddressVisitor(),
+            new InstantVisitor(), new IntegerVisitor(), new LongVisitor(), new StringVisitor(),
+            new UnsignedLongVisitor()));
+
+    @Test
+    void flowsSurviveTheDatagramBeingReleasedBeforeDispatch() throws Exception {
+        final var gate = new CountDownLatch(1);
+        final var dispatched = new ArrayList<Flow>();
+        final var parser = new Netflow9UdpParser("lifetime", (source, flows) -> {
+            try {
+                gate.await(10, TimeUnit.SECONDS);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            dispatched.addAll(flows);
+        }, new Identity("t", "o", "z", "s"), new MetricRegistry(), NETFLOW9);
+        parser.start();
+        try {
+            final ByteBuf template = Unpooled.wrappedBuffer(resource("/flows/netflow9_template.dat"));
+            parser.parse(Instant.now(), template, REMOTE, LOCAL).get(10, TimeUnit.SECONDS);
+            template.release();
+
+            final ByteBuf records = Unpooled.wrappedBuffer(resource("/flows/netflow9_records.dat"));
+            final CompletableFuture<?> future = parser.parse(Instant.now(), records, REMOTE, LOCAL);
+            assertThat(future).as("the flows are queued behind the gate, not yet dispatched").isNotDone();
+
+            // What the listener does now at parse return, plus what the pool may do next with the
+            // memory: any value still reading the datagram would see 0xFF, or throw on refCnt 0.
+            for (int i = 0; i < records.capacity(); i++) {
+                records.setByte(i, 0xFF);
+            }
+            records.release();
+
+            gate.countDown();
+            future.get(10, TimeUnit.SECONDS);
+        } finally {
+            parser.stop();
+        }
+
+        // The same flow Netflow9ConverterTest pins, field for field.
+        assertThat(dispatched).hasSize(5);
+        final var flow = dispatched.get(4);
+        assertThat(flow.getSrcAddr().getHostAddress()).isEqualTo("10.1.20.85");
+        assertThat(flow.getSrcPort()).isEqualTo(137);
+        assertThat(flow.getDstAddr().getHostAddress()).isEqualTo("10.1.20.127");
+        assertThat(flow.getDstPort()).isEqualTo(137);
+        assertThat(flow.getProtocol()).isEqualTo(17);
+        assertThat(flow.getBytes()).isEqualTo(156L);
+        assertThat(flow.getPackets()).isEqualTo(2L);
+        assertThat(flow.getInputSnmp()).isEqualTo(369098754);
+        assertThat(flow.getFirstSwitched()).isEqualTo(Instant.ofEpochMilli(1524773519000L));
+        assertThat(flow.getLastSwitched()).isEqualTo(Instant.ofEpochMilli(1524773527000L));
+    }
+
+    private static byte[] resource(final String name) throws Exception {
+        return Files.readAllBytes(Paths.get(UdpParserBufferLifetimeTest.class.getResource(name).toURI()));
+    }
+}
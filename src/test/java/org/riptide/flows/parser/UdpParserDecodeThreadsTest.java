@@ -0,0 +1,272 @@
+/*
+ * Copyright 2026 Riptide Labs, <https://github.com/Riptide-Labs>
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package org.riptide.flows.parser;
+
+import com.codahale.metrics.MetricRegistry;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.riptide.flows.parser.exceptions.InvalidPacketException;
+import org.riptide.flows.parser.exceptions.MissingTemplateException;
+import org.riptide.flows.parser.ie.Value;
+import org.riptide.flows.parser.ie.values.StringValue;
+import org.riptide.flows.parser.netflow9.Netflow9UdpParser;
+import org.riptide.flows.parser.session.Field;
+import org.riptide.flows.parser.session.Session;
+import org.riptide.flows.parser.session.Template;
+import org.riptide.flows.parser.session.UdpSessionManager;
+import org.riptide.pipeline.Identity;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * With {@code decodeThreads} set, the calling thread — the listener's event loop — only routes each
+ * datagram to the worker owning its session. Parallel decode is only correct if that routing keeps
+ * one session's packets on one thread in arrival order: a data packet overtaking the template
+ * packet before it is undecodable, and sequence tracking would flag reordering the exporter never
+ * did.
+ */
+class UdpParserDecodeThreadsTest {
+
+    private static final InetSocketAddress LOCAL = new InetSocketAddress("10.0.0.254", 4739);
+    private static final int TEMPLATE_ID = 256;
+
+    /** T = adds the template; D = needs it; X = malformed; G = parks until the gate opens. */
+    private static final byte ADD_TEMPLATE = 'T';
+    private static final byte NEEDS_TEMPLATE = 'D';
+    private static final byte MALFORMED = 'X';
+    private static final byte GATED = 'G';
+
+    private final List<StubParser> started = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        this.started.forEach(StubParser::stop);
+    }
+
+    @Test
+    void decodesOffTheCallingThreadInPerSessionOrder() throws Exception {
+        final var parser = start(new StubParser(new MetricRegistry(), null), 4);
+
+        final int exporters = 8;
+        final int packets = 200;
+        final var futures = new ArrayList<CompletableFuture<?>>();
+        // interleaved across exporters, the way datagrams arrive at a shared socket
+        for (int seq = 0; seq < packets; seq++) {
+            for (int e = 0; e < exporters; e++) {
+                futures.add(parse(parser, exporter(e), seq == 0 ? ADD_TEMPLATE : NEEDS_TEMPLATE, seq));
+            }
+        }
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).get(30, TimeUnit.SECONDS);
+
+        final var threads = new HashSet<String>();
+        for (int e = 0; e < exporters; e++) {
+            final var decoded = parser.decoded.get(exporter(e).getAddress());
+            assertThat(decoded).extracting(Decoded::seq)
+                    .as("exporter %d decoded in arrival order, template first", e)
+                    .containsExactlyElementsOf(Stream.iterate(0, i -> i + 1).limit(packets).toList());
+            assertThat(decoded.stream().map(Decoded::thread).distinct().toList())
+                    .as("one session, one worker")
+                    .singleElement()
+                    .satisfies(name -> assertThat(name).startsWith("udp-parser-decode-stub-"));
+            threads.add(decoded.getFirst().thread());
+        }
+        assertThat(threads).as("different exporters decode in parallel").hasSizeGreaterThan(1);
+    }
+
+    @Test
+    void aMalformedPacketFailsItsFutureAndKeepsTheSession() throws Exception {
+        final var registry = new MetricRegistry();
+        final var parser = start(new StubParser(registry, null), 2);
+
+        parse(parser, exporter(0), ADD_TEMPLATE, 0).get(10, TimeUnit.SECONDS);
+
+        // The failure now surfaces on the worker, so it reaches the listener through the future
+        // rather than as a throw — UdpListener logs both the same way.
+        final var failed = parse(parser, exporter(0), MALFORMED, 1);
+        assertThatThrownBy(() -> failed.get(10, TimeUnit.SECONDS))
+                .hasCauseInstanceOf(InvalidPacketException.class);
+        assertThat(registry.counter(MetricRegistry.name("parsers", "stub", "parserErrors")).getCount())
+                .isEqualTo(1);
+
+        // and the rollback still scopes to the packet: the template survives
+        parse(parser, exporter(0), NEEDS_TEMPLATE, 2).get(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void stopCompletesAndCountsWhatTheWorkersNeverDecoded() throws Exception {
+        final var registry = new MetricRegistry();
+        final var gate = new CountDownLatch(1);
+        final var parser = start(new StubParser(registry, gate), 1);
+
+        final var parked = parse(parser, exporter(0), GATED, 0);
+        final var queued = new ArrayList<CompletableFuture<?>>();
+        for (int seq = 1; seq <= 3; seq++) {
+            queued.add(parse(parser, exporter(0), GATED, seq));
+        }
+        // the first is only parked once the worker has taken it off the queue
+        final var depth = registry.getGauges().get(MetricRegistry.name("parsers", "stub", "decodeQueueDepth"));
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!Integer.valueOf(3).equals(depth.getValue()) && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(depth.getValue())
+                .as("the three behind the parked one are waiting for the only worker")
+                .isEqualTo(3);
+
+        parser.stop();                           // shutdown() → 5s grace → shutdownNow()
+        this.started.remove(parser);
+
+        assertThat(registry.counter(MetricRegistry.name("parsers", "stub", "decodeDrops")).getCount())
+                .as("packets discarded by shutdownNow must be counted, not silently lost")
+                .isEqualTo(3);
+        assertThat(queued).allSatisfy(f -> assertThat(f).isCompleted());
+        assertThat(parked).as("interrupted out of its gate, which fails that packet").isDone();
+        assertThat(registry.getGauges())
+                .as("a stopped parser publishes no decode depth")
+                .doesNotContainKey(MetricRegistry.name("parsers", "stub", "decodeQueueDepth"));
+        gate.countDown();
+    }
+
+    @Test
+    void decodeThreadsAreFixedOnceStarted() {
+        final var parser = new StubParser(new MetricRegistry(), null);
+        assertThatThrownBy(() -> parser.setDecodeThreads(-1)).isInstanceOf(IllegalArgumentException.class);
+
+        start(parser, 2);
+        assertThatThrownBy(() -> parser.setDecodeThreads(4)).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void sessionsSpreadOverEveryWorker() throws Exception {
+        // One subnet of exporters, as a real deployment numbers them: the spread in worker() is what
+        // keeps their near-identical hashes from piling onto a few workers.
+        final int workers = 4;
+        final var perWorker = new int[workers];
+        for (int i = 1; i <= 254; i++) {
+            final var key = new Netflow9UdpParser.HostSessionKey(
+                    InetAddress.getByAddress(new byte[] {10, 0, 0, (byte) i}), LOCAL);
+            final int worker = UdpParserBase.worker(key, workers);
+            assertThat(UdpParserBase.worker(key, workers)).as("stable for a session").isEqualTo(worker);
+            perWorker[worker]++;
+        }
+        for (final int n : perWorker) {
+            assertThat(n).as("254 exporters over 4 workers: %s", Arrays.toString(perWorker))
+                    .isBetween(32, 96);
+        }
+    }
+
+    private StubParser start(final StubParser parser, final int decodeThreads) {
+        parser.setDecodeThreads(decodeThreads);
+        parser.start();
+        this.started.add(parser);
+        return parser;
+    }
+
+    private static InetSocketAddress exporter(final int index) {
+        return new InetSocketAddress("10.0.0." + (index + 1), 51000);
+    }
+
+    /** Released as soon as parse returns, exactly as UdpListener does. */
+    private static CompletableFuture<?> parse(final StubParser parser, final InetSocketAddress remote,
+                                              final byte marker, final int seq) throws Exception {
+        final ByteBuf buffer = Unpooled.buffer().writeByte(marker).writeInt(seq);
+        try {
+            return parser.parse(Instant.now(), buffer, remote, LOCAL);
+        } finally {
+            buffer.release();
+        }
+    }
+
+    private record Decoded(int seq, String thread) {
+    }
+
+    private static final class StubParser extends UdpParserBase {
+
+        private final Map<InetAddress, List<Decoded>> decoded = new ConcurrentHashMap<>();
+        private final CountDownLatch gate;
+
+        StubParser(final MetricRegistry metricRegistry, final CountDownLatch gate) {
+            super(Protocol.IPFIX, "stub", (source, flow) -> { }, new Identity("t", "o", "z", "s"),
+                    metricRegistry);
+            this.gate = gate;
+        }
+
+        @Override
+        protected FlowPacket parse(final Session session, final ByteBuf buffer) throws Exception {
+            final byte marker = buffer.readByte();
+            final int seq = buffer.readInt();
+            switch (marker) {
+                case ADD_TEMPLATE -> session.addTemplate(0,
+                        Template.builder(TEMPLATE_ID, Template.Type.TEMPLATE)
+                                .withFields(List.of(field())).build());
+                case NEEDS_TEMPLATE -> session.getResolver(0).lookupTemplate(TEMPLATE_ID);
+                case MALFORMED -> throw new InvalidPacketException(buffer, "Invalid set ID: %d", 0);
+                case GATED -> this.gate.await();
+                default -> throw new MissingTemplateException(marker);
+            }
+            this.decoded.computeIfAbsent(session.getRemoteAddress(), _ -> Collections.synchronizedList(new ArrayList<>()))
+                    .add(new Decoded(seq, Thread.currentThread().getName()));
+            return packet();
+        }
+
+        @Override
+        protected UdpSessionManager.SessionKey buildSessionKey(final InetSocketAddress remoteAddress,
+                                                               final InetSocketAddress localAddress) {
+            return new Netflow9UdpParser.HostSessionKey(remoteAddress.getAddress(), localAddress);
+        }
+
+        private static FlowPacket packet() {
+            return new FlowPacket() {
+                @Override
+                public Stream<org.riptide.flows.parser.data.Flow> buildFlows(final Instant receivedAt) {
+                    return Stream.empty();
+                }
+
+                @Override
+                public long getObservationDomainId() {
+                    return 0;
+                }
+
+                @Override
+                public long getSequenceNumber() {
+                    return 0;
+                }
+            };
+        }
+
+        private static Field field() {
+            return new Field() {
+                @Override
+                public int length() {
+                    return 0;
+                }
+
+                @Override
+                public Value<?> parse(final Session.Resolver resolver, final ByteBuf buffer) {
+                    return new StringValue("f", null, null, null);
+                }
+            };
+        }
+    }
+}
@@ -5,6 +5,7 @@
 
 package org.riptide.flows.parser;
 
+import com.google.common.primitives.UnsignedLong;
 import io.netty.buffer.Unpooled;
 import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.Test;
@@ -20,11 +21,14 @@ import org.riptide.flows.parser.ie.values.SignedValue;
 import org.riptide.flows.parser.ie.values.StringValue;
 import org.riptide.flows.parser.ie.values.UnsignedValue;
 
+import java.net.Inet4Address;
+import java.net.Inet6Address;
 import java.net.InetAddress;
 import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
+import java.util.Objects;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -44,6 +48,32 @@ public class ValueTest {
         Assertions.assertThat(bFalse.getName()).isEqualTo("booleanName");
     }
 
+    /**
+     * Above 2^63 a double's ulp is 2048, so a value whose low bits sit at 1024 past a multiple of
+     * it is a tie, and one a bit past a tie is the case that a round-then-add conversion gets wrong.
+     */
+    @Test
+    void unsignedDoubleValueMatchesUnsignedLongAboveTwoToTheSixtyThree() {
+        final var values = new java.util.ArrayList<Long>(java.util.List.of(
+                -1L, Long.MIN_VALUE, Long.MIN_VALUE + 1, Long.MAX_VALUE, 0L, 1L,
+                Long.MIN_VALUE + 1024, Long.MIN_VALUE + 1025, Long.MIN_VALUE + 3 * 1024, Long.MIN_VALUE + 3 * 1024 + 1,
+                Long.MIN_VALUE | (1L << 62) | 1024, Long.MIN_VALUE | (1L << 62) | 1025,
+                Long.MIN_VALUE | (1L << 62) | (1L << 10) | (1L << 11), -1024L, -1025L, -2048L, -3072L));
+        final var random = new java.util.Random(42);
+        for (int i = 0; i < 10_000; i++) {
+            // a tie, or within one of it, in a random upper half
+            final long base = (random.nextLong() | Long.MIN_VALUE) & ~0x7FFL;
+            values.add(base | 0x400L);
+            values.add((base | 0x400L) + 1);
+            values.add((base | 0x400L) - 1);
+        }
+        for (final long v : values) {
+            Assertions.assertThat(new UnsignedValue("u", v).doubleValue())
+                    .as("%s", Long.toUnsignedString(v))
+                    .isEqualTo(UnsignedLong.fromLongBits(v).doubleValue());
+        }
+    }
+
     @Test
     void verifyParsingBooleanValueInvalid() throws Exception {
         Assertions.assertThatThrownBy(() -> {
@@ -267,6 +297,35 @@ public class ValueTest {
         assertEquals(1L, ((UnsignedValue) UnsignedValue.parserWith64Bit("name", null, null).parse(null, Unpooled.wrappedBuffer(new byte[]{1}))).getValue().longValue());
     }
 
+    /**
+     * The numeric and address values hold primitives and only build the boxed form on request, and
+     * compare and hash without building it; both must agree with the boxed form they used to hold.
+     */
+    @Test
+    void verifyPrimitiveBackedValuesAgreeWithTheirBoxedForm() throws Exception {
+        final var max = (UnsignedValue) UnsignedValue.parserWith64Bit("name", null, null).parse(null, Unpooled.buffer(8).writeLong(-1L));
+        assertEquals(UnsignedLong.MAX_VALUE, max.getValue());
+        assertEquals(-1L, max.longValue());
+        assertEquals(UnsignedLong.MAX_VALUE.doubleValue(), max.doubleValue(), 0);
+        assertEquals(new UnsignedValue("name", null, null, UnsignedLong.MAX_VALUE), max);
+        assertEquals(Objects.hash("name", UnsignedLong.MAX_VALUE), max.hashCode());
+
+        final var signed = (SignedValue) SignedValue.parserWith32Bit("name", null, null).parse(null, Unpooled.buffer(4).writeInt(-42));
+        assertEquals(Objects.hash("name", -42L), signed.hashCode());
+
+        final var v4 = (IPv4AddressValue) IPv4AddressValue.parser("name", null, null).parse(null, Unpooled.wrappedBuffer(new byte[]{(byte) 192, (byte) 168, 0, 1}));
+        assertEquals(0xC0A80001, v4.bits());
+        assertEquals(new IPv4AddressValue("name", null, null, (Inet4Address) InetAddress.getByName("192.168.0.1")), v4);
+        assertEquals(Objects.hash("name", v4.getValue()), v4.hashCode());
+
+        final var address = (Inet6Address) InetAddress.getByName("2001:638:301:11a0:d498:3253:ca5f:3777");
+        final var v6 = (IPv6AddressValue) IPv6AddressValue.parser("name", null, null).parse(null, Unpooled.wrappedBuffer(address.getAddress()));
+        assertEquals(0x20010638030111a0L, v6.highBits());
+        assertEquals(0xd4983253ca5f3777L, v6.lowBits());
+        assertEquals(new IPv6AddressValue("name", null, null, address), v6);
+        assertEquals(address, v6.getValue());
+    }
+
     @Test
     void verifyUnsigned32Value() throws Exception {
         final var v1 = (UnsignedValue) UnsignedValue.parserWith32Bit("name1", null, null).parse(null, Unpooled.buffer(4).writeInt(0));
@@ -0,0 +1,186 @@
+/*
+ * Copyright 2026 Riptide Labs, <https://github.com/Riptide-Labs>
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package org.riptide.flows.parser.data;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.jupiter.api.Test;
+import org.riptide.flows.parser.data.Flow.SamplingProvenance;
+import org.riptide.flows.parser.ie.values.ValueConversionService;
+import org.riptide.flows.parser.ie.values.visitor.BooleanVisitor;
+import org.riptide.flows.parser.ie.values.visitor.DoubleVisitor;
+import org.riptide.flows.parser.ie.values.visitor.DurationVisitor;
+import org.riptide.flows.parser.ie.values.visitor.InetAddressVisitor;
+import org.riptide.flows.parser.ie.values.visitor.InstantVisitor;
+import org.riptide.flows.parser.ie.values.visitor.IntegerVisitor;
+import org.riptide.flows.parser.ie.values.visitor.LongVisitor;
+import org.riptide.flows.parser.ie.values.visitor.StringVisitor;
+import org.riptide.flows.parser.ie.values.visitor.UnsignedLongVisitor;
+import org.riptide.flows.parser.ie.values.visitor.ValueVisitor;
+import org.riptide.flows.parser.ipfix.IpFixFlowBuilder;
+import org.riptide.flows.parser.ipfix.IpfixRawFlow;
+import org.riptide.flows.parser.netflow9.Netflow9FlowBuilder;
+import org.riptide.flows.parser.netflow9.Netflow9RawFlow;
+import org.riptide.flows.parser.session.Template;
+
+import java.net.InetAddress;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The builders resolve every fallback ladder once, when the flow is built, and what they return
+ * no longer refers to the raw flow. Built by hand rather than through Spring.
+ */
+class FlowRecordTest {
+
+    private static final List<ValueVisitor<?>> VISITORS = List.of(
+            new BooleanVisitor(), new DoubleVisitor(), new DurationVisitor(), new InetAddressVisitor(),
+            new InstantVisitor(), new IntegerVisitor(), new LongVisitor(), new StringVisitor(),
+            new UnsignedLongVisitor());
+
+    private static final Instant EXPORTED = Instant.parse("2026-01-01T00:00:00Z");
+
+    @Test
+    void ipfixResolvesEachLadderAtBuildTime() throws Exception {
+        final var raw = new IpfixRawFlow();
+        raw.exportTime = EXPORTED;
+        raw.sourceIPv4Address = InetAddress.getByName("10.0.0.1");
+        raw.sourceIPv6Address = InetAddress.getByName("2001:db8::1");
+        raw.octetTotalCount = 1500L;
+        raw.packetDeltaCount = 3L;
+        raw.dot1qVlanId = 42;
+        raw.egressInterface = 7;
+        raw.samplingInterval = 100.0;
+
+        final Flow flow = new IpFixFlowBuilder(new ValueConversionService(IpfixRawFlow.class, VISITORS))
+                .buildFlow(EXPORTED, raw);
+
+        // Nothing the raw flow holds after the build may show through: the record is the answer,
+        // not a view over the raw fields.
+        raw.sourceIPv6Address = null;
+        raw.octetTotalCount = Optionals.ABSENT;
+        raw.dot1qVlanId = Optionals.ABSENT;
+        raw.samplingInterval = Double.NaN;
+
+        assertThat(flow).isInstanceOf(FlowRecord.class);
+        assertThat(flow.getSrcAddr()).isEqualTo(InetAddress.getByName("2001:db8::1"));
+        assertThat(flow.getBytes()).as("the total counter when no delta was exported").isEqualTo(1500L);
+        assertThat(flow.getPackets()).isEqualTo(3L);
+        assertThat(flow.getVlan()).isEqualTo(42);
+        assertThat(flow.getOutputSnmp()).isEqualTo(7);
+        assertThat(flow.getInputSnmp()).isZero();
+        assertThat(flow.getDstAddr()).isNull();
+        assertThat(flow.getSamplingInterval()).isEqualTo(100.0);
+        assertThat(flow.getSamplingProvenance()).isEqualTo(SamplingProvenance.Record);
+        assertThat(flow.getFirstSwitched()).as("no flow-start element: the export time").isEqualTo(EXPORTED);
+        assertThat(flow.getDeltaSwitched()).as("no timeouts: first switched").isEqualTo(EXPORTED);
+    }
+
+    @Test
+    void ipfixSysUpTimeOffsetsWithoutAnInitTimeFallBackToTheExportTime() {
+        final var raw = new IpfixRawFlow();
+        raw.exportTime = EXPORTED;
+        raw.flowStartSysUpTime = Duration.ofSeconds(5);
+        raw.flowEndSysUpTime = Duration.ofSeconds(9);
+
+        final var builder = new IpFixFlowBuilder(new ValueConversionService(IpfixRawFlow.class, VISITORS));
+        final Flow unanchored = builder.buildFlow(EXPORTED, raw);
+        assertThat(unanchored.getFirstSwitched()).isEqualTo(EXPORTED);
+        assertThat(unanchored.getLastSwitched()).isEqualTo(EXPORTED);
+
+        raw.systemInitTimeMilliseconds = EXPORTED.minusSeconds(60);
+        final Flow anchored = builder.buildFlow(EXPORTED, raw);
+        assertThat(anchored.getFirstSwitched()).isEqualTo(EXPORTED.minusSeconds(55));
+        assertThat(anchored.getLastSwitched()).isEqualTo(EXPORTED.minusSeconds(51));
+    }
+
+    @Test
+    void netflow9ComputesDeltaSwitchedOnceFromTheResolvedFields() {
+        final var raw = new Netflow9RawFlow();
+        raw.unixSecs = EXPORTED;
+        raw.sysUpTime = Duration.ofMinutes(10);
+        raw.FIRST_SWITCHED = Duration.ofMinutes(1);
+        raw.LAST_SWITCHED = Duration.ofMinutes(9);
+        raw.IN_PERMANENT_BYTES = 4000L;
+        raw.IN_PKTS = 4L;
+
+        final var builder = new Netflow9FlowBuilder(new ValueConversionService(Netflow9RawFlow.class, VISITORS));
+        builder.setFlowActiveTimeoutFallback(Duration.ofMinutes(2));
+        builder.setFlowInactiveTimeoutFallback(Duration.ofSeconds(15));
+        final Flow flow = builder.buildFlow(EXPORTED, raw);
+
+        assertThat(flow).isInstanceOf(FlowRecord.class);
+        assertThat(flow.getBytes()).isEqualTo(4000L);
+        assertThat(flow.getFirstSwitched()).isEqualTo(EXPORTED.minus(Duration.ofMinutes(9)));
+        assertThat(flow.getLastSwitched()).isEqualTo(EXPORTED.minus(Duration.ofMinutes(1)));
+        // active traffic: last switched less the active timeout
+        assertThat(flow.getDeltaSwitched()).isEqualTo(EXPORTED.minus(Duration.ofMinutes(3)));
+        assertThat(flow.getSamplingProvenance()).isEqualTo(SamplingProvenance.Assumed);
+    }
+
+    /**
+     * All ones is a value an exporter may send: an unsigned32 interface index of 0xFFFFFFFF and an
+     * unsigned64 counter at its maximum are exported, not absent, and must not fall through their
+     * ladders to the next element or to zero.
+     */
+    @Test
+    void netflow9AllOnesElementsAreExported() throws Exception {
+        final var service = new ValueConversionService(Netflow9RawFlow.class, VISITORS);
+        final var template = Template.builder(256, Template.Type.TEMPLATE).withFields(List.of(
+                netflow9Field(10, 4),   // INPUT_SNMP
+                netflow9Field(14, 4),   // OUTPUT_SNMP
+                netflow9Field(1, 8),    // IN_BYTES
+                netflow9Field(85, 8),   // IN_PERMANENT_BYTES
+                netflow9Field(2, 8)))   // IN_PKTS
+                .build();
+        final ByteBuf set = Unpooled.buffer()
+                .writeInt(0xFFFFFFFF).writeInt(3).writeLong(-1L).writeLong(4000L).writeLong(1L);
+        final var raw = (Netflow9RawFlow) service.compile(template).decodeAll(null, set, List.of()).get(0);
+        raw.unixSecs = EXPORTED;
+        raw.sysUpTime = Duration.ofMinutes(10);
+
+        final Flow flow = new Netflow9FlowBuilder(service).buildFlow(EXPORTED, raw);
+
+        assertThat(Integer.toUnsignedLong(flow.getInputSnmp())).isEqualTo(0xFFFFFFFFL);
+        assertThat(flow.getOutputSnmp()).isEqualTo(3);
+        assertThat(flow.getBytes()).as("IN_BYTES at its maximum, not IN_PERMANENT_BYTES").isEqualTo(-1L);
+        assertThat(flow.getPackets()).isEqualTo(1L);
+    }
+
+    @Test
+    void ipfixAllOnesElementsAreExported() throws Exception {
+        final var service = new ValueConversionService(IpfixRawFlow.class, VISITORS);
+        final var template = Template.builder(256, Template.Type.TEMPLATE).withFields(List.of(
+                ipfixField(252, 4),     // ingressPhysicalInterface
+                ipfixField(10, 4),      // ingressInterface
+                ipfixField(14, 4),      // egressInterface
+                ipfixField(1, 8),       // octetDeltaCount
+                ipfixField(85, 8)))     // octetTotalCount
+                .build();
+        final ByteBuf set = Unpooled.buffer()
+                .writeInt(0xFFFFFFFF).writeInt(5).writeInt(0xFFFFFFFF).writeLong(-1L).writeLong(4711L);
+        final var raw = (IpfixRawFlow) service.compile(template).decodeAll(null, set, List.of()).get(0);
+        raw.exportTime = EXPORTED;
+
+        final Flow flow = new IpFixFlowBuilder(service).buildFlow(EXPORTED, raw);
+
+        assertThat(Integer.toUnsignedLong(flow.getInputSnmp())).as("ingressPhysicalInterface, not ingressInterface").isEqualTo(0xFFFFFFFFL);
+        assertThat(Integer.toUnsignedLong(flow.getOutputSnmp())).isEqualTo(0xFFFFFFFFL);
+        assertThat(flow.getBytes()).as("octetDeltaCount at its maximum, not octetTotalCount").isEqualTo(-1L);
+        assertThat(flow.getPackets()).isZero();
+    }
+
+    private static org.riptide.flows.parser.netflow9.proto.FieldSpecifier netflow9Field(final int type, final int length) throws Exception {
+        return new org.riptide.flows.parser.netflow9.proto.FieldSpecifier(Unpooled.buffer().writeShort(type).writeShort(length));
+    }
+
+    private static org.riptide.flows.parser.ipfix.proto.FieldSpecifier ipfixField(final int type, final int length) throws Exception {
+        return new org.riptide.flows.parser.ipfix.proto.FieldSpecifier(Unpooled.buffer().writeShort(type).writeShort(length));
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2026 Riptide Labs, <https://github.com/Riptide-Labs>
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package org.riptide.flows.parser.ie;
+
+import org.junit.jupiter.api.Test;
+import org.riptide.flows.parser.Protocol;
+import org.riptide.flows.parser.ie.values.UnsignedValue;
+
+import java.lang.management.ManagementFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * The registry is indexed by protocol and identifier in arrays, and by a packed {@code long} for
+ * enterprise elements. Each protocol's identifiers and each enterprise number must stay apart in
+ * that packing, and lookups must not allocate: that is the point of the structure.
+ */
+class InformationElementDatabaseTest {
+
+    private static final long CISCO = 9L;
+
+    private final InformationElementDatabase database = new InformationElementDatabase(adder -> {
+        adder.add(Protocol.IPFIX, 1, UnsignedValue::parserWith64Bit, "octetDeltaCount", Semantics.DELTA_COUNTER, "octets");
+        adder.add(Protocol.NETFLOW9, 1, UnsignedValue::parserWith64Bit, "IN_BYTES", Semantics.DELTA_COUNTER, "octets");
+        adder.add(Protocol.NETFLOW9, 65535, UnsignedValue::parserWith8Bit, "highest", null, null);
+        adder.add(Protocol.IPFIX, CISCO, 12235, UnsignedValue::parserWith32Bit, "ciscoElement", null, null);
+        adder.add(Protocol.IPFIX, 0xFFFFFFFFL, 1, UnsignedValue::parserWith32Bit, "highestEnterprise", null, null);
+    });
+
+    @Test
+    void findsEachElementUnderItsOwnProtocolAndEnterprise() {
+        assertThat(this.database.find(Protocol.IPFIX, 1).getName()).isEqualTo("octetDeltaCount");
+        assertThat(this.database.find(Protocol.NETFLOW9, 1).getName()).isEqualTo("IN_BYTES");
+        assertThat(this.database.find(Protocol.NETFLOW9, 65535).getName()).isEqualTo("highest");
+        assertThat(this.database.find(Protocol.IPFIX, CISCO, 12235).getName()).isEqualTo("ciscoElement");
+        assertThat(this.database.find(Protocol.IPFIX, 0xFFFFFFFFL, 1).getName()).isEqualTo("highestEnterprise");
+
+        // the null element every protocol's registry starts with
+        assertThat(this.database.find(Protocol.IPFIX, 0).getName()).isEqualTo("null");
+    }
+
+    @Test
+    void missesAreNullRatherThanANeighbour() {
+        assertThat(this.database.find(Protocol.IPFIX, 12235)).as("enterprise id looked up as IANA").isNull();
+        assertThat(this.database.find(Protocol.IPFIX, CISCO, 1)).as("IANA id looked up under an enterprise").isNull();
+        assertThat(this.database.find(Protocol.NETFLOW9, CISCO, 12235)).as("other protocol").isNull();
+        assertThat(this.database.find(Protocol.IPFIX, CISCO + 1, 12235)).as("other enterprise").isNull();
+        assertThat(this.database.find(Protocol.SFLOW, 1)).as("protocol with no registry").isNull();
+        assertThat(this.database.find(Protocol.IPFIX, 2)).isNull();
+        assertThat(this.database.find(Protocol.IPFIX, -1)).isNull();
+        assertThat(this.database.find(Protocol.IPFIX, 1L << 32 | CISCO, 12235)).as("would alias if not range-checked").isNull();
+
+        assertThat(this.database.lookup(Protocol.IPFIX, null, 1)).get().extracting(InformationElement::getName).isEqualTo("octetDeltaCount");
+        assertThat(this.database.lookup(Protocol.IPFIX, CISCO, 12235)).isPresent();
+        assertThat(this.database.lookup(Protocol.IPFIX, 2)).isEmpty();
+    }
+
+    @Test
+    void rejectsWhatThePackingCannotHold() {
+        assertThatThrownBy(() -> new InformationElementDatabase(adder ->
+                adder.add(Protocol.IPFIX, 1L << 32, 1, UnsignedValue::parserWith8Bit, "tooBig", null, null)))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new InformationElementDatabase(adder ->
+                adder.add(Protocol.NETFLOW9, 65536, UnsignedValue::parserWith8Bit, "tooBig", null, null)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void lookupsDoNotAllocate() {
+        final var threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        final long id = Thread.currentThread().threadId();
+        final InformationElementDatabase production = InformationElementDatabase.instance;
+
+        final long before = threads.getThreadAllocatedBytes(id);
+        int found = 0;
+        for (int i = 0; i < 100_000; i++) {
+            found += production.find(Protocol.IPFIX, i & 0x1FF) != null ? 1 : 0;
+            found += production.find(Protocol.NETFLOW9, i & 0x1FF) != null ? 1 : 0;
+            found += production.find(Protocol.IPFIX, CISCO, i & 0x7FFF) != null ? 1 : 0;
+        }
+        final long allocated = threads.getThreadAllocatedBytes(id) - before;
+
+        assertThat(found).isPositive();
+        // The keyed map allocated a Key, its boxes and an Optional per lookup: tens of megabytes
+        // here. What is left is the measurement's own noise.
+        assertThat(allocated).as("bytes allocated by 300k lookups").isLessThan(16 * 1024);
+    }
+}
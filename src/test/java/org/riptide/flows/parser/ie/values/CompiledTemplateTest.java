@@ -0,0 +1,267 @@
+/*
+ * Copyright 2026 Riptide Labs, <https://github.com/Riptide-Labs>
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package org.riptide.flows.parser.ie.values;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.riptide.flows.parser.ie.values.visitor.BooleanVisitor;
+import org.riptide.flows.parser.ie.values.visitor.DoubleVisitor;
+import org.riptide.flows.parser.ie.values.visitor.DurationVisitor;
+import org.riptide.flows.parser.ie.values.visitor.InetAddressVisitor;
+import org.riptide.flows.parser.ie.values.visitor.InstantVisitor;
+import org.riptide.flows.parser.ie.values.visitor.IntegerVisitor;
+import org.riptide.flows.parser.ie.values.visitor.LongVisitor;
+import org.riptide.flows.parser.ie.values.visitor.StringVisitor;
+import org.riptide.flows.parser.ie.values.visitor.UnsignedLongVisitor;
+import org.riptide.flows.parser.ie.values.visitor.ValueVisitor;
+import org.riptide.flows.parser.ipfix.IpfixRawFlow;
+import org.riptide.flows.parser.ipfix.proto.Header;
+import org.riptide.flows.parser.ipfix.proto.Packet;
+import org.riptide.flows.parser.netflow9.Netflow9RawFlow;
+import org.riptide.flows.parser.session.SequenceNumberTracker;
+import org.riptide.flows.parser.session.Session;
+import org.riptide.flows.parser.session.TcpSession;
+import org.riptide.flows.parser.session.Template;
+
+import java.lang.reflect.Field;
+import java.net.InetAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.riptide.flows.utils.BufferUtils.slice;
+
+/**
+ * A compiled template has to land every record on the same raw flow the generic path builds from
+ * its values — it reimplements the parse-and-visit of each directly read element, so any drift
+ * would silently change stored flows. Every capture the blackbox tests replay goes through both
+ * paths here, including the YAF options the IPFIX lookup scopes on record fields.
+ */
+class CompiledTemplateTest {
+
+    private static final Path FOLDER = Paths.get("src/test/resources/flows");
+
+    private static final List<ValueVisitor<?>> VISITORS = List.of(
+            new BooleanVisitor(), new DoubleVisitor(), new DurationVisitor(), new InetAddressVisitor(),
+            new InstantVisitor(), new IntegerVisitor(), new LongVisitor(), new StringVisitor(),
+            new UnsignedLongVisitor());
+
+    private static Stream<List<String>> ipfixFiles() {
+        return Stream.of(
+                List.of("ipfix.dat"),
+                List.of("ipfix_test_openbsd_pflow_tpl.dat", "ipfix_test_openbsd_pflow_data.dat"),
+                List.of("ipfix_test_mikrotik_tpl.dat", "ipfix_test_mikrotik_data258.dat", "ipfix_test_mikrotik_data259.dat"),
+                List.of("ipfix_test_vmware_vds_tpl.dat", "ipfix_test_vmware_vds_data264.dat", "ipfix_test_vmware_vds_data266.dat", "ipfix_test_vmware_vds_data266_267.dat"),
+                List.of("ipfix_test_barracuda_tpl.dat", "ipfix_test_barracuda_data256.dat"),
+                List.of("ipfix_test_yaf_tpls_option_tpl.dat", "ipfix_test_yaf_tpl45841.dat", "ipfix_test_yaf_data45841.dat", "ipfix_test_yaf_data45873.dat", "ipfix_test_yaf_data53248.dat"));
+    }
+
+    private static Stream<List<String>> netflow9Files() {
+        return Stream.of(
+                List.of("netflow9_template.dat", "netflow9_records.dat"),
+                List.of("netflow9_test_valid01.dat"),
+                List.of("netflow9_test_macaddr_tpl.dat", "netflow9_test_macaddr_data.dat"),
+                List.of("netflow9_test_cisco_asa_1_tpl.dat", "netflow9_test_cisco_asa_1_data.dat"),
+                List.of("netflow9_test_nprobe_tpl.dat", "netflow9_test_softflowd_tpl_data.dat", "netflow9_test_nprobe_data.dat"),
+                List.of("netflow9_test_cisco_asa_2_tpl_26x.dat", "netflow9_test_cisco_asa_2_tpl_27x.dat", "netflow9_test_cisco_asa_2_data.dat"),
+                List.of("netflow9_test_ubnt_edgerouter_tpl.dat", "netflow9_test_ubnt_edgerouter_data1024.dat", "netflow9_test_ubnt_edgerouter_data1025.dat"),
+                List.of("netflow9_test_fortigate_fortios_521_tpl.dat", "netflow9_test_fortigate_fortios_521_data256.dat", "netflow9_test_fortigate_fortios_521_data257.dat"),
+                List.of("netflow9_test_streamcore_tpl_data256.dat", "netflow9_test_streamcore_tpl_data260.dat"),
+                List.of("netflow9_test_0length_fields_tpl_data.dat"),
+                List.of("netflow9_test_cisco_asr9k_tpl260.dat", "netflow9_test_cisco_asr9k_data260.dat"),
+                List.of("netflow9_test_cisco_nbar_tpl262.dat", "netflow9_test_cisco_nbar_data262.dat"),
+                List.of("netflow9_test_cisco_wlc_tpl.dat", "netflow9_test_cisco_wlc_data261.dat"),
+                List.of("netflow9_test_paloalto_panos_tpl.dat", "netflow9_test_paloalto_panos_data.dat"),
+                List.of("netflow9_test_parser_timeswitched.dat"),
+                List.of("netflow9_test_parser_snmpinputoutput.dat"));
+    }
+
+    @ParameterizedTest
+    @MethodSource("ipfixFiles")
+    void ipfixDecodesLikeTheGenericPath(final List<String> files) throws Exception {
+        final var service = new ValueConversionService(IpfixRawFlow.class, VISITORS);
+        final Session generic = session();
+        final Session compiled = session();
+
+        final var expected = new ArrayList<IpfixRawFlow>();
+        final var actual = new ArrayList<Object>();
+        for (final String file : files) {
+            final ByteBuf genericBuffer = Unpooled.wrappedBuffer(Files.readAllBytes(FOLDER.resolve(file)));
+            final ByteBuf compiledBuffer = genericBuffer.duplicate();
+            do {
+                final var reference = ipfixPacket(generic, genericBuffer, null);
+                final var packet = ipfixPacket(compiled, compiledBuffer, service);
+
+                for (final var set : reference.dataSets) {
+                    for (final var record : set.records) {
+                        final var flow = new IpfixRawFlow();
+                        record.getValues().forEach(value -> service.apply(value, flow));
+                        expected.add(flow);
+                    }
+                }
+                for (final var set : packet.dataSets) {
+                    for (final var record : set.records) {
+                        actual.add(record.flow);
+                    }
+                }
+            } while (genericBuffer.isReadable());
+        }
+
+        assertSameFlows(expected, actual);
+    }
+
+    @ParameterizedTest
+    @MethodSource("netflow9Files")
+    void netflow9DecodesLikeTheGenericPath(final List<String> files) throws Exception {
+        final var service = new ValueConversionService(Netflow9RawFlow.class, VISITORS);
+        final Session generic = session();
+        final Session compiled = session();
+
+        final var expected = new ArrayList<Netflow9RawFlow>();
+        final var actual = new ArrayList<Object>();
+        for (final String file : files) {
+            final ByteBuf genericBuffer = Unpooled.wrappedBuffer(Files.readAllBytes(FOLDER.resolve(file)));
+            final ByteBuf compiledBuffer = genericBuffer.duplicate();
+            do {
+                final var reference = netflow9Packet(generic, genericBuffer, null);
+                final var packet = netflow9Packet(compiled, compiledBuffer, service);
+
+                for (final var set : reference.dataSets) {
+                    for (final var record : set.records) {
+                        final var flow = new Netflow9RawFlow();
+                        record.getValues().forEach(value -> service.apply(value, flow));
+                        expected.add(flow);
+                    }
+                }
+                for (final var set : packet.dataSets) {
+                    for (final var record : set.records) {
+                        actual.add(record.flow);
+                    }
+                }
+            } while (genericBuffer.isReadable());
+        }
+
+        assertSameFlows(expected, actual);
+    }
+
+    /**
+     * A deployment may register its own visitor for a type; the direct reads reproduce the stock
+     * ones only, so a field converted by any other must still go through the visitor.
+     */
+    @Test
+    void aReplacedVisitorKeepsItsFieldsOnTheGenericPath() throws Exception {
+        final var visitors = new ArrayList<ValueVisitor<?>>(VISITORS);
+        visitors.removeIf(visitor -> visitor instanceof IntegerVisitor);
+        visitors.add(new IntegerVisitor() {
+            @Override
+            public Integer visit(final UnsignedValue value) {
+                return -value.getValue().intValue();
+            }
+        });
+        final var service = new ValueConversionService(Netflow9RawFlow.class, visitors);
+        final Session session = session();
+
+        final var flows = new ArrayList<Netflow9RawFlow>();
+        for (final String file : List.of("netflow9_template.dat", "netflow9_records.dat")) {
+            final var packet = netflow9Packet(session, Unpooled.wrappedBuffer(Files.readAllBytes(FOLDER.resolve(file))), service);
+            packet.dataSets.forEach(set -> set.records.forEach(record -> flows.add((Netflow9RawFlow) record.flow)));
+        }
+
+        // the flow Netflow9ConverterTest pins: L4_SRC_PORT 137, PROTOCOL 17, both Integer fields
+        assertThat(flows).hasSize(5);
+        assertThat(flows.get(4).L4_SRC_PORT).isEqualTo(-137);
+        assertThat(flows.get(4).PROTOCOL).isEqualTo(-17);
+        assertThat(flows.get(4).IN_BYTES).as("a Long field still reads directly").isEqualTo(156L);
+    }
+
+    /**
+     * A set of a fixed-stride template decodes in one pass: as many whole records as fit, each field
+     * at its offset, and the reader left at the padding after the last one.
+     */
+    @Test
+    void aFixedStrideSetDecodesWholeRecordsAndLeavesThePadding() throws Exception {
+        final var service = new ValueConversionService(Netflow9RawFlow.class, VISITORS);
+        final var template = Template.builder(256, Template.Type.TEMPLATE).withFields(List.of(
+                netflow9Field(1, 4),    // IN_BYTES
+                netflow9Field(7, 2),    // L4_SRC_PORT
+                netflow9Field(4, 1)))   // PROTOCOL
+                .build();
+        final CompiledTemplate compiled = service.compile(template);
+        assertThat(compiled.stride()).isEqualTo(7);
+
+        final ByteBuf set = Unpooled.buffer()
+                .writeInt(156).writeShort(137).writeByte(17)
+                .writeInt(0xFFFFFFFF).writeShort(0xFFFF).writeByte(6)
+                .writeZero(3);
+        final List<Object> flows = compiled.decodeAll(null, set, List.of());
+
+        assertThat(flows).hasSize(2);
+        final var first = (Netflow9RawFlow) flows.get(0);
+        assertThat(first.IN_BYTES).isEqualTo(156L);
+        assertThat(first.L4_SRC_PORT).isEqualTo(137);
+        assertThat(first.PROTOCOL).isEqualTo(17);
+        final var second = (Netflow9RawFlow) flows.get(1);
+        assertThat(second.IN_BYTES).as("unsigned").isEqualTo(0xFFFFFFFFL);
+        assertThat(second.L4_SRC_PORT).isEqualTo(0xFFFF);
+        assertThat(second.PROTOCOL).isEqualTo(6);
+        assertThat(set.readerIndex()).as("the padding is not a record").isEqualTo(14);
+    }
+
+    @Test
+    void aVariableLengthFieldRulesOutTheOnePassDecode() throws Exception {
+        final var service = new ValueConversionService(IpfixRawFlow.class, VISITORS);
+        final var template = Template.builder(256, Template.Type.TEMPLATE).withFields(List.of(
+                new org.riptide.flows.parser.ipfix.proto.FieldSpecifier(Unpooled.buffer().writeShort(1).writeShort(8)),
+                new org.riptide.flows.parser.ipfix.proto.FieldSpecifier(Unpooled.buffer().writeShort(82).writeShort(0xFFFF))))
+                .build();
+        final CompiledTemplate compiled = service.compile(template);
+
+        assertThat(compiled.stride()).isEqualTo(-1);
+        assertThatThrownBy(() -> compiled.decodeAll(null, Unpooled.buffer(16), List.of()))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    private static org.riptide.flows.parser.netflow9.proto.FieldSpecifier netflow9Field(final int type, final int length) throws Exception {
+        return new org.riptide.flows.parser.netflow9.proto.FieldSpecifier(Unpooled.buffer().writeShort(type).writeShort(length));
+    }
+
+    private static Packet ipfixPacket(final Session session, final ByteBuf buffer,
+                                      final ValueConversionService service) throws Exception {
+        final Header header = new Header(slice(buffer, Header.SIZE));
+        return new Packet(session, header, slice(buffer, header.payloadLength()), service);
+    }
+
+    /** NetFlow v9 carries no message length: a packet runs to the end of its datagram. */
+    private static org.riptide.flows.parser.netflow9.proto.Packet netflow9Packet(final Session session, final ByteBuf buffer,
+                                                                                final ValueConversionService service) throws Exception {
+        final var header = new org.riptide.flows.parser.netflow9.proto.Header(slice(buffer, org.riptide.flows.parser.netflow9.proto.Header.SIZE));
+        return new org.riptide.flows.parser.netflow9.proto.Packet(session, header, buffer, service);
+    }
+
+    private static Session session() {
+        return new TcpSession(InetAddress.getLoopbackAddress(), () -> new SequenceNumberTracker(32));
+    }
+
+    private static void assertSameFlows(final List<?> expected, final List<?> actual) throws IllegalAccessException {
+        assertThat(actual).as("every data record decoded").hasSameSizeAs(expected).isNotEmpty().doesNotContainNull();
+        for (int i = 0; i < expected.size(); i++) {
+            for (final Field field : expected.get(i).getClass().getDeclaredFields()) {
+                field.setAccessible(true);
+                assertThat(field.get(actual.get(i)))
+                        .as("record %d, %s", i, field.getName())
+                        .isEqualTo(field.get(expected.get(i)));
+            }
+        }
+    }
+}
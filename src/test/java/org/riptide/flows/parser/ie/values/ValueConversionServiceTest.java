@@ -7,6 +7,7 @@ package org.riptide.flows.parser.ie.values;
 
 import io.netty.buffer.Unpooled;
 import org.junit.jupiter.api.Test;
+import org.riptide.flows.parser.data.Optionals;
 import org.riptide.flows.parser.ie.Value;
 import org.riptide.flows.parser.ie.values.visitor.BooleanVisitor;
 import org.riptide.flows.parser.ie.values.visitor.DoubleVisitor;
@@ -23,6 +24,7 @@ import org.riptide.flows.parser.ipfix.IpfixRawFlow;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 class ValueConversionServiceTest {
 
@@ -56,9 +58,9 @@ class ValueConversionServiceTest {
         assertEquals(7, flow.recordCount);
     }
 
-    /** A boxed field converted through the same path, to show both sides of the boxing behave. */
+    /** A {@code long} field: the visitor's boxed value is unboxed into it by the generated writer. */
     @Test
-    void convertsIntoBoxedField() throws Exception {
+    void convertsIntoLongField() throws Exception {
         final var service = new ValueConversionService(IpfixRawFlow.class, VISITORS);
         final var flow = new IpfixRawFlow();
 
@@ -68,4 +70,26 @@ class ValueConversionServiceTest {
 
         assertEquals(42L, flow.octetTotalCount);
     }
+
+    /**
+     * The typed stores a compiled template writes through take the value as the primitive it is, and
+     * refuse a slot of another type rather than storing into the wrong field.
+     */
+    @Test
+    void writesPrimitivesThroughTheirTypedStores() {
+        final var service = new ValueConversionService(IpfixRawFlow.class, VISITORS);
+        final var flow = new IpfixRawFlow();
+
+        service.writer().writeLong(flow, service.binding("octetDeltaCount").slot(), 1_500L);
+        service.writer().writeInt(flow, service.binding("destinationTransportPort").slot(), 443);
+        service.writer().writeDouble(flow, service.binding("samplingInterval").slot(), 512.0);
+
+        assertEquals(1_500L, flow.octetDeltaCount);
+        assertEquals(443, flow.destinationTransportPort);
+        assertEquals(512.0, flow.samplingInterval);
+        assertEquals(Optionals.ABSENT, flow.packetDeltaCount, "a field nothing was written to");
+        assertEquals(Presence.bits(IpfixRawFlow.class, "octetDeltaCount")[0], flow.present, "the long field written, alone");
+        assertThrows(IllegalArgumentException.class,
+                () -> service.writer().writeInt(flow, service.binding("octetDeltaCount").slot(), 1));
+    }
 }
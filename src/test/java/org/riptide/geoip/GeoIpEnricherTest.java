@@ -108,7 +108,7 @@ class GeoIpEnricherTest {
             enrich(enricher, flow);
 
             assertThat(flow.getSrcCountry()).isNull();
-            assertThat(flow.getSrcAs()).isNull();
+            assertThat(flow.getSrcAs()).isZero();
         } finally {
             enricher.stop();
         }
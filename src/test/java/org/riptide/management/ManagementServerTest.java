@@ -10,6 +10,7 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 import org.riptide.flows.Daemon;
 import org.riptide.flows.listeners.Listener;
+import org.riptide.flows.parser.DispatchScheduler;
 
 import java.net.URI;
 import java.net.http.HttpClient;
@@ -201,6 +202,66 @@ class ManagementServerTest {
         assertThat(status(port, "/metrics")).isEqualTo(404);
     }
 
+    @Test
+    void dispatchEndpointReportsTheSharedPoolAndRefusesToResizeByDefault() throws Exception {
+        final var scheduler = new DispatchScheduler(2, this.registry);
+        scheduler.lane("ipfix", 3, 16);
+        try {
+            final int port = startWithDispatch(scheduler, false);
+
+            final HttpResponse<String> state = get(port, "/dispatch");
+            assertThat(state.statusCode()).isEqualTo(200);
+            assertThat(state.body()).isEqualTo("threads 2\nlane ipfix weight=3 capacity=16 depth=0 running=0\n");
+
+            // an unauthenticated port must not change the collector unless told it may
+            assertThat(post(port, "/dispatch?threads=4").statusCode()).isEqualTo(403);
+            assertThat(scheduler.getThreads()).isEqualTo(2);
+        } finally {
+            scheduler.stop();
+        }
+    }
+
+    @Test
+    void dispatchEndpointResizesThePoolWhenEnabled() throws Exception {
+        final var scheduler = new DispatchScheduler(2, this.registry);
+        try {
+            final int port = startWithDispatch(scheduler, true);
+
+            final HttpResponse<String> resized = post(port, "/dispatch?threads=5");
+            assertThat(resized.statusCode()).isEqualTo(200);
+            assertThat(resized.body()).startsWith("threads 5\n");
+            assertThat(scheduler.getThreads()).isEqualTo(5);
+
+            assertThat(post(port, "/dispatch?threads=0").statusCode()).isEqualTo(400);
+            assertThat(post(port, "/dispatch?threads=many").statusCode()).isEqualTo(400);
+            assertThat(post(port, "/dispatch").statusCode()).isEqualTo(400);
+            assertThat(scheduler.getThreads()).isEqualTo(5);
+        } finally {
+            scheduler.stop();
+        }
+    }
+
+    private int startWithDispatch(final DispatchScheduler scheduler, final boolean resizeEnabled) throws Exception {
+        final Daemon daemon = mock(Daemon.class);
+        lenient().when(daemon.isStarted()).thenReturn(true);
+        final var properties = new RiptideManagementProperties();
+        properties.setPort(0);
+        properties.setBindAddress("127.0.0.1");
+        properties.setDispatchResizeEnabled(resizeEnabled);
+
+        this.server = new ManagementServer(properties, new HealthService(daemon), this.registry, scheduler);
+        this.server.start();
+        return this.server.getPort();
+    }
+
+    private HttpResponse<String> post(final int port, final String path) throws Exception {
+        return HttpClient.newHttpClient().send(
+                HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + port + path))
+                        .timeout(java.time.Duration.ofSeconds(10))
+                        .POST(HttpRequest.BodyPublishers.noBody()).build(),
+                HttpResponse.BodyHandlers.ofString());
+    }
+
     @Test
     void liveAndReadyWhenReceiversListening() throws Exception {
         final Listener listener = mock(Listener.class);
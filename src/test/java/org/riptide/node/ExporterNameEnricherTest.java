@@ -80,7 +80,7 @@ public class ExporterNameEnricherTest {
         // the inventory is populated, so this is a real miss rather than an empty tree
         new ExporterNameEnricher(inventory()).enrich(source("203.0.113.99"), List.of(flow)).get();
 
-        assertThat(flow.getExporterName()).isNull(); // persisted as '' via the ClickhouseFlow initializer
+        assertThat(flow.getExporterName()).isNull(); // persisted as '' by the batch writer
     }
 
     @Test
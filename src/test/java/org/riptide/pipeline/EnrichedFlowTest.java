@@ -0,0 +1,108 @@
+/*
+ * Copyright 2026 Riptide Labs, <https://github.com/Riptide-Labs>
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package org.riptide.pipeline;
+
+import org.junit.jupiter.api.Test;
+import org.riptide.flows.parser.data.FlowRecord;
+
+import java.net.InetAddress;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Pins what {@link EnrichedFlow} takes from its {@link Source} — {@code exporterAddr} and the four
+ * identity columns ({@code tenant}, {@code organisation}, {@code zone}, {@code system}) — and that
+ * it works on the parser's {@link FlowRecord} rather than on a copy of it.
+ */
+public class EnrichedFlowTest {
+
+    @Test
+    public void sourcePropertiesAreStamped() throws Exception {
+        final var source = new Source("here", InetAddress.getByName("203.0.113.9"));
+
+        final var enriched = new EnrichedFlow(source, new FlowRecord());
+
+        assertThat(enriched.getExporterAddr()).isEqualTo("203.0.113.9");
+        assertThat(enriched.getZone()).isEqualTo("here");
+    }
+
+    @Test
+    public void identityDefaultsPopulate() throws Exception {
+        // The 2-arg convenience constructor defaults the non-zone identity dimensions.
+        final var source = new Source("default", InetAddress.getByName("203.0.113.9"));
+
+        final var enriched = new EnrichedFlow(source, new FlowRecord());
+
+        assertThat(enriched.getTenant()).isEqualTo("default");
+        assertThat(enriched.getOrganisation()).isEqualTo("default");
+        assertThat(enriched.getZone()).isEqualTo("default");
+        assertThat(enriched.getSystem()).isEqualTo("default");
+    }
+
+    @Test
+    public void configuredIdentityIsStamped() throws Exception {
+        final var identity = new Identity("acme", "acme-eu", "dmz", "collector-01");
+        final var source = new Source(identity, new ExporterIdentity.NetflowIpfix(
+                InetAddress.getByName("203.0.113.9"), 7));
+
+        final var enriched = new EnrichedFlow(source, new FlowRecord());
+
+        assertThat(enriched.getTenant()).isEqualTo("acme");
+        assertThat(enriched.getOrganisation()).isEqualTo("acme-eu");
+        assertThat(enriched.getZone()).isEqualTo("dmz");
+        assertThat(enriched.getSystem()).isEqualTo("collector-01");
+    }
+
+    @Test
+    public void exporterAddrDerivesFromIdentity() throws Exception {
+        final var agent = InetAddress.getByName("10.1.1.1");
+        final var source = new Source("here", new ExporterIdentity.NetflowIpfix(agent, 42));
+
+        assertThat(source.getExporterAddr()).isEqualTo(agent);
+        assertThat(source.identity()).isEqualTo(new ExporterIdentity.NetflowIpfix(agent, 42));
+    }
+
+    @Test
+    public void readsAndWritesTheParsersRecord() throws Exception {
+        final var record = new FlowRecord();
+        record.setBytes(1500);
+        record.setSrcAs(64500);
+        final var enriched = new EnrichedFlow(new Source("here", InetAddress.getLoopbackAddress()), record);
+
+        enriched.setSrcAs(64501);
+        enriched.setTimestamp(Instant.EPOCH);
+
+        assertThat(enriched.getBytes()).isEqualTo(1500);
+        assertThat(record.getSrcAs()).isEqualTo(64501);
+        assertThat(record.getTimestamp()).isEqualTo(Instant.EPOCH);
+    }
+
+    @Test
+    public void aCopySharesNothing() throws Exception {
+        final var enriched = new EnrichedFlow(new Source("here", InetAddress.getLoopbackAddress()), new FlowRecord());
+        enriched.setSrcPort(80);
+        enriched.setSrcAddrHostname("a.example.org");
+
+        final var copy = enriched.copy();
+        enriched.setSrcPort(443);
+        enriched.setSrcAddrHostname("b.example.org");
+
+        assertThat(copy.getSrcPort()).isEqualTo(80);
+        assertThat(copy.getSrcAddrHostname()).isEqualTo("a.example.org");
+        assertThat(copy.getZone()).isEqualTo("here");
+    }
+
+    @Test
+    public void aBuilderReusedAfterBuildLeavesTheBuiltFlowAlone() {
+        final var builder = EnrichedFlow.builder().srcPort(80);
+        final var first = builder.build();
+        final var second = builder.srcPort(443).build();
+
+        assertThat(first.getSrcPort()).isEqualTo(80);
+        assertThat(second.getSrcPort()).isEqualTo(443);
+    }
+}
@@ -0,0 +1,313 @@
+/*
+ * Copyright 2026 Riptide Labs, <https://github.com/Riptide-Labs>
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package org.riptide.pipeline;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.util.concurrent.Uninterruptibles;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.riptide.config.PipelineConfig;
+import org.riptide.flows.parser.data.Flow;
+import org.riptide.repository.TestRepository;
+
+import java.net.InetAddress;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PipelineTest {
+
+    private static final Source SOURCE = new Source("here", InetAddress.getLoopbackAddress());
+
+    private final MetricRegistry metricRegistry = new MetricRegistry();
+    private final List<String> calls = Collections.synchronizedList(new ArrayList<>());
+
+    @Test
+    void enricherMajorRunsEachEnricherOverTheWholeBatch() throws Exception {
+        pipeline(false, numbering(), recording("a"), recording("b")).process(SOURCE, flows(2));
+
+        assertThat(this.calls).containsExactly("a0", "a1", "b0", "b1");
+    }
+
+    @Test
+    void fusedRunsEveryEnricherOnAFlowBeforeTheNextFlow() throws Exception {
+        pipeline(true, numbering(), recording("a"), recording("b")).process(SOURCE, flows(2));
+
+        assertThat(this.calls).containsExactly("a0", "b0", "a1", "b1");
+    }
+
+    @Test
+    void fusedRunsABatchOnlyEnricherInItsPlaceBetweenTwoPasses() throws Exception {
+        final Enricher batchOnly = (source, flows) -> {
+            flows.forEach(flow -> this.calls.add("x" + flow.getFlowSeqNum()));
+            return Enricher.COMPLETED;
+        };
+
+        pipeline(true, numbering(), recording("a"), batchOnly, recording("b")).process(SOURCE, flows(2));
+
+        assertThat(this.calls).containsExactly("a0", "a1", "x0", "x1", "b0", "b1");
+    }
+
+    @Test
+    void fusedAwaitsAsynchronousWorkOnceAfterThePass() throws Exception {
+        final Enricher slow = new Enricher.Single() {
+            @Override
+            protected CompletableFuture<Void> enrich(final Source source, final EnrichedFlow flow) {
+                return CompletableFuture.runAsync(() -> {
+                    PipelineTest.this.calls.add("slow" + flow.getFlowSeqNum());
+                    flow.setSrcAddrHostname("resolved");
+                }, CompletableFuture.delayedExecutor(50, TimeUnit.MILLISECONDS));
+            }
+        };
+        final TestRepository repository = new TestRepository(this.metricRegistry);
+
+        new Pipeline(List.of(numbering(), slow, recording("b")), repository.asPersister(), this.metricRegistry,
+                config(true)).process(SOURCE, flows(2));
+
+        assertThat(this.calls.subList(0, 2)).as("later steps did not wait for the lookups").containsExactly("b0", "b1");
+        assertThat(this.calls).containsExactlyInAnyOrder("b0", "b1", "slow0", "slow1");
+        assertThat(repository.flows()).extracting(EnrichedFlow::getSrcAddrHostname).containsOnly("resolved");
+    }
+
+    @Test
+    void fusedFailsTheBatchWhenAnAsynchronousLookupFails() {
+        final Enricher failing = new Enricher.Single() {
+            @Override
+            protected CompletableFuture<Void> enrich(final Source source, final EnrichedFlow flow) {
+                return CompletableFuture.failedFuture(new IllegalStateException("boom"));
+            }
+        };
+
+        assertThatThrownBy(() -> pipeline(true, failing).process(SOURCE, flows(1)))
+                .isInstanceOf(FlowException.class)
+                .hasRootCauseMessage("boom");
+    }
+
+    @Test
+    void aBatchAwaitingALookupIsParkedWithoutHoldingTheWorker() throws Exception {
+        final CompletableFuture<Void> lookup = new CompletableFuture<>();
+        final TestRepository repository = new TestRepository(this.metricRegistry);
+        final Pipeline pipeline = new Pipeline(List.of(numbering(), awaiting(lookup), recording("b")),
+                repository.asPersister(), this.metricRegistry, continuations(4, Duration.ofSeconds(10)));
+
+        pipeline.process(SOURCE, flows(2));
+
+        assertThat(pipeline.inFlightBatches()).isEqualTo(1);
+        assertThat(this.metricRegistry.getGauges().get("pipeline.inFlightBatches").getValue()).isEqualTo(1);
+        assertThat(this.calls).as("the enrichers after the lookup wait for it").isEmpty();
+        assertThat(repository.count()).isZero();
+
+        lookup.complete(null);
+        await("the batch to be resumed and persisted", () -> repository.count() == 2);
+        assertThat(this.calls).containsExactly("b0", "b1");
+        await("the permit to be returned", () -> pipeline.inFlightBatches() == 0);
+    }
+
+    @Test
+    void pastTheInFlightBoundTheWorkerWaitsAsBefore() throws Exception {
+        final CompletableFuture<Void> first = new CompletableFuture<>();
+        final CompletableFuture<Void> second = new CompletableFuture<>();
+        final List<CompletableFuture<Void>> lookups = List.of(first, second);
+        final AtomicLong batches = new AtomicLong();
+        final Enricher lookup = (source, flows) -> lookups.get((int) batches.getAndIncrement());
+        final TestRepository repository = new TestRepository(this.metricRegistry);
+        final Pipeline pipeline = new Pipeline(List.of(lookup), repository.asPersister(), this.metricRegistry,
+                continuations(1, Duration.ofSeconds(10)));
+
+        pipeline.process(SOURCE, flows(1));
+        final Thread worker = new Thread(() -> {
+            try {
+                pipeline.process(SOURCE, flows(1));
+            } catch (final FlowException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        worker.start();
+        worker.join(100);
+        assertThat(worker.isAlive()).as("the second batch has no permit, so its worker waits").isTrue();
+
+        second.complete(null);
+        worker.join(TimeUnit.SECONDS.toMillis(10));
+        assertThat(worker.isAlive()).isFalse();
+        assertThat(repository.count()).as("only the waited-for batch").isEqualTo(1);
+
+        first.complete(null);
+        await("the parked batch to be persisted", () -> repository.count() == 2);
+    }
+
+    @Test
+    void pastTheInFlightBoundTheWorkerWaitsNoLongerThanTheTimeout() throws Exception {
+        final CountDownLatch holding = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicLong prepared = new AtomicLong();
+        // Holds the first batch on its resumer, after its lookup timed out, so it keeps the only permit.
+        final Enricher gate = new Enricher.Synchronous() {
+            @Override
+            protected Step prepare(final Source source) {
+                if (prepared.getAndIncrement() == 0) {
+                    holding.countDown();
+                    Uninterruptibles.awaitUninterruptibly(release);
+                }
+                return flow -> { };
+            }
+        };
+        final TestRepository repository = new TestRepository(this.metricRegistry);
+        final Pipeline pipeline = new Pipeline(List.of(awaiting(new CompletableFuture<>()), gate),
+                repository.asPersister(), this.metricRegistry, continuations(1, Duration.ofMillis(50)));
+        pipeline.process(SOURCE, flows(1));
+        assertThat(holding.await(10, TimeUnit.SECONDS)).isTrue();
+
+        final Thread worker = new Thread(() -> {
+            try {
+                pipeline.process(SOURCE, flows(1));
+            } catch (final FlowException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        worker.start();
+        worker.join(TimeUnit.SECONDS.toMillis(10));
+
+        assertThat(worker.isAlive()).as("the worker gave up on a lookup that never completes").isFalse();
+        assertThat(repository.count()).as("persisted by the worker, without its lookup").isEqualTo(1);
+        assertThat(this.metricRegistry.counter("pipeline.continuationTimeouts").getCount()).isEqualTo(2);
+
+        release.countDown();
+        await("the parked batch to be persisted", () -> repository.count() == 2);
+    }
+
+    @Test
+    void aParkedBatchCarriesOnWithoutTheLookupAfterTheTimeout() throws Exception {
+        final TestRepository repository = new TestRepository(this.metricRegistry);
+        final Pipeline pipeline = new Pipeline(List.of(awaiting(new CompletableFuture<>()), recording("b")),
+                repository.asPersister(), this.metricRegistry, continuations(4, Duration.ofMillis(50)));
+
+        pipeline.process(SOURCE, flows(1));
+
+        await("the batch to be persisted without its lookup", () -> repository.count() == 1);
+        assertThat(this.calls).containsExactly("b0");
+        assertThat(this.metricRegistry.counter("pipeline.continuationTimeouts").getCount()).isEqualTo(1);
+    }
+
+    @Test
+    void aLookupThatCompletesAfterTheTimeoutDoesNotChangeThePersistedFlow() throws Exception {
+        final CompletableFuture<Void> lookup = new CompletableFuture<>();
+        final TestRepository repository = new TestRepository(this.metricRegistry);
+        final Enricher hostnames = (source, flows) -> lookup.thenRun(
+                () -> flows.forEach(flow -> flow.setSrcAddrHostname("late.example.org")));
+        final Pipeline pipeline = new Pipeline(List.of(hostnames), repository.asPersister(),
+                this.metricRegistry, continuations(4, Duration.ofMillis(50)));
+
+        pipeline.process(SOURCE, flows(2));
+        await("the batch to be persisted without its lookup", () -> repository.count() == 2);
+        // Runs its callback right here, on the flows it was handed.
+        lookup.complete(null);
+
+        assertThat(repository.flows()).extracting(EnrichedFlow::getSrcAddrHostname).containsOnlyNulls();
+    }
+
+    @Test
+    void aParkedBatchThatFailsIsReportedToTheHandler() throws Exception {
+        final CompletableFuture<Void> lookup = new CompletableFuture<>();
+        final TestRepository repository = new TestRepository(this.metricRegistry);
+        final Pipeline pipeline = new Pipeline(List.of(awaiting(lookup)), repository.asPersister(),
+                this.metricRegistry, continuations(4, Duration.ofSeconds(10)));
+        final CompletableFuture<Exception> reported = new CompletableFuture<>();
+
+        pipeline.process(SOURCE, flows(3), (source, flows, cause) -> {
+            assertThat(flows).isEqualTo(3);
+            reported.complete(cause);
+        });
+        lookup.completeExceptionally(new IllegalStateException("boom"));
+
+        assertThat(reported.get(10, TimeUnit.SECONDS))
+                .isInstanceOf(FlowException.class)
+                .hasRootCauseMessage("boom");
+        assertThat(repository.count()).isZero();
+        await("the permit to be returned", () -> pipeline.inFlightBatches() == 0);
+    }
+
+    @Test
+    void continuationsRejectANonPositiveBound() {
+        final PipelineConfig config = continuations(0, Duration.ofSeconds(1));
+
+        assertThatThrownBy(() -> new Pipeline(List.of(), new TestRepository(this.metricRegistry).asPersister(),
+                this.metricRegistry, config))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("max-in-flight-batches");
+    }
+
+    private Pipeline pipeline(final boolean fused, final Enricher... enrichers) {
+        return new Pipeline(List.of(enrichers), new TestRepository(this.metricRegistry).asPersister(),
+                this.metricRegistry, config(fused));
+    }
+
+    private static PipelineConfig config(final boolean fused) {
+        final PipelineConfig config = new PipelineConfig();
+        config.setFusedEnrichment(fused);
+        return config;
+    }
+
+    private static PipelineConfig continuations(final int maxInFlightBatches, final Duration timeout) {
+        final PipelineConfig config = new PipelineConfig();
+        config.getContinuation().setEnabled(true);
+        config.getContinuation().setMaxInFlightBatches(maxInFlightBatches);
+        config.getContinuation().setTimeout(timeout);
+        return config;
+    }
+
+    /** An enricher whose work for every batch is {@code lookup}. */
+    private static Enricher awaiting(final CompletableFuture<Void> lookup) {
+        return (source, flows) -> lookup;
+    }
+
+    /** Deadline-based polling; fails the test on timeout. */
+    private static void await(final String description, final BooleanSupplier condition) throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                throw new AssertionError("Timed out waiting for " + description);
+            }
+            Thread.sleep(10);
+        }
+    }
+
+    /** Numbers the flows in the order it sees them, so the others can name them. */
+    private static Enricher numbering() {
+        final AtomicLong next = new AtomicLong();
+        return new Enricher.Synchronous() {
+            @Override
+            protected Step prepare(final Source source) {
+                return flow -> flow.setFlowSeqNum(next.getAndIncrement());
+            }
+        };
+    }
+
+    private Enricher recording(final String name) {
+        return new Enricher.Synchronous() {
+            @Override
+            protected Step prepare(final Source source) {
+                return flow -> PipelineTest.this.calls.add(name + flow.getFlowSeqNum());
+            }
+        };
+    }
+
+    private static List<Flow> flows(final int count) {
+        final List<Flow> flows = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            flows.add(Mockito.mock(Flow.class));
+        }
+        return flows;
+    }
+}
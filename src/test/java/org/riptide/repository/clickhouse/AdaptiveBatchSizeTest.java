@@ -0,0 +1,84 @@
+/*
+ * Copyright 2026 Riptide Labs, <https://github.com/Riptide-Labs>
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package org.riptide.repository.clickhouse;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AdaptiveBatchSizeTest {
+
+    private static final long FAST = Duration.ofMillis(100).toNanos();
+    private static final long SLOW = Duration.ofSeconds(3).toNanos();
+
+    private final AdaptiveBatchSize size = new AdaptiveBatchSize(1_000, 16_000, Duration.ofSeconds(2), 1.0);
+
+    @Test
+    void startsAtTheCeiling() {
+        assertThat(this.size.target()).isEqualTo(16_000);
+    }
+
+    @Test
+    void halvesOnASlowOrFailedInsertDownToTheFloor() {
+        this.size.onInsert(true, SLOW, 0, 0.5);
+        assertThat(this.size.target()).isEqualTo(8_000);
+        this.size.onInsert(false, FAST, 0, 0.5);
+        assertThat(this.size.target()).isEqualTo(4_000);
+
+        for (int i = 0; i < 10; i++) {
+            this.size.onInsert(false, FAST, 0, 0.5);
+        }
+        assertThat(this.size.target()).isEqualTo(1_000);
+    }
+
+    @Test
+    void growsByTheFloorOnABacklogUpToTheCeiling() {
+        shrinkTo(2_000);
+
+        this.size.onInsert(true, FAST, 1_999, 0.5);
+        assertThat(this.size.target()).as("less than a target's worth queued").isEqualTo(2_000);
+        this.size.onInsert(true, FAST, 2_000, 0.5);
+        assertThat(this.size.target()).isEqualTo(3_000);
+
+        for (int i = 0; i < 100; i++) {
+            this.size.onInsert(true, FAST, 100_000, 0.5);
+        }
+        assertThat(this.size.target()).isEqualTo(16_000);
+    }
+
+    @Test
+    void growsWhenInsertsComeFasterThanTheyShould() {
+        shrinkTo(2_000);
+
+        this.size.onInsert(true, FAST, 0, 1.0);
+        assertThat(this.size.target()).as("at the limit, not over it").isEqualTo(2_000);
+        this.size.onInsert(true, FAST, 0, 4.0);
+        assertThat(this.size.target()).isEqualTo(3_000);
+    }
+
+    @Test
+    void aSlowInsertShrinksEvenUnderBacklog() {
+        this.size.onInsert(true, SLOW, 1_000_000, 10.0);
+
+        assertThat(this.size.target()).isEqualTo(8_000);
+    }
+
+    @Test
+    void rejectsAFloorAboveTheCeiling() {
+        assertThatThrownBy(() -> new AdaptiveBatchSize(20_000, 10_000, Duration.ofSeconds(2), 1.0))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private void shrinkTo(final int rows) {
+        while (this.size.target() > rows) {
+            this.size.onInsert(false, FAST, 0, 0);
+        }
+        assertThat(this.size.target()).isEqualTo(rows);
+    }
+}
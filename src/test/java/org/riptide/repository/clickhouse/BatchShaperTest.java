@@ -0,0 +1,91 @@
+/*
+ * Copyright 2026 Riptide Labs, <https://github.com/Riptide-Labs>
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package org.riptide.repository.clickhouse;
+
+import org.junit.jupiter.api.Test;
+import org.riptide.pipeline.EnrichedFlow;
+
+import java.net.InetAddress;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BatchShaperTest {
+
+    private static final Instant DAY = Instant.parse("2026-03-01T12:30:00Z");
+
+    @Test
+    void groupsByPartitionBeforeTheSortingKey() {
+        final List<EnrichedFlow> rows = new ArrayList<>(List.of(
+                flow("b", DAY, 1),
+                flow("a", DAY.plusSeconds(86_400), 2),
+                flow("a", DAY, 3),
+                flow("c", DAY.minusSeconds(86_400), 4)));
+
+        assertThat(BatchShaper.shape(rows)).isEqualTo(3);
+
+        // Yesterday's straggler first, then today by tenant, then tomorrow's skewed clock.
+        assertThat(rows).extracting(EnrichedFlow::getSrcPort).containsExactly(4, 3, 1, 2);
+    }
+
+    @Test
+    void ordersWithinAPartitionByHourThenTheFlowKey() throws Exception {
+        final List<EnrichedFlow> rows = new ArrayList<>(List.of(
+                flow("a", DAY.plusSeconds(3_600), 1),
+                EnrichedFlow.builder().tenant("a").timestamp(DAY).srcAs(-1L).srcPort(2).build(),
+                EnrichedFlow.builder().tenant("a").timestamp(DAY).srcAs(65_000L).srcPort(3).build(),
+                EnrichedFlow.builder().tenant("a").timestamp(DAY.plusSeconds(60)).srcPort(4).build()));
+
+        BatchShaper.shape(rows);
+
+        // The same hour compares equal on time, so the absent srcAs (0) leads; UInt64 max trails.
+        assertThat(rows).extracting(EnrichedFlow::getSrcPort).containsExactly(4, 3, 2, 1);
+    }
+
+    @Test
+    void comparesAddressesInTheirIpv6Form() throws Exception {
+        final List<EnrichedFlow> rows = new ArrayList<>(List.of(
+                EnrichedFlow.builder().timestamp(DAY).srcAddr(InetAddress.getByName("2001:db8::1")).srcPort(1).build(),
+                EnrichedFlow.builder().timestamp(DAY).srcAddr(InetAddress.getByName("198.51.100.1")).srcPort(2).build(),
+                EnrichedFlow.builder().timestamp(DAY).srcAddr(InetAddress.getByName("::1")).srcPort(3).build(),
+                EnrichedFlow.builder().timestamp(DAY).srcPort(4).build()));
+
+        BatchShaper.shape(rows);
+
+        // Absent is ::, then ::1, then ::ffff:198.51.100.1, then 2001:db8::1.
+        assertThat(rows).extracting(EnrichedFlow::getSrcPort).containsExactly(4, 3, 2, 1);
+    }
+
+    @Test
+    void keepsArrivalOrderAmongEqualKeys() {
+        final List<EnrichedFlow> rows = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            rows.add(EnrichedFlow.builder().tenant("a").timestamp(DAY).flowSeqNum(i).build());
+        }
+
+        BatchShaper.shape(rows);
+
+        assertThat(rows).extracting(EnrichedFlow::getFlowSeqNum).isSorted();
+    }
+
+    @Test
+    void countsPartitionsWithoutReordering() {
+        final List<EnrichedFlow> rows = List.of(
+                flow("b", DAY, 1),
+                flow("a", DAY.plusSeconds(86_400), 2),
+                flow("a", DAY.plusSeconds(60), 3),
+                EnrichedFlow.builder().srcPort(4).build());
+
+        assertThat(BatchShaper.partitions(rows)).as("two days and the epoch").isEqualTo(3);
+        assertThat(BatchShaper.partitions(List.of())).isZero();
+    }
+
+    private static EnrichedFlow flow(final String tenant, final Instant timestamp, final int srcPort) {
+        return EnrichedFlow.builder().tenant(tenant).timestamp(timestamp).srcPort(srcPort).build();
+    }
+}
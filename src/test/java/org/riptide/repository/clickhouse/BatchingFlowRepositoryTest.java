@@ -5,29 +5,36 @@
 
 package org.riptide.repository.clickhouse;
 
+import com.clickhouse.client.api.ServerException;
 import com.codahale.metrics.MetricRegistry;
 import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.riptide.config.ClickhouseConfig;
 import org.riptide.pipeline.EnrichedFlow;
 import org.riptide.pipeline.FlowException;
 import org.riptide.repository.FlowRepository;
 import org.riptide.repository.TestRepository;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BooleanSupplier;
+import java.util.function.Predicate;
 import java.util.stream.IntStream;
 
 /**
  * Unit tests for the batching decorator against an in-memory delegate: the flush triggers, the
- * drop policy, poison-batch resilience, the shutdown drain, the lifecycle guards, and the config
- * validation.
+ * drop policy, poison-batch resilience, the shutdown drain, the lifecycle guards, the on-disk
+ * spill, adaptive sizing, and the config validation.
  */
 class BatchingFlowRepositoryTest {
 
@@ -298,6 +305,341 @@ class BatchingFlowRepositoryTest {
                 .isGreaterThanOrEqualTo(3);
     }
 
+    @Test
+    void insertsOverlapUpToMaxInFlightAndNoFurther() throws Exception {
+        // Two slots and a wedged delegate: two single-row batches are in flight at once, and the
+        // third row waits in the queue — not in the flusher's hand — where queueDepth sees it.
+        this.delegate.block();
+        final var config = batchConfig(1, Duration.ofMillis(100));
+        config.setMaxInFlightInserts(2);
+        this.repository = repository(config);
+        this.repository.start();
+
+        final var flows = flows(3);
+        for (final var flow : flows) {
+            this.repository.persist(List.of(flow));
+        }
+        await(Duration.ofSeconds(3), "two inserts in flight", () -> this.delegate.inserts.get() == 2);
+        Assertions.assertThat(gauge("inFlight")).isEqualTo(2);
+
+        // A third insert would have started by now if the slots did not bound it.
+        Thread.sleep(200);
+        Assertions.assertThat(this.delegate.inserts.get()).isEqualTo(2);
+        Assertions.assertThat(gauge("queueDepth")).isEqualTo(1);
+
+        this.delegate.unblock();
+        await(Duration.ofSeconds(3), "all rows delivered", () -> this.delegate.count() == 3);
+        await(Duration.ofSeconds(3), "slots returned", () -> gauge("inFlight") == 0);
+    }
+
+    @Test
+    void stopWaitsForTheInsertsInFlight() throws Exception {
+        this.delegate.block();
+        final var config = batchConfig(1, Duration.ofMillis(100));
+        config.setMaxInFlightInserts(3);
+        config.setShutdownGracePeriod(Duration.ofSeconds(3));
+        this.repository = repository(config);
+        this.repository.start();
+
+        this.repository.persist(flows(3));
+        await(Duration.ofSeconds(3), "three inserts in flight", () -> this.delegate.inserts.get() == 3);
+
+        // The inserts land well inside the grace period, after stop() has begun.
+        final var releaser = new Thread(() -> {
+            try {
+                Thread.sleep(300);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            this.delegate.unblock();
+        });
+        releaser.setDaemon(true);
+        releaser.start();
+        this.repository.stop();
+
+        Assertions.assertThat(this.delegate.count()).isEqualTo(3);
+        Assertions.assertThat(failedRows()).isZero();
+        Assertions.assertThat(this.delegate.stops.get()).isEqualTo(1);
+    }
+
+    @Test
+    void failedBatchesAreSpilledAndReplayedOnceInsertsSucceedAgain(@TempDir final Path spillDirectory)
+            throws Exception {
+        this.delegate.failuresRemaining.set(1);
+        this.repository = repository(spilling(batchConfig(2, Duration.ofMillis(300)), spillDirectory));
+        this.repository.persist(flows(2));
+        this.repository.start();
+        await(Duration.ofSeconds(3), "failed batch spilled", () -> spilledRows() == 2);
+        Assertions.assertThat(failedRows()).isZero();
+        Assertions.assertThat(gauge("spillSegments")).isEqualTo(1);
+        Assertions.assertThat(gauge("spilledBytes")).isPositive();
+
+        // The next live insert succeeds, which is what starts the replay.
+        this.repository.persist(flows(2));
+
+        await(Duration.ofSeconds(3), "spill replayed", () -> this.delegate.count() == 4);
+        Assertions.assertThat(replayedRows()).isEqualTo(2);
+        Assertions.assertThat(gauge("spilledBytes")).isZero();
+        Assertions.assertThat(gauge("spillSegments")).isZero();
+        Assertions.assertThat(gauge("replayLag")).isZero();
+    }
+
+    @Test
+    void aFailedBatchIsReplayedUnderTheTokenOfItsAttempts(@TempDir final Path spillDirectory) throws Exception {
+        this.delegate.failuresRemaining.set(1);
+        this.repository = repository(spilling(batchConfig(2, Duration.ofMillis(300)), spillDirectory));
+        this.repository.persist(flows(2));
+        this.repository.start();
+        await(Duration.ofSeconds(3), "failed batch spilled", () -> spilledRows() == 2);
+
+        this.repository.persist(flows(2));
+
+        await(Duration.ofSeconds(3), "spill replayed", () -> replayedRows() == 2);
+        // Had the failed attempt landed unacknowledged, the server would discard the replay.
+        final String attempted = this.delegate.tokens.get(0);
+        Assertions.assertThat(this.delegate.tokens).hasSize(3).filteredOn(attempted::equals).hasSize(2);
+    }
+
+    @Test
+    void overflowIsSpilledInsteadOfDropped(@TempDir final Path spillDirectory) throws Exception {
+        // The wedge of dropsFlowsWhenTheQueueStaysFull, with the spill taking what it dropped.
+        this.delegate.block();
+        final var config = spilling(batchConfig(1, Duration.ofMillis(300)), spillDirectory);
+        config.setQueueCapacity(1);
+        this.repository = repository(config);
+        this.repository.start();
+
+        final var flows = flows(3);
+        this.repository.persist(List.of(flows.get(0)));
+        await(Duration.ofSeconds(3), "first row in flight", () -> this.delegate.inserts.get() == 1);
+        this.repository.persist(List.of(flows.get(1)));
+        this.repository.persist(List.of(flows.get(2)));
+
+        Assertions.assertThat(droppedRows()).isZero();
+        Assertions.assertThat(spilledRows()).isEqualTo(1);
+
+        this.delegate.unblock();
+        await(Duration.ofSeconds(3), "overflow replayed", () -> this.delegate.count() == 3);
+    }
+
+    @Test
+    void whatIsStillSpilledAtStopIsReplayedByTheNextRun(@TempDir final Path spillDirectory) throws Exception {
+        this.delegate.failuresRemaining.set(Integer.MAX_VALUE);
+        this.repository = repository(spilling(batchConfig(2, Duration.ofMillis(100)), spillDirectory));
+        this.repository.start();
+        this.repository.persist(flows(2));
+        await(Duration.ofSeconds(3), "failed batch spilled", () -> spilledRows() == 2);
+        this.repository.stop();
+        Assertions.assertThat(this.delegate.count()).isZero();
+
+        // A healthy server and no traffic at all: only the idle probe can start the replay.
+        final var restarted = new ObservableRepository();
+        this.repository = new BatchingFlowRepository(restarted,
+                spilling(batchConfig(2, Duration.ofMillis(100)), spillDirectory), new MetricRegistry());
+        this.repository.start();
+
+        await(Duration.ofSeconds(3), "spill replayed after restart", () -> restarted.count() == 2);
+    }
+
+    @Test
+    void transientFailuresAreRetriedWithTheSameToken() throws Exception {
+        this.delegate.failuresRemaining.set(2);
+        final var config = batchConfig(3, Duration.ofMillis(100));
+        config.getRetry().setMaxAttempts(3);
+        this.repository = repository(config);
+        this.repository.start();
+        this.repository.persist(flows(3));
+
+        await(Duration.ofSeconds(3), "batch inserted on the third attempt", () -> this.delegate.count() == 3);
+        Assertions.assertThat(failedRows()).isZero();
+        Assertions.assertThat(counter("retries")).isEqualTo(2);
+        Assertions.assertThat(this.delegate.tokens).hasSize(3).doesNotContainNull();
+        Assertions.assertThat(Set.copyOf(this.delegate.tokens)).as("one token for all attempts").hasSize(1);
+    }
+
+    @Test
+    void batchesGetTokensOfTheirOwn() throws Exception {
+        this.repository = repository(batchConfig(1, Duration.ofMillis(100)));
+        this.repository.start();
+        this.repository.persist(flows(2));
+
+        await(Duration.ofSeconds(3), "both batches inserted", () -> this.delegate.count() == 2);
+        Assertions.assertThat(Set.copyOf(this.delegate.tokens)).hasSize(2);
+    }
+
+    @Test
+    void retriesGiveUpAfterMaxAttempts() throws Exception {
+        this.delegate.failuresRemaining.set(Integer.MAX_VALUE);
+        final var config = batchConfig(1, Duration.ofMillis(100));
+        config.getRetry().setMaxAttempts(3);
+        this.repository = repository(config);
+        this.repository.start();
+        this.repository.persist(flows(1));
+
+        await(Duration.ofSeconds(3), "batch failed", () -> failedRows() == 1);
+        Assertions.assertThat(this.delegate.inserts.get()).isEqualTo(3);
+        Assertions.assertThat(counter("retries")).isEqualTo(2);
+    }
+
+    @Test
+    void aRejectedRowIsIsolatedAndTheRestOfItsBatchInserted() throws Exception {
+        this.delegate.violates = flow -> flow.getSrcPort() == 5;
+        final var config = batchConfig(16, Duration.ofMillis(100));
+        config.getRetry().setMaxAttempts(3);
+        this.repository = repository(config);
+        this.repository.start();
+        this.repository.persist(flows(16));
+
+        await(Duration.ofSeconds(3), "the 15 good rows inserted", () -> this.delegate.count() == 15);
+        Assertions.assertThat(counter("rejectedRows")).isEqualTo(1);
+        Assertions.assertThat(failedRows()).isEqualTo(1);
+        Assertions.assertThat(counter("retries")).as("a rejection is never retried as is").isZero();
+        Assertions.assertThat(this.delegate.store.flows()).noneMatch(flow -> flow.getSrcPort() == 5);
+        // 1 + 2 per halving (16 → 8 → 4 → 2 → 1).
+        Assertions.assertThat(this.delegate.inserts.get()).isEqualTo(9);
+    }
+
+    @Test
+    void aRowThatCannotBeEncodedCostsOnlyThatRow() throws Exception {
+        this.delegate.unencodable = flow -> flow.getSrcPort() == 11;
+        final var config = batchConfig(16, Duration.ofMillis(100));
+        config.getRetry().setMaxAttempts(3);
+        this.repository = repository(config);
+        this.repository.start();
+        this.repository.persist(flows(16));
+
+        await(Duration.ofSeconds(3), "the 15 good rows inserted", () -> this.delegate.count() == 15);
+        Assertions.assertThat(failedRows()).isEqualTo(1);
+        Assertions.assertThat(counter("retries")).as("retried as is it fails the same way").isZero();
+        Assertions.assertThat(this.delegate.store.flows()).noneMatch(flow -> flow.getSrcPort() == 11);
+    }
+
+    @Test
+    void bisectionStopsAtItsBudget() throws Exception {
+        this.delegate.violates = flow -> true;
+        final var config = batchConfig(16, Duration.ofMillis(100));
+        config.getRetry().setMaxBisectInserts(4);
+        this.repository = repository(config);
+        this.repository.start();
+        this.repository.persist(flows(16));
+
+        await(Duration.ofSeconds(3), "the whole batch rejected", () -> failedRows() == 16);
+        Assertions.assertThat(counter("rejectedRows")).isEqualTo(16);
+        Assertions.assertThat(this.delegate.inserts.get()).isEqualTo(1 + 4);
+    }
+
+    @Test
+    void aShardKeepsItsMetricsAndSpillApart(@TempDir final Path spillDirectory) throws Exception {
+        this.delegate.failuresRemaining.set(Integer.MAX_VALUE);
+        this.repository = new BatchingFlowRepository(this.delegate,
+                spilling(batchConfig(2, Duration.ofMillis(100)), spillDirectory), this.metricRegistry, "shard1");
+        this.repository.start();
+        this.repository.persist(flows(2));
+
+        await(Duration.ofSeconds(3), "failed batch spilled", () -> this.metricRegistry.counter(
+                MetricRegistry.name("persister", "shard1", "batch", "spilledRows")).getCount() == 2);
+        Assertions.assertThat(spilledRows()).as("the unscoped counter").isZero();
+        Assertions.assertThat(this.metricRegistry.getGauges())
+                .containsKey(MetricRegistry.name("persister", "shard1", "batch", "queueDepth"))
+                .doesNotContainKey(MetricRegistry.name("persister", "batch", "queueDepth"));
+        try (var segments = Files.list(spillDirectory.resolve("shard1"))) {
+            Assertions.assertThat(segments).isNotEmpty();
+        }
+    }
+
+    @Test
+    void aSpilledBatchTheServerKeepsRejectingIsDroppedAlone(@TempDir final Path spillDirectory) throws Exception {
+        this.delegate.rejects = flow -> flow.getSrcPort() == -1;
+        this.repository = repository(spilling(batchConfig(1, Duration.ofMillis(100)), spillDirectory));
+        this.repository.start();
+        this.repository.persist(List.of(EnrichedFlow.builder().srcPort(-1).build()));
+        await(Duration.ofSeconds(3), "poison batch spilled", () -> spilledRows() == 1);
+
+        // Each live success re-arms the replay, and each replay of the poison batch fails
+        // against a server that evidently takes inserts.
+        int port = 0;
+        final var deadline = Instant.now().plusSeconds(5);
+        while (failedRows() == 0 && Instant.now().isBefore(deadline)) {
+            this.repository.persist(List.of(EnrichedFlow.builder().srcPort(port++).build()));
+            Thread.sleep(50);
+        }
+
+        Assertions.assertThat(failedRows()).isEqualTo(1);
+        await(Duration.ofSeconds(3), "spill emptied", () -> gauge("spillSegments") == 0);
+        Assertions.assertThat(replayedRows()).isZero();
+    }
+
+    @Test
+    void adaptiveSizingShrinksTheSizeTriggerAfterAFailedInsert() throws Exception {
+        final var config = batchConfig(8, Duration.ofMillis(1500));
+        config.getAdaptive().setEnabled(true);
+        config.getAdaptive().setMinRows(2);
+        this.repository = repository(config);
+        Assertions.assertThat(gauge("targetRows")).as("starts at max-rows").isEqualTo(8);
+
+        this.delegate.failuresRemaining.set(1);
+        this.repository.persist(flows(8));
+        this.repository.start();
+        await(Duration.ofSeconds(3), "target halved by the failed insert", () -> gauge("targetRows") == 4);
+        Assertions.assertThat(failedRows()).isEqualTo(8);
+
+        // Four rows now trip the size trigger, well inside the 1.5 s time trigger.
+        this.repository.persist(flows(4));
+        await(Duration.ofMillis(750), "size-triggered flush at the new target", () -> this.delegate.count() == 4);
+    }
+
+    @Test
+    void batchesArriveInTableOrderAndCountTheirPartitions() throws Exception {
+        this.repository = repository(batchConfig(3, Duration.ofMillis(1500)));
+        final var today = Instant.parse("2026-03-01T12:00:00Z");
+        this.repository.persist(List.of(
+                EnrichedFlow.builder().tenant("b").timestamp(today).srcPort(1).build(),
+                EnrichedFlow.builder().tenant("a").timestamp(today).srcPort(2).build(),
+                EnrichedFlow.builder().tenant("a").timestamp(today.minus(Duration.ofDays(1))).srcPort(3).build()));
+        this.repository.start();
+
+        await(Duration.ofSeconds(3), "batch inserted", () -> this.delegate.count() == 3);
+        Assertions.assertThat(this.delegate.store.flows()).extracting(EnrichedFlow::getSrcPort)
+                .containsExactly(3, 2, 1);
+        Assertions.assertThat(this.metricRegistry.histogram(MetricRegistry.name("persister", "batch",
+                "partitionsPerInsert")).getSnapshot().getValues()).containsExactly(2);
+    }
+
+    @Test
+    void staticSizingReportsMaxRowsAsTheTarget() {
+        this.repository = repository(batchConfig(10, Duration.ofMillis(100)));
+
+        Assertions.assertThat(gauge("targetRows")).isEqualTo(10);
+    }
+
+    @Test
+    void rejectsAnAdaptiveFloorAboveMaxRows() {
+        final var config = batchConfig(10, Duration.ofMillis(100));
+        config.getAdaptive().setEnabled(true);
+        config.getAdaptive().setMinRows(11);
+        Assertions.assertThatThrownBy(() -> repository(config))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("adaptive.min-rows");
+    }
+
+    @Test
+    void rejectsAnEnabledSpillWithoutADirectory() {
+        final var config = batchConfig(10, Duration.ofMillis(100));
+        config.getSpill().setEnabled(true);
+        Assertions.assertThatThrownBy(() -> repository(config))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("spill.directory");
+    }
+
+    @Test
+    void rejectsNonPositiveMaxInFlightInserts() {
+        final var config = batchConfig(10, Duration.ofMillis(100));
+        config.setMaxInFlightInserts(0);
+        Assertions.assertThatThrownBy(() -> repository(config))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("max-in-flight-inserts");
+    }
+
     @Test
     void rejectsNonPositiveMaxRows() {
         final var config = batchConfig(0, Duration.ofMillis(100));
@@ -334,6 +676,32 @@ class BatchingFlowRepositoryTest {
         return this.metricRegistry.counter(MetricRegistry.name("persister", "batch", "droppedRows")).getCount();
     }
 
+    private long gauge(final String name) {
+        return ((Number) this.metricRegistry.getGauges().get(MetricRegistry.name("persister", "batch", name))
+                .getValue()).longValue();
+    }
+
+    private long counter(final String name) {
+        return this.metricRegistry.counter(MetricRegistry.name("persister", "batch", name)).getCount();
+    }
+
+    private long spilledRows() {
+        return this.metricRegistry.counter(MetricRegistry.name("persister", "batch", "spilledRows")).getCount();
+    }
+
+    private long replayedRows() {
+        return this.metricRegistry.counter(MetricRegistry.name("persister", "batch", "replayedRows")).getCount();
+    }
+
+    private static ClickhouseConfig.BatchConfig spilling(final ClickhouseConfig.BatchConfig config,
+                                                         final Path directory) {
+        config.getSpill().setEnabled(true);
+        config.getSpill().setDirectory(directory);
+        config.getSpill().setMaxBytes(1 << 20);
+        config.getSpill().setSegmentBytes(64 * 1024);
+        return config;
+    }
+
     private long failedRows() {
         return this.metricRegistry.counter(MetricRegistry.name("persister", "batch", "failedRows")).getCount();
     }
@@ -346,6 +714,10 @@ class BatchingFlowRepositoryTest {
         // Validation requires grace >= 2 × maxLatency; keep the margin tight so tests that leave
         // the flusher parked in an empty drain window on stop() do not burn a production grace.
         config.setShutdownGracePeriod(maxLatency.multipliedBy(3));
+        // One attempt, so an armed failure is a failed batch; the retry tests arm retries.
+        config.getRetry().setMaxAttempts(1);
+        config.getRetry().setInitialBackoff(Duration.ofMillis(10));
+        config.getRetry().setMaxBackoff(Duration.ofMillis(40));
         return config;
     }
 
@@ -385,6 +757,18 @@ class BatchingFlowRepositoryTest {
 
         private volatile CountDownLatch blockOn;
 
+        /** Rows the "server" rejects every time, failing whichever batch holds them. */
+        private volatile Predicate<EnrichedFlow> rejects = flow -> false;
+
+        /** Rows failing a constraint, the way the server reports it: a rejection, not an outage. */
+        private volatile Predicate<EnrichedFlow> violates = flow -> false;
+
+        /** Rows the encoding trips over before anything is sent, the way an overflow would. */
+        private volatile Predicate<EnrichedFlow> unencodable = flow -> false;
+
+        /** The deduplication token of every attempt, in order. */
+        private final List<String> tokens = new CopyOnWriteArrayList<>();
+
         long count() {
             return this.store.count();
         }
@@ -417,9 +801,24 @@ class BatchingFlowRepositoryTest {
             if (this.failuresRemaining.getAndUpdate(remaining -> remaining > 0 ? remaining - 1 : remaining) > 0) {
                 throw new FlowException("poison batch");
             }
+            if (flows.stream().anyMatch(this.rejects)) {
+                throw new FlowException("rejected row");
+            }
+            if (flows.stream().anyMatch(this.unencodable)) {
+                throw new ArithmeticException("long overflow");
+            }
+            if (flows.stream().anyMatch(this.violates)) {
+                throw new FlowException(new ServerException(469, "VIOLATED_CONSTRAINT", 500, "query"));
+            }
             this.store.persist(flows);
         }
 
+        @Override
+        public void persist(final List<EnrichedFlow> flows, final String deduplicationToken) throws FlowException {
+            this.tokens.add(deduplicationToken);
+            persist(flows);
+        }
+
         @Override
         public void stop() {
             this.stops.incrementAndGet();
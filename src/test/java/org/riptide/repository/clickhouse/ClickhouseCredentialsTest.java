@@ -38,7 +38,7 @@ class ClickhouseCredentialsTest {
         assertThat(resolvers.resolve(config.getUsername())).isEqualTo("writer_acme");
         assertThat(resolvers.resolve(config.getPassword())).isEqualTo("s3cr3t");
 
-        assertThatCode(() -> new ClickhouseRepository(new ClickhouseRepository$FlowMapperImpl(), config, resolvers))
+        assertThatCode(() -> new ClickhouseRepository(config, resolvers))
                 .doesNotThrowAnyException();
     }
 
@@ -52,7 +52,7 @@ class ClickhouseCredentialsTest {
                 new StubEnvResolver(Map.of("RIPTIDE_CH_PASSWORD", "fr0m-env"))));
 
         assertThat(resolvers.resolve(config.getPassword())).isEqualTo("fr0m-env");
-        assertThatCode(() -> new ClickhouseRepository(new ClickhouseRepository$FlowMapperImpl(), config, resolvers))
+        assertThatCode(() -> new ClickhouseRepository(config, resolvers))
                 .doesNotThrowAnyException();
     }
 
@@ -65,7 +65,7 @@ class ClickhouseCredentialsTest {
                 new PlainSecretResolver(),
                 new StubEnvResolver(Map.of())));
 
-        assertThatThrownBy(() -> new ClickhouseRepository(new ClickhouseRepository$FlowMapperImpl(), config, resolvers))
+        assertThatThrownBy(() -> new ClickhouseRepository(config, resolvers))
                 .isInstanceOf(IllegalArgumentException.class)
                 .hasMessageContaining("MISSING_CH_PASSWORD");
     }
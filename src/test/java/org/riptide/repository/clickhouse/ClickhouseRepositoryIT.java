@@ -60,7 +60,7 @@ public class ClickhouseRepositoryIT {
         // Read-after-write assertions need synchronous inserts; async has its own test below.
         config.setAsyncInserts(false);
 
-        repository = new ClickhouseRepository(new ClickhouseRepository$FlowMapperImpl(), config, RESOLVERS);
+        repository = new ClickhouseRepository(config, RESOLVERS);
         repository.start();
 
         queryClient = new Client.Builder()
@@ -104,12 +104,12 @@ public class ClickhouseRepositoryIT {
         final var config = configFor(database, true);
 
         // First boot: manage mode creates the flows table and we persist a row.
-        final var first = new ClickhouseRepository(new ClickhouseRepository$FlowMapperImpl(), config, RESOLVERS);
+        final var first = new ClickhouseRepository(config, RESOLVERS);
         first.start();
         first.persist(List.of(testFlow(Instant.now().truncatedTo(ChronoUnit.MILLIS), 30001, 443, 4242L)));
 
         // Simulated restart: a fresh repository runs start() again.
-        final var second = new ClickhouseRepository(new ClickhouseRepository$FlowMapperImpl(), config, RESOLVERS);
+        final var second = new ClickhouseRepository(config, RESOLVERS);
         second.start();
 
         // CREATE TABLE IF NOT EXISTS no-oped, so the previously inserted row survived the restart.
@@ -125,7 +125,7 @@ public class ClickhouseRepositoryIT {
         // UNKNOWN_DATABASE failure on a fresh single-node install).
         final var config = configFor("fresh_managed", true);
 
-        final var repo = new ClickhouseRepository(new ClickhouseRepository$FlowMapperImpl(), config, RESOLVERS);
+        final var repo = new ClickhouseRepository(config, RESOLVERS);
         Assertions.assertThatCode(repo::start).doesNotThrowAnyException();
 
         repo.persist(List.of(testFlow(Instant.now().truncatedTo(ChronoUnit.MILLIS), 40001, 443, 99L)));
@@ -140,18 +140,35 @@ public class ClickhouseRepositoryIT {
         queryClient.execute("CREATE DATABASE IF NOT EXISTS " + database).join();
 
         // Provision the schema via a manage-mode start, then a validate-mode start must succeed.
-        new ClickhouseRepository(new ClickhouseRepository$FlowMapperImpl(), configFor(database, true), RESOLVERS).start();
+        new ClickhouseRepository(configFor(database, true), RESOLVERS).start();
 
-        final var validating = new ClickhouseRepository(new ClickhouseRepository$FlowMapperImpl(), configFor(database, false), RESOLVERS);
+        final var validating = new ClickhouseRepository(configFor(database, false), RESOLVERS);
         Assertions.assertThatCode(validating::start).doesNotThrowAnyException();
     }
 
+    @Test
+    void aReplicaOfASeveralReplicaShardFailsFastOnATableThatDoesNotReplicate() {
+        final var database = "replica_plain";
+        queryClient.execute("CREATE DATABASE IF NOT EXISTS " + database).join();
+        new ClickhouseRepository(configFor(database, true), RESOLVERS).start();
+
+        // Both "replicas" are the one container: its flows table is the plain MergeTree manage
+        // mode created, which the other replica would never see a row of.
+        final var config = configFor(database, false);
+        config.setShards(List.of(List.of(config.getEndpoint(), config.getEndpoint() + "/")));
+        final var replica = new ClickhouseRepository(config, config.getEndpoint(), RESOLVERS);
+        Assertions.assertThatThrownBy(replica::start)
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("MergeTree")
+                .hasMessageContaining("does not replicate");
+    }
+
     @Test
     void validateModeFailsFastWhenTableAbsent() {
         final var database = "validate_missing";
         queryClient.execute("CREATE DATABASE IF NOT EXISTS " + database).join();
 
-        final var validating = new ClickhouseRepository(new ClickhouseRepository$FlowMapperImpl(), configFor(database, false), RESOLVERS);
+        final var validating = new ClickhouseRepository(configFor(database, false), RESOLVERS);
         Assertions.assertThatThrownBy(validating::start)
                 .isInstanceOf(IllegalStateException.class)
                 .hasMessageContaining("flows table not found")
@@ -160,8 +177,7 @@ public class ClickhouseRepositoryIT {
 
     @Test
     void rollupsConserveTotalsAndKeepUndirectedTrafficVisible() throws Exception {
-        final var repo = new ClickhouseRepository(
-                new ClickhouseRepository$FlowMapperImpl(), configFor("rollups", true), RESOLVERS);
+        final var repo = new ClickhouseRepository(configFor("rollups", true), RESOLVERS);
         repo.start();
 
         // Three flows in one minute bucket: one INGRESS, one EGRESS, one UNKNOWN. The UNKNOWN one
@@ -215,7 +231,7 @@ public class ClickhouseRepositoryIT {
         Assertions.assertThat(config.isAsyncInserts()).isFalse();
         config.setAsyncInserts(true);
 
-        final var repo = new ClickhouseRepository(new ClickhouseRepository$FlowMapperImpl(), config, RESOLVERS);
+        final var repo = new ClickhouseRepository(config, RESOLVERS);
         repo.start();
         repo.persist(List.of(
                 testFlow(Instant.now().truncatedTo(ChronoUnit.MILLIS), 50001, 443, 300L),
@@ -234,7 +250,7 @@ public class ClickhouseRepositoryIT {
     @Test
     void batchingDecoratorDrainsAcceptedFlowsOnStopAndFeedsRollups() throws Exception {
         final var config = configFor("batching", true);
-        final var repository = new ClickhouseRepository(new ClickhouseRepository$FlowMapperImpl(), config, RESOLVERS);
+        final var repository = new ClickhouseRepository(config, RESOLVERS);
         // maxRows stays at the production 10k so the size trigger never fires for a handful of
         // flows — delivery rides the time trigger and the shutdown drain. maxLatency is small and
         // the grace generous (vs the production 2s/5s) so a cold first insert on slow CI cannot
@@ -274,7 +290,7 @@ public class ClickhouseRepositoryIT {
                 + "ENGINE = MergeTree() ORDER BY timestamp").get();
 
         // Manage mode: CREATE TABLE IF NOT EXISTS no-ops over the stale table, then the check trips.
-        final var repository = new ClickhouseRepository(new ClickhouseRepository$FlowMapperImpl(), configFor(database, true), RESOLVERS);
+        final var repository = new ClickhouseRepository(configFor(database, true), RESOLVERS);
         Assertions.assertThatThrownBy(repository::start)
                 .isInstanceOf(IllegalStateException.class)
                 .hasMessageContaining("tenant");
@@ -283,7 +299,7 @@ public class ClickhouseRepositoryIT {
     @Test
     void samplesViewConservesBytesAcrossBucketExpansion() throws Exception {
         final var database = "samples_cons";
-        final var repo = new ClickhouseRepository(new ClickhouseRepository$FlowMapperImpl(), configFor(database, true), RESOLVERS);
+        final var repo = new ClickhouseRepository(configFor(database, true), RESOLVERS);
         repo.start();
 
         // The #270 repro: a 90s, 6000-byte, 90-packet flow starting 30s before a bucket boundary.
@@ -316,7 +332,7 @@ public class ClickhouseRepositoryIT {
     @Test
     void samplesViewClampsDegenerateFlowsAndHidesHelperColumns() throws Exception {
         final var database = "samples_guard";
-        final var repo = new ClickhouseRepository(new ClickhouseRepository$FlowMapperImpl(), configFor(database, true), RESOLVERS);
+        final var repo = new ClickhouseRepository(configFor(database, true), RESOLVERS);
         repo.start();
 
         // The two degenerate cases the view's guards exist for: a zero-duration flow (the
@@ -360,7 +376,7 @@ public class ClickhouseRepositoryIT {
     void additiveColumnsPersistAndAnOlderTableUpgradesInPlace() throws Exception {
         final var database = "geo_upgrade";
         final var config = configFor(database, true);
-        final var repo = new ClickhouseRepository(new ClickhouseRepository$FlowMapperImpl(), config, RESOLVERS);
+        final var repo = new ClickhouseRepository(config, RESOLVERS);
         repo.start();
 
         // start() created the rollup views, and ClickHouse refuses to DROP a column a materialized
@@ -379,14 +395,14 @@ public class ClickhouseRepositoryIT {
         }
 
         // Validate mode never alters: it fails fast naming the geo columns and the onboard fix.
-        final var validating = new ClickhouseRepository(new ClickhouseRepository$FlowMapperImpl(), configFor(database, false), RESOLVERS);
+        final var validating = new ClickhouseRepository(configFor(database, false), RESOLVERS);
         Assertions.assertThatThrownBy(validating::start)
                 .isInstanceOf(IllegalStateException.class)
                 .hasMessageContaining("exporterName")
                 .hasMessageContaining("riptide onboard");
 
         // Manage mode adds the columns back in place; the older row survives and reads ''.
-        final var upgraded = new ClickhouseRepository(new ClickhouseRepository$FlowMapperImpl(), config, RESOLVERS);
+        final var upgraded = new ClickhouseRepository(config, RESOLVERS);
         Assertions.assertThatCode(upgraded::start).doesNotThrowAnyException();
         final var legacy = queryClient.queryAll(
                 "SELECT srcCountry, samplingProvenance FROM " + database + ".flows WHERE srcPort = 60001");
@@ -416,8 +432,7 @@ public class ClickhouseRepositoryIT {
     @Test
     void everySamplingProvenanceRoundTripsThroughTheColumn() throws Exception {
         final var database = "provenance_round_trip";
-        final var repo = new ClickhouseRepository(
-                new ClickhouseRepository$FlowMapperImpl(), configFor(database, true), RESOLVERS);
+        final var repo = new ClickhouseRepository(configFor(database, true), RESOLVERS);
         repo.start();
 
         int port = 61000;
@@ -0,0 +1,207 @@
+/*
+ * Copyright 2026 Riptide Labs, <https://github.com/Riptide-Labs>
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package org.riptide.repository.clickhouse;
+
+import com.clickhouse.client.api.ServerException;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import org.junit.jupiter.api.Test;
+import org.riptide.pipeline.EnrichedFlow;
+import org.riptide.pipeline.FlowException;
+import org.riptide.repository.FlowRepository;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FailoverFlowRepositoryTest {
+
+    private static final Duration COOLDOWN = Duration.ofSeconds(30);
+
+    private final MetricRegistry metrics = new MetricRegistry();
+
+    private final AtomicLong now = new AtomicLong(1_000);
+
+    private final Replica first = new Replica();
+    private final Replica second = new Replica();
+
+    private final FailoverFlowRepository repository = failover(this.first, this.second);
+
+    @Test
+    void sendsEveryInsertToTheFirstHealthyReplica() throws Exception {
+        this.repository.start();
+        this.repository.persist(rows());
+        this.repository.persist(rows());
+
+        assertThat(this.first.inserts).hasValue(2);
+        assertThat(this.second.inserts).hasValue(0);
+        assertThat(this.metrics.counter("persister.shard0.replica0.inserts").getCount()).isEqualTo(2);
+        assertThat(healthy(0)).isEqualTo(1);
+    }
+
+    @Test
+    void failsOverAndPassesTheFailedReplicaOverForTheCooldown() throws Exception {
+        this.repository.start();
+        this.first.failing = true;
+
+        this.repository.persist(rows());
+        this.first.failing = false;
+        this.repository.persist(rows());
+
+        assertThat(this.first.attempts).as("not retried inside the cooldown").hasValue(1);
+        assertThat(this.second.inserts).hasValue(2);
+        assertThat(this.metrics.counter("persister.shard0.replica0.failures").getCount()).isEqualTo(1);
+        assertThat(healthy(0)).isZero();
+
+        this.now.addAndGet(COOLDOWN.toNanos());
+        this.repository.persist(rows());
+
+        assertThat(this.first.inserts).as("back after the cooldown").hasValue(1);
+        assertThat(healthy(0)).isEqualTo(1);
+    }
+
+    @Test
+    void triesEveryReplicaWhenAllAreDownAndFailsWithTheLastError() throws Exception {
+        this.repository.start();
+        this.first.failing = true;
+        this.second.failing = true;
+        assertThatThrownBy(() -> this.repository.persist(rows())).isInstanceOf(FlowException.class);
+
+        // Both inside their cooldown, yet a recovered replica still takes the next insert.
+        this.second.failing = false;
+        this.repository.persist(rows());
+
+        assertThat(this.second.inserts).hasValue(1);
+        assertThat(this.first.attempts).hasValue(2);
+    }
+
+    @Test
+    void aRejectionIsNeitherFailedOverNorHeldAgainstTheReplica() throws Exception {
+        this.repository.start();
+        this.first.rejecting = true;
+
+        assertThatThrownBy(() -> this.repository.persist(rows(), "token"))
+                .isInstanceOf(FlowException.class)
+                .hasRootCauseInstanceOf(ServerException.class);
+
+        assertThat(this.second.attempts).hasValue(0);
+        assertThat(healthy(0)).isEqualTo(1);
+        assertThat(this.metrics.counter("persister.shard0.replica0.failures").getCount()).isZero();
+    }
+
+    @Test
+    void passesTheTokenToTheReplicaTakingTheInsert() throws Exception {
+        this.repository.start();
+        this.first.failing = true;
+
+        this.repository.persist(rows(), "token");
+
+        assertThat(this.second.tokens).containsExactly("token");
+    }
+
+    @Test
+    void startsWithOneReplicaDownAndStartsItBeforeItsFirstInsert() throws Exception {
+        this.first.startFailures.set(1);
+
+        this.repository.start();
+        this.repository.persist(rows());
+        assertThat(this.second.inserts).hasValue(1);
+
+        this.now.addAndGet(COOLDOWN.toNanos());
+        this.repository.persist(rows());
+
+        assertThat(this.first.starts).hasValue(2);
+        assertThat(this.first.inserts).hasValue(1);
+    }
+
+    @Test
+    void failsStartupWhenNoReplicaStarts() {
+        this.first.startFailures.set(1);
+        this.second.startFailures.set(1);
+
+        assertThatThrownBy(this.repository::start)
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("shard0");
+    }
+
+    @Test
+    void stopsOnlyStartedReplicasAndUnregistersTheGauges() {
+        this.first.startFailures.set(1);
+        this.repository.start();
+
+        this.repository.stop();
+
+        assertThat(this.first.stops).hasValue(0);
+        assertThat(this.second.stops).hasValue(1);
+        assertThat(this.metrics.getGauges()).isEmpty();
+    }
+
+    private FailoverFlowRepository failover(final Replica... replicas) {
+        final Map<String, FlowRepository> byEndpoint = new LinkedHashMap<>();
+        for (int i = 0; i < replicas.length; i++) {
+            byEndpoint.put("http://replica" + i + ":8123", replicas[i]);
+        }
+        return new FailoverFlowRepository("shard0", byEndpoint, COOLDOWN, this.metrics, this.now::get);
+    }
+
+    private long healthy(final int replica) {
+        final Gauge<?> gauge = this.metrics.getGauges().get("persister.shard0.replica" + replica + ".healthy");
+        return ((Number) gauge.getValue()).longValue();
+    }
+
+    private static List<EnrichedFlow> rows() {
+        return List.of(EnrichedFlow.builder().tenant("a").build());
+    }
+
+    private static final class Replica implements FlowRepository {
+        private final AtomicInteger attempts = new AtomicInteger();
+        private final AtomicInteger inserts = new AtomicInteger();
+        private final AtomicInteger starts = new AtomicInteger();
+        private final AtomicInteger stops = new AtomicInteger();
+        private final AtomicInteger startFailures = new AtomicInteger();
+        private final List<String> tokens = new CopyOnWriteArrayList<>();
+        private volatile boolean failing;
+        private volatile boolean rejecting;
+
+        @Override
+        public void persist(final List<EnrichedFlow> flows) throws FlowException {
+            this.attempts.incrementAndGet();
+            if (this.failing) {
+                throw new FlowException(new IllegalStateException("replica down"));
+            }
+            if (this.rejecting) {
+                throw new FlowException(new ServerException(469, "VIOLATED_CONSTRAINT", 500, "query"));
+            }
+            this.inserts.incrementAndGet();
+        }
+
+        @Override
+        public void persist(final List<EnrichedFlow> flows, final String deduplicationToken) throws FlowException {
+            persist(flows);
+            this.tokens.add(deduplicationToken);
+        }
+
+        @Override
+        public void start() {
+            this.starts.incrementAndGet();
+            if (this.startFailures.getAndUpdate(n -> Math.max(0, n - 1)) > 0) {
+                throw new IllegalStateException("Connection refused");
+            }
+        }
+
+        @Override
+        public void stop() {
+            this.stops.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2026 Riptide Labs, <https://github.com/Riptide-Labs>
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package org.riptide.repository.clickhouse;
+
+import org.junit.jupiter.api.Test;
+import org.riptide.flows.parser.data.Flow;
+import org.riptide.pipeline.EnrichedFlow;
+
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FlowBatchTest {
+
+    private static final Instant NOW = Instant.parse("2026-03-01T12:00:00.123456789Z");
+
+    @Test
+    void holdsEachFieldInItsColumn() throws Exception {
+        final var batch = FlowBatch.of(List.of(EnrichedFlow.builder()
+                .timestamp(NOW)
+                .tenant("acme")
+                .srcAddr(InetAddress.getByName("192.0.2.1"))
+                .dstAddr(InetAddress.getByName("2001:db8::1"))
+                .bytes(3_000_000_000L)
+                .direction(Flow.Direction.EGRESS)
+                .build()));
+
+        assertThat(batch.size()).isEqualTo(1);
+        assertThat(batch.timestamp.epochNanos(0)).isEqualTo(NOW.getEpochSecond() * 1_000_000_000L + NOW.getNano());
+        assertThat(new String(batch.tenant.utf8(batch.tenant.code(0)), StandardCharsets.UTF_8)).isEqualTo("acme");
+        assertThat(batch.bytes.get(0)).isEqualTo(3_000_000_000L);
+        assertThat(batch.direction.get(0)).isEqualTo(Flow.Direction.EGRESS);
+
+        // IPv4 is stored mapped into ::ffff:0:0/96, which is what the IPv6 column holds for it.
+        assertThat(batch.srcAddr.high(0)).isZero();
+        assertThat(batch.srcAddr.low(0)).isEqualTo(0xFFFF_C000_0201L);
+        assertThat(batch.dstAddr.high(0)).isEqualTo(0x2001_0DB8_0000_0000L);
+        assertThat(batch.dstAddr.low(0)).isEqualTo(1L);
+
+        // Absent values are flagged, not confused with zero.
+        assertThat(batch.nextHop.isNull(0)).isTrue();
+        assertThat(batch.inputSnmpIfSpeed.isNull(0)).isTrue();
+        assertThat(batch.srcAddr.isNull(0)).isFalse();
+    }
+
+    @Test
+    void storesEachDistinctStringOncePerBatch() {
+        final List<EnrichedFlow> flows = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            flows.add(EnrichedFlow.builder().tenant(i % 2 == 0 ? "acme" : "other").build());
+        }
+        final var batch = FlowBatch.of(flows);
+
+        assertThat(batch.size()).isEqualTo(1000);
+        assertThat(batch.tenant.cardinality()).isEqualTo(2);
+        assertThat(batch.tenant.code(0)).isNotEqualTo(batch.tenant.code(1)).isEqualTo(batch.tenant.code(2));
+        assertThat(batch.zone.cardinality()).isZero();
+        assertThat(batch.zone.isNull(0)).isTrue();
+    }
+
+    @Test
+    void clearEmptiesTheBatchAndItsDictionariesForReuse() {
+        final var batch = FlowBatch.of(List.of(EnrichedFlow.builder().tenant("acme").bytes(1L).inputSnmpIfSpeed(1000L).build()));
+        batch.clear();
+
+        assertThat(batch.isEmpty()).isTrue();
+        assertThat(batch.tenant.cardinality()).isZero();
+
+        batch.append(EnrichedFlow.builder().tenant("other").build());
+        assertThat(batch.size()).isEqualTo(1);
+        assertThat(batch.tenant.code(0)).isZero();
+        assertThat(batch.inputSnmpIfSpeed.isNull(0)).as("nothing of the previous row survives").isTrue();
+        assertThat(batch.bytes.get(0)).isZero();
+    }
+
+    @Test
+    void instantsBeyondTheNanosecondRangeAreClampedInsteadOfThrown() {
+        final var edge = Instant.EPOCH.plusNanos(Long.MIN_VALUE);
+        final var batch = FlowBatch.of(List.of(
+                EnrichedFlow.builder().timestamp(Instant.parse("2300-01-01T00:00:00Z")).build(),
+                EnrichedFlow.builder().timestamp(Instant.parse("1600-01-01T00:00:00Z")).build(),
+                EnrichedFlow.builder().timestamp(edge).build()));
+
+        assertThat(batch.timestamp.epochNanos(0)).isEqualTo(Long.MAX_VALUE);
+        assertThat(batch.timestamp.epochNanos(1)).isEqualTo(Long.MIN_VALUE);
+        assertThat(batch.timestamp.epochNanos(2)).as("the very edge is exact").isEqualTo(Long.MIN_VALUE);
+        assertThat(batch.timestamp.isNull(0)).isFalse();
+    }
+}
@@ -0,0 +1,371 @@
+/*
+ * Copyright 2026 Riptide Labs, <https://github.com/Riptide-Labs>
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package org.riptide.repository.clickhouse;
+
+import com.clickhouse.client.api.metadata.TableSchema;
+import com.clickhouse.data.ClickHouseColumn;
+import org.junit.jupiter.api.Test;
+import org.riptide.flows.parser.data.Flow;
+import org.riptide.pipeline.EnrichedFlow;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * The writer's bytes are read back here by a hand-rolled {@code RowBinaryWithNamesAndTypes} reader
+ * rather than by a server: what is checked is the encoding of each live column type. The ITs cover
+ * the round trip through a real ClickHouse.
+ */
+class FlowBatchWriterTest {
+
+    private static final Instant NOW = Instant.parse("2026-03-01T12:00:00.123456789Z");
+
+    private static final TableSchema FLOWS = FlowsTableSchema.current();
+
+    @Test
+    void writesEveryFlowsColumnInTableOrder() {
+        final List<String> tableColumns = FLOWS.getColumns().stream().map(ClickHouseColumn::getColumnName).toList();
+
+        assertThat(FlowBatchWriter.forSchema(FLOWS).columns()).containsExactlyElementsOf(tableColumns);
+        assertThat(FlowBatchWriter.FIELDS.keySet()).containsExactlyElementsOf(tableColumns);
+    }
+
+    @Test
+    void headerNamesEachColumnWithItsLiveType() {
+        final var in = write(FLOWS, List.of());
+
+        assertThat(in.varint()).isEqualTo(FLOWS.getColumns().size());
+        for (final ClickHouseColumn column : FLOWS.getColumns()) {
+            assertThat(in.string()).isEqualTo(column.getColumnName());
+        }
+        for (final ClickHouseColumn column : FLOWS.getColumns()) {
+            assertThat(in.string()).isEqualTo(column.getOriginalTypeName());
+        }
+        assertThat(in.remaining()).as("no rows").isZero();
+    }
+
+    @Test
+    void encodesEachColumnAsItsTableType() throws Exception {
+        final var flow = EnrichedFlow.builder()
+                .timestamp(NOW)
+                .receivedAt(NOW)
+                .flowProtocol(Flow.FlowProtocol.IPFIX)
+                .tenant("acme")
+                .exporterAddr("198.51.100.7")
+                .inputSnmp(7)
+                .inputSnmpIfName("eth0")
+                .inputSnmpIfSpeed(4_000_000_000L)
+                .srcAs(4_200_000_000L)
+                .srcAddr(InetAddress.getByName("192.0.2.1"))
+                .srcPort(54_321)
+                .dstAddr(InetAddress.getByName("2001:db8::1"))
+                .bytes(1500L)
+                .direction(Flow.Direction.EGRESS)
+                .tcpFlags(0x12)
+                .samplingAlgorithm(Flow.SamplingAlgorithm.RandomNOutOfNSampling)
+                .samplingInterval(100.0)
+                .samplingProvenance(Flow.SamplingProvenance.Record)
+                .srcLocality(Flow.Locality.PRIVATE)
+                .srcCountry("DE")
+                .build();
+
+        final var in = write(FLOWS, List.of(flow)).skipHeader();
+
+        assertThat(in.getLong()).as("timestamp: DateTime64(3)").isEqualTo(NOW.toEpochMilli());
+        assertThat(in.get()).as("flowProtocol").isEqualTo((byte) 3);
+        assertThat(in.string()).isEqualTo("acme");
+        assertThat(in.string()).as("organisation: absent is ''").isEmpty();
+        assertThat(in.string()).isEmpty();
+        assertThat(in.string()).isEmpty();
+        assertThat(in.string()).isEqualTo("198.51.100.7");
+        assertThat(in.getLong()).as("receivedAt: DateTime64(9)")
+                .isEqualTo(NOW.getEpochSecond() * 1_000_000_000L + NOW.getNano());
+        assertThat(in.getLong()).as("firstSwitched: absent is the epoch").isZero();
+        in.skip(16);
+
+        assertThat(in.getInt()).as("inputSnmp").isEqualTo(7);
+        assertThat(in.nullableString()).isEqualTo("eth0");
+        assertThat(in.nullableString()).isNull();
+        assertThat(in.get()).isZero();
+        assertThat(Integer.toUnsignedLong(in.getInt())).as("inputSnmpIfSpeed: UInt32").isEqualTo(4_000_000_000L);
+
+        assertThat(in.getInt()).as("outputSnmp").isZero();
+        assertThat(in.nullableString()).isNull();
+        assertThat(in.nullableString()).isNull();
+        assertThat(in.get()).as("outputSnmpIfSpeed: null").isEqualTo((byte) 1);
+
+        assertThat(in.getLong()).as("srcAs").isEqualTo(4_200_000_000L);
+        assertThat(in.nullableString()).isNull();
+        assertThat(in.ipv6()).as("IPv4 mapped")
+                .isEqualTo(new byte[]{0, 0, 0, 0, 0, 0, 0, 0, 0, 0, (byte) 0xff, (byte) 0xff, (byte) 192, 0, 2, 1});
+        assertThat(in.get()).as("srcMaskLen").isZero();
+        assertThat(in.nullableString()).isNull();
+        assertThat(Short.toUnsignedInt(in.getShort())).as("srcPort: UInt16").isEqualTo(54_321);
+
+        assertThat(in.getLong()).as("dstAs").isZero();
+        assertThat(in.nullableString()).isNull();
+        assertThat(in.ipv6()).isEqualTo(InetAddress.getByName("2001:db8::1").getAddress());
+        in.skip(1);
+        assertThat(in.nullableString()).isNull();
+        in.skip(2);
+
+        assertThat(in.get()).as("nextHop: null").isEqualTo((byte) 1);
+        assertThat(in.nullableString()).isNull();
+
+        assertThat(in.getLong()).as("bytes").isEqualTo(1500L);
+        assertThat(in.getLong()).as("packets").isZero();
+        assertThat(in.get()).as("direction").isEqualTo((byte) 2);
+        assertThat(in.getInt()).as("engineId").isZero();
+        assertThat(in.getShort()).as("engineType").isZero();
+        assertThat(in.getShort()).as("vlan").isZero();
+        assertThat(in.get()).as("ipProtocolVersion").isZero();
+        assertThat(in.get()).as("protocol").isZero();
+        assertThat(in.get()).as("tcpFlags").isEqualTo((byte) 0x12);
+        assertThat(in.get()).as("tos").isZero();
+
+        assertThat(in.get()).as("samplingAlgorithm").isEqualTo((byte) 4);
+        assertThat(in.getDouble()).as("samplingInterval").isEqualTo(100.0);
+        assertThat(in.nullableString()).as("application").isNull();
+        assertThat(in.get()).as("srcLocality").isEqualTo((byte) 2);
+        assertThat(in.get()).as("dstLocality: absent").isZero();
+        assertThat(in.get()).as("flowLocality: absent").isZero();
+        assertThat(in.get()).as("clockCorrection: null").isEqualTo((byte) 1);
+
+        assertThat(in.string()).isEqualTo("DE");
+        assertThat(in.string()).isEmpty();
+        assertThat(in.string()).isEmpty();
+        assertThat(in.string()).isEmpty();
+        assertThat(in.string()).as("exporterName").isEmpty();
+        assertThat(in.string()).as("samplingProvenance").isEqualTo("record");
+        assertThat(in.remaining()).isZero();
+    }
+
+    /** The column is a {@code Nullable(Int64)} of milliseconds; the flow holds a {@link Duration}. */
+    @Test
+    void clockCorrectionIsWrittenAsInt64Milliseconds() {
+        final var in = write(FLOWS, List.of(
+                EnrichedFlow.builder().clockCorrection(Duration.ofMillis(-1500)).build(),
+                EnrichedFlow.builder().clockCorrection(Duration.ofSeconds(2)).build(),
+                EnrichedFlow.builder().build())).skipHeader();
+
+        for (final Long millis : Arrays.asList(-1500L, 2000L, null)) {
+            for (final ClickHouseColumn column : FLOWS.getColumns()) {
+                if (!column.getColumnName().equals("clockCorrection")) {
+                    in.skipAbsent(column);
+                } else if (millis == null) {
+                    assertThat(in.get()).as("absent").isEqualTo((byte) 1);
+                } else {
+                    assertThat(in.get()).as("present").isZero();
+                    assertThat(in.getLong()).isEqualTo(millis);
+                }
+            }
+        }
+        assertThat(in.remaining()).isZero();
+    }
+
+    @Test
+    void absentSamplingIsWrittenAsAssumed() {
+        final var in = write(FLOWS, List.of(EnrichedFlow.builder().build())).skipHeader();
+
+        for (final ClickHouseColumn column : FLOWS.getColumns()) {
+            if (column.getColumnName().equals("samplingInterval")) {
+                assertThat(in.getDouble()).isEqualTo(1.0);
+            } else if (column.getColumnName().equals("samplingProvenance")) {
+                assertThat(in.string()).isEqualTo("assumed");
+            } else {
+                in.skipAbsent(column);
+            }
+        }
+        assertThat(in.remaining()).isZero();
+    }
+
+    @Test
+    void followsTheLiveTableRatherThanTheDefaultSchema() throws Exception {
+        // Another order, a narrower srcAs that is also Nullable, a finer timestamp, and a column
+        // riptide does not know — which is left out and takes its default.
+        final var live = FlowsTableSchema.of("""
+                CREATE TABLE flows (
+                    srcPort UInt32,
+                    comment String,
+                    tenant LowCardinality(String),
+                    srcAs Nullable(UInt32),
+                    timestamp DateTime64(6, 'UTC')
+                ) ENGINE = MergeTree() ORDER BY tenant
+                """);
+        final var writer = FlowBatchWriter.forSchema(live);
+        assertThat(writer.columns()).containsExactly("srcPort", "tenant", "srcAs", "timestamp");
+
+        final var in = write(live, List.of(EnrichedFlow.builder()
+                .srcPort(443)
+                .tenant("acme")
+                .srcAs(64_512L)
+                .timestamp(NOW)
+                .build())).skipHeader();
+        assertThat(in.getInt()).isEqualTo(443);
+        assertThat(in.string()).isEqualTo("acme");
+        assertThat(in.get()).as("srcAs: present").isZero();
+        assertThat(in.getInt()).isEqualTo(64_512);
+        assertThat(in.getLong()).as("microseconds").isEqualTo(NOW.getEpochSecond() * 1_000_000L + NOW.getNano() / 1_000);
+        assertThat(in.remaining()).isZero();
+    }
+
+    @Test
+    void aColumnOfATypeRiptideCannotWriteFailsTheBinding() {
+        final var live = FlowsTableSchema.of("CREATE TABLE flows (srcPort String) ENGINE = MergeTree()");
+
+        assertThatThrownBy(() -> FlowBatchWriter.forSchema(live))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("srcPort")
+                .hasMessageContaining("String");
+    }
+
+    @Test
+    void anEnumWhoseValuesMovedFailsTheBinding() {
+        final var live = FlowsTableSchema.of("""
+                CREATE TABLE flows (
+                    direction Enum8('INGRESS' = 1, 'UNKNOWN' = 2, 'EGRESS' = 3)
+                ) ENGINE = MergeTree()
+                """);
+
+        assertThatThrownBy(() -> FlowBatchWriter.forSchema(live))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("direction")
+                .hasMessageContaining("EGRESS as 2");
+    }
+
+    @Test
+    void aReusedBatchAndACopiedWriterProduceTheSameBytes() throws Exception {
+        final List<EnrichedFlow> flows = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            flows.add(EnrichedFlow.builder()
+                    .tenant("tenant-" + (i % 3))
+                    .srcAddrHostname("host-" + i)
+                    .bytes((long) i)
+                    .build());
+        }
+        final var batch = new FlowBatch();
+        final var writer = FlowBatchWriter.forSchema(FLOWS);
+
+        batch.appendAll(flows);
+        final var first = new ByteArrayOutputStream();
+        writer.write(batch, first);
+
+        batch.clear();
+        batch.appendAll(flows);
+        final var second = new ByteArrayOutputStream();
+        writer.copy().write(batch, second);
+
+        assertThat(first.size()).as("larger than the writer's buffer").isGreaterThan(64 * 1024);
+        assertThat(second.toByteArray()).isEqualTo(first.toByteArray());
+    }
+
+    private static Reader write(final TableSchema schema, final List<EnrichedFlow> flows) {
+        final var out = new ByteArrayOutputStream();
+        try {
+            FlowBatchWriter.forSchema(schema).write(FlowBatch.of(flows), out);
+        } catch (final IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return new Reader(ByteBuffer.wrap(out.toByteArray()).order(ByteOrder.LITTLE_ENDIAN));
+    }
+
+    /** Just enough of {@code RowBinaryWithNamesAndTypes} to read back what the writer wrote. */
+    private record Reader(ByteBuffer buffer) {
+        byte get() {
+            return this.buffer.get();
+        }
+
+        short getShort() {
+            return this.buffer.getShort();
+        }
+
+        int getInt() {
+            return this.buffer.getInt();
+        }
+
+        long getLong() {
+            return this.buffer.getLong();
+        }
+
+        double getDouble() {
+            return this.buffer.getDouble();
+        }
+
+        byte[] ipv6() {
+            final byte[] address = new byte[16];
+            this.buffer.get(address);
+            return address;
+        }
+
+        int varint() {
+            int value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = this.buffer.get();
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            return value;
+        }
+
+        String string() {
+            final byte[] utf8 = new byte[varint()];
+            this.buffer.get(utf8);
+            return new String(utf8, StandardCharsets.UTF_8);
+        }
+
+        String nullableString() {
+            return this.buffer.get() == 1 ? null : string();
+        }
+
+        Reader skipHeader() {
+            final int columns = varint();
+            for (int i = 0; i < 2 * columns; i++) {
+                string();
+            }
+            return this;
+        }
+
+        void skip(final int bytes) {
+            this.buffer.position(this.buffer.position() + bytes);
+        }
+
+        int remaining() {
+            return this.buffer.remaining();
+        }
+
+        /** Skips one column of an all-absent row, sized by the column's type. */
+        void skipAbsent(final ClickHouseColumn column) {
+            if (column.isNullable()) {
+                assertThat(get()).as(column.getColumnName() + ": null").isEqualTo((byte) 1);
+                return;
+            }
+            final int width = switch (column.getDataType()) {
+                case Enum8, UInt8 -> 1;
+                case UInt16 -> 2;
+                case UInt32 -> 4;
+                case UInt64, Int64, Float64, DateTime64 -> 8;
+                case IPv6 -> 16;
+                case String -> varint();
+                default -> throw new IllegalArgumentException(column.getOriginalTypeName());
+            };
+            skip(width);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2026 Riptide Labs, <https://github.com/Riptide-Labs>
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package org.riptide.repository.clickhouse;
+
+import com.clickhouse.client.api.metadata.TableSchema;
+import com.clickhouse.data.ClickHouseColumn;
+import org.riptide.schema.FlowsSchema;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The {@link TableSchema} a server would report for a {@code flows} table created from
+ * {@link FlowsSchema}'s DDL, for binding a {@link FlowBatchWriter} without a server.
+ */
+public final class FlowsTableSchema {
+
+    private FlowsTableSchema() {
+    }
+
+    /** The schema of a freshly created {@code flows} table. */
+    public static TableSchema current() {
+        return of(FlowsSchema.createFlowsTable("riptide"));
+    }
+
+    /** The columns of a {@code CREATE TABLE} statement: its column list, split at top-level commas. */
+    public static TableSchema of(final String ddl) {
+        final String body = ddl.substring(ddl.indexOf('(') + 1, ddl.indexOf(") ENGINE"))
+                .replaceAll("--[^\n]*", "")
+                .replaceAll("\\s+", " ");
+
+        final List<ClickHouseColumn> columns = new ArrayList<>();
+        int depth = 0;
+        int start = 0;
+        for (int i = 0; i <= body.length(); i++) {
+            final char c = i < body.length() ? body.charAt(i) : ',';
+            if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+            } else if (c == ',' && depth == 0) {
+                final String definition = body.substring(start, i).trim();
+                if (!definition.isEmpty()) {
+                    final int space = definition.indexOf(' ');
+                    columns.add(ClickHouseColumn.of(definition.substring(0, space), definition.substring(space + 1)));
+                }
+                start = i + 1;
+            }
+        }
+        return new TableSchema(columns);
+    }
+}
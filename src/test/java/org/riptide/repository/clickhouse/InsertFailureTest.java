@@ -0,0 +1,73 @@
+/*
+ * Copyright 2026 Riptide Labs, <https://github.com/Riptide-Labs>
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package org.riptide.repository.clickhouse;
+
+import com.clickhouse.client.api.DataTransferException;
+import com.clickhouse.client.api.ServerException;
+import org.junit.jupiter.api.Test;
+import org.riptide.pipeline.FlowException;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.util.concurrent.ExecutionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InsertFailureTest {
+
+    @Test
+    void aConstraintViolationIsARejectionHoweverDeeplyWrapped() {
+        final var failure = new FlowException(new ExecutionException(server(469)));
+
+        assertThat(InsertFailure.of(failure)).isEqualTo(InsertFailure.REJECTED);
+    }
+
+    @Test
+    void retryableServerErrorsAreTransient() {
+        // TOO_MANY_PARTS: the server asks to be given a moment.
+        assertThat(InsertFailure.of(new FlowException(server(252)))).isEqualTo(InsertFailure.TRANSIENT);
+    }
+
+    @Test
+    void otherServerErrorsArePermanent() {
+        // UNKNOWN_TABLE: no retry brings it back, and no half of the batch would fare better.
+        assertThat(InsertFailure.of(new FlowException(server(60)))).isEqualTo(InsertFailure.PERMANENT);
+    }
+
+    @Test
+    void noAnswerFromTheServerIsTransient() {
+        assertThat(InsertFailure.of(new FlowException(new ConnectException("Connection refused"))))
+                .isEqualTo(InsertFailure.TRANSIENT);
+    }
+
+    @Test
+    void anInterruptIsPermanent() {
+        assertThat(InsertFailure.of(new FlowException(new InterruptedException())))
+                .isEqualTo(InsertFailure.PERMANENT);
+    }
+
+    @Test
+    void aRowRiptideCannotEncodeIsARejection() {
+        // Thrown while the rows became the insert: the same rows fail the same way next time.
+        assertThat(InsertFailure.of(new ArithmeticException("long overflow"))).isEqualTo(InsertFailure.REJECTED);
+        assertThat(InsertFailure.of(new FlowException(new IllegalArgumentException("out of range"))))
+                .isEqualTo(InsertFailure.REJECTED);
+    }
+
+    @Test
+    void theClientsOwnFailuresAreLookedThrough() {
+        assertThat(InsertFailure.of(new DataTransferException("write failed", new IOException("Broken pipe"))))
+                .isEqualTo(InsertFailure.TRANSIENT);
+        assertThat(InsertFailure.of(new DataTransferException("write failed", new ArithmeticException())))
+                .isEqualTo(InsertFailure.REJECTED);
+        assertThat(InsertFailure.of(new IllegalStateException("persist called before start()")))
+                .isEqualTo(InsertFailure.TRANSIENT);
+    }
+
+    private static ServerException server(final int code) {
+        return new ServerException(code, "Code: " + code, 500, "query");
+    }
+}
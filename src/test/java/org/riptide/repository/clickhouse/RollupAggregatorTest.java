@@ -0,0 +1,340 @@
+/*
+ * Copyright 2026 Riptide Labs, <https://github.com/Riptide-Labs>
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package org.riptide.repository.clickhouse;
+
+import com.codahale.metrics.MetricRegistry;
+import org.junit.jupiter.api.Test;
+import org.riptide.config.ClickhouseConfig;
+import org.riptide.flows.parser.data.Flow;
+import org.riptide.pipeline.EnrichedFlow;
+import org.riptide.pipeline.FlowException;
+import org.riptide.repository.FlowRepository;
+import org.riptide.schema.FlowsSchema;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RollupAggregatorTest {
+
+    private static final Instant MINUTE = Instant.parse("2026-03-01T12:30:00Z");
+
+    private final AtomicLong now = new AtomicLong(MINUTE.toEpochMilli());
+
+    private final MetricRegistry metrics = new MetricRegistry();
+
+    private final ClickhouseConfig.RollupConfig config = new ClickhouseConfig.RollupConfig();
+
+    private final RecordingRepository repository = new RecordingRepository();
+
+    @Test
+    void totalsEachRollupPerMinuteAsTheViewsWould() throws Exception {
+        final RollupAggregator aggregator = aggregator();
+        aggregator.persist(List.of(
+                flow(MINUTE.plusSeconds(5), "http", 100, 1, Flow.Direction.INGRESS),
+                flow(MINUTE.plusSeconds(50), "http", 200, 2, Flow.Direction.EGRESS),
+                flow(MINUTE.plusSeconds(20), null, 7, 1, Flow.Direction.UNKNOWN),
+                flow(MINUTE.plusSeconds(65), "http", 1_000, 10, Flow.Direction.INGRESS)));
+        assertThat(this.repository.flows).hasSize(4);
+
+        passGraceOf(MINUTE);
+        aggregator.flush(false);
+
+        final List<Map<String, Object>> rows = this.repository.rows(FlowsSchema.ROLLUP_BY_APPLICATION);
+        assertThat(rows).hasSize(2);
+        final Map<String, Object> http = rows.stream().filter(row -> row.get("application").equals("http"))
+                .findFirst().orElseThrow();
+        assertThat(http).containsEntry("tenant", "acme").containsEntry("timestamp", MINUTE.getEpochSecond())
+                .containsEntry("protocol", 6L)
+                .containsEntry("bytes", 300L).containsEntry("packets", 3L).containsEntry("flowCount", 2L)
+                .containsEntry("bytesIn", 100L).containsEntry("bytesOut", 200L)
+                .containsEntry("packetsIn", 1L).containsEntry("packetsOut", 2L);
+        // The null application is folded to '' like ifNull(f.application, ''), and a flow neither
+        // way counts in the totals only.
+        final Map<String, Object> unknown = rows.stream().filter(row -> row.get("application").equals(""))
+                .findFirst().orElseThrow();
+        assertThat(unknown).containsEntry("bytes", 7L).containsEntry("bytesIn", 0L).containsEntry("bytesOut", 0L);
+
+        // The next minute is still inside its grace.
+        assertThat(this.metrics.getGauges().get("persister.rollups.heldRows").getValue()).isEqualTo(4);
+        assertThat(this.repository.rows(FlowsSchema.ROLLUP_BY_CONVERSATION)).hasSize(2)
+                .allSatisfy(row -> assertThat(row).containsEntry("srcAddr", "::ffff:c633:6401")
+                        .containsEntry("dstAddr", ""));
+    }
+
+    @Test
+    void holdsAMinuteUntilItsGraceHasPassed() throws Exception {
+        this.config.setGrace(Duration.ofSeconds(30));
+        final RollupAggregator aggregator = aggregator();
+        aggregator.persist(List.of(flow(MINUTE, "http", 1, 1, Flow.Direction.INGRESS)));
+
+        this.now.set(MINUTE.plusSeconds(60 + 29).toEpochMilli());
+        aggregator.flush(false);
+        assertThat(this.repository.inserts).isEmpty();
+
+        this.now.set(MINUTE.plusSeconds(60 + 30).toEpochMilli());
+        aggregator.flush(false);
+        assertThat(this.repository.inserts).hasSize(FlowsSchema.rollupTableNames().size());
+        assertThat(this.metrics.counter("persister.rollups.insertedRows").getCount())
+                .isEqualTo(FlowsSchema.rollupTableNames().size());
+    }
+
+    @Test
+    void aFlowLaterThanTheGraceIsInsertedOnItsOwn() throws Exception {
+        final RollupAggregator aggregator = aggregator();
+        aggregator.persist(List.of(flow(MINUTE, "http", 1, 1, Flow.Direction.INGRESS)));
+        passGraceOf(MINUTE);
+        aggregator.flush(false);
+
+        aggregator.persist(List.of(flow(MINUTE.plusSeconds(1), "http", 2, 1, Flow.Direction.INGRESS)));
+        aggregator.flush(false);
+
+        // Two rows for one key: the SummingMergeTree folds them into one on merge.
+        assertThat(this.repository.rows(FlowsSchema.ROLLUP_BY_APPLICATION))
+                .extracting(row -> row.get("bytes")).containsExactly(1L, 2L);
+    }
+
+    @Test
+    void pastMaxRowsTheOldestMinutesGoEarly() throws Exception {
+        this.config.setMaxRows(6);
+        final RollupAggregator aggregator = aggregator();
+        aggregator.persist(List.of(
+                flow(MINUTE, "http", 1, 1, Flow.Direction.INGRESS),
+                flow(MINUTE.plusSeconds(60), "http", 1, 1, Flow.Direction.INGRESS)));
+
+        aggregator.flush(false);
+
+        // Eight rows held, four per minute: the older minute goes, the newer stays.
+        assertThat(this.repository.rows(FlowsSchema.ROLLUP_BY_APPLICATION))
+                .extracting(row -> row.get("timestamp")).containsExactly(MINUTE.getEpochSecond());
+        assertThat(this.metrics.getGauges().get("persister.rollups.heldRows").getValue()).isEqualTo(4);
+    }
+
+    @Test
+    void aFailedRollupInsertIsRetriedWithTheNextFlush() throws Exception {
+        final RollupAggregator aggregator = aggregator();
+        aggregator.persist(List.of(flow(MINUTE, "http", 5, 1, Flow.Direction.INGRESS)));
+        passGraceOf(MINUTE);
+        this.repository.failRollups = 1;
+
+        aggregator.flush(false);
+        assertThat(this.repository.rows(FlowsSchema.ROLLUP_BY_APPLICATION)).isEmpty();
+
+        aggregator.flush(false);
+        assertThat(this.repository.rows(FlowsSchema.ROLLUP_BY_APPLICATION)).singleElement()
+                .satisfies(row -> assertThat(row).containsEntry("bytes", 5L));
+        assertThat(this.metrics.counter("persister.rollups.failedRows").getCount()).isZero();
+    }
+
+    @Test
+    void onlyInsertsThatLandedAreTotalled() {
+        final RollupAggregator aggregator = aggregator();
+        this.repository.failFlows = true;
+
+        assertThatThrownBy(() -> aggregator.persist(List.of(flow(MINUTE, "http", 5, 1, Flow.Direction.INGRESS))))
+                .isInstanceOf(FlowException.class);
+        aggregator.flush(true);
+
+        assertThat(this.repository.inserts).isEmpty();
+    }
+
+    @Test
+    void anInsertRepeatingATotalledTokenIsNotTotalledAgain() throws Exception {
+        final RollupAggregator aggregator = aggregator();
+        final List<EnrichedFlow> batch = List.of(flow(MINUTE, "http", 5, 1, Flow.Direction.INGRESS));
+
+        aggregator.persist(batch, "spill-0@8#1f-1+1");
+        aggregator.persist(batch, "spill-0@8#1f-1+1");
+        aggregator.persist(batch, "spill-0@8#1f-1+1.0");
+        passGraceOf(MINUTE);
+        aggregator.flush(false);
+
+        // All three reach the delegate, whose server drops the repeat; a bisected half is an insert of its own.
+        assertThat(this.repository.flows).hasSize(3);
+        assertThat(this.repository.rows(FlowsSchema.ROLLUP_BY_APPLICATION)).singleElement()
+                .satisfies(row -> assertThat(row).containsEntry("bytes", 10L));
+        assertThat(this.metrics.counter("persister.rollups.repeatedInserts").getCount()).isOne();
+    }
+
+    @Test
+    void staysOutWhileAViewStillFeedsTheRollups() throws Exception {
+        this.repository.views = true;
+        final RollupAggregator aggregator = aggregator();
+        aggregator.start();
+        try {
+            aggregator.persist(List.of(flow(MINUTE, "http", 5, 1, Flow.Direction.INGRESS)));
+        } finally {
+            aggregator.stop();
+        }
+
+        assertThat(this.repository.flows).hasSize(1);
+        assertThat(this.repository.inserts).isEmpty();
+    }
+
+    @Test
+    void stopInsertsEveryMinuteStillHeldBeforeStoppingTheDelegate() throws Exception {
+        final RollupAggregator aggregator = aggregator();
+        aggregator.start();
+        aggregator.persist(List.of(flow(MINUTE, "http", 5, 1, Flow.Direction.INGRESS)));
+
+        aggregator.stop();
+
+        assertThat(this.repository.rows(FlowsSchema.ROLLUP_BY_APPLICATION)).hasSize(1);
+        assertThat(this.repository.stoppedAfterInserts).isEqualTo(FlowsSchema.rollupTableNames().size());
+        assertThat(this.metrics.getGauges()).doesNotContainKey("persister.rollups.heldRows");
+    }
+
+    private RollupAggregator aggregator() {
+        return new RollupAggregator(this.repository, this.config, this.metrics, null, this.now::get);
+    }
+
+    private void passGraceOf(final Instant minute) {
+        this.now.set(minute.plusSeconds(60).plus(this.config.getGrace()).toEpochMilli());
+    }
+
+    private static EnrichedFlow flow(final Instant timestamp, final String application, final long bytes,
+                                     final long packets, final Flow.Direction direction) throws IOException {
+        return EnrichedFlow.builder()
+                .tenant("acme")
+                .timestamp(timestamp)
+                .application(application)
+                .protocol(6)
+                .srcAddr(InetAddress.getByName("198.51.100.1"))
+                .bytes(bytes)
+                .packets(packets)
+                .direction(direction)
+                .build();
+    }
+
+    /** Records the flows and decodes the rollup inserts back into rows. */
+    private static final class RecordingRepository implements FlowRepository, RollupSink {
+        private final List<EnrichedFlow> flows = new ArrayList<>();
+        private final List<Insert> inserts = new ArrayList<>();
+        private boolean failFlows;
+        private int failRollups;
+        private boolean views;
+        private int stoppedAfterInserts = -1;
+
+        @Override
+        public void persist(final List<EnrichedFlow> flows) throws FlowException {
+            if (this.failFlows) {
+                throw new FlowException(new IOException("down"));
+            }
+            this.flows.addAll(flows);
+        }
+
+        @Override
+        public void insertRollup(final String table, final List<String> columns, final byte[] body) throws FlowException {
+            if (this.failRollups > 0) {
+                this.failRollups--;
+                throw new FlowException(new IOException("down"));
+            }
+            this.inserts.add(new Insert(table, body));
+        }
+
+        @Override
+        public boolean rollupViewsPresent() {
+            return this.views;
+        }
+
+        @Override
+        public void stop() {
+            this.stoppedAfterInserts = this.inserts.size();
+        }
+
+        List<Map<String, Object>> rows(final String table) {
+            final List<Map<String, Object>> rows = new ArrayList<>();
+            for (final Insert insert : this.inserts) {
+                if (insert.table().equals(table)) {
+                    rows.addAll(decode(insert.body()));
+                }
+            }
+            return rows;
+        }
+    }
+
+    private record Insert(String table, byte[] body) {
+    }
+
+    /** {@code RowBinaryWithNamesAndTypes}, for the types the rollups use. */
+    private static List<Map<String, Object>> decode(final byte[] body) {
+        final ByteBuffer in = ByteBuffer.wrap(body).order(ByteOrder.LITTLE_ENDIAN);
+        final int count = (int) varint(in);
+        final List<String> names = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            names.add(string(in));
+        }
+        final List<String> types = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            types.add(string(in));
+        }
+        final List<Map<String, Object>> rows = new ArrayList<>();
+        while (in.hasRemaining()) {
+            final Map<String, Object> row = new LinkedHashMap<>();
+            for (int i = 0; i < count; i++) {
+                row.put(names.get(i), switch (types.get(i)) {
+                    case "String", "LowCardinality(String)" -> string(in);
+                    case "DateTime('UTC')", "UInt32" -> Integer.toUnsignedLong(in.getInt());
+                    case "UInt8" -> (long) Byte.toUnsignedInt(in.get());
+                    case "UInt64" -> in.getLong();
+                    case "IPv6" -> {
+                        final byte[] address = new byte[16];
+                        in.get(address);
+                        yield ipv6(address);
+                    }
+                    default -> throw new IllegalStateException(types.get(i));
+                });
+            }
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    private static long varint(final ByteBuffer in) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    private static String string(final ByteBuffer in) {
+        final byte[] bytes = new byte[(int) varint(in)];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static String ipv6(final byte[] address) {
+        final ByteBuffer words = ByteBuffer.wrap(address);
+        final StringBuilder text = new StringBuilder();
+        boolean zeros = true;
+        for (int i = 0; i < 8; i++) {
+            final int word = Short.toUnsignedInt(words.getShort());
+            if (zeros && word == 0) {
+                continue;
+            }
+            text.append(zeros ? "::" : ":").append(Integer.toHexString(word));
+            zeros = false;
+        }
+        return text.toString();
+    }
+}
@@ -67,8 +67,7 @@ public class RollupShapeDriftIT {
 
         // Manage mode as the admin creates the schema; then the shared roles and a scoped writer,
         // exactly as `riptide onboard` would.
-        new ClickhouseRepository(new ClickhouseRepository$FlowMapperImpl(), config("default", "", true), RESOLVERS)
-                .start();
+        new ClickhouseRepository(config("default", "", true), RESOLVERS).start();
         for (final String ddl : ProvisioningDdl.ensureShared(DATABASE, 1L)) {
             admin.execute(ddl).get();
         }
@@ -98,8 +97,7 @@ public class RollupShapeDriftIT {
         appender.start();
         logger.addAppender(appender);
         try {
-            new ClickhouseRepository(new ClickhouseRepository$FlowMapperImpl(),
-                    config("writer", "pw", false), RESOLVERS).start();
+            new ClickhouseRepository(config("writer", "pw", false), RESOLVERS).start();
             return List.copyOf(appender.list);
         } finally {
             logger.detachAppender(appender);
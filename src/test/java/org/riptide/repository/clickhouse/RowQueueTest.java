@@ -0,0 +1,150 @@
+/*
+ * Copyright 2026 Riptide Labs, <https://github.com/Riptide-Labs>
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package org.riptide.repository.clickhouse;
+
+import org.junit.jupiter.api.Test;
+import org.riptide.pipeline.EnrichedFlow;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RowQueueTest {
+
+    @Test
+    void takesAsMuchOfAListAsFitsAndSplitsItAtTheBatchBoundary() {
+        final RowQueue queue = new RowQueue(5);
+
+        assertThat(queue.offer(flows(0, 3), 0)).isEqualTo(3);
+        assertThat(queue.offer(flows(3, 4), 0)).as("only the first two fit").isEqualTo(2);
+        assertThat(queue.size()).isEqualTo(5);
+
+        final List<EnrichedFlow> batch = new ArrayList<>();
+        assertThat(queue.drainTo(batch, 4)).isEqualTo(4);
+        assertThat(batch).extracting(EnrichedFlow::getFlowSeqNum).containsExactly(0L, 1L, 2L, 3L);
+        assertThat(queue.size()).isEqualTo(1);
+
+        batch.clear();
+        assertThat(queue.drainTo(batch, 4)).isEqualTo(1);
+        assertThat(batch).extracting(EnrichedFlow::getFlowSeqNum).containsExactly(4L);
+        assertThat(queue.isEmpty()).isTrue();
+    }
+
+    @Test
+    void aFullQueueWaitsForSpaceWithinTheBudget() throws Exception {
+        final RowQueue queue = new RowQueue(2);
+        queue.offer(flows(0, 2), 0);
+
+        final long start = System.nanoTime();
+        assertThat(queue.offer(flows(2, 1), TimeUnit.MILLISECONDS.toNanos(50))).isZero();
+        assertThat(System.nanoTime() - start).as("waited out the budget").isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(50));
+
+        final AtomicInteger offered = new AtomicInteger(-1);
+        final Thread producer = new Thread(() -> offered.set(queue.offer(flows(2, 2), TimeUnit.SECONDS.toNanos(10))));
+        producer.start();
+        final List<EnrichedFlow> batch = new ArrayList<>();
+        // Freed space wakes the parked producer well before its budget runs out.
+        while (offered.get() < 0) {
+            queue.drainTo(batch, 1);
+            Thread.sleep(5);
+        }
+        producer.join();
+        assertThat(offered.get()).isEqualTo(2);
+    }
+
+    @Test
+    void anInterruptEndsTheWaitForSpace() {
+        final RowQueue queue = new RowQueue(1);
+        queue.offer(flows(0, 1), 0);
+
+        Thread.currentThread().interrupt();
+        try {
+            assertThat(queue.offer(flows(1, 1), TimeUnit.SECONDS.toNanos(10))).isZero();
+            assertThat(Thread.currentThread().isInterrupted()).as("the flag stays set").isTrue();
+        } finally {
+            Thread.interrupted();
+        }
+    }
+
+    @Test
+    void drainReturnsOnAFullBatchOrWhenTheWindowEnds() throws Exception {
+        final RowQueue queue = new RowQueue(100);
+        final List<EnrichedFlow> batch = new ArrayList<>();
+
+        queue.offer(flows(0, 3), 0);
+        assertThat(queue.drain(batch, 5, Duration.ofMillis(30))).as("window ended").isEqualTo(3);
+
+        batch.clear();
+        final CountDownLatch started = new CountDownLatch(1);
+        final Thread producer = new Thread(() -> {
+            started.countDown();
+            for (int i = 0; i < 5; i++) {
+                queue.offer(flows(i, 1), 0);
+            }
+        });
+        final long start = System.nanoTime();
+        producer.start();
+        started.await();
+        assertThat(queue.drain(batch, 5, Duration.ofSeconds(10))).isEqualTo(5);
+        assertThat(System.nanoTime() - start).as("woken by the rows, not the window").isLessThan(TimeUnit.SECONDS.toNanos(5));
+        producer.join();
+    }
+
+    @Test
+    void manyProducersNeitherLoseNorOverfill() throws Exception {
+        final int producers = 8;
+        final int lists = 2_000;
+        final RowQueue queue = new RowQueue(64);
+        final List<Thread> threads = new ArrayList<>();
+        final AtomicInteger offered = new AtomicInteger();
+        for (int p = 0; p < producers; p++) {
+            final int base = p * lists * 3;
+            final Thread thread = new Thread(() -> {
+                for (int i = 0; i < lists; i++) {
+                    final List<EnrichedFlow> list = flows(base + i * 3, 3);
+                    int from = 0;
+                    while (from < list.size()) {
+                        from += queue.offer(list.subList(from, list.size()), TimeUnit.MILLISECONDS.toNanos(10));
+                    }
+                    offered.addAndGet(3);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+
+        final List<EnrichedFlow> drained = new ArrayList<>();
+        while (drained.size() < producers * lists * 3) {
+            assertThat(queue.size()).isLessThanOrEqualTo(64);
+            queue.drain(drained, 17, Duration.ofMillis(10));
+        }
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+
+        assertThat(offered.get()).isEqualTo(producers * lists * 3);
+        assertThat(drained).extracting(EnrichedFlow::getFlowSeqNum).doesNotHaveDuplicates().hasSize(producers * lists * 3);
+        assertThat(queue.isEmpty()).isTrue();
+    }
+
+    @Test
+    void rejectsANonPositiveCapacity() {
+        assertThatThrownBy(() -> new RowQueue(0)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static List<EnrichedFlow> flows(final int from, final int count) {
+        return IntStream.range(from, from + count)
+                .mapToObj(i -> EnrichedFlow.builder().flowSeqNum(i).build())
+                .toList();
+    }
+}
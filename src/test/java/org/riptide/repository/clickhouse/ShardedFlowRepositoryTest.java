@@ -0,0 +1,111 @@
+/*
+ * Copyright 2026 Riptide Labs, <https://github.com/Riptide-Labs>
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package org.riptide.repository.clickhouse;
+
+import com.codahale.metrics.MetricRegistry;
+import org.junit.jupiter.api.Test;
+import org.riptide.config.ClickhouseConfig;
+import org.riptide.pipeline.EnrichedFlow;
+import org.riptide.pipeline.FlowException;
+import org.riptide.repository.FlowRepository;
+import org.riptide.repository.TestRepository;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ShardedFlowRepositoryTest {
+
+    private final List<TestRepository> shards = IntStream.range(0, 3)
+            .mapToObj(i -> new TestRepository(new MetricRegistry()))
+            .toList();
+
+    @Test
+    void keepsEachTenantOnOneShard() throws Exception {
+        final var repository = new ShardedFlowRepository(this.shards, ShardingPolicy.byTenant());
+        final List<EnrichedFlow> flows = IntStream.range(0, 300)
+                .mapToObj(i -> EnrichedFlow.builder().tenant("tenant-" + i % 30).flowSeqNum(i).build())
+                .toList();
+
+        repository.persist(flows.subList(0, 150));
+        repository.persist(flows.subList(150, 300));
+
+        assertThat(this.shards.stream().mapToLong(TestRepository::count).sum()).isEqualTo(300);
+        for (final TestRepository shard : this.shards) {
+            assertThat(shard.count()).as("30 tenants spread over 3 shards").isPositive();
+            shard.flows().forEach(flow -> assertThat(
+                    ShardingPolicy.byTenant().shardOf(flow, 3)).isEqualTo(this.shards.indexOf(shard)));
+        }
+    }
+
+    @Test
+    void placesByExporterAndKeepsAbsentKeysTogether() {
+        final ShardingPolicy policy = ShardingPolicy.of(ClickhouseConfig.Sharding.EXPORTER);
+
+        assertThat(policy.shardOf(EnrichedFlow.builder().exporterAddr("192.0.2.1").build(), 4))
+                .isEqualTo(Math.floorMod("192.0.2.1".hashCode(), 4));
+        assertThat(policy.shardOf(EnrichedFlow.builder().build(), 4)).isZero();
+        assertThat(policy.shardOf(EnrichedFlow.builder().exporterAddr("192.0.2.1").build(), 4))
+                .as("deterministic").isEqualTo(policy.shardOf(EnrichedFlow.builder()
+                        .exporterAddr("192.0.2.1").tenant("other").build(), 4));
+    }
+
+    @Test
+    void deliversToTheOtherShardsWhenOneThrows() {
+        final FlowRepository broken = flows -> {
+            throw new FlowException("shard stopped");
+        };
+        final var repository = new ShardedFlowRepository(
+                List.of(broken, this.shards.get(1)), (flow, shards) -> flow.getSrcPort() % shards);
+
+        assertThatThrownBy(() -> repository.persist(List.of(
+                EnrichedFlow.builder().srcPort(0).build(),
+                EnrichedFlow.builder().srcPort(1).build())))
+                .isInstanceOf(FlowException.class);
+
+        assertThat(this.shards.get(1).count()).isEqualTo(1);
+    }
+
+    @Test
+    void rejectsAPolicyPlacingAFlowOutsideTheShards() {
+        final var repository = new ShardedFlowRepository(this.shards, (flow, shards) -> shards);
+
+        assertThatThrownBy(() -> repository.persist(List.of(EnrichedFlow.builder().build())))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void stopsTheStartedShardsWhenOneFailsToStart() {
+        final var stopped = new AtomicInteger();
+        final FlowRepository healthy = new FlowRepository() {
+            @Override
+            public void persist(final List<EnrichedFlow> flows) {
+            }
+
+            @Override
+            public void stop() {
+                stopped.incrementAndGet();
+            }
+        };
+        final FlowRepository failing = new FlowRepository() {
+            @Override
+            public void persist(final List<EnrichedFlow> flows) {
+            }
+
+            @Override
+            public void start() {
+                throw new IllegalStateException("No replica of shard1 could be started");
+            }
+        };
+        final var repository = new ShardedFlowRepository(List.of(healthy, failing), ShardingPolicy.byTenant());
+
+        assertThatThrownBy(repository::start).isInstanceOf(IllegalStateException.class);
+        assertThat(stopped).hasValue(1);
+    }
+}
@@ -0,0 +1,315 @@
+/*
+ * Copyright 2026 Riptide Labs, <https://github.com/Riptide-Labs>
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package org.riptide.repository.clickhouse;
+
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.riptide.pipeline.EnrichedFlow;
+
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SpillQueueTest {
+
+    private static final int SEGMENT = 4 * 1024;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void replaysBatchesInOrderCoalescedUpToMaxRows() throws Exception {
+        try (var spill = SpillQueue.open(this.directory, 1 << 20, SEGMENT)) {
+            spill.append(flows(0, 3));
+            spill.append(flows(3, 3));
+            spill.append(flows(6, 3));
+
+            // Two whole records fit in seven rows; the third would not.
+            final var head = spill.peek(7);
+            assertThat(head.records()).isEqualTo(2);
+            assertThat(ports(head.flows())).containsExactly(0, 1, 2, 3, 4, 5);
+
+            // Peeking removes nothing; removing does.
+            assertThat(spill.peek(7).records()).isEqualTo(2);
+            spill.remove(head.records());
+            assertThat(ports(spill.peek(7).flows())).containsExactly(6, 7, 8);
+
+            spill.remove(1);
+            assertThat(spill.peek(7)).isNull();
+            assertThat(spill.isEmpty()).isTrue();
+            assertThat(spill.bytes()).isZero();
+        }
+    }
+
+    @Test
+    void theSameHeadHasTheSameTokenAcrossAttemptsAndRuns() throws Exception {
+        final String token;
+        try (var spill = SpillQueue.open(this.directory, 1 << 20, SEGMENT)) {
+            spill.append(flows(0, 3));
+            spill.append(flows(3, 3));
+            token = spill.peek(7).token();
+
+            assertThat(spill.peek(7).token()).isEqualTo(token);
+            final var smaller = spill.peek(1);
+            assertThat(smaller.records()).as("the head keeps its records, whatever is asked for").isEqualTo(2);
+            assertThat(smaller.token()).isEqualTo(token);
+        }
+        try (var spill = SpillQueue.open(this.directory, 1 << 20, SEGMENT)) {
+            final var head = spill.peek(1);
+            assertThat(head.records()).as("and keeps them across runs").isEqualTo(2);
+            assertThat(head.token()).isEqualTo(token);
+            spill.remove(head.records());
+            spill.append(flows(6, 3));
+            assertThat(spill.peek(7).token()).isNotEqualTo(token);
+        }
+    }
+
+    @Test
+    void aBatchSpilledWithATokenComesBackAloneUnderIt() throws Exception {
+        try (var spill = SpillQueue.open(this.directory, 1 << 20, SEGMENT)) {
+            spill.append(flows(0, 2));
+            spill.append(flows(2, 2), "3f2b8c1e-attempted");
+            spill.append(flows(4, 2));
+
+            final var untried = spill.peek(100);
+            assertThat(ports(untried.flows())).as("not coalesced with the attempted batch").containsExactly(0, 1);
+            spill.remove(untried.records());
+        }
+        try (var spill = SpillQueue.open(this.directory, 1 << 20, SEGMENT)) {
+            final var attempted = spill.peek(100);
+            assertThat(attempted.records()).isEqualTo(1);
+            assertThat(attempted.token()).isEqualTo("3f2b8c1e-attempted");
+            assertThat(ports(attempted.flows())).containsExactly(2, 3);
+            spill.remove(attempted.records());
+
+            assertThat(ports(spill.peek(100).flows())).containsExactly(4, 5);
+        }
+    }
+
+    @Test
+    void handsOverOneRecordEvenWhenItExceedsMaxRows() throws Exception {
+        try (var spill = SpillQueue.open(this.directory, 1 << 20, SEGMENT)) {
+            spill.append(flows(0, 10));
+
+            assertThat(spill.peek(1).flows()).hasSize(10);
+        }
+    }
+
+    @Test
+    void rollsSegmentsAndDeletesThemOnceReplayed() throws Exception {
+        try (var spill = SpillQueue.open(this.directory, 1 << 20, SEGMENT)) {
+            for (int i = 0; i < 20; i++) {
+                spill.append(flows(i * 10, 10));
+            }
+            assertThat(spill.segments()).isGreaterThan(1);
+            assertThat(segmentFiles()).hasSize(spill.segments());
+
+            int expected = 0;
+            for (var head = spill.peek(10); head != null; head = spill.peek(10)) {
+                assertThat(ports(head.flows())).first().isEqualTo(expected);
+                expected += head.flows().size();
+                spill.remove(head.records());
+            }
+            assertThat(expected).isEqualTo(200);
+            assertThat(spill.segments()).isZero();
+            assertThat(segmentFiles()).isEmpty();
+        }
+    }
+
+    /** Appends that roll at once put one new segment to use between them, and lose nothing. */
+    @Test
+    void concurrentAppendsShareTheSegmentBeingWrittenOut() throws Exception {
+        try (var spill = SpillQueue.open(this.directory, 1 << 20, SEGMENT)) {
+            final var pool = Executors.newFixedThreadPool(8);
+            try {
+                final List<Future<Boolean>> appends = IntStream.range(0, 80)
+                        .mapToObj(i -> pool.submit(() -> spill.append(flows(i * 10, 10))))
+                        .toList();
+                for (final var append : appends) {
+                    assertThat(append.get()).isTrue();
+                }
+            } finally {
+                pool.shutdown();
+            }
+            assertThat(segmentFiles()).hasSize(spill.segments());
+
+            final List<Integer> replayed = new ArrayList<>();
+            for (var head = spill.peek(100); head != null; head = spill.peek(100)) {
+                replayed.addAll(ports(head.flows()));
+                spill.remove(head.records());
+            }
+            assertThat(replayed).containsExactlyInAnyOrderElementsOf(IntStream.range(0, 800).boxed().toList());
+            assertThat(segmentFiles()).isEmpty();
+        }
+    }
+
+    /**
+     * A deleted file that is still mapped keeps its blocks until the mapping goes, so a segment has
+     * to be unmapped when it is deleted, not whenever a GC collects its buffer. Linux names such a
+     * mapping in /proc/self/maps with a "(deleted)" suffix.
+     */
+    @Test
+    void aReplayedSegmentIsUnmappedWhenItIsDeleted() throws Exception {
+        Assumptions.assumeTrue(Files.isReadable(Path.of("/proc/self/maps")), "needs /proc/self/maps");
+        try (var spill = SpillQueue.open(this.directory, 1 << 20, SEGMENT)) {
+            spill.append(flows(0, 2));
+            final String segment = segmentFiles().get(0).toString();
+            assertThat(mappings()).as("mapped while it holds records").anyMatch(line -> line.contains(segment));
+
+            spill.remove(spill.peek(100).records());
+
+            assertThat(segmentFiles()).isEmpty();
+            assertThat(mappings()).as("unmapped once deleted").noneMatch(line -> line.contains(segment));
+        }
+    }
+
+    @Test
+    void segmentsLeftInPlaceCountAgainstTheCap() throws Exception {
+        try (var spill = SpillQueue.open(this.directory, 1 << 20, SEGMENT)) {
+            spill.append(flows(0, 2));
+        }
+        try (var file = new RandomAccessFile(segmentFiles().get(0).toFile(), "rw")) {
+            file.seek(4);
+            file.writeInt(SpillQueue.VERSION + 1);
+        }
+
+        try (var spill = SpillQueue.open(this.directory, 2L * SEGMENT, SEGMENT)) {
+            int accepted = 0;
+            while (spill.append(flows(accepted, 10))) {
+                accepted += 10;
+            }
+            assertThat(spill.segments()).as("the unreplayable segment takes the other half of the cap").isEqualTo(1);
+        }
+        assertThat(segmentFiles().stream().mapToLong(SpillQueueTest::size).sum()).isLessThanOrEqualTo(2L * SEGMENT);
+    }
+
+    @Test
+    void refusesAppendsPastTheCap() throws Exception {
+        try (var spill = SpillQueue.open(this.directory, 2L * SEGMENT, SEGMENT)) {
+            int accepted = 0;
+            while (spill.append(flows(accepted, 10))) {
+                accepted += 10;
+            }
+            assertThat(spill.segments()).isEqualTo(2);
+            assertThat(Files.size(segmentFiles().get(0))).as("allocated in full").isEqualTo(SEGMENT);
+
+            // Replaying frees the room again.
+            spill.remove(spill.peek(Integer.MAX_VALUE).records());
+            assertThat(spill.append(flows(accepted, 10))).isTrue();
+        }
+    }
+
+    @Test
+    void picksUpWhereThePreviousRunLeftOff() throws Exception {
+        try (var spill = SpillQueue.open(this.directory, 1 << 20, SEGMENT)) {
+            spill.append(flows(0, 2));
+            spill.append(flows(2, 2));
+            spill.remove(1);
+        }
+
+        try (var spill = SpillQueue.open(this.directory, 1 << 20, SEGMENT)) {
+            assertThat(ports(spill.peek(100).flows())).containsExactly(2, 3);
+            assertThat(spill.oldestSpilledAt()).isPositive();
+
+            // New appends queue behind what was recovered, in a segment of their own.
+            spill.append(flows(4, 2));
+            assertThat(spill.segments()).isEqualTo(2);
+            assertThat(ports(spill.peek(100).flows())).containsExactly(2, 3, 4, 5);
+        }
+    }
+
+    @Test
+    void aTornRecordEndsTheRecoveredSegment() throws Exception {
+        try (var spill = SpillQueue.open(this.directory, 1 << 20, SEGMENT)) {
+            spill.append(flows(0, 2));
+            spill.append(flows(2, 2));
+        }
+        // Flip a byte near the end of the second record: its checksum no longer matches.
+        final Path segment = segmentFiles().get(0);
+        try (var file = new RandomAccessFile(segment.toFile(), "rw")) {
+            long end = 16;
+            while (true) {
+                file.seek(end);
+                final int length = file.readInt();
+                if (length == 0) {
+                    break;
+                }
+                end += length;
+            }
+            file.seek(end - 1);
+            final int last = file.read();
+            file.seek(end - 1);
+            file.write(last ^ 0xFF);
+        }
+
+        try (var spill = SpillQueue.open(this.directory, 1 << 20, SEGMENT)) {
+            assertThat(ports(spill.peek(100).flows())).containsExactly(0, 1);
+        }
+    }
+
+    @Test
+    void leavesSegmentsOfAnotherVersionInPlace() throws Exception {
+        try (var spill = SpillQueue.open(this.directory, 1 << 20, SEGMENT)) {
+            spill.append(flows(0, 2));
+        }
+        final Path segment = segmentFiles().get(0);
+        try (var file = new RandomAccessFile(segment.toFile(), "rw")) {
+            file.seek(4);
+            file.writeInt(SpillQueue.VERSION + 1);
+        }
+
+        try (var spill = SpillQueue.open(this.directory, 1 << 20, SEGMENT)) {
+            assertThat(spill.isEmpty()).isTrue();
+            spill.append(flows(2, 2));
+        }
+        assertThat(segmentFiles()).hasSize(2).contains(segment);
+    }
+
+    @Test
+    void refusesAppendsOnceClosed() throws Exception {
+        final var spill = SpillQueue.open(this.directory, 1 << 20, SEGMENT);
+        spill.close();
+
+        assertThat(spill.append(flows(0, 1))).isFalse();
+    }
+
+    private static List<String> mappings() throws Exception {
+        return Files.readAllLines(Path.of("/proc/self/maps"));
+    }
+
+    private static long size(final Path file) {
+        try {
+            return Files.size(file);
+        } catch (final java.io.IOException e) {
+            throw new java.io.UncheckedIOException(e);
+        }
+    }
+
+    private List<Path> segmentFiles() throws Exception {
+        try (Stream<Path> files = Files.list(this.directory)) {
+            return files.sorted().toList();
+        }
+    }
+
+    private static List<EnrichedFlow> flows(final int first, final int count) {
+        return IntStream.range(first, first + count)
+                .mapToObj(i -> EnrichedFlow.builder().srcPort(i).tenant("acme").build())
+                .toList();
+    }
+
+    private static List<Integer> ports(final List<EnrichedFlow> flows) {
+        return flows.stream().map(EnrichedFlow::getSrcPort).toList();
+    }
+}
@@ -156,7 +156,7 @@ public class TenantOnboardingIT {
         config.setUsername(SecretRef.of("default"));
         config.setDatabase("brown");
         config.setManageSchema(true);
-        new ClickhouseRepository(new ClickhouseRepository$FlowMapperImpl(), config, RESOLVERS).start();
+        new ClickhouseRepository(config, RESOLVERS).start();
 
         final int code = ProvisioningCommand.run(
                 new String[] {"onboard", "--admin-url", endpoint(), "--database", "brown",
@@ -265,7 +265,7 @@ public class TenantOnboardingIT {
         config.setPassword(SecretRef.of(password));
         config.setDatabase(DATABASE);
         config.setManageSchema(false);
-        final var repository = new ClickhouseRepository(new ClickhouseRepository$FlowMapperImpl(), config, RESOLVERS);
+        final var repository = new ClickhouseRepository(config, RESOLVERS);
         repository.start();
         return repository;
     }
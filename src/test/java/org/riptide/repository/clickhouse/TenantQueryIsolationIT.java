@@ -76,7 +76,7 @@ public class TenantQueryIsolationIT {
 
         // Create the flows table with riptide's own manage-mode DDL, as an admin would, then seed
         // two tenants' rows. The admin writer has no CONST pinning, so it can land any tenant.
-        final var seeder = new ClickhouseRepository(new ClickhouseRepository$FlowMapperImpl(), adminConfig(), RESOLVERS);
+        final var seeder = new ClickhouseRepository(adminConfig(), RESOLVERS);
         seeder.start();
         seeder.persist(List.of(
                 flow("acme", "acme-eu", 27001),
@@ -76,7 +76,7 @@ public class TenantWriteBarrierIT {
         admin.execute("CREATE DATABASE IF NOT EXISTS " + DATABASE).get();
 
         // Create the base flows table with riptide's own manage-mode DDL, as an admin would.
-        new ClickhouseRepository(new ClickhouseRepository$FlowMapperImpl(), adminConfig(true), RESOLVERS).start();
+        new ClickhouseRepository(adminConfig(true), RESOLVERS).start();
 
         // The barrier: per-row CHECK constraints tying tenant/org to the writer's CONST settings.
         // Added by ALTER after creation — the expression is only evaluated on INSERT, so no
@@ -193,8 +193,8 @@ public class TenantWriteBarrierIT {
         config.setDatabase(DATABASE);
         // Provisioned mode: riptide validates the admin-owned schema, never creates it.
         config.setManageSchema(false);
-        final var repository = new ClickhouseRepository(new ClickhouseRepository$FlowMapperImpl(), config, RESOLVERS);
-        // Validate-mode start: describe the provisioned table and register the insert POJO.
+        final var repository = new ClickhouseRepository(config, RESOLVERS);
+        // Validate-mode start: describe the provisioned table and bind the batch writer to it.
         repository.start();
         return repository;
     }
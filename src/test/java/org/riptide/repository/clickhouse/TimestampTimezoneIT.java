@@ -65,7 +65,7 @@ public class TimestampTimezoneIT {
             config.setAsyncInserts(false);
 
             // Build the repository after the zone change so its client picks it up.
-            final var repository = new ClickhouseRepository(new ClickhouseRepository$FlowMapperImpl(), config, RESOLVERS);
+            final var repository = new ClickhouseRepository(config, RESOLVERS);
             repository.start();
 
             // relative to now, not a fixed date: the flows table carries
@@ -7,12 +7,14 @@ package org.riptide.routing;
 
 import org.junit.jupiter.api.Test;
 import org.riptide.pipeline.EnrichedFlow;
+import org.riptide.pipeline.Enricher;
 import org.riptide.pipeline.Source;
 import org.riptide.routing.RoutingConfig.PrefixInfo;
 
 import java.net.InetAddress;
 import java.net.UnknownHostException;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -38,7 +40,7 @@ public class RoutingEnricherTest {
 
     private static void enrich(final RoutingConfig config, final EnrichedFlow flow) throws Exception {
         new RoutingEnricher(config)
-                .enrich(new Source("here", InetAddress.getLoopbackAddress()), flow)
+                .enrich(new Source("here", InetAddress.getLoopbackAddress()), List.of(flow))
                 .get();
     }
 
@@ -54,6 +56,19 @@ public class RoutingEnricherTest {
         assertThat(flow.getSrcAsOrg()).isEqualTo("Example Carrier");
     }
 
+    @Test
+    public void enrichesTheWholeBatchInPlaceWithNothingLeftPending() throws Exception {
+        final RoutingConfig config = config(
+                Map.of("203.0.113.0/24", new PrefixInfo(64500L, "Example Carrier")), Map.of());
+        final List<EnrichedFlow> flows = List.of(flow("203.0.113.7", 0L), flow("203.0.113.8", null));
+
+        final var pending = new RoutingEnricher(config)
+                .enrich(new Source("here", InetAddress.getLoopbackAddress()), flows);
+
+        assertThat(pending).isSameAs(Enricher.COMPLETED);
+        assertThat(flows).extracting(EnrichedFlow::getSrcAs).containsExactly(64500L, 64500L);
+    }
+
     @Test
     public void exporterProvidedAsWinsAndGetsNamed() throws Exception {
         final RoutingConfig config = config(
@@ -45,6 +45,20 @@ class FlowsSchemaTest {
                 .contains("PARTITION BY toYYYYMMDD(timestamp)");
     }
 
+    /**
+     * The batching writer's retries carry a deduplication token, which a plain MergeTree only
+     * honours within {@code non_replicated_deduplication_window}: a fresh table has it, and an
+     * existing one gains it in place.
+     */
+    @Test
+    void flowsTableKeepsADeduplicationWindowForInsertRetries() {
+        assertThat(FlowsSchema.createFlowsTable("riptide"))
+                .contains("non_replicated_deduplication_window = " + FlowsSchema.DEDUPLICATION_WINDOW)
+                .doesNotContain("@@");
+        assertThat(FlowsSchema.enableInsertDeduplication("riptide")).isEqualTo(
+                "ALTER TABLE `riptide`.flows MODIFY SETTING non_replicated_deduplication_window = 1000");
+    }
+
     /**
      * The additive columns are the ones an existing table can gain in place. Both emissions come
      * off one map, so a fresh table and an upgraded one end up with the same columns in the same
@@ -269,6 +283,20 @@ class FlowsSchemaTest {
                 .isEqualTo("`acme_prod`.flows_by_application_1m_mv");
     }
 
+    @Test
+    void collectorRollupsDropEveryViewAndKeepTheTargets() {
+        assertThat(FlowsSchema.dropRollupViews("acme_prod")).containsExactly(
+                "DROP VIEW IF EXISTS `acme_prod`.flows_by_application_1m_mv",
+                "DROP VIEW IF EXISTS `acme_prod`.flows_by_conversation_1m_mv",
+                "DROP VIEW IF EXISTS `acme_prod`.flows_by_exporter_iface_1m_mv",
+                "DROP VIEW IF EXISTS `acme_prod`.flows_by_geo_asn_1m_mv");
+        // The measures are the trailing columns of every rollup, which is how the collector tells
+        // them from the dimensions.
+        assertThat(FlowsSchema.rollupColumns().values()).allSatisfy(columns ->
+                assertThat(List.copyOf(columns.keySet()))
+                        .endsWith(FlowsSchema.rollupMeasureNames().toArray(String[]::new)));
+    }
+
     @Test
     void rollupTtlIsParameterizedAndOutlivesTheRawTable() {
         assertThat(FlowsSchema.createRollupTables("riptide", 90).getFirst())
@@ -16,6 +16,7 @@ import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 
 /**
  * Rollup shape drift (#470).
@@ -184,6 +185,24 @@ class RollupShapeCheckTest {
         assertThat(results).noneMatch(RollupShapeCheck.Result::drifted);
     }
 
+    /**
+     * With the collector feeding the rollups the views are meant to be gone, so their absence
+     * says nothing — the columns are the whole shape. A view that is there anyway feeds the rollup
+     * and is still compared.
+     */
+    @Test
+    void withCollectorRollupsAnAbsentViewIsNoFinding() {
+        final Map<String, String> live = liveSelects();
+        live.remove(FlowsSchema.ROLLUP_BY_EXPORTER_IFACE + "_mv");
+        live.put(FlowsSchema.ROLLUP_BY_GEO_ASN + "_mv", "SELECT 1");
+
+        assertThat(RollupShapeCheck.compare(DB, live, liveColumns(), false))
+                .extracting(RollupShapeCheck.Result::rollup, RollupShapeCheck.Result::status)
+                .contains(
+                        tuple(FlowsSchema.ROLLUP_BY_EXPORTER_IFACE, RollupShapeCheck.Status.MATCHES),
+                        tuple(FlowsSchema.ROLLUP_BY_GEO_ASN, RollupShapeCheck.Status.DRIFTED));
+    }
+
     /**
      * Proof of drift outranks an unreadable view. The column comparison is conclusive on its own,
      * and reporting "cannot verify" while holding it would bury the finding.
@@ -10,7 +10,6 @@ import com.codahale.metrics.MetricRegistry;
 import org.riptide.flows.parser.session.SessionAdmissionConfig;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
-import org.mapstruct.factory.Mappers;
 import org.mockito.Mockito;
 import org.riptide.flows.parser.data.Flow;
 import org.riptide.flows.parser.ie.values.StringValue;
@@ -23,7 +22,6 @@ import org.riptide.inventory.InventoryLoader;
 import org.riptide.inventory.SnmpProfilesConfig;
 import org.riptide.secrets.SecretRef;
 import org.snmp4j.fluent.TargetBuilder;
-import org.riptide.pipeline.EnrichedFlow;
 import org.riptide.pipeline.Enricher;
 import org.riptide.pipeline.Pipeline;
 import org.riptide.pipeline.Source;
@@ -90,7 +88,6 @@ public class SnmpEnricherTest {
         return inventory;
     }
 
-    private final EnrichedFlow.FlowMapper flowMapper = Mappers.getMapper(EnrichedFlow.FlowMapper.class);
 
     @Test
     public void testEnrichment(@TempDir Path temporaryFolder) throws Exception {
@@ -101,7 +98,7 @@ public class SnmpEnricherTest {
 
         final var enrichers = List.<Enricher>of(new SnmpEnricher(liveSnmp(), inventory(), emptyInterfaceTable()));
         final var repository = new TestRepository(metricRegistry);
-        final var pipeline = new Pipeline(enrichers, repository.asPersister(), this.metricRegistry, this.flowMapper);
+        final var pipeline = new Pipeline(enrichers, repository.asPersister(), this.metricRegistry);
 
         final Flow flow = Mockito.mock(Flow.class);
         when(flow.getSrcAddr()).thenReturn(InetAddress.getByName("10.10.10.10"));
@@ -151,7 +148,7 @@ public class SnmpEnricherTest {
 
         final var enrichers = List.<Enricher>of(new SnmpEnricher(liveSnmp(), inventory(), interfaceTable));
         final var repository = new TestRepository(metricRegistry);
-        final var pipeline = new Pipeline(enrichers, repository.asPersister(), this.metricRegistry, this.flowMapper);
+        final var pipeline = new Pipeline(enrichers, repository.asPersister(), this.metricRegistry);
 
         final Flow flow = Mockito.mock(Flow.class);
         when(flow.getSrcAddr()).thenReturn(InetAddress.getByName("10.10.10.10"));
@@ -189,7 +186,7 @@ public class SnmpEnricherTest {
 
         final var enrichers = List.<Enricher>of(new SnmpEnricher(liveSnmp(), inventory(), interfaceTable));
         final var repository = new TestRepository(metricRegistry);
-        final var pipeline = new Pipeline(enrichers, repository.asPersister(), this.metricRegistry, this.flowMapper);
+        final var pipeline = new Pipeline(enrichers, repository.asPersister(), this.metricRegistry);
 
         final Flow flow = Mockito.mock(Flow.class);
         when(flow.getSrcAddr()).thenReturn(InetAddress.getByName("10.10.10.10"));
@@ -222,7 +219,7 @@ public class SnmpEnricherTest {
 
         final var enrichers = List.<Enricher>of(new SnmpEnricher(interfaceSource, inventory(), interfaceTable));
         final var repository = new TestRepository(metricRegistry);
-        final var pipeline = new Pipeline(enrichers, repository.asPersister(), this.metricRegistry, this.flowMapper);
+        final var pipeline = new Pipeline(enrichers, repository.asPersister(), this.metricRegistry);
 
         final Flow flow = Mockito.mock(Flow.class);
         when(flow.getSrcAddr()).thenReturn(InetAddress.getByName("10.10.10.10"));
@@ -279,7 +276,7 @@ public class SnmpEnricherTest {
 
         final var enrichers = List.<Enricher>of(new SnmpEnricher(liveSnmp(), zeroTouch, emptyInterfaceTable()));
         final var repository = new TestRepository(metricRegistry);
-        final var pipeline = new Pipeline(enrichers, repository.asPersister(), this.metricRegistry, this.flowMapper);
+        final var pipeline = new Pipeline(enrichers, repository.asPersister(), this.metricRegistry);
 
         final Flow flow = Mockito.mock(Flow.class);
         when(flow.getSrcAddr()).thenReturn(InetAddress.getByName("10.10.10.10"));
@@ -312,7 +309,7 @@ public class SnmpEnricherTest {
         final var enrichers = List.<Enricher>of(
                 new SnmpEnricher((endpoint, ifIndex) -> Optional.empty(), counting, emptyInterfaceTable()));
         final var repository = new TestRepository(metricRegistry);
-        final var pipeline = new Pipeline(enrichers, repository.asPersister(), this.metricRegistry, this.flowMapper);
+        final var pipeline = new Pipeline(enrichers, repository.asPersister(), this.metricRegistry);
 
         final var flows = new java.util.ArrayList<Flow>();
         for (int i = 0; i < 25; i++) {
@@ -363,7 +360,7 @@ public class SnmpEnricherTest {
 
         final var enrichers = List.<Enricher>of(new SnmpEnricher(interfaceSource, inventory(), emptyInterfaceTable()));
         final var repository = new TestRepository(metricRegistry);
-        final var pipeline = new Pipeline(enrichers, repository.asPersister(), this.metricRegistry, this.flowMapper);
+        final var pipeline = new Pipeline(enrichers, repository.asPersister(), this.metricRegistry);
 
         final Flow flow = Mockito.mock(Flow.class);
         when(flow.getSrcAddr()).thenReturn(InetAddress.getByName("10.10.10.10"));
@@ -398,7 +395,7 @@ public class SnmpEnricherTest {
 
         final var enrichers = List.<Enricher>of(new SnmpEnricher(interfaceSource, inventory(), emptyInterfaceTable()));
         final var repository = new TestRepository(metricRegistry);
-        final var pipeline = new Pipeline(enrichers, repository.asPersister(), this.metricRegistry, this.flowMapper);
+        final var pipeline = new Pipeline(enrichers, repository.asPersister(), this.metricRegistry);
 
         final Flow flow = Mockito.mock(Flow.class);
         when(flow.getSrcAddr()).thenReturn(InetAddress.getByName("10.10.10.10"));
@@ -470,7 +467,7 @@ public class SnmpEnricherTest {
 
         final var enrichers = List.<Enricher>of(new SnmpEnricher(liveSnmp(), inventory(), interfaceTable));
         final var repository = new TestRepository(this.metricRegistry);
-        final var pipeline = new Pipeline(enrichers, repository.asPersister(), this.metricRegistry, this.flowMapper);
+        final var pipeline = new Pipeline(enrichers, repository.asPersister(), this.metricRegistry);
 
         final Flow flow = Mockito.mock(Flow.class);
         when(flow.getSrcAddr()).thenReturn(InetAddress.getByName("10.10.10.10"));
@@ -8,14 +8,12 @@ package org.riptide.snmp;
 import com.codahale.metrics.MetricRegistry;
 import org.riptide.flows.parser.session.SessionAdmissionConfig;
 import org.junit.jupiter.api.Test;
-import org.mapstruct.factory.Mappers;
 import org.mockito.Mockito;
 import org.riptide.flows.parser.data.Flow;
 import org.riptide.inventory.Inventory;
 import org.riptide.inventory.InventoryConfig;
 import org.riptide.inventory.InventoryLoader;
 import org.riptide.inventory.SnmpProfilesConfig;
-import org.riptide.pipeline.EnrichedFlow;
 import org.riptide.pipeline.Enricher;
 import org.riptide.pipeline.Pipeline;
 import org.riptide.pipeline.Source;
@@ -59,13 +57,12 @@ public class StaticInterfaceEnricherTest {
         return inventory;
     }
 
-    private final EnrichedFlow.FlowMapper flowMapper = Mappers.getMapper(EnrichedFlow.FlowMapper.class);
 
     @Test
     public void staticMappingEnrichesWithoutSnmp() throws Exception {
         final var enrichers = List.<Enricher>of(new SnmpEnricher(this.noSnmp, inventory(), emptyInterfaceTable()));
         final var repository = new TestRepository(metricRegistry);
-        final var pipeline = new Pipeline(enrichers, repository.asPersister(), this.metricRegistry, this.flowMapper);
+        final var pipeline = new Pipeline(enrichers, repository.asPersister(), this.metricRegistry);
 
         final Flow flow = Mockito.mock(Flow.class);
         when(flow.getSrcAddr()).thenReturn(InetAddress.getByName("10.10.10.10"));